@@ -33,8 +33,11 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Reads and decodes protocol message fields.
@@ -68,6 +71,14 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream reading directly from the given buffer
+   * (i.e. memory mapped file) using absolute positions, buffer position is not modified.
+   */
+  public static CodedInputStream newInstance(ByteBuffer byteBuffer) {
+    return new CodedInputStream(byteBuffer);
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -222,6 +233,15 @@ public final class CodedInputStream {
   /** Read a {@code string} field value from the stream. */
   public String readString() throws IOException {
     final int size = readRawVarint32();
+    if (byteBuffer != null) {
+      // osmand change: decode in place without intermediate byte array
+      if (size <= (bufferSize - bufferPos) && size >= 0) {
+        final String result = decodeUtf8(bufferPos, size);
+        bufferPos += size;
+        return result;
+      }
+      return new String(readRawBytes(size), "UTF-8");
+    }
     if (size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
@@ -324,7 +344,7 @@ public final class CodedInputStream {
     final int size = readRawVarint32();
     if (size == 0) {
       return ByteString.EMPTY;
-    } else if (size <= (bufferSize - bufferPos) && size > 0) {
+    } else if (size <= (bufferSize - bufferPos) && size > 0 && byteBuffer == null) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
       final ByteString result = ByteString.copyFrom(buffer, bufferPos, size);
@@ -376,6 +396,9 @@ public final class CodedInputStream {
    * upper bits.
    */
   public int readRawVarint32() throws IOException {
+    if (byteBuffer != null && bufferSize - bufferPos >= 10) {
+      return readRawVarint32FromByteBuffer();
+    }
     byte tmp = readRawByte();
     if (tmp >= 0) {
       return tmp;
@@ -460,8 +483,63 @@ public final class CodedInputStream {
     throw InvalidProtocolBufferException.malformedVarint();
   }
 
+  // osmand change: varint is decoded from the buffer without per byte bounds checks
+  private int readRawVarint32FromByteBuffer() throws IOException {
+    int pos = bufferPos;
+    final ByteBuffer bb = byteBuffer;
+    int tmp = bb.get(pos++);
+    if (tmp >= 0) {
+      bufferPos = pos;
+      return tmp;
+    }
+    int result = tmp & 0x7f;
+    if ((tmp = bb.get(pos++)) >= 0) {
+      result |= tmp << 7;
+    } else {
+      result |= (tmp & 0x7f) << 7;
+      if ((tmp = bb.get(pos++)) >= 0) {
+        result |= tmp << 14;
+      } else {
+        result |= (tmp & 0x7f) << 14;
+        if ((tmp = bb.get(pos++)) >= 0) {
+          result |= tmp << 21;
+        } else {
+          result |= (tmp & 0x7f) << 21;
+          result |= (tmp = bb.get(pos++)) << 28;
+          if (tmp < 0) {
+            // Discard upper 32 bits.
+            int i = 0;
+            while (bb.get(pos++) < 0) {
+              if (++i == 5) {
+                throw InvalidProtocolBufferException.malformedVarint();
+              }
+            }
+          }
+        }
+      }
+    }
+    bufferPos = pos;
+    return result;
+  }
+
   /** Read a raw Varint from the stream. */
   public long readRawVarint64() throws IOException {
+    if (byteBuffer != null && bufferSize - bufferPos >= 10) {
+      // osmand change
+      int pos = bufferPos;
+      int shift = 0;
+      long result = 0;
+      while (shift < 64) {
+        final byte b = byteBuffer.get(pos++);
+        result |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          bufferPos = pos;
+          return result;
+        }
+        shift += 7;
+      }
+      throw InvalidProtocolBufferException.malformedVarint();
+    }
     int shift = 0;
     long result = 0;
     while (shift < 64) {
@@ -539,6 +617,12 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change: whole data is available in byteBuffer, bufferPos is absolute position in it
+  private final ByteBuffer byteBuffer;
+  private final ByteBuffer byteBufferView;
+  private char[] chars;
+  // osmand change: bytes loaded from file, statistics of search which is read from other threads
+  private final AtomicLong bytesLoaded = new AtomicLong();
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -570,6 +654,8 @@ public final class CodedInputStream {
 
   private CodedInputStream(final byte[] buffer, final int off, final int len) {
     this.buffer = buffer;
+    this.byteBuffer = null;
+    this.byteBufferView = null;
     bufferSize = off + len;
     bufferPos = off;
     totalBytesRetired = -off;
@@ -583,11 +669,26 @@ public final class CodedInputStream {
 		bufferPos = 0;
 		totalBytesRetired = 0;
 		this.raf = raf;
+		this.byteBuffer = null;
+		this.byteBufferView = null;
+		input = null;
+	}
+
+	// osmand change
+	private CodedInputStream(final ByteBuffer byteBuffer) {
+		buffer = null;
+		this.byteBuffer = byteBuffer;
+		this.byteBufferView = byteBuffer.duplicate();
+		bufferSize = byteBuffer.limit();
+		bufferPos = 0;
+		totalBytesRetired = 0;
 		input = null;
 	}
 
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
+    this.byteBuffer = null;
+    this.byteBufferView = null;
     bufferSize = 0;
     bufferPos = 0;
     totalBytesRetired = 0;
@@ -747,6 +848,14 @@ public final class CodedInputStream {
         return false;
       }
     }
+    if (byteBuffer != null) {
+      // osmand change: there is nothing to read after the end of buffer
+      if (mustSucceed) {
+        throw InvalidProtocolBufferException.truncatedMessage();
+      } else {
+        return false;
+      }
+    }
 
     totalBytesRetired += bufferSize;
 
@@ -757,7 +866,10 @@ public final class CodedInputStream {
     	long remain = raf.length() - raf.getFilePointer();
     	bufferSize = (int) Math.min(remain, buffer.length);
     	if(bufferSize > 0) {
-    		raf.readFully(buffer, 0, bufferSize);
+    		if (!readPrefetched(totalBytesRetired, bufferSize)) {
+    			raf.readFully(buffer, 0, bufferSize);
+    			bytesLoaded.addAndGet(bufferSize);
+    		}
     	} else {
     		bufferSize = -1;
     	}
@@ -797,6 +909,9 @@ public final class CodedInputStream {
     if (bufferPos == bufferSize) {
       refillBuffer(true);
     }
+    if (byteBuffer != null) {
+      return byteBuffer.get(bufferPos++);
+    }
     return buffer[bufferPos++];
   }
 
@@ -818,6 +933,18 @@ public final class CodedInputStream {
       throw InvalidProtocolBufferException.truncatedMessage();
     }
 
+    if (byteBuffer != null) {
+      // osmand change
+      if (size > bufferSize - bufferPos) {
+        throw InvalidProtocolBufferException.truncatedMessage();
+      }
+      final byte[] bytes = new byte[size];
+      byteBufferView.position(bufferPos);
+      byteBufferView.get(bytes, 0, size);
+      bufferPos += size;
+      return bytes;
+    }
+
     if (size <= bufferSize - bufferPos) {
       // We have all the bytes we need already.
       final byte[] bytes = new byte[size];
@@ -859,6 +986,20 @@ public final class CodedInputStream {
       // malicious message must actually *be* extremely large to cause
       // problems.  Meanwhile, we limit the allowed size of a message elsewhere.
 
+      if (raf != null) {
+        // osmand change: read the rest directly into result without chunks
+        final byte[] bytes = new byte[size];
+        int pos = bufferSize - bufferPos;
+        System.arraycopy(buffer, bufferPos, bytes, 0, pos);
+        totalBytesRetired += bufferSize;
+        bufferPos = 0;
+        bufferSize = 0;
+        raf.readFully(bytes, pos, size - pos);
+        totalBytesRetired += size - pos;
+        bytesLoaded.addAndGet(size - pos);
+        return bytes;
+      }
+
       // Remember the buffer markers since we'll have to copy the bytes out of
       // it later.
       final int originalBufferPos = bufferPos;
@@ -882,6 +1023,7 @@ public final class CodedInputStream {
         	if(raf != null) {
         		raf.readFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
+        		bytesLoaded.addAndGet(n);
         	} else {
         		n = (input == null) ? -1 :
         	    input.read(chunk, pos, chunk.length - pos);
@@ -966,6 +1108,13 @@ public final class CodedInputStream {
   }
   
   public void seek(long pointer) throws IOException {
+	  if (byteBuffer != null) {
+		  if (pointer > currentLimit || pointer > bufferSize) {
+			  throw InvalidProtocolBufferException.truncatedMessage();
+		  }
+		  bufferPos = (int) pointer;
+		  return;
+	  }
 	  if (pointer - totalBytesRetired >= 0 && pointer - totalBytesRetired < bufferSize) {
 		  if (pointer > currentLimit) {
 		  // Then fail.
@@ -973,6 +1122,10 @@ public final class CodedInputStream {
 		  }
 		  bufferPos = (int) (pointer - totalBytesRetired);
 	  } else {
+		  if (prefetchCount > 0 && findPrefetchRange(pointer) == -1) {
+			  // decoding left planned ranges
+			  clearPrefetch();
+		  }
 		  totalBytesRetired = (int) pointer;
 		  bufferSizeAfterLimit = 0;
 		  raf.seek(pointer);
@@ -980,4 +1133,138 @@ public final class CodedInputStream {
 		  bufferSize = 0;
 	  }
   }
+
+  /**
+   * osmand change: total number of bytes loaded from file (prefetched ranges are counted once),
+   * memory mapped buffer is not loaded explicitly so 0 is returned for it.
+   */
+  public long getBytesLoaded() {
+    return bytesLoaded.get();
+  }
+
+  // osmand change
+  private static final int PREFETCH_CHUNK = 256 * 1024;
+  private static final int PAGE_SIZE = 4096;
+  // planned ranges of file in file order
+  private long[] prefetchStarts = new long[0];
+  private long[] prefetchEnds = new long[0];
+  private int prefetchCount;
+  // loaded part of planned range
+  private byte[] prefetchBuffer;
+  private long prefetchStart;
+  private int prefetchLength;
+  private volatile int pageSink;
+
+  /**
+   * Plans read ahead of given range of the file (ranges are added in file order).
+   * When decoding reaches the range it is loaded into stream buffer with large sequential reads
+   * instead of small random reads, so bytes of the range are read from file once.
+   * Plan is dropped when stream is positioned outside of planned ranges.
+   * Pages of mapped buffer are touched to be loaded by OS before decoding.
+   * Current position and limits are not changed.
+   */
+  public void prefetch(long pointer, int length) throws IOException {
+    if (length <= 0 || pointer < 0) {
+      return;
+    }
+    if (byteBuffer != null) {
+      final int end = (int) Math.min(byteBuffer.limit(), pointer + length);
+      int sink = 0;
+      for (long p = pointer; p < end; p += PAGE_SIZE) {
+        sink += byteBuffer.get((int) p);
+      }
+      pageSink = sink;
+    } else if (raf != null) {
+      if (prefetchCount > 0 && prefetchEnds[prefetchCount - 1] > pointer) {
+        // ranges are not in file order, new plan is started
+        clearPrefetch();
+      }
+      if (prefetchCount == prefetchStarts.length) {
+        prefetchStarts = Arrays.copyOf(prefetchStarts, Math.max(8, prefetchCount * 2));
+        prefetchEnds = Arrays.copyOf(prefetchEnds, prefetchStarts.length);
+      }
+      prefetchStarts[prefetchCount] = pointer;
+      prefetchEnds[prefetchCount] = pointer + length;
+      prefetchCount++;
+    }
+  }
+
+  private void clearPrefetch() {
+    prefetchCount = 0;
+    prefetchBuffer = null;
+    prefetchLength = 0;
+  }
+
+  private int findPrefetchRange(long pointer) {
+    int i = Arrays.binarySearch(prefetchStarts, 0, prefetchCount, pointer);
+    if (i < 0) {
+      i = -i - 2;
+    }
+    return i >= 0 && pointer < prefetchEnds[i] ? i : -1;
+  }
+
+  // fills buffer from loaded part of planned range, loads next part of range if needed
+  private boolean readPrefetched(long pointer, int size) throws IOException {
+    if (prefetchCount == 0) {
+      return false;
+    }
+    if (pointer < prefetchStart || pointer + size > prefetchStart + prefetchLength) {
+      int range = findPrefetchRange(pointer);
+      if (range == -1) {
+        // block could be larger than planned range
+        return false;
+      }
+      long end = Math.min(prefetchEnds[range], pointer + PREFETCH_CHUNK);
+      final int length = (int) Math.min(raf.length() - pointer, Math.max(end - pointer, size));
+      // end of loaded part is not read again
+      int loaded = 0;
+      if (pointer >= prefetchStart && pointer < prefetchStart + prefetchLength) {
+        loaded = (int) (prefetchStart + prefetchLength - pointer);
+      }
+      byte[] b = prefetchBuffer;
+      if (b == null || b.length < length) {
+        b = new byte[Math.max(PREFETCH_CHUNK, length)];
+      }
+      if (loaded > 0) {
+        System.arraycopy(prefetchBuffer, (int) (pointer - prefetchStart), b, 0, loaded);
+      }
+      prefetchBuffer = b;
+      raf.seek(pointer + loaded);
+      raf.readFully(prefetchBuffer, loaded, length - loaded);
+      bytesLoaded.addAndGet(length - loaded);
+      prefetchStart = pointer;
+      prefetchLength = length;
+    }
+    System.arraycopy(prefetchBuffer, (int) (pointer - prefetchStart), buffer, 0, size);
+    raf.seek(pointer + size);
+    return true;
+  }
+
+  // osmand change: decodes UTF-8 directly from byteBuffer reusing char array
+  private String decodeUtf8(int pos, final int size) {
+    if (chars == null || chars.length < size) {
+      chars = new char[Math.max(size, 256)];
+    }
+    final ByteBuffer bb = byteBuffer;
+    final int end = pos + size;
+    int n = 0;
+    while (pos < end) {
+      final int b = bb.get(pos++);
+      if (b >= 0) {
+        chars[n++] = (char) b;
+      } else if ((b & 0xE0) == 0xC0 && pos < end) {
+        chars[n++] = (char) (((b & 0x1F) << 6) | (bb.get(pos++) & 0x3F));
+      } else if ((b & 0xF0) == 0xE0 && pos + 1 < end) {
+        chars[n++] = (char) (((b & 0x0F) << 12) | ((bb.get(pos++) & 0x3F) << 6) | (bb.get(pos++) & 0x3F));
+      } else if ((b & 0xF8) == 0xF0 && pos + 2 < end) {
+        final int cp = ((b & 0x07) << 18) | ((bb.get(pos++) & 0x3F) << 12) | ((bb.get(pos++) & 0x3F) << 6)
+            | (bb.get(pos++) & 0x3F);
+        chars[n++] = Character.highSurrogate(cp);
+        chars[n++] = Character.lowSurrogate(cp);
+      } else {
+        chars[n++] = '\uFFFD';
+      }
+    }
+    return new String(chars, 0, n);
+  }
 }
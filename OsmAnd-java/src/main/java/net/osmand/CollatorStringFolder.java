@@ -0,0 +1,158 @@
+package net.osmand;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Folds strings to a form which could be compared with plain string operations
+ * instead of the primary collator (case and diacritics are removed, ignorable separators are aligned).
+ * Folding of every character is calculated once and checked against the collator,
+ * so characters which collator distinguishes (for example 'ё' and 'е') are kept as is.
+ * {@link #foldForContains(String)} keeps the semantics of collator comparison of not simplified names:
+ * case is kept where collator distinguishes it and ignorable characters are removed.
+ */
+public class CollatorStringFolder {
+
+	private static final int PAGE_SIZE = 256;
+	private static final String[][] EXPANSIONS = new String[][] {
+		{"æ", "ae"}, {"œ", "oe"}, {"ĳ", "ij"}, {"ø", "o"}, {"ł", "l"}, {"đ", "d"},
+		{"ħ", "h"}, {"ı", "i"}, {"þ", "th"}, {"ŧ", "t"}, {"ŀ", "l"}
+	};
+
+	private static CollatorStringFolder instance;
+
+	private final Collator collator;
+	private final String language;
+	// folded characters split by pages, page is published when all its characters are folded
+	private final AtomicReferenceArray<String[]> pages =
+			new AtomicReferenceArray<>(Character.MAX_VALUE / PAGE_SIZE + 1);
+	private final AtomicReferenceArray<String[]> containsPages =
+			new AtomicReferenceArray<>(Character.MAX_VALUE / PAGE_SIZE + 1);
+
+	public CollatorStringFolder(Collator collator) {
+		this(collator, null);
+	}
+
+	private CollatorStringFolder(Collator collator, String language) {
+		this.collator = collator;
+		this.language = language;
+	}
+
+	/**
+	 * @return folder for the primary collator of current locale
+	 */
+	public static synchronized CollatorStringFolder getInstance() {
+		String lang = Locale.getDefault().getLanguage();
+		if (instance == null || !lang.equals(instance.language)) {
+			instance = new CollatorStringFolder(OsmAndCollator.primaryCollator(), lang);
+		}
+		return instance;
+	}
+
+	public Collator getCollator() {
+		return collator;
+	}
+
+	public String fold(String s) {
+		return fold(s, pages, false);
+	}
+
+	public String foldForContains(String s) {
+		return fold(s, containsPages, true);
+	}
+
+	private String fold(String s, AtomicReferenceArray<String[]> pages, boolean contains) {
+		StringBuilder b = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			String f = foldChar(c, pages, contains);
+			if (b == null) {
+				if (f.length() == 1 && f.charAt(0) == c) {
+					continue;
+				}
+				b = new StringBuilder(s.length() + 4);
+				b.append(s, 0, i);
+			}
+			b.append(f);
+		}
+		return b == null ? s : b.toString();
+	}
+
+	public String foldChar(char c) {
+		return foldChar(c, pages, false);
+	}
+
+	private String foldChar(char c, AtomicReferenceArray<String[]> pages, boolean contains) {
+		String[] page = pages.get(c / PAGE_SIZE);
+		if (page == null) {
+			page = loadPage(c / PAGE_SIZE, pages, contains);
+		}
+		return page[c % PAGE_SIZE];
+	}
+
+	private synchronized String[] loadPage(int index, AtomicReferenceArray<String[]> pages, boolean contains) {
+		String[] page = pages.get(index);
+		if (page == null) {
+			page = new String[PAGE_SIZE];
+			for (int i = 0; i < PAGE_SIZE; i++) {
+				page[i] = calculateFold((char) (index * PAGE_SIZE + i), contains);
+			}
+			pages.set(index, page);
+		}
+		return page;
+	}
+
+	private String calculateFold(char c, boolean contains) {
+		String s = String.valueOf(c);
+		if (Character.isSurrogate(c)) {
+			return s;
+		}
+		if (c == 'ß' || (c == 'ẞ' && !contains)) {
+			// same as CollatorStringMatcher simplification
+			return "ss";
+		}
+		// matcher compares lower case strings, collator doesn't ignore case for some scripts
+		String lower = s.toLowerCase(Locale.getDefault());
+		boolean letterOrDigit = Character.isLetterOrDigit(c);
+		if (collator.equals(lower, "")) {
+			// ignorable characters, separators are aligned to space so word boundaries are kept
+			return letterOrDigit || contains ? "" : " ";
+		}
+		if (contains && !lower.equals(s) && !collator.equals(s, lower)) {
+			// name is not simplified for contains, so upper case is different from lower case part
+			return s;
+		}
+		if (!letterOrDigit) {
+			return lower;
+		}
+		String candidate = stripMarks(Normalizer.normalize(lower, Normalizer.Form.NFKD));
+		if (candidate.equals(lower)) {
+			candidate = null;
+			for (String[] e : EXPANSIONS) {
+				if (e[0].equals(lower)) {
+					candidate = e[1];
+					break;
+				}
+			}
+		}
+		if (candidate != null && candidate.length() > 0 && !candidate.equals(lower)
+				&& collator.equals(lower, candidate)) {
+			return candidate;
+		}
+		return lower;
+	}
+
+	private static String stripMarks(String s) {
+		StringBuilder b = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			int type = Character.getType(c);
+			if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+					&& type != Character.ENCLOSING_MARK) {
+				b.append(Character.toLowerCase(c));
+			}
+		}
+		return b.toString();
+	}
+}
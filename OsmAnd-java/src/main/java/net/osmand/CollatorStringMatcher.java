@@ -13,8 +13,10 @@ import java.util.Locale;
 public class CollatorStringMatcher implements StringMatcher {
 
 	private final Collator collator;
+	private final CollatorStringFolder folder;
 	private final StringMatcherMode mode;
 	private final String part;
+	private final String foldedPart;
 	
 	public static enum StringMatcherMode {
 		// tests only first word as base starts with part
@@ -33,6 +35,7 @@ public class CollatorStringMatcher implements StringMatcher {
 
 	public CollatorStringMatcher(String part, StringMatcherMode mode) {
 		this.collator = OsmAndCollator.primaryCollator();
+		this.folder = CollatorStringFolder.getInstance();
 		part = simplifyStringAndAlignChars(part);
 		if (part.length() > 0 && part.charAt(part.length() - 1) == '.') {
 			part = part.substring(0, part.length() - 1);
@@ -43,6 +46,7 @@ public class CollatorStringMatcher implements StringMatcher {
 			}
 		}
 		this.part = part;
+		this.foldedPart = mode == StringMatcherMode.CHECK_CONTAINS ? folder.foldForContains(part) : folder.fold(part);
 		this.mode = mode;
 		
 	}
@@ -50,11 +54,99 @@ public class CollatorStringMatcher implements StringMatcher {
 	public Collator getCollator() {
 		return collator;
 	}
+
+	public String getPart() {
+		return part;
+	}
+
+	public StringMatcherMode getMode() {
+		return mode;
+	}
 	
 	@Override
 	public boolean matches(String name) {
+		if (mode == StringMatcherMode.CHECK_CONTAINS) {
+			return folder.foldForContains(name).contains(foldedPart);
+		}
+		return fmatches(folder.fold(name), foldedPart, mode);
+	}
+
+	/**
+	 * Same as matches but compares with collator for every checked substring (slow)
+	 */
+	public boolean matchesWithCollator(String name) {
 		return cmatches(collator, name, part, mode);
 	}
+
+	/**
+	 * Matches strings folded by {@link CollatorStringFolder} with plain region comparisons,
+	 * strings of {@link StringMatcherMode#CHECK_CONTAINS} are folded with {@link CollatorStringFolder#foldForContains(String)}
+	 */
+	public static boolean fmatches(String foldedName, String foldedPart, StringMatcherMode mode) {
+		switch (mode) {
+		case CHECK_CONTAINS:
+			return foldedName.contains(foldedPart);
+		case CHECK_EQUALS_FROM_SPACE:
+			return fstartsWith(foldedName, foldedPart, true, true, true);
+		case CHECK_STARTS_FROM_SPACE:
+			return fstartsWith(foldedName, foldedPart, true, true, false);
+		case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
+			return fstartsWith(foldedName, foldedPart, false, true, false);
+		case CHECK_ONLY_STARTS_WITH:
+			return fstartsWith(foldedName, foldedPart, true, false, false);
+		case CHECK_EQUALS:
+			return foldedPart.length() == 0 || fequalsIgnoringSeparators(foldedName, foldedPart);
+		}
+		return false;
+	}
+
+	// collator ignores separators which are folded to space
+	private static boolean fequalsIgnoringSeparators(String s1, String s2) {
+		int i1 = 0;
+		int i2 = 0;
+		while (true) {
+			while (i1 < s1.length() && s1.charAt(i1) == ' ') {
+				i1++;
+			}
+			while (i2 < s2.length() && s2.charAt(i2) == ' ') {
+				i2++;
+			}
+			if (i1 == s1.length() || i2 == s2.length()) {
+				return i1 == s1.length() && i2 == s2.length();
+			}
+			if (s1.charAt(i1++) != s2.charAt(i2++)) {
+				return false;
+			}
+		}
+	}
+
+	private static boolean fstartsWith(String searchIn, String theStart, 
+			boolean checkBeginning, boolean checkSpaces, boolean equals) {
+		int searchInLength = searchIn.length();
+		int startLength = theStart.length();
+		if (startLength == 0) {
+			return true;
+		}
+		if (startLength > searchInLength) {
+			return false;
+		}
+		if (checkBeginning && searchIn.startsWith(theStart)) {
+			if (!equals || startLength == searchInLength || isSpace(searchIn.charAt(startLength))) {
+				return true;
+			}
+		}
+		if (checkSpaces) {
+			for (int i = 1; i <= searchInLength - startLength; i++) {
+				if (isSpace(searchIn.charAt(i - 1)) && !isSpace(searchIn.charAt(i))
+						&& searchIn.startsWith(theStart, i)) {
+					if (!equals || i + startLength == searchInLength || isSpace(searchIn.charAt(i + startLength))) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
 	
 	
 	public static boolean cmatches(Collator collator, String fullName, String part, StringMatcherMode mode){
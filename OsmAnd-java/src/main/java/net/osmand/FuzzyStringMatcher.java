@@ -0,0 +1,178 @@
+package net.osmand;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+/**
+ * Typo tolerant matcher: word of name should start with (or be equal to) the part
+ * within bounded edit distance (insertion, deletion, substitution and transposition of neighbour characters).
+ * Strings are compared in the form folded by {@link CollatorStringFolder}.
+ */
+public class FuzzyStringMatcher implements StringMatcher {
+
+	private final CollatorStringFolder folder;
+	private final StringMatcherMode mode;
+	private final String part;
+	private final int maxTypos;
+
+	public FuzzyStringMatcher(String part, StringMatcherMode mode) {
+		this(part, mode, -1);
+	}
+
+	/**
+	 * @param maxTypos maximum edit distance, -1 to calculate it by length of part
+	 */
+	public FuzzyStringMatcher(String part, StringMatcherMode mode, int maxTypos) {
+		this.folder = CollatorStringFolder.getInstance();
+		part = part.trim().toLowerCase();
+		// abbreviation as in CollatorStringMatcher
+		if (part.length() > 0 && part.charAt(part.length() - 1) == '.') {
+			part = part.substring(0, part.length() - 1);
+			if (mode == StringMatcherMode.CHECK_EQUALS_FROM_SPACE) {
+				mode = StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+			} else if (mode == StringMatcherMode.CHECK_EQUALS) {
+				mode = StringMatcherMode.CHECK_ONLY_STARTS_WITH;
+			}
+		}
+		this.part = folder.fold(part);
+		this.mode = mode;
+		this.maxTypos = maxTypos < 0 ? getMaxTypos(this.part.length()) : Math.min(maxTypos, getMaxTypos(this.part.length()));
+	}
+
+	/**
+	 * Short words are matched exactly, otherwise too many names are found
+	 */
+	public static int getMaxTypos(int length) {
+		if (length < 4) {
+			return 0;
+		} else if (length < 8) {
+			return 1;
+		}
+		return 2;
+	}
+
+	public String getPart() {
+		return part;
+	}
+
+	public int getMaxTypos() {
+		return maxTypos;
+	}
+
+	@Override
+	public boolean matches(String name) {
+		String text = folder.fold(name);
+		if (part.length() == 0) {
+			return true;
+		}
+		boolean equals = mode == StringMatcherMode.CHECK_EQUALS_FROM_SPACE || mode == StringMatcherMode.CHECK_EQUALS;
+		boolean checkBeginning = mode != StringMatcherMode.CHECK_STARTS_FROM_SPACE_NOT_BEGINNING;
+		boolean checkSpaces = mode != StringMatcherMode.CHECK_ONLY_STARTS_WITH && mode != StringMatcherMode.CHECK_EQUALS;
+		int[][] rows = new int[3][part.length() + 1];
+		if (mode == StringMatcherMode.CHECK_EQUALS) {
+			return distance(part, text, 0, maxTypos, true, false, rows) <= maxTypos;
+		}
+		for (int i = checkBeginning ? 0 : 1; i < text.length(); i++) {
+			boolean wordStart = i == 0 || (isSpace(text.charAt(i - 1)) && !isSpace(text.charAt(i)));
+			if (mode == StringMatcherMode.CHECK_CONTAINS || (i == 0 && checkBeginning) || (checkSpaces && wordStart)) {
+				if (distance(part, text, i, maxTypos, equals, true, rows) <= maxTypos) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks key of name index, both key and query are folded.
+	 * Key could be shorter (prefix of names) or longer than query.
+	 * @param strict if false more typos are allowed for short keys (used to decide whether to read subtables)
+	 */
+	public boolean matchesKey(String foldedKey, boolean strict) {
+		int len = Math.min(foldedKey.length(), part.length());
+		int typos = strict ? Math.min(maxTypos, getMaxTypos(len)) : maxTypos;
+		if (typos >= len) {
+			typos = len - 1;
+		}
+		if (typos < 0) {
+			return true;
+		}
+		if (foldedKey.length() <= part.length()) {
+			return distance(foldedKey, part, 0, typos, false, true, null) <= typos;
+		}
+		return distance(part, foldedKey, 0, typos, false, true, null) <= typos;
+	}
+
+	public String fold(String s) {
+		return folder.fold(s);
+	}
+
+	/**
+	 * Optimal string alignment distance between pattern and text starting at from.
+	 * @param wholeWord pattern should match text till the end of word (or text if stopAtWord is false)
+	 * @param rows 3 reusable rows of pattern length + 1 or null
+	 * @return distance or max + 1 if it is greater than max
+	 */
+	static int distance(String pattern, String text, int from, int max, boolean wholeWord, boolean stopAtWord,
+						int[][] rows) {
+		int m = pattern.length();
+		if (rows == null) {
+			rows = new int[3][m + 1];
+		}
+		int[] prev2 = rows[0];
+		int[] prev = rows[1];
+		int[] cur = rows[2];
+		for (int j = 0; j <= m; j++) {
+			prev[j] = j;
+		}
+		int best = max + 1;
+		int prevMin = 0;
+		if (accept(text, from, wholeWord, stopAtWord) && prev[m] < best) {
+			best = prev[m];
+		}
+		int maxRows = Math.min(text.length() - from, m + max);
+		if (wholeWord && !stopAtWord) {
+			maxRows = text.length() - from;
+		}
+		for (int r = 1; r <= maxRows; r++) {
+			char tc = text.charAt(from + r - 1);
+			cur[0] = r;
+			int rowMin = cur[0];
+			for (int j = 1; j <= m; j++) {
+				char pc = pattern.charAt(j - 1);
+				int v = Math.min(prev[j] + 1, cur[j - 1] + 1);
+				v = Math.min(v, prev[j - 1] + (tc == pc ? 0 : 1));
+				if (r > 1 && j > 1 && tc == pattern.charAt(j - 2) && text.charAt(from + r - 2) == pc) {
+					v = Math.min(v, prev2[j - 2] + 1);
+				}
+				cur[j] = v;
+				rowMin = Math.min(rowMin, v);
+			}
+			if (cur[m] < best && accept(text, from + r, wholeWord, stopAtWord)) {
+				best = cur[m];
+				if (best == 0) {
+					break;
+				}
+			}
+			if (rowMin > max && prevMin > max) {
+				break;
+			}
+			prevMin = rowMin;
+			int[] t = prev2;
+			prev2 = prev;
+			prev = cur;
+			cur = t;
+		}
+		return best;
+	}
+
+	private static boolean accept(String text, int end, boolean wholeWord, boolean stopAtWord) {
+		if (!wholeWord) {
+			return true;
+		}
+		return end == text.length() || (stopAtWord && isSpace(text.charAt(end)));
+	}
+
+	private static boolean isSpace(char c) {
+		return !Character.isLetter(c) && !Character.isDigit(c);
+	}
+}
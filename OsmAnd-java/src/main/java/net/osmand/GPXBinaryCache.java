@@ -0,0 +1,664 @@
+package net.osmand;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.GPXUtilities.Author;
+import net.osmand.GPXUtilities.Bounds;
+import net.osmand.GPXUtilities.Copyright;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.RouteSegment;
+import net.osmand.GPXUtilities.RouteType;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary cache of parsed gpx files to reopen large tracks without xml parsing.
+ * Cache file keeps path, size and modification time of gpx file and is rewritten when gpx is changed.
+ * Coordinates are stored as deltas of 1e-7 degrees (if value is exact), times as deltas of milliseconds,
+ * all strings (names, extensions) are stored once in string table.
+ */
+public class GPXBinaryCache {
+
+	private static final Log log = PlatformUtil.getLog(GPXBinaryCache.class);
+
+	private static final int MAGIC = 0x47505843; // GPXC
+	private static final int VERSION = 2;
+	private static final String CACHE_EXT = ".gpxc";
+	private static final String TMP_EXT = ".tmp";
+	// small files are parsed fast enough
+	private static final long MIN_FILE_SIZE = 100 * 1024;
+	private static final double COORDINATE_PRECISION = 1e7;
+
+	private static final int LATLON_DOUBLE = 1;
+	private static final int TIME = 1 << 1;
+	private static final int ELE = 1 << 2;
+	private static final int ELE_DOUBLE = 1 << 3;
+	private static final int SPEED = 1 << 4;
+	private static final int SPEED_DOUBLE = 1 << 5;
+	private static final int HDOP = 1 << 6;
+	private static final int HDOP_DOUBLE = 1 << 7;
+	private static final int HEADING = 1 << 8;
+	private static final int DETAILS = 1 << 9;
+	private static final int COLOR = 1 << 10;
+	private static final int DELETED = 1 << 11;
+	private static final int FIRST_POINT = 1 << 12;
+	private static final int LAST_POINT = 1 << 13;
+
+	private final File cacheDir;
+	private long minFileSize = MIN_FILE_SIZE;
+
+	public GPXBinaryCache(File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	public void setMinFileSize(long minFileSize) {
+		this.minFileSize = minFileSize;
+	}
+
+	/**
+	 * Loads gpx from valid cache or parses it and writes cache for the next time
+	 */
+	public GPXFile loadGPXFile(File gpx) {
+		return loadGPXFile(gpx, false);
+	}
+
+	/**
+	 * @param compactPoints load points of track segments of large files into {@link PointColumns},
+	 *                      loaded track is read only and should not be modified
+	 */
+	public GPXFile loadGPXFile(File gpx, boolean compactPoints) {
+		if (gpx.length() < minFileSize) {
+			return GPXUtilities.loadGPXFile(gpx);
+		}
+		File cache = getCacheFile(gpx);
+		if (cache.exists()) {
+			try {
+				GPXFile file = readCache(cache, gpx, compactPoints);
+				if (file != null) {
+					return file;
+				}
+			} catch (IOException | RuntimeException e) {
+				log.error("Error reading gpx cache " + cache.getAbsolutePath(), e);
+			}
+		}
+		long length = gpx.length();
+		long lastModified = gpx.lastModified();
+		GPXFile file = compactPoints ? GPXUtilities.loadCompactGPXFile(gpx) : GPXUtilities.loadGPXFile(gpx);
+		// file could be changed while it was parsed
+		if (file.error == null && gpx.length() == length && gpx.lastModified() == lastModified) {
+			try {
+				writeCache(file, gpx, cache);
+			} catch (IOException e) {
+				log.error("Error writing gpx cache " + cache.getAbsolutePath(), e);
+				cache.delete();
+			}
+		}
+		return file;
+	}
+
+	public File getCacheFile(File gpx) {
+		String path = gpx.getAbsolutePath();
+		return new File(cacheDir, gpx.getName() + "_" + Integer.toHexString(path.hashCode()) + CACHE_EXT);
+	}
+
+	public boolean isCacheValid(File gpx) {
+		File cache = getCacheFile(gpx);
+		if (!cache.exists()) {
+			return false;
+		}
+		InputStream is = null;
+		try {
+			is = new BufferedInputStream(new FileInputStream(cache), 1024);
+			return readHeader(CodedInputStream.newInstance(is), gpx);
+		} catch (IOException e) {
+			return false;
+		} finally {
+			Algorithms.closeStream(is);
+		}
+	}
+
+	public void removeCache(File gpx) {
+		File cache = getCacheFile(gpx);
+		if (cache.exists()) {
+			cache.delete();
+		}
+	}
+
+	public void clearCache() {
+		File[] files = cacheDir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.getName().endsWith(CACHE_EXT) || f.getName().endsWith(TMP_EXT)) {
+					f.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return cached gpx or null if cache was written for other version of gpx file or it is incomplete
+	 */
+	public GPXFile readCache(File cache, File gpx) throws IOException {
+		return readCache(cache, gpx, false);
+	}
+
+	public GPXFile readCache(File cache, File gpx, boolean compactPoints) throws IOException {
+		InputStream is = new BufferedInputStream(new FileInputStream(cache), 64 * 1024);
+		try {
+			CodedInputStream cis = CodedInputStream.newInstance(is);
+			cis.setSizeLimit(Integer.MAX_VALUE);
+			if (!readHeader(cis, gpx)) {
+				return null;
+			}
+			long bodyLength = cis.readInt64();
+			int bodyChecksum = cis.readFixed32();
+			long bodyStart = cis.getTotalBytesRead();
+			if (cache.length() != bodyStart + bodyLength || checksum(cache, bodyStart) != bodyChecksum) {
+				log.warn("Gpx cache is corrupted " + cache.getAbsolutePath());
+				return null;
+			}
+			int stringsCount = cis.readRawVarint32();
+			String[] strings = new String[stringsCount + 1];
+			for (int i = 1; i <= stringsCount; i++) {
+				strings[i] = cis.readString();
+			}
+			GPXFile file = new CacheReader(cis, strings, compactPoints).readGPXFile();
+			file.path = gpx.getAbsolutePath();
+			file.modifiedTime = gpx.lastModified();
+			return file;
+		} finally {
+			is.close();
+		}
+	}
+
+	public void writeCache(GPXFile file, File gpx, File cache) throws IOException {
+		CacheWriter writer = new CacheWriter();
+		writer.writeGPXFile(file);
+		writer.body.flush();
+		ByteArrayOutputStream stringBytes = new ByteArrayOutputStream(4 * 1024);
+		CodedOutputStream strings = CodedOutputStream.newInstance(stringBytes);
+		strings.writeRawVarint32(writer.strings.size());
+		for (String s : writer.strings) {
+			strings.writeStringNoTag(s);
+		}
+		strings.flush();
+		CRC32 crc = new CRC32();
+		// body is not copied to compute checksum
+		OutputStream crcStream = new CheckedOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}, crc);
+		stringBytes.writeTo(crcStream);
+		writer.bytes.writeTo(crcStream);
+
+		File dir = cache.getParentFile();
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+		// unique temp file, so concurrent writers don't mix their output
+		File tmp = File.createTempFile(cache.getName(), TMP_EXT, dir);
+		boolean written = false;
+		try {
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024);
+			try {
+				CodedOutputStream cos = CodedOutputStream.newInstance(os);
+				cos.writeFixed32NoTag(MAGIC);
+				cos.writeRawVarint32(VERSION);
+				cos.writeStringNoTag(gpx.getAbsolutePath());
+				cos.writeInt64NoTag(gpx.length());
+				cos.writeInt64NoTag(gpx.lastModified());
+				cos.writeInt64NoTag(stringBytes.size() + writer.bytes.size());
+				cos.writeFixed32NoTag((int) crc.getValue());
+				cos.flush();
+				stringBytes.writeTo(os);
+				writer.bytes.writeTo(os);
+			} finally {
+				os.close();
+			}
+			if (!tmp.renameTo(cache)) {
+				cache.delete();
+				if (!tmp.renameTo(cache)) {
+					throw new IOException("Cache file is not renamed " + cache.getAbsolutePath());
+				}
+			}
+			written = true;
+		} finally {
+			if (!written) {
+				tmp.delete();
+			}
+		}
+	}
+
+	private static int checksum(File cache, long offset) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream is = new FileInputStream(cache);
+		try {
+			long skipped = 0;
+			while (skipped < offset) {
+				long n = is.skip(offset - skipped);
+				if (n <= 0) {
+					throw new IOException("Unexpected end of cache file " + cache.getAbsolutePath());
+				}
+				skipped += n;
+			}
+			byte[] buf = new byte[64 * 1024];
+			int read;
+			while ((read = is.read(buf)) != -1) {
+				crc.update(buf, 0, read);
+			}
+		} finally {
+			is.close();
+		}
+		return (int) crc.getValue();
+	}
+
+	private static boolean readHeader(CodedInputStream cis, File gpx) throws IOException {
+		return cis.readFixed32() == MAGIC
+				&& cis.readRawVarint32() == VERSION
+				&& cis.readString().equals(gpx.getAbsolutePath())
+				&& cis.readInt64() == gpx.length()
+				&& cis.readInt64() == gpx.lastModified();
+	}
+
+	private static class CacheWriter {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+		private final CodedOutputStream body = CodedOutputStream.newInstance(bytes);
+		private final Map<String, Integer> stringIds = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		void writeGPXFile(GPXFile file) throws IOException {
+			writeString(file.author);
+			writeExtensions(file);
+			Metadata metadata = file.metadata;
+			body.writeBoolNoTag(metadata != null);
+			if (metadata != null) {
+				writeString(metadata.name);
+				writeString(metadata.desc);
+				writeString(metadata.link);
+				writeString(metadata.keywords);
+				body.writeInt64NoTag(metadata.time);
+				writeExtensions(metadata);
+				Author author = metadata.author;
+				body.writeBoolNoTag(author != null);
+				if (author != null) {
+					writeString(author.name);
+					writeString(author.email);
+					writeString(author.link);
+					writeExtensions(author);
+				}
+				Copyright copyright = metadata.copyright;
+				body.writeBoolNoTag(copyright != null);
+				if (copyright != null) {
+					writeString(copyright.author);
+					writeString(copyright.year);
+					writeString(copyright.license);
+					writeExtensions(copyright);
+				}
+				Bounds bounds = metadata.bounds;
+				body.writeBoolNoTag(bounds != null);
+				if (bounds != null) {
+					body.writeDoubleNoTag(bounds.minlat);
+					body.writeDoubleNoTag(bounds.minlon);
+					body.writeDoubleNoTag(bounds.maxlat);
+					body.writeDoubleNoTag(bounds.maxlon);
+					writeExtensions(bounds);
+				}
+			}
+			body.writeRawVarint32(file.routeSegments.size());
+			for (RouteSegment s : file.routeSegments) {
+				writeString(s.id);
+				writeString(s.length);
+				writeString(s.segmentTime);
+				writeString(s.speed);
+				writeString(s.turnType);
+				writeString(s.turnAngle);
+				writeString(s.types);
+				writeString(s.pointTypes);
+				writeString(s.names);
+			}
+			body.writeRawVarint32(file.routeTypes.size());
+			for (RouteType t : file.routeTypes) {
+				writeString(t.tag);
+				writeString(t.value);
+			}
+			writePoints(file.getPoints());
+			body.writeRawVarint32(file.tracks.size());
+			for (Track t : file.tracks) {
+				writeString(t.name);
+				writeString(t.desc);
+				body.writeBoolNoTag(t.generalTrack);
+				writeExtensions(t);
+				body.writeRawVarint32(t.segments.size());
+				for (TrkSegment s : t.segments) {
+					body.writeBoolNoTag(s.generalSegment);
+					writeExtensions(s);
+					writePoints(s.points);
+				}
+			}
+			body.writeRawVarint32(file.routes.size());
+			for (Route r : file.routes) {
+				writeString(r.name);
+				writeString(r.desc);
+				writeExtensions(r);
+				writePoints(r.points);
+			}
+		}
+
+		private void writePoints(List<WptPt> points) throws IOException {
+			int size = points.size();
+			body.writeRawVarint32(size);
+			long prevLat = 0;
+			long prevLon = 0;
+			long prevTime = 0;
+			for (int i = 0; i < size; i++) {
+				WptPt p = points.get(i);
+				long lat = Math.round(p.lat * COORDINATE_PRECISION);
+				long lon = Math.round(p.lon * COORDINATE_PRECISION);
+				boolean exact = lat / COORDINATE_PRECISION == p.lat && lon / COORDINATE_PRECISION == p.lon;
+				boolean details = p.name != null || p.link != null || p.category != null || p.desc != null
+						|| p.comment != null || !p.getExtensionsToRead().isEmpty();
+				int flags = 0;
+				flags |= exact ? 0 : LATLON_DOUBLE;
+				flags |= p.time != 0 ? TIME : 0;
+				flags |= valueFlags(p.ele, !Double.isNaN(p.ele), ELE, ELE_DOUBLE);
+				flags |= valueFlags(p.speed, p.speed != 0, SPEED, SPEED_DOUBLE);
+				flags |= valueFlags(p.hdop, !Double.isNaN(p.hdop), HDOP, HDOP_DOUBLE);
+				flags |= !Float.isNaN(p.heading) ? HEADING : 0;
+				flags |= details ? DETAILS : 0;
+				flags |= p.colourARGB != 0 ? COLOR : 0;
+				flags |= p.deleted ? DELETED : 0;
+				flags |= p.firstPoint ? FIRST_POINT : 0;
+				flags |= p.lastPoint ? LAST_POINT : 0;
+				body.writeRawVarint32(flags);
+				if (exact) {
+					body.writeSInt64NoTag(lat - prevLat);
+					body.writeSInt64NoTag(lon - prevLon);
+					prevLat = lat;
+					prevLon = lon;
+				} else {
+					body.writeDoubleNoTag(p.lat);
+					body.writeDoubleNoTag(p.lon);
+				}
+				if (p.time != 0) {
+					body.writeSInt64NoTag(p.time - prevTime);
+					prevTime = p.time;
+				}
+				writeValue(p.ele, flags, ELE, ELE_DOUBLE);
+				writeValue(p.speed, flags, SPEED, SPEED_DOUBLE);
+				writeValue(p.hdop, flags, HDOP, HDOP_DOUBLE);
+				if ((flags & HEADING) != 0) {
+					body.writeFloatNoTag(p.heading);
+				}
+				if (details) {
+					writeString(p.name);
+					writeString(p.link);
+					writeString(p.category);
+					writeString(p.desc);
+					writeString(p.comment);
+					writeExtensions(p);
+				}
+				if ((flags & COLOR) != 0) {
+					body.writeFixed32NoTag(p.colourARGB);
+				}
+			}
+		}
+
+		private static int valueFlags(double value, boolean present, int flag, int doubleFlag) {
+			if (!present) {
+				return 0;
+			}
+			return (float) value == value ? flag : flag | doubleFlag;
+		}
+
+		private void writeValue(double value, int flags, int flag, int doubleFlag) throws IOException {
+			if ((flags & doubleFlag) != 0) {
+				body.writeDoubleNoTag(value);
+			} else if ((flags & flag) != 0) {
+				body.writeFloatNoTag((float) value);
+			}
+		}
+
+		private void writeExtensions(GPXExtensions e) throws IOException {
+			Map<String, String> extensions = e.getExtensionsToRead();
+			body.writeRawVarint32(extensions.size());
+			for (Entry<String, String> entry : extensions.entrySet()) {
+				writeString(entry.getKey());
+				writeString(entry.getValue());
+			}
+		}
+
+		private void writeString(String s) throws IOException {
+			if (s == null) {
+				body.writeRawVarint32(0);
+				return;
+			}
+			Integer id = stringIds.get(s);
+			if (id == null) {
+				strings.add(s);
+				id = strings.size();
+				stringIds.put(s, id);
+			}
+			body.writeRawVarint32(id);
+		}
+	}
+
+	private class CacheReader {
+
+		private final CodedInputStream cis;
+		private final String[] strings;
+		private final boolean compactPoints;
+
+		CacheReader(CodedInputStream cis, String[] strings, boolean compactPoints) {
+			this.cis = cis;
+			this.strings = strings;
+			this.compactPoints = compactPoints;
+		}
+
+		GPXFile readGPXFile() throws IOException {
+			GPXFile file = new GPXFile(readString());
+			readExtensions(file);
+			if (cis.readBool()) {
+				Metadata metadata = new Metadata();
+				metadata.name = readString();
+				metadata.desc = readString();
+				metadata.link = readString();
+				metadata.keywords = readString();
+				metadata.time = cis.readInt64();
+				readExtensions(metadata);
+				if (cis.readBool()) {
+					Author author = new Author();
+					author.name = readString();
+					author.email = readString();
+					author.link = readString();
+					readExtensions(author);
+					metadata.author = author;
+				}
+				if (cis.readBool()) {
+					Copyright copyright = new Copyright();
+					copyright.author = readString();
+					copyright.year = readString();
+					copyright.license = readString();
+					readExtensions(copyright);
+					metadata.copyright = copyright;
+				}
+				if (cis.readBool()) {
+					Bounds bounds = new Bounds();
+					bounds.minlat = cis.readDouble();
+					bounds.minlon = cis.readDouble();
+					bounds.maxlat = cis.readDouble();
+					bounds.maxlon = cis.readDouble();
+					readExtensions(bounds);
+					metadata.bounds = bounds;
+				}
+				file.metadata = metadata;
+			}
+			int routeSegments = cis.readRawVarint32();
+			for (int i = 0; i < routeSegments; i++) {
+				RouteSegment s = new RouteSegment();
+				s.id = readString();
+				s.length = readString();
+				s.segmentTime = readString();
+				s.speed = readString();
+				s.turnType = readString();
+				s.turnAngle = readString();
+				s.types = readString();
+				s.pointTypes = readString();
+				s.names = readString();
+				file.routeSegments.add(s);
+			}
+			int routeTypes = cis.readRawVarint32();
+			for (int i = 0; i < routeTypes; i++) {
+				RouteType t = new RouteType();
+				t.tag = readString();
+				t.value = readString();
+				file.routeTypes.add(t);
+			}
+			file.addPoints(readPoints(new ArrayList<WptPt>()));
+			int tracks = cis.readRawVarint32();
+			for (int i = 0; i < tracks; i++) {
+				Track t = new Track();
+				t.name = readString();
+				t.desc = readString();
+				t.generalTrack = cis.readBool();
+				readExtensions(t);
+				int segments = cis.readRawVarint32();
+				for (int j = 0; j < segments; j++) {
+					TrkSegment s = new TrkSegment();
+					s.generalSegment = cis.readBool();
+					readExtensions(s);
+					s.points = readPoints(compactPoints ? new PointColumns() : new ArrayList<WptPt>());
+					if (s.points instanceof PointColumns) {
+						((PointColumns) s.points).trimToSize();
+					}
+					t.segments.add(s);
+				}
+				file.tracks.add(t);
+			}
+			int routes = cis.readRawVarint32();
+			for (int i = 0; i < routes; i++) {
+				Route r = new Route();
+				r.name = readString();
+				r.desc = readString();
+				readExtensions(r);
+				readPoints(r.points);
+				file.routes.add(r);
+			}
+			return file;
+		}
+
+		private List<WptPt> readPoints(List<WptPt> points) throws IOException {
+			int size = cis.readRawVarint32();
+			if (points instanceof ArrayList) {
+				((ArrayList<WptPt>) points).ensureCapacity(size);
+			}
+			long lat = 0;
+			long lon = 0;
+			long time = 0;
+			for (int i = 0; i < size; i++) {
+				WptPt p = new WptPt();
+				int flags = cis.readRawVarint32();
+				if ((flags & LATLON_DOUBLE) != 0) {
+					p.lat = cis.readDouble();
+					p.lon = cis.readDouble();
+				} else {
+					lat += cis.readSInt64();
+					lon += cis.readSInt64();
+					p.lat = lat / COORDINATE_PRECISION;
+					p.lon = lon / COORDINATE_PRECISION;
+				}
+				if ((flags & TIME) != 0) {
+					time += cis.readSInt64();
+					p.time = time;
+				}
+				p.ele = readValue(flags, ELE, ELE_DOUBLE, p.ele);
+				p.speed = readValue(flags, SPEED, SPEED_DOUBLE, p.speed);
+				p.hdop = readValue(flags, HDOP, HDOP_DOUBLE, p.hdop);
+				if ((flags & HEADING) != 0) {
+					p.heading = cis.readFloat();
+				}
+				if ((flags & DETAILS) != 0) {
+					p.name = readString();
+					p.link = readString();
+					p.category = readString();
+					p.desc = readString();
+					p.comment = readString();
+					readExtensions(p);
+				}
+				if ((flags & COLOR) != 0) {
+					p.colourARGB = cis.readFixed32();
+				}
+				p.deleted = (flags & DELETED) != 0;
+				p.firstPoint = (flags & FIRST_POINT) != 0;
+				p.lastPoint = (flags & LAST_POINT) != 0;
+				if (points instanceof PointColumns) {
+					((PointColumns) points).append(p);
+				} else {
+					points.add(p);
+				}
+			}
+			return points;
+		}
+
+		private double readValue(int flags, int flag, int doubleFlag, double defValue) throws IOException {
+			if ((flags & doubleFlag) != 0) {
+				return cis.readDouble();
+			} else if ((flags & flag) != 0) {
+				return cis.readFloat();
+			}
+			return defValue;
+		}
+
+		private void readExtensions(GPXExtensions e) throws IOException {
+			int size = cis.readRawVarint32();
+			if (size > 0) {
+				Map<String, String> extensions = new LinkedHashMap<>();
+				for (int i = 0; i < size; i++) {
+					String key = readString();
+					extensions.put(key, readString());
+				}
+				e.extensions = extensions;
+			}
+		}
+
+		private String readString() throws IOException {
+			int id = cis.readRawVarint32();
+			if (id < 0 || id >= strings.length) {
+				throw new IOException("Incorrect string reference " + id);
+			}
+			return strings[id];
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Reduces chart series of track (elevation, speed) to display resolution: charts with hundreds of thousands
+ * of points are slow to draw while only few points per pixel are visible. Sampled series are cached
+ * for every analysis (analysis of track or split part) till it is in use.
+ */
+public class GPXChartDataSampler {
+
+	public enum SamplingMethod {
+		// keeps shape of line (elevation)
+		LARGEST_TRIANGLE_THREE_BUCKETS,
+		// keeps minimum and maximum of every bucket (speed peaks and stops)
+		MIN_MAX_BUCKETS
+	}
+
+	public interface SeriesProvider {
+
+		Series getSeries();
+	}
+
+	public static class Series {
+		private final float[] x;
+		private final float[] y;
+		private final int size;
+
+		public Series(float[] x, float[] y, int size) {
+			this.x = x;
+			this.y = y;
+			this.size = size;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public float getX(int index) {
+			return x[index];
+		}
+
+		public float getY(int index) {
+			return y[index];
+		}
+	}
+
+	// analysis is compared by identity and cache is removed with it
+	private final Map<GPXTrackAnalysis, Map<String, Series>> cache = new WeakHashMap<>();
+
+	/**
+	 * @param key        key of series of analysis, it should contain all parameters which series depends on
+	 * @param maxPoints  maximum number of points of sampled series
+	 * @param provider   provides full series if sampled one is not cached
+	 */
+	public Series getSampledSeries(GPXTrackAnalysis analysis, String key, int maxPoints, SamplingMethod method,
+								   SeriesProvider provider) {
+		String cacheKey = key + ":" + method + ":" + maxPoints;
+		synchronized (this) {
+			Map<String, Series> series = cache.get(analysis);
+			Series sampled = series != null ? series.get(cacheKey) : null;
+			if (sampled != null) {
+				return sampled;
+			}
+		}
+		Series sampled = sample(provider.getSeries(), maxPoints, method);
+		synchronized (this) {
+			Map<String, Series> series = cache.get(analysis);
+			if (series == null) {
+				series = new HashMap<>();
+				cache.put(analysis, series);
+			}
+			series.put(cacheKey, sampled);
+		}
+		return sampled;
+	}
+
+	public synchronized void clearCache() {
+		cache.clear();
+	}
+
+	public static Series sample(Series series, int maxPoints, SamplingMethod method) {
+		if (method == SamplingMethod.MIN_MAX_BUCKETS) {
+			return sampleMinMaxBuckets(series, maxPoints);
+		}
+		return sampleLargestTriangleThreeBuckets(series, maxPoints);
+	}
+
+	/**
+	 * Largest-Triangle-Three-Buckets: points are divided into buckets by index and from every bucket the point
+	 * which forms the largest triangle with selected point of previous bucket and average of next bucket is kept.
+	 * First and last points are always kept.
+	 */
+	public static Series sampleLargestTriangleThreeBuckets(Series series, int maxPoints) {
+		int size = series.size;
+		if (maxPoints >= size || maxPoints < 3) {
+			return series;
+		}
+		float[] x = series.x;
+		float[] y = series.y;
+		float[] sampledX = new float[maxPoints];
+		float[] sampledY = new float[maxPoints];
+		double every = (double) (size - 2) / (maxPoints - 2);
+		int a = 0;
+		int count = 0;
+		sampledX[count] = x[0];
+		sampledY[count++] = y[0];
+		for (int i = 0; i < maxPoints - 2; i++) {
+			int avgStart = (int) Math.floor((i + 1) * every) + 1;
+			int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, size);
+			double avgX = 0;
+			double avgY = 0;
+			for (int j = avgStart; j < avgEnd; j++) {
+				avgX += x[j];
+				avgY += y[j];
+			}
+			int avgLength = avgEnd - avgStart;
+			if (avgLength > 0) {
+				avgX /= avgLength;
+				avgY /= avgLength;
+			} else {
+				avgX = x[size - 1];
+				avgY = y[size - 1];
+			}
+			int rangeStart = (int) Math.floor(i * every) + 1;
+			int rangeEnd = Math.min((int) Math.floor((i + 1) * every) + 1, size - 1);
+			double ax = x[a];
+			double ay = y[a];
+			double maxArea = -1;
+			int next = rangeStart;
+			for (int j = rangeStart; j < rangeEnd; j++) {
+				// doubled area is enough for comparison
+				double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+				if (area > maxArea) {
+					maxArea = area;
+					next = j;
+				}
+			}
+			sampledX[count] = x[next];
+			sampledY[count++] = y[next];
+			a = next;
+		}
+		sampledX[count] = x[size - 1];
+		sampledY[count++] = y[size - 1];
+		return new Series(sampledX, sampledY, count);
+	}
+
+	/**
+	 * Points are divided into buckets by index and points with minimum and maximum value of every bucket are kept
+	 * in order of series. First and last points are always kept. Runs of zero values (stops and gaps of speed
+	 * series, which are marked by zero points at starts and ends of segments) keep their first and last points,
+	 * so they stay flat, unless there are too many of them for maxPoints.
+	 */
+	public static Series sampleMinMaxBuckets(Series series, int maxPoints) {
+		int size = series.size;
+		if (maxPoints >= size || maxPoints < 4) {
+			return series;
+		}
+		float[] x = series.x;
+		float[] y = series.y;
+		boolean[] zeroRunEnds = new boolean[size];
+		int zeroPoints = 0;
+		for (int j = 1; j < size - 1; j++) {
+			if (y[j] == 0 && (y[j - 1] != 0 || y[j + 1] != 0)) {
+				zeroRunEnds[j] = true;
+				zeroPoints++;
+			}
+		}
+		// zero runs take at most half of points
+		if (zeroPoints * 2 > maxPoints - 4) {
+			zeroRunEnds = null;
+			zeroPoints = 0;
+		}
+		int buckets = (maxPoints - 2 - zeroPoints) / 2;
+		float[] sampledX = new float[buckets * 2 + zeroPoints + 2];
+		float[] sampledY = new float[buckets * 2 + zeroPoints + 2];
+		double every = (double) (size - 2) / buckets;
+		int count = 0;
+		sampledX[count] = x[0];
+		sampledY[count++] = y[0];
+		for (int i = 0; i < buckets; i++) {
+			int start = (int) Math.floor(i * every) + 1;
+			int end = Math.min((int) Math.floor((i + 1) * every) + 1, size - 1);
+			int min = -1;
+			int max = -1;
+			for (int j = start; j < end; j++) {
+				if (zeroRunEnds != null && zeroRunEnds[j]) {
+					continue;
+				}
+				if (min == -1 || y[j] < y[min]) {
+					min = j;
+				}
+				if (max == -1 || y[j] > y[max]) {
+					max = j;
+				}
+			}
+			for (int j = start; j < end; j++) {
+				if (j == min || j == max || (zeroRunEnds != null && zeroRunEnds[j])) {
+					sampledX[count] = x[j];
+					sampledY[count++] = y[j];
+				}
+			}
+		}
+		sampledX[count] = x[size - 1];
+		sampledY[count++] = y[size - 1];
+		return new Series(sampledX, sampledY, count);
+	}
+}
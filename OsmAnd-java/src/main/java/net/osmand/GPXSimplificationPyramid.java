@@ -0,0 +1,221 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.util.MapUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Douglas-Peucker simplifications of track points for all zooms below {@link #FULL_POINTS_ZOOM}, tolerance of zoom
+ * is 2 ^ (segmentSize - zoom) meters. Every point gets the largest tolerance which keeps it, so all simplifications
+ * are built by one run of algorithm and simplification of zoom is the same as simplification of
+ * the whole track with tolerance of zoom. Points of simplifications are shared between zooms.
+ */
+public class GPXSimplificationPyramid {
+
+	public static final int FULL_POINTS_ZOOM = 16;
+	// appended points are drawn not simplified until pyramid is rebuilt
+	public static final int MAX_APPENDED_POINTS = 2000;
+
+	private final List<WptPt> points;
+	private final int size;
+	private final List<List<WptPt>> levels = new ArrayList<>(FULL_POINTS_ZOOM);
+	// last point to check that points were only appended after pyramid was built
+	private double lastLat;
+	private double lastLon;
+	private long lastTime;
+	private List<WptPt> extendedLevel;
+	private List<WptPt> extended;
+
+	public GPXSimplificationPyramid(List<WptPt> points, double segmentSize) {
+		this.points = points;
+		this.size = points.size();
+		if (size > 0) {
+			WptPt last = points.get(size - 1);
+			lastLat = last.lat;
+			lastLon = last.lon;
+			lastTime = last.time;
+		}
+		double[] tolerances = calculateTolerances(points, size);
+		int[] indexes = null;
+		List<WptPt> level = points;
+		for (int zoom = FULL_POINTS_ZOOM - 1; zoom >= 0; zoom--) {
+			double tolerance = Math.pow(2.0, segmentSize - zoom);
+			int count = 0;
+			int prevCount = indexes == null ? size : indexes.length;
+			for (int i = 0; i < prevCount; i++) {
+				if (tolerances[indexes == null ? i : indexes[i]] > tolerance) {
+					count++;
+				}
+			}
+			if (count < prevCount) {
+				int[] levelIndexes = new int[count];
+				List<WptPt> levelPoints = new ArrayList<>(count);
+				count = 0;
+				for (int i = 0; i < prevCount; i++) {
+					int ind = indexes == null ? i : indexes[i];
+					if (tolerances[ind] > tolerance) {
+						levelIndexes[count++] = ind;
+						levelPoints.add(level.get(i));
+					}
+				}
+				indexes = levelIndexes;
+				level = levelPoints;
+			}
+			levels.add(level);
+		}
+	}
+
+	/**
+	 * @return number of points which pyramid was built for
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public List<WptPt> getPoints(double zoom) {
+		if (zoom >= FULL_POINTS_ZOOM) {
+			return points;
+		}
+		// coarser simplification is not used for fractional zoom
+		int zoomLevel = Math.max(0, (int) Math.ceil(zoom));
+		return zoomLevel >= FULL_POINTS_ZOOM ? points : levels.get(FULL_POINTS_ZOOM - 1 - zoomLevel);
+	}
+
+	/**
+	 * @return true if current points are points of pyramid, maybe with points appended after it was built
+	 */
+	public boolean isExtendedBy(List<WptPt> current) {
+		if (current.size() < size) {
+			return false;
+		}
+		if (size > 0) {
+			WptPt last = current.get(size - 1);
+			return last.lat == lastLat && last.lon == lastLon && last.time == lastTime;
+		}
+		return true;
+	}
+
+	/**
+	 * Pyramid is rebuilt in O(n log n), so growing (recorded) track is rebuilt only after appended points
+	 * exceed tenth of its size or {@link #MAX_APPENDED_POINTS}.
+	 */
+	public boolean isRebuildNeeded(List<WptPt> current) {
+		return !isExtendedBy(current) || current.size() - size > Math.min(size / 10, MAX_APPENDED_POINTS);
+	}
+
+	/**
+	 * @return simplification of zoom followed by points appended after pyramid was built,
+	 * current points should extend pyramid ({@link #isExtendedBy(List)})
+	 */
+	public List<WptPt> getPoints(double zoom, List<WptPt> current) {
+		List<WptPt> level = getPoints(zoom);
+		if (level == points) {
+			return current;
+		} else if (current.size() == size) {
+			return level;
+		}
+		// list is kept for next calls while points are not changed
+		int extendedSize = level.size() + current.size() - size;
+		if (extendedLevel != level || extended.size() != extendedSize
+				|| extended.get(extendedSize - 1) != current.get(current.size() - 1)) {
+			List<WptPt> list = new ArrayList<>(extendedSize);
+			list.addAll(level);
+			list.addAll(current.subList(size, current.size()));
+			extendedLevel = level;
+			extended = list;
+		}
+		return extended;
+	}
+
+	/**
+	 * Tolerance of point is the largest tolerance (in meters) for which Douglas-Peucker simplification keeps it:
+	 * tolerance of split point is limited by tolerances of enclosing split points.
+	 * First and last points are always kept.
+	 */
+	public static double[] calculateTolerances(List<WptPt> points) {
+		return calculateTolerances(points, points.size());
+	}
+
+	// points of growing track could be appended while pyramid is built, only first size points are used
+	private static double[] calculateTolerances(List<WptPt> points, int size) {
+		double[] lat = new double[size];
+		double[] lon = new double[size];
+		if (points instanceof PointColumns) {
+			PointColumns columns = (PointColumns) points;
+			for (int i = 0; i < size; i++) {
+				lat[i] = columns.getLatitude(i);
+				lon[i] = columns.getLongitude(i);
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				WptPt p = points.get(i);
+				lat[i] = p.lat;
+				lon[i] = p.lon;
+			}
+		}
+		double[] tolerances = new double[size];
+		if (size == 0) {
+			return tolerances;
+		}
+		tolerances[0] = Double.POSITIVE_INFINITY;
+		tolerances[size - 1] = Double.POSITIVE_INFINITY;
+		// stack of ranges (start, end) and tolerances of their split points instead of recursion
+		int[] ranges = new int[64];
+		double[] rangeTolerances = new double[32];
+		int top = 0;
+		ranges[0] = 0;
+		ranges[1] = size - 1;
+		rangeTolerances[0] = Double.POSITIVE_INFINITY;
+		top++;
+		while (top > 0) {
+			top--;
+			int start = ranges[top * 2];
+			int end = ranges[top * 2 + 1];
+			double parentTolerance = rangeTolerances[top];
+			double dmax = -1;
+			int index = -1;
+			for (int i = start + 1; i < end; i++) {
+				double d = getOrthogonalDistance(lat[i], lon[i], lat[start], lon[start], lat[end], lon[end]);
+				if (d > dmax) {
+					dmax = d;
+					index = i;
+				}
+			}
+			if (index == -1) {
+				continue;
+			}
+			double tolerance = Math.min(dmax, parentTolerance);
+			tolerances[index] = tolerance;
+			if (top + 2 > rangeTolerances.length) {
+				int[] nranges = new int[ranges.length * 2];
+				System.arraycopy(ranges, 0, nranges, 0, ranges.length);
+				ranges = nranges;
+				double[] ntolerances = new double[rangeTolerances.length * 2];
+				System.arraycopy(rangeTolerances, 0, ntolerances, 0, rangeTolerances.length);
+				rangeTolerances = ntolerances;
+			}
+			ranges[top * 2] = start;
+			ranges[top * 2 + 1] = index;
+			rangeTolerances[top++] = tolerance;
+			ranges[top * 2] = index;
+			ranges[top * 2 + 1] = end;
+			rangeTolerances[top++] = tolerance;
+		}
+		return tolerances;
+	}
+
+	// the same as MapUtils.getOrthogonalDistance without creation of projection point
+	private static double getOrthogonalDistance(double lat, double lon, double fromLat, double fromLon,
+	                                            double toLat, double toLon) {
+		double coeff = MapUtils.getProjectionCoeff(lat, lon, fromLat, fromLon, toLat, toLon);
+		if (coeff == 0) {
+			return MapUtils.getDistance(fromLat, fromLon, lat, lon);
+		} else if (coeff == 1) {
+			return MapUtils.getDistance(toLat, toLon, lat, lon);
+		}
+		return MapUtils.getDistance(fromLat + (toLat - fromLat) * coeff, fromLon + (toLon - fromLon) * coeff, lat, lon);
+	}
+}
@@ -0,0 +1,347 @@
+package net.osmand;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.QuadRect;
+import net.osmand.util.MapUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tile grid index (as {@link net.osmand.data.DataTileManager}) of waypoints and track segments of several gpx files,
+ * for example of selected files, to find points in viewport or near location without iteration over all points.
+ * File is indexed again by {@link #updateFile} only if it is changed (its modified time, lists of waypoints,
+ * segments or points are changed), points added to the end of segment of recorded track
+ * ({@link GPXFile#showCurrentTrack}) are indexed incrementally. Edges between points of segment are indexed
+ * in all tiles of their bounds, so segment could be found near location even if its points are far.
+ * Results are in order of files and points.
+ *
+ * @param <T> - key of indexed file
+ */
+public class GPXSpatialIndex<T> {
+
+	private static final int DEFAULT_ZOOM = 15;
+	// edges which cover more tiles are returned for every query
+	private static final int MAX_ITEM_TILES = 16;
+
+	private final int zoom;
+	private final Map<T, FileIndex> files = new LinkedHashMap<>();
+
+	public GPXSpatialIndex() {
+		this(DEFAULT_ZOOM);
+	}
+
+	public GPXSpatialIndex(int zoom) {
+		this.zoom = zoom;
+	}
+
+	public int getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * Indexes file or updates index of changed waypoints and segments
+	 * @param segments segments of file to index (for example joined or processed segments of track)
+	 */
+	public synchronized void updateFile(T key, GPXFile gpx, List<TrkSegment> segments) {
+		FileIndex index = files.get(key);
+		if (index == null || index.gpx != gpx) {
+			index = new FileIndex(gpx);
+			files.put(key, index);
+		}
+		index.update(segments);
+	}
+
+	public synchronized void removeFile(T key) {
+		files.remove(key);
+	}
+
+	/**
+	 * Removes from index files which are not in collection
+	 */
+	public synchronized void retainFiles(Collection<T> keys) {
+		if (files.size() > 0) {
+			Set<T> set = new HashSet<>(keys);
+			Iterator<T> it = files.keySet().iterator();
+			while (it.hasNext()) {
+				if (!set.contains(it.next())) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public synchronized boolean containsFile(T key) {
+		return files.containsKey(key);
+	}
+
+	public synchronized void clear() {
+		files.clear();
+	}
+
+	/**
+	 * @param bounds bounds in lat/lon (left, top, right, bottom are lon, lat, lon, lat)
+	 * @return waypoints of file inside bounds
+	 */
+	public synchronized List<WptPt> getWaypoints(T key, QuadRect bounds) {
+		FileIndex index = files.get(key);
+		if (index == null || index.waypoints.isEmpty()) {
+			return Collections.emptyList();
+		}
+		TIntArrayList items = new TIntArrayList();
+		queryGrid(index.waypointsGrid, bounds, items);
+		List<WptPt> result = new ArrayList<>(items.size());
+		for (int i = 0; i < items.size(); i++) {
+			int ind = items.get(i);
+			if (ind < index.waypoints.size()) {
+				WptPt p = index.waypoints.get(ind);
+				if (p.lat >= bounds.bottom && p.lat <= bounds.top && p.lon >= bounds.left && p.lon <= bounds.right) {
+					result.add(p);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param bounds bounds in lat/lon (left, top, right, bottom are lon, lat, lon, lat)
+	 * @return sorted indexes of the first points of segment edges (i, i + 1) which could intersect bounds
+	 */
+	public synchronized TIntArrayList getSegmentEdges(T key, TrkSegment segment, QuadRect bounds) {
+		TIntArrayList result = new TIntArrayList();
+		FileIndex index = files.get(key);
+		if (index != null) {
+			for (SegmentIndex s : index.segments) {
+				if (s.segment == segment) {
+					queryGrid(s.grid, bounds, result);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	private void queryGrid(Grid grid, QuadRect bounds, TIntArrayList result) {
+		int shift = 31 - zoom;
+		int left = MapUtils.get31TileNumberX(bounds.left) >> shift;
+		int right = MapUtils.get31TileNumberX(bounds.right) >> shift;
+		int top = MapUtils.get31TileNumberY(bounds.top) >> shift;
+		int bottom = MapUtils.get31TileNumberY(bounds.bottom) >> shift;
+		int start = result.size();
+		grid.query(Math.min(left, right), Math.min(top, bottom), Math.max(left, right), Math.max(top, bottom), result);
+		// items of several tiles are added several times
+		int size = result.size() - start;
+		if (size > 1) {
+			result.sort(start, result.size());
+			int last = start;
+			for (int i = start + 1; i < result.size(); i++) {
+				if (result.get(i) != result.get(last)) {
+					result.set(++last, result.get(i));
+				}
+			}
+			if (last + 1 < result.size()) {
+				result.remove(last + 1, result.size() - last - 1);
+			}
+		}
+	}
+
+	private int tileX(double lon) {
+		return MapUtils.get31TileNumberX(lon) >> (31 - zoom);
+	}
+
+	private int tileY(double lat) {
+		return MapUtils.get31TileNumberY(lat) >> (31 - zoom);
+	}
+
+	private class FileIndex {
+
+		private final GPXFile gpx;
+		private long modifiedTime = Long.MIN_VALUE;
+		private List<WptPt> waypoints = Collections.emptyList();
+		private Grid waypointsGrid = new Grid();
+		private List<TrkSegment> segmentsList;
+		private List<SegmentIndex> segments = new ArrayList<>();
+
+		FileIndex(GPXFile gpx) {
+			this.gpx = gpx;
+		}
+
+		void update(List<TrkSegment> segmentsToIndex) {
+			int waypointsCount = gpx.getPoints().size();
+			if (modifiedTime == gpx.modifiedTime && waypoints.size() == waypointsCount
+					&& segmentsList == segmentsToIndex && !isSegmentsChanged()) {
+				return;
+			}
+			if (modifiedTime != gpx.modifiedTime || waypoints.size() != waypointsCount) {
+				waypoints = new ArrayList<>(gpx.getPoints());
+				waypointsGrid = new Grid();
+				for (int i = 0; i < waypoints.size(); i++) {
+					WptPt p = waypoints.get(i);
+					waypointsGrid.add(i, tileX(p.lon), tileY(p.lat));
+				}
+			}
+			// points of changed file could be edited anywhere, only recorded track grows by appended points
+			boolean reindex = modifiedTime != gpx.modifiedTime && !gpx.showCurrentTrack;
+			List<SegmentIndex> updated = new ArrayList<>(segmentsToIndex.size());
+			for (int i = 0; i < segmentsToIndex.size(); i++) {
+				TrkSegment segment = segmentsToIndex.get(i);
+				SegmentIndex index = i < segments.size() && !reindex ? segments.get(i) : null;
+				if (index == null || index.segment != segment || !index.isAppended()) {
+					index = new SegmentIndex(segment);
+				}
+				index.indexNewPoints();
+				updated.add(index);
+			}
+			segments = updated;
+			segmentsList = segmentsToIndex;
+			modifiedTime = gpx.modifiedTime;
+		}
+
+		private boolean isSegmentsChanged() {
+			for (SegmentIndex s : segments) {
+				if (s.points != s.segment.points || s.indexedPoints != s.points.size()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private class SegmentIndex {
+
+		private final TrkSegment segment;
+		private final List<WptPt> points;
+		private final Grid grid = new Grid();
+		private int indexedPoints;
+		// tile of the last indexed point
+		private int lastX;
+		private int lastY;
+		private double lastLat;
+		private double lastLon;
+
+		SegmentIndex(TrkSegment segment) {
+			this.segment = segment;
+			this.points = segment.points;
+		}
+
+		boolean isAppended() {
+			if (points != segment.points || points.size() < indexedPoints) {
+				return false;
+			}
+			if (indexedPoints > 0) {
+				int last = indexedPoints - 1;
+				double lat;
+				double lon;
+				if (points instanceof PointColumns) {
+					lat = ((PointColumns) points).getLatitude(last);
+					lon = ((PointColumns) points).getLongitude(last);
+				} else {
+					WptPt p = points.get(last);
+					lat = p.lat;
+					lon = p.lon;
+				}
+				return lat == lastLat && lon == lastLon;
+			}
+			return true;
+		}
+
+		void indexNewPoints() {
+			PointColumns columns = points instanceof PointColumns ? (PointColumns) points : null;
+			int size = points.size();
+			for (int i = indexedPoints; i < size; i++) {
+				double lat;
+				double lon;
+				if (columns != null) {
+					lat = columns.getLatitude(i);
+					lon = columns.getLongitude(i);
+				} else {
+					WptPt p = points.get(i);
+					lat = p.lat;
+					lon = p.lon;
+				}
+				int x = tileX(lon);
+				int y = tileY(lat);
+				if (i > 0) {
+					grid.add(i - 1, Math.min(x, lastX), Math.min(y, lastY), Math.max(x, lastX), Math.max(y, lastY));
+				}
+				lastX = x;
+				lastY = y;
+				lastLat = lat;
+				lastLon = lon;
+			}
+			indexedPoints = size;
+		}
+	}
+
+	private static class Grid {
+
+		private final TLongObjectHashMap<TIntArrayList> tiles = new TLongObjectHashMap<>();
+		// items which are in too many tiles
+		private final TIntArrayList large = new TIntArrayList();
+
+		void add(int item, int x, int y) {
+			long key = key(x, y);
+			TIntArrayList list = tiles.get(key);
+			if (list == null) {
+				list = new TIntArrayList(4);
+				tiles.put(key, list);
+			}
+			list.add(item);
+		}
+
+		void add(int item, int left, int top, int right, int bottom) {
+			if ((long) (right - left + 1) * (bottom - top + 1) > MAX_ITEM_TILES) {
+				large.add(item);
+				return;
+			}
+			for (int x = left; x <= right; x++) {
+				for (int y = top; y <= bottom; y++) {
+					add(item, x, y);
+				}
+			}
+		}
+
+		void query(int left, int top, int right, int bottom, TIntArrayList result) {
+			if ((long) (right - left + 1) * (bottom - top + 1) <= tiles.size()) {
+				for (int x = left; x <= right; x++) {
+					for (int y = top; y <= bottom; y++) {
+						TIntArrayList list = tiles.get(key(x, y));
+						if (list != null) {
+							result.addAll(list);
+						}
+					}
+				}
+			} else {
+				// bounds contain more tiles than grid
+				TLongObjectIterator<TIntArrayList> it = tiles.iterator();
+				while (it.hasNext()) {
+					it.advance();
+					int x = (int) (it.key() >> 32);
+					int y = (int) it.key();
+					if (x >= left && x <= right && y >= top && y <= bottom) {
+						result.addAll(it.value());
+					}
+				}
+			}
+			result.addAll(large);
+		}
+
+		private static long key(int x, int y) {
+			return ((long) x << 32) | (y & 0xffffffffL);
+		}
+	}
+}
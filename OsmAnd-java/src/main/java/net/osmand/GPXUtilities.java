@@ -2,6 +2,9 @@
 package net.osmand;
 
 
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
 import net.osmand.binary.StringBundle;
 import net.osmand.binary.StringBundleWriter;
 import net.osmand.binary.StringBundleXmlWriter;
@@ -20,19 +23,23 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -40,9 +47,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class GPXUtilities {
 
@@ -59,8 +69,7 @@ public class GPXUtilities {
 
 	private final static NumberFormat latLonFormat = new DecimalFormat("0.00#####", new DecimalFormatSymbols(
 			new Locale("EN", "US")));
-	private final static NumberFormat decimalFormat = new DecimalFormat("#.###", new DecimalFormatSymbols(
-			new Locale("EN", "US")));
+	private final static int GZIP_BUFFER_SIZE = 64 * 1024;
 
 	public enum GPXColor {
 		BLACK(0xFF000000),
@@ -389,11 +398,306 @@ public class GPXUtilities {
 		}
 
 		private List<GPXTrackAnalysis> split(SplitMetric metric, SplitMetric secondaryMetric, double metricLimit, boolean joinSegments) {
-			List<SplitSegment> splitSegments = new ArrayList<>();
-			splitSegment(metric, secondaryMetric, metricLimit, splitSegments, this, joinSegments);
-			return convert(splitSegments);
+			List<GPXTrackAnalysis> splitAnalysis = new ArrayList<>();
+			SegmentSplit split = new SegmentSplit(metric, secondaryMetric, metricLimit, generalSegment,
+					generalSegment && !joinSegments, true, splitAnalysis);
+			PointColumns columns = points instanceof PointColumns ? (PointColumns) points : null;
+			int size = points.size();
+			for (int k = 0; k < size; k++) {
+				if (columns != null) {
+					split.addPoint(columns, k);
+				} else {
+					split.addPoint(points.get(k));
+				}
+			}
+			split.finish();
+			if (generalSegment && splitAnalysis.size() == 1 && splitAnalysis.get(0).metricEnd == 0) {
+				// segment without metric is not split and time span without gaps is calculated as for whole segment
+				GPXTrackAnalysis a = GPXTrackAnalysis.segment(0, this);
+				a.secondaryMetricEnd = splitAnalysis.get(0).secondaryMetricEnd;
+				splitAnalysis.set(0, a);
+			}
+			return splitAnalysis;
+		}
+
+	}
+
+	/**
+	 * Read only points of track segment stored in primitive columns: about 60 bytes per point instead of 150+ bytes
+	 * of {@link WptPt} with extensions. Name, description, color and extensions are kept separately only for points
+	 * which have them. {@link #get(int)} creates new point every time: changes of returned point are not stored and
+	 * points are found by {@link WptPt#equals(Object)} (indexOf, contains), not by identity. List is filled only
+	 * while gpx is loaded, its modification methods throw {@link UnsupportedOperationException}.
+	 * Used for large tracks which are only analysed or drawn, see {@link GPXUtilities#loadCompactGPXFile(File)}.
+	 */
+	public static class PointColumns extends AbstractList<WptPt> implements RandomAccess {
+
+		private static final byte FIRST_POINT = 1;
+		private static final byte LAST_POINT = 1 << 1;
+		private static final byte DELETED = 1 << 2;
+		private static final byte SPEED_EXTENSION = 1 << 3;
+		private static final byte HEADING_EXTENSION = 1 << 4;
+
+		private int size;
+		private double[] lat;
+		private double[] lon;
+		private long[] time;
+		private double[] ele;
+		private double[] speed;
+		private double[] hdop;
+		private float[] heading;
+		private double[] distance;
+		private byte[] flags;
+		// name, description, color and other extensions of points by index
+		private TIntObjectHashMap<WptPt> details = new TIntObjectHashMap<>();
+
+		public PointColumns() {
+			this(10);
+		}
+
+		public PointColumns(int capacity) {
+			allocate(Math.max(capacity, 1));
+		}
+
+		public PointColumns(Collection<WptPt> points) {
+			this(points.size());
+			for (WptPt p : points) {
+				append(p);
+			}
+		}
+
+		private void allocate(int capacity) {
+			lat = Arrays.copyOf(lat == null ? new double[0] : lat, capacity);
+			lon = Arrays.copyOf(lon == null ? new double[0] : lon, capacity);
+			time = Arrays.copyOf(time == null ? new long[0] : time, capacity);
+			ele = Arrays.copyOf(ele == null ? new double[0] : ele, capacity);
+			speed = Arrays.copyOf(speed == null ? new double[0] : speed, capacity);
+			hdop = Arrays.copyOf(hdop == null ? new double[0] : hdop, capacity);
+			heading = Arrays.copyOf(heading == null ? new float[0] : heading, capacity);
+			distance = Arrays.copyOf(distance == null ? new double[0] : distance, capacity);
+			flags = Arrays.copyOf(flags == null ? new byte[0] : flags, capacity);
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > lat.length) {
+				allocate(Math.max(capacity, lat.length + (lat.length >> 1) + 1));
+			}
+		}
+
+		public void trimToSize() {
+			if (size < lat.length) {
+				allocate(Math.max(size, 1));
+			}
+		}
+
+		/**
+		 * Appends copies of points as {@link WptPt#WptPt(WptPt)} does (extensions are not copied) without creating
+		 * point objects, first and last appended points are marked as first and last points of segment.
+		 */
+		void appendSegmentCopy(PointColumns source) {
+			int count = source.size;
+			if (count == 0) {
+				return;
+			}
+			int from = size;
+			ensureCapacity(size + count);
+			System.arraycopy(source.lat, 0, lat, from, count);
+			System.arraycopy(source.lon, 0, lon, from, count);
+			System.arraycopy(source.time, 0, time, from, count);
+			System.arraycopy(source.ele, 0, ele, from, count);
+			System.arraycopy(source.speed, 0, speed, from, count);
+			System.arraycopy(source.hdop, 0, hdop, from, count);
+			System.arraycopy(source.heading, 0, heading, from, count);
+			System.arraycopy(source.distance, 0, distance, from, count);
+			for (int i = 0; i < count; i++) {
+				byte f = source.flags[i];
+				if ((f & HEADING_EXTENSION) != 0) {
+					heading[from + i] = Float.NaN;
+				}
+				flags[from + i] = (byte) (f & DELETED);
+			}
+			flags[from] |= FIRST_POINT;
+			flags[from + count - 1] |= LAST_POINT;
+			TIntObjectIterator<WptPt> it = source.details.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				WptPt d = it.value();
+				if (d.name != null || d.link != null || d.category != null || d.desc != null || d.comment != null
+						|| d.colourARGB != 0) {
+					WptPt c = new WptPt();
+					c.name = d.name;
+					c.link = d.link;
+					c.category = d.category;
+					c.desc = d.desc;
+					c.comment = d.comment;
+					c.colourARGB = d.colourARGB;
+					details.put(from + it.key(), c);
+				}
+			}
+			size += count;
+			modCount++;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		public double getLatitude(int index) {
+			return lat[index];
+		}
+
+		public double getLongitude(int index) {
+			return lon[index];
+		}
+
+		public long getTime(int index) {
+			return time[index];
+		}
+
+		public double getElevation(int index) {
+			return ele[index];
+		}
+
+		public double getSpeed(int index) {
+			return speed[index];
+		}
+
+		public double getDistance(int index) {
+			return distance[index];
+		}
+
+		/**
+		 * Distance is calculated by analysis of segment and stored the same way as in {@link WptPt#distance}
+		 */
+		public void setDistance(int index, double dist) {
+			distance[index] = dist;
+		}
+
+		public boolean isFirstPoint(int index) {
+			return (flags[index] & FIRST_POINT) != 0;
+		}
+
+		public boolean isLastPoint(int index) {
+			return (flags[index] & LAST_POINT) != 0;
+		}
+
+		@Override
+		public WptPt get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			byte f = flags[index];
+			WptPt p = new WptPt(lat[index], lon[index], time[index], ele[index], speed[index], hdop[index],
+					(f & HEADING_EXTENSION) != 0 ? Float.NaN : heading[index]);
+			p.distance = distance[index];
+			p.firstPoint = (f & FIRST_POINT) != 0;
+			p.lastPoint = (f & LAST_POINT) != 0;
+			p.deleted = (f & DELETED) != 0;
+			WptPt d = details.get(index);
+			if (d != null) {
+				p.name = d.name;
+				p.link = d.link;
+				p.category = d.category;
+				p.desc = d.desc;
+				p.comment = d.comment;
+				p.colourARGB = d.colourARGB;
+				p.extensionsWriter = d.extensionsWriter;
+				p.copyExtensions(d);
+			}
+			if ((f & SPEED_EXTENSION) != 0) {
+				p.getExtensionsToWrite().put("speed", formatSpeed(speed[index]));
+			}
+			if ((f & HEADING_EXTENSION) != 0) {
+				p.getExtensionsToWrite().put("heading", String.valueOf(Math.round(heading[index])));
+			}
+			return p;
+		}
+
+		/**
+		 * Appends point while segment is loaded
+		 */
+		void append(WptPt point) {
+			ensureCapacity(size + 1);
+			store(size++, point);
+			modCount++;
+		}
+
+		private void store(int index, WptPt p) {
+			lat[index] = p.lat;
+			lon[index] = p.lon;
+			time[index] = p.time;
+			ele[index] = p.ele;
+			speed[index] = p.speed;
+			hdop[index] = p.hdop;
+			heading[index] = p.heading;
+			distance[index] = p.distance;
+			byte f = 0;
+			if (p.firstPoint) {
+				f |= FIRST_POINT;
+			}
+			if (p.lastPoint) {
+				f |= LAST_POINT;
+			}
+			if (p.deleted) {
+				f |= DELETED;
+			}
+			// speed and heading extensions written by OsmAnd (the last ones) are restored from columns
+			List<Entry<String, String>> entries = new ArrayList<>(p.getExtensionsToRead().entrySet());
+			int end = entries.size();
+			if (end > 0 && isHeadingExtension(entries.get(end - 1), p)) {
+				heading[index] = Float.parseFloat(entries.get(--end).getValue());
+				f |= HEADING_EXTENSION;
+			}
+			if (end > 0 && isSpeedExtension(entries.get(end - 1), p)) {
+				end--;
+				f |= SPEED_EXTENSION;
+			}
+			Map<String, String> extensions = null;
+			for (int i = 0; i < end; i++) {
+				if (extensions == null) {
+					extensions = new LinkedHashMap<>();
+				}
+				extensions.put(entries.get(i).getKey(), entries.get(i).getValue());
+			}
+			flags[index] = f;
+			if (p.name != null || p.link != null || p.category != null || p.desc != null || p.comment != null
+					|| p.colourARGB != 0 || p.extensionsWriter != null || extensions != null) {
+				WptPt d = new WptPt();
+				d.name = p.name;
+				d.link = p.link;
+				d.category = p.category;
+				d.desc = p.desc;
+				d.comment = p.comment;
+				d.colourARGB = p.colourARGB;
+				d.extensionsWriter = p.extensionsWriter;
+				d.extensions = extensions;
+				details.put(index, d);
+			} else {
+				details.remove(index);
+			}
+		}
+
+		private static boolean isSpeedExtension(Entry<String, String> e, WptPt p) {
+			return e.getKey().equals("speed") && p.speed > 0 && formatSpeed(p.speed).equals(e.getValue());
 		}
 
+		private static boolean isHeadingExtension(Entry<String, String> e, WptPt p) {
+			String value = e.getValue();
+			if (!e.getKey().equals("heading") || !Float.isNaN(p.heading) || value == null) {
+				return false;
+			}
+			try {
+				return value.equals(String.valueOf(Math.round(Float.parseFloat(value))));
+			} catch (NumberFormatException ex) {
+				return false;
+			}
+		}
+
+		// the same as GPXXmlSerializer.formatDecimal of writer
+		private static String formatSpeed(double speed) {
+			return BigDecimal.valueOf(speed).setScale(3, RoundingMode.HALF_EVEN).stripTrailingZeros().toPlainString();
+		}
 	}
 
 	public static class Track extends GPXExtensions {
@@ -587,305 +891,951 @@ public class GPXUtilities {
 		}
 
 		public GPXTrackAnalysis prepareInformation(long filestamp, SplitSegment... splitSegments) {
-			float[] calculations = new float[1];
-
-			long startTimeOfSingleSegment = 0;
-			long endTimeOfSingleSegment = 0;
-
-			float distanceOfSingleSegment = 0;
-			float distanceMovingOfSingleSegment = 0;
-			long timeMovingOfSingleSegment = 0;
-
-			float totalElevation = 0;
-			int elevationPoints = 0;
-			int speedCount = 0;
-			int timeDiff = 0;
-			double totalSpeedSum = 0;
-			points = 0;
-
-			double channelThresMin = 10;           // Minimum oscillation amplitude considered as relevant or as above noise for accumulated Ascent/Descent analysis
-			double channelThres = channelThresMin; // Actual oscillation amplitude considered as above noise (dynamic channel adjustment, accomodates depedency on current VDOP/getAccuracy if desired)
-			double channelBase;
-			double channelTop;
-			double channelBottom;
-			boolean climb = false;
-
-			elevationData = new ArrayList<>();
-			speedData = new ArrayList<>();
-
+			GPXAnalysisAccumulator accumulator = new GPXAnalysisAccumulator(this, true);
 			for (SplitSegment s : splitSegments) {
 				final int numberOfPoints = s.getNumberOfPoints();
-
-				channelBase = 99999;
-				channelTop = channelBase;
-				channelBottom = channelBase;
-				//channelThres = channelThresMin; //only for dynamic channel adjustment
-
-				float segmentDistance = 0f;
-				metricEnd += s.metricEnd;
-				secondaryMetricEnd += s.secondaryMetricEnd;
-				points += numberOfPoints;
+				PointColumns columns = s.segment.points instanceof PointColumns ? (PointColumns) s.segment.points : null;
+				accumulator.startSegment(s.segment.generalSegment, s.metricEnd, s.secondaryMetricEnd);
 				for (int j = 0; j < numberOfPoints; j++) {
-					WptPt point = s.get(j);
-					if (j == 0 && locationStart == null) {
-						locationStart = point;
-					}
-					if (j == numberOfPoints - 1) {
-						locationEnd = point;
+					int ind = columns != null ? s.getPointIndex(j) : -1;
+					if (ind >= 0) {
+						accumulator.addPoint(columns, ind);
+					} else {
+						accumulator.addPoint(s.get(j));
 					}
-					long time = point.time;
-					if (time != 0) {
-						if (s.metricEnd == 0) {
-							if (s.segment.generalSegment) {
-								if (point.firstPoint) {
-									startTimeOfSingleSegment = time;
-								} else if (point.lastPoint) {
-									endTimeOfSingleSegment = time;
-								}
-								if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
-									timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
-									startTimeOfSingleSegment = 0;
-									endTimeOfSingleSegment = 0;
-								}
-							}
+				}
+				accumulator.finishSegment();
+			}
+			return accumulator.finish(filestamp);
+		}
+
+		void copyTotals(GPXTrackAnalysis a) {
+			totalDistance = a.totalDistance;
+			totalDistanceWithoutGaps = a.totalDistanceWithoutGaps;
+			totalTracks = a.totalTracks;
+			startTime = a.startTime;
+			endTime = a.endTime;
+			timeSpan = a.timeSpan;
+			timeSpanWithoutGaps = a.timeSpanWithoutGaps;
+			timeMoving = a.timeMoving;
+			timeMovingWithoutGaps = a.timeMovingWithoutGaps;
+			totalDistanceMoving = a.totalDistanceMoving;
+			totalDistanceMovingWithoutGaps = a.totalDistanceMovingWithoutGaps;
+			diffElevationUp = a.diffElevationUp;
+			diffElevationDown = a.diffElevationDown;
+			avgElevation = a.avgElevation;
+			minElevation = a.minElevation;
+			maxElevation = a.maxElevation;
+			minSpeed = a.minSpeed;
+			maxSpeed = a.maxSpeed;
+			avgSpeed = a.avgSpeed;
+			points = a.points;
+			wptPoints = a.wptPoints;
+			wptCategoryNames = a.wptCategoryNames;
+			metricEnd = a.metricEnd;
+			secondaryMetricEnd = a.secondaryMetricEnd;
+			locationStart = a.locationStart;
+			locationEnd = a.locationEnd;
+			left = a.left;
+			right = a.right;
+			top = a.top;
+			bottom = a.bottom;
+			elevationData = a.elevationData;
+			speedData = a.speedData;
+			hasElevationData = a.hasElevationData;
+			hasSpeedData = a.hasSpeedData;
+			hasSpeedInTrack = a.hasSpeedInTrack;
+		}
+	}
+
+	/**
+	 * Calculates {@link GPXTrackAnalysis} point by point: segments are passed one after another
+	 * and only the last points of elevation smoothing window are kept, so the points could be streamed.
+	 */
+	public static class GPXAnalysisAccumulator {
+
+		// LPF smooting of ele data, usually smooth over odd number of values like 5
+		private static final int SMOOTH_WINDOW = 5;
+		// Minimum oscillation amplitude considered as relevant or as above noise for accumulated Ascent/Descent analysis
+		private static final double CHANNEL_THRES_MIN = 10;
+
+		private final GPXTrackAnalysis analysis;
+		private final ChartData chartData;
+		private final float[] calculations = new float[1];
+
+		private long startTimeOfSingleSegment = 0;
+		private long endTimeOfSingleSegment = 0;
+
+		private float distanceOfSingleSegment = 0;
+		private float distanceMovingOfSingleSegment = 0;
+		private long timeMovingOfSingleSegment = 0;
+
+		private float totalElevation = 0;
+		private int elevationPoints = 0;
+		private int speedCount = 0;
+		private int timeDiff = 0;
+		private double totalSpeedSum = 0;
+
+		// Actual oscillation amplitude considered as above noise (dynamic channel adjustment, accomodates depedency on current VDOP/getAccuracy if desired)
+		private double channelThres = CHANNEL_THRES_MIN;
+		private double channelBase;
+		private double channelTop;
+		private double channelBottom;
+		private boolean climb = false;
+
+		// state of current segment
+		private boolean segmentStarted;
+		private boolean generalSegment;
+		private double segmentMetricEnd;
+		private float segmentDistance;
+		private int segmentPoints;
+		private double prevLat;
+		private double prevLon;
+		private long prevTime;
+		private final double[] smoothWindow = new double[SMOOTH_WINDOW];
+		private double eleSmoothed = Double.NaN;
+		// last point of columns is created only when segment is finished
+		private PointColumns endColumns;
+		private int endIndex;
+
+		/**
+		 * @param collectChartData fill elevationData and speedData (memory grows with number of points)
+		 */
+		public GPXAnalysisAccumulator(GPXTrackAnalysis analysis, boolean collectChartData) {
+			this.analysis = analysis;
+			this.chartData = collectChartData ? new ChartData() : null;
+			analysis.points = 0;
+			analysis.elevationData = new ArrayList<>();
+			analysis.speedData = new ArrayList<>();
+		}
+
+		public GPXTrackAnalysis getAnalysis() {
+			return analysis;
+		}
+
+		/**
+		 * @param metricEnd metric of split segment or 0 for whole segment
+		 */
+		public void startSegment(boolean generalSegment, double metricEnd, double secondaryMetricEnd) {
+			this.segmentStarted = true;
+			this.generalSegment = generalSegment;
+			this.segmentMetricEnd = metricEnd;
+			analysis.metricEnd += metricEnd;
+			analysis.secondaryMetricEnd += secondaryMetricEnd;
+			channelBase = 99999;
+			channelTop = channelBase;
+			channelBottom = channelBase;
+			//channelThres = channelThresMin; //only for dynamic channel adjustment
+			segmentDistance = 0f;
+			segmentPoints = 0;
+			eleSmoothed = Double.NaN;
+		}
+
+		public void addPoint(WptPt point) {
+			if (segmentPoints == 0 && analysis.locationStart == null) {
+				analysis.locationStart = point;
+			}
+			analysis.locationEnd = point;
+			endColumns = null;
+			addPoint(point.lat, point.lon, point.time, point.ele, (float) point.speed, point.firstPoint, point.lastPoint);
+			if (segmentPoints > 1) {
+				point.distance = segmentDistance;
+			}
+		}
+
+		/**
+		 * Adds point without creating object, calculated distance is stored in columns
+		 */
+		public void addPoint(PointColumns columns, int index) {
+			if (segmentPoints == 0 && analysis.locationStart == null) {
+				analysis.locationStart = columns.get(index);
+			}
+			endColumns = columns;
+			endIndex = index;
+			addPoint(columns.getLatitude(index), columns.getLongitude(index), columns.getTime(index),
+					columns.getElevation(index), (float) columns.getSpeed(index), columns.isFirstPoint(index),
+					columns.isLastPoint(index));
+			if (segmentPoints > 1) {
+				columns.setDistance(index, segmentDistance);
+			}
+		}
+
+		private void addPoint(double lat, double lon, long time, double elevation, float speed,
+							  boolean firstPoint, boolean lastPoint) {
+			GPXTrackAnalysis a = analysis;
+			int j = segmentPoints++;
+			a.points++;
+			if (time != 0) {
+				if (segmentMetricEnd == 0) {
+					if (generalSegment) {
+						if (firstPoint) {
+							startTimeOfSingleSegment = time;
+						} else if (lastPoint) {
+							endTimeOfSingleSegment = time;
+						}
+						if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
+							a.timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
+							startTimeOfSingleSegment = 0;
+							endTimeOfSingleSegment = 0;
 						}
-						startTime = Math.min(startTime, time);
-						endTime = Math.max(endTime, time);
 					}
+				}
+				a.startTime = Math.min(a.startTime, time);
+				a.endTime = Math.max(a.endTime, time);
+			}
 
-					if (left == 0 && right == 0) {
-						left = point.getLongitude();
-						right = point.getLongitude();
-						top = point.getLatitude();
-						bottom = point.getLatitude();
-					} else {
-						left = Math.min(left, point.getLongitude());
-						right = Math.max(right, point.getLongitude());
-						top = Math.max(top, point.getLatitude());
-						bottom = Math.min(bottom, point.getLatitude());
-					}
+			if (a.left == 0 && a.right == 0) {
+				a.left = lon;
+				a.right = lon;
+				a.top = lat;
+				a.bottom = lat;
+			} else {
+				a.left = Math.min(a.left, lon);
+				a.right = Math.max(a.right, lon);
+				a.top = Math.max(a.top, lat);
+				a.bottom = Math.min(a.bottom, lat);
+			}
 
-					double elevation = point.ele;
-					Elevation elevation1 = new Elevation();
-					if (!Double.isNaN(elevation)) {
-						totalElevation += elevation;
-						elevationPoints++;
-						minElevation = Math.min(elevation, minElevation);
-						maxElevation = Math.max(elevation, maxElevation);
+			float pointElevation;
+			if (!Double.isNaN(elevation)) {
+				totalElevation += elevation;
+				elevationPoints++;
+				a.minElevation = Math.min(elevation, a.minElevation);
+				a.maxElevation = Math.max(elevation, a.maxElevation);
 
-						elevation1.elevation = (float) elevation;
-					} else {
-						elevation1.elevation = Float.NaN;
-					}
+				pointElevation = (float) elevation;
+			} else {
+				pointElevation = Float.NaN;
+			}
 
-					float speed = (float) point.speed;
-					if (speed > 0) {
-						hasSpeedInTrack = true;
-					}
+			if (speed > 0) {
+				a.hasSpeedInTrack = true;
+			}
 
-					// Trend channel analysis for elevation gain/loss, Hardy 2015-09-22, LPF filtering added 2017-10-26:
-					// - Detect the consecutive elevation trend channels: Only use the net elevation changes of each trend channel (i.e. between the turnarounds) to accumulate the Ascent/Descent values.
-					// - Perform the channel evaluation on Low Pass Filter (LPF) smoothed ele data instead of on the raw ele data
-					// Parameters:
-					// - channelThresMin (in meters): defines the channel turnaround detection, i.e. oscillations smaller than this are ignored as irrelevant or noise.
-					// - smoothWindow (number of points): is the LPF window
-					// NOW REMOVED, as no relevant examples found: Dynamic channel adjustment: To suppress unreliable measurement points, could relax the turnaround detection from the constant channelThresMin to channelThres which is e.g. based on the maximum VDOP of any point which contributed to the current trend. (Good assumption is VDOP=2*HDOP, which accounts for invisibility of lower hemisphere satellites.)
-
-					// LPF smooting of ele data, usually smooth over odd number of values like 5
-					final int smoothWindow = 5;
-					double eleSmoothed = Double.NaN;
-					int j2 = 0;
-					for (int j1 = - smoothWindow + 1; j1 <= 0; j1++) {
-						if ((j + j1 >= 0) && !Double.isNaN(s.get(j + j1).ele)) {
-							j2++;
-							if (!Double.isNaN(eleSmoothed)) {
-								eleSmoothed = eleSmoothed + s.get(j + j1).ele;
-							} else {
-								eleSmoothed = s.get(j + j1).ele;
-							}
-						}
-					}
+			// Trend channel analysis for elevation gain/loss, Hardy 2015-09-22, LPF filtering added 2017-10-26:
+			// - Detect the consecutive elevation trend channels: Only use the net elevation changes of each trend channel (i.e. between the turnarounds) to accumulate the Ascent/Descent values.
+			// - Perform the channel evaluation on Low Pass Filter (LPF) smoothed ele data instead of on the raw ele data
+			// Parameters:
+			// - channelThresMin (in meters): defines the channel turnaround detection, i.e. oscillations smaller than this are ignored as irrelevant or noise.
+			// - smoothWindow (number of points): is the LPF window
+			// NOW REMOVED, as no relevant examples found: Dynamic channel adjustment: To suppress unreliable measurement points, could relax the turnaround detection from the constant channelThresMin to channelThres which is e.g. based on the maximum VDOP of any point which contributed to the current trend. (Good assumption is VDOP=2*HDOP, which accounts for invisibility of lower hemisphere satellites.)
+
+			// elevations of the last points are kept in ring buffer and summed from the oldest one
+			smoothWindow[j % SMOOTH_WINDOW] = elevation;
+			eleSmoothed = Double.NaN;
+			int j2 = 0;
+			for (int j1 = Math.max(0, j - SMOOTH_WINDOW + 1); j1 <= j; j1++) {
+				double ele = smoothWindow[j1 % SMOOTH_WINDOW];
+				if (!Double.isNaN(ele)) {
+					j2++;
 					if (!Double.isNaN(eleSmoothed)) {
-						eleSmoothed = eleSmoothed / j2;
+						eleSmoothed = eleSmoothed + ele;
+					} else {
+						eleSmoothed = ele;
 					}
+				}
+			}
+			if (!Double.isNaN(eleSmoothed)) {
+				eleSmoothed = eleSmoothed / j2;
+			}
 
-					if (!Double.isNaN(eleSmoothed)) {
-						// Init channel
-						if (channelBase == 99999) {
-							channelBase = eleSmoothed;
-							channelTop = channelBase;
-							channelBottom = channelBase;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						}
-						// Channel maintenance
-						if (eleSmoothed > channelTop) {
-							channelTop = eleSmoothed;
-							//if (!Double.isNaN(point.hdop)) {
-							//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
-							//}
-						} else if (eleSmoothed < channelBottom) {
-							channelBottom = eleSmoothed;
-							//if (!Double.isNaN(point.hdop)) {
-							//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
-							//}
-						}
-						// Turnaround (breakout) detection
-						if ((eleSmoothed <= (channelTop - channelThres)) && (climb == true)) {
-							if ((channelTop - channelBase) >= channelThres) {
-								diffElevationUp += channelTop - channelBase;
-							}
-							channelBase = channelTop;
-							channelBottom = eleSmoothed;
-							climb = false;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						} else if ((eleSmoothed >= (channelBottom + channelThres)) && (climb == false)) {
-							if ((channelBase - channelBottom) >= channelThres) {
-								diffElevationDown += channelBase - channelBottom;
-							}
-							channelBase = channelBottom;
-							channelTop = eleSmoothed;
-							climb = true;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						}
-						// End detection without breakout
-						if (j == (numberOfPoints - 1)) {
-							if ((channelTop - channelBase) >= channelThres) {
-								diffElevationUp += channelTop - channelBase;
-							}
-							if ((channelBase - channelBottom) >= channelThres) {
-								diffElevationDown += channelBase - channelBottom;
-							}
-						}
+			if (!Double.isNaN(eleSmoothed)) {
+				// Init channel
+				if (channelBase == 99999) {
+					channelBase = eleSmoothed;
+					channelTop = channelBase;
+					channelBottom = channelBase;
+					//channelThres = channelThresMin; //only for dynamic channel adjustment
+				}
+				// Channel maintenance
+				if (eleSmoothed > channelTop) {
+					channelTop = eleSmoothed;
+					//if (!Double.isNaN(point.hdop)) {
+					//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
+					//}
+				} else if (eleSmoothed < channelBottom) {
+					channelBottom = eleSmoothed;
+					//if (!Double.isNaN(point.hdop)) {
+					//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
+					//}
+				}
+				// Turnaround (breakout) detection
+				if ((eleSmoothed <= (channelTop - channelThres)) && (climb == true)) {
+					if ((channelTop - channelBase) >= channelThres) {
+						a.diffElevationUp += channelTop - channelBase;
+					}
+					channelBase = channelTop;
+					channelBottom = eleSmoothed;
+					climb = false;
+					//channelThres = channelThresMin; //only for dynamic channel adjustment
+				} else if ((eleSmoothed >= (channelBottom + channelThres)) && (climb == false)) {
+					if ((channelBase - channelBottom) >= channelThres) {
+						a.diffElevationDown += channelBase - channelBottom;
 					}
+					channelBase = channelBottom;
+					channelTop = eleSmoothed;
+					climb = true;
+					//channelThres = channelThresMin; //only for dynamic channel adjustment
+				}
+			}
 
-					if (j > 0) {
-						WptPt prev = s.get(j - 1);
-
-						// Old complete summation approach for elevation gain/loss
-						//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
-						//	double diff = point.ele - prev.ele;
-						//	if (diff > 0) {
-						//		diffElevationUp += diff;
-						//	} else {
-						//		diffElevationDown -= diff;
-						//	}
-						//}
-
-						// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
-						// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
-						// a little more exact, also seems slightly faster:
-						net.osmand.Location.distanceBetween(prev.lat, prev.lon, point.lat, point.lon, calculations);
-						totalDistance += calculations[0];
-						segmentDistance += calculations[0];
-						point.distance = segmentDistance;
-						timeDiff = (int)((point.time - prev.time) / 1000);
-
-						//Last resort: Derive speed values from displacement if track does not originally contain speed
-						if (!hasSpeedInTrack && speed == 0 && timeDiff > 0) {
-							speed = calculations[0] / timeDiff;
-						}
+			if (j > 0) {
+				// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
+				// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
+				// a little more exact, also seems slightly faster:
+				net.osmand.Location.distanceBetween(prevLat, prevLon, lat, lon, calculations);
+				a.totalDistance += calculations[0];
+				segmentDistance += calculations[0];
+				timeDiff = (int)((time - prevTime) / 1000);
 
-						// Motion detection:
-						//   speed > 0  uses GPS chipset's motion detection
-						//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
-						if ((speed > 0) && (calculations[0] > 0.1 / 1000f * (point.time - prev.time)) && point.time != 0 && prev.time != 0) {
-							timeMoving = timeMoving + (point.time - prev.time);
-							totalDistanceMoving += calculations[0];
-							if (s.segment.generalSegment && !point.firstPoint) {
-								timeMovingOfSingleSegment += point.time - prev.time;
-								distanceMovingOfSingleSegment += calculations[0];
-							}
-						}
+				//Last resort: Derive speed values from displacement if track does not originally contain speed
+				if (!a.hasSpeedInTrack && speed == 0 && timeDiff > 0) {
+					speed = calculations[0] / timeDiff;
+				}
 
-						//Next few lines for Issue 3222 heuristic testing only
-						//	if (speed > 0 && point.time != 0 && prev.time != 0) {
-						//		timeMoving0 = timeMoving0 + (point.time - prev.time);
-						//		totalDistanceMoving0 += calculations[0];
-						//	}
+				// Motion detection:
+				//   speed > 0  uses GPS chipset's motion detection
+				//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
+				if ((speed > 0) && (calculations[0] > 0.1 / 1000f * (time - prevTime)) && time != 0 && prevTime != 0) {
+					a.timeMoving = a.timeMoving + (time - prevTime);
+					a.totalDistanceMoving += calculations[0];
+					if (generalSegment && !firstPoint) {
+						timeMovingOfSingleSegment += time - prevTime;
+						distanceMovingOfSingleSegment += calculations[0];
 					}
+				}
+			}
 
-					elevation1.time = timeDiff;
-					elevation1.distance = (j > 0) ? calculations[0] : 0;
-					elevationData.add(elevation1);
-					if (!hasElevationData && !Float.isNaN(elevation1.elevation) && totalDistance > 0) {
-						hasElevationData = true;
-					}
+			float pointDistance = (j > 0) ? calculations[0] : 0;
+			if (!a.hasElevationData && !Float.isNaN(pointElevation) && a.totalDistance > 0) {
+				a.hasElevationData = true;
+			}
 
-					minSpeed = Math.min(speed, minSpeed);
-					if (speed > 0) {
-						totalSpeedSum += speed;
-						maxSpeed = Math.max(speed, maxSpeed);
-						speedCount++;
-					}
+			a.minSpeed = Math.min(speed, a.minSpeed);
+			if (speed > 0) {
+				totalSpeedSum += speed;
+				a.maxSpeed = Math.max(speed, a.maxSpeed);
+				speedCount++;
+			}
 
-					Speed speed1 = new Speed();
-					speed1.speed = speed;
-					speed1.time = timeDiff;
-					speed1.distance = elevation1.distance;
-					speedData.add(speed1);
-					if (!hasSpeedData && speed1.speed > 0 && totalDistance > 0) {
-						hasSpeedData = true;
-					}
-					if (s.segment.generalSegment) {
-						distanceOfSingleSegment += calculations[0];
-						if (point.firstPoint) {
-							distanceOfSingleSegment = 0;
-							timeMovingOfSingleSegment = 0;
-							distanceMovingOfSingleSegment = 0;
-							if (j > 0) {
-								elevation1.firstPoint = true;
-								speed1.firstPoint = true;
-							}
-						}
-						if (point.lastPoint) {
-							totalDistanceWithoutGaps += distanceOfSingleSegment;
-							timeMovingWithoutGaps += timeMovingOfSingleSegment;
-							totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
-							if (j < numberOfPoints - 1) {
-								elevation1.lastPoint = true;
-								speed1.lastPoint = true;
-							}
-						}
-					}
+			if (chartData != null) {
+				// marks of the last point of general segment are removed in finishSegment()
+				chartData.add(pointDistance, timeDiff, pointElevation, speed,
+						generalSegment && firstPoint && j > 0, generalSegment && lastPoint);
+			}
+			if (!a.hasSpeedData && speed > 0 && a.totalDistance > 0) {
+				a.hasSpeedData = true;
+			}
+			if (generalSegment) {
+				distanceOfSingleSegment += calculations[0];
+				if (firstPoint) {
+					distanceOfSingleSegment = 0;
+					timeMovingOfSingleSegment = 0;
+					distanceMovingOfSingleSegment = 0;
+				}
+				if (lastPoint) {
+					a.totalDistanceWithoutGaps += distanceOfSingleSegment;
+					a.timeMovingWithoutGaps += timeMovingOfSingleSegment;
+					a.totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
+				}
+			}
+			prevLat = lat;
+			prevLon = lon;
+			prevTime = time;
+		}
+
+		public void finishSegment() {
+			if (endColumns != null) {
+				analysis.locationEnd = endColumns.get(endIndex);
+				endColumns = null;
+			}
+			addSegmentEndElevation(analysis);
+			if (chartData != null && generalSegment && segmentPoints > 0) {
+				chartData.clearLastPoint();
+			}
+			segmentStarted = false;
+		}
+
+		private void addSegmentEndElevation(GPXTrackAnalysis a) {
+			// End detection without breakout
+			if (segmentPoints > 0 && !Double.isNaN(eleSmoothed)) {
+				if ((channelTop - channelBase) >= channelThres) {
+					a.diffElevationUp += channelTop - channelBase;
+				}
+				if ((channelBase - channelBottom) >= channelThres) {
+					a.diffElevationDown += channelBase - channelBottom;
 				}
 			}
-			if (totalDistance < 0) {
-				hasElevationData = false;
-				hasSpeedData = false;
+		}
+
+		public GPXTrackAnalysis finish(long filestamp) {
+			return finish(analysis, filestamp);
+		}
+
+		/**
+		 * Returns finished copy of analysis of points added so far, accumulation could be continued
+		 * (current segment is not finished). Elevation and speed data are shared with next snapshots.
+		 */
+		public GPXTrackAnalysis snapshot(long filestamp) {
+			GPXTrackAnalysis a = new GPXTrackAnalysis();
+			a.copyTotals(analysis);
+			if (segmentStarted) {
+				if (endColumns != null) {
+					a.locationEnd = endColumns.get(endIndex);
+				}
+				addSegmentEndElevation(a);
+			}
+			return finish(a, filestamp);
+		}
+
+		private GPXTrackAnalysis finish(GPXTrackAnalysis a, long filestamp) {
+			if (chartData != null) {
+				a.elevationData = chartData.getElevationData();
+				a.speedData = chartData.getSpeedData();
+			}
+			if (a.totalDistance < 0) {
+				a.hasElevationData = false;
+				a.hasSpeedData = false;
 			}
-			if (!isTimeSpecified()) {
-				startTime = filestamp;
-				endTime = filestamp;
+			if (!a.isTimeSpecified()) {
+				a.startTime = filestamp;
+				a.endTime = filestamp;
 			}
 
 			// OUTPUT:
 			// 1. Total distance, Start time, End time
 			// 2. Time span
-			if (timeSpan == 0) {
-				timeSpan = endTime - startTime;
+			if (a.timeSpan == 0) {
+				a.timeSpan = a.endTime - a.startTime;
 			}
 
 			// 3. Time moving, if any
 			// 4. Elevation, eleUp, eleDown, if recorded
 			if (elevationPoints > 0) {
-				avgElevation = totalElevation / elevationPoints;
+				a.avgElevation = totalElevation / elevationPoints;
 			}
 
-
 			// 5. Max speed and Average speed, if any. Average speed is NOT overall (effective) speed, but only calculated for "moving" periods.
 			//    Averaging speed values is less precise than totalDistanceMoving/timeMoving
 			if (speedCount > 0) {
-				if (timeMoving > 0) {
-					avgSpeed = (float) totalDistanceMoving / (float) timeMoving * 1000f;
+				if (a.timeMoving > 0) {
+					a.avgSpeed = (float) a.totalDistanceMoving / (float) a.timeMoving * 1000f;
+				} else {
+					a.avgSpeed = (float) totalSpeedSum / (float) speedCount;
+				}
+			} else {
+				a.avgSpeed = -1;
+			}
+			return a;
+		}
+	}
+
+	/**
+	 * Analysis of growing gpx (recorded track): points appended to the last segment and new segments are
+	 * added to running totals, so update takes time of new points only. Results are the same as
+	 * {@link GPXFile#getAnalysis(long)}. If segments are added in between or removed, lists of points are replaced
+	 * or shortened, or the last analyzed point is changed, analysis is recalculated. Other analyzed points are
+	 * not compared, {@link #reset()} should be called after they are edited in place.
+	 */
+	public static class GPXIncrementalAnalysis {
+
+		private GPXAnalysisAccumulator accumulator;
+		// analyzed segments and number of points of the last one
+		private final List<TrkSegment> segments = new ArrayList<>();
+		private final List<List<WptPt>> segmentPoints = new ArrayList<>();
+		private final List<Integer> segmentSizes = new ArrayList<>();
+		private boolean segmentStarted;
+		private double lastLat;
+		private double lastLon;
+		private long lastTime;
+
+		public GPXIncrementalAnalysis() {
+			reset();
+		}
+
+		public void reset() {
+			accumulator = new GPXAnalysisAccumulator(new GPXTrackAnalysis(), true);
+			segments.clear();
+			segmentPoints.clear();
+			segmentSizes.clear();
+			segmentStarted = false;
+		}
+
+		/**
+		 * Adds new points of gpx and returns analysis of the whole file
+		 */
+		public GPXTrackAnalysis update(GPXFile gpxFile, long fileTimestamp) {
+			List<TrkSegment> current = new ArrayList<>();
+			for (Track track : gpxFile.tracks) {
+				for (TrkSegment segment : track.segments) {
+					if (!segment.generalSegment) {
+						current.add(segment);
+					}
+				}
+			}
+			if (!isAppended(current)) {
+				reset();
+			}
+			int last = segments.size() - 1;
+			for (int i = Math.max(0, last); i < current.size(); i++) {
+				TrkSegment segment = current.get(i);
+				int from = 0;
+				if (i == last) {
+					from = segmentSizes.get(i);
 				} else {
-					avgSpeed = (float) totalSpeedSum / (float) speedCount;
+					if (segmentStarted) {
+						accumulator.finishSegment();
+						segmentStarted = false;
+					}
+					segments.add(segment);
+					segmentPoints.add(segment.points);
+					segmentSizes.add(0);
+				}
+				addPoints(segment.points, from);
+				segmentSizes.set(i, segment.points.size());
+			}
+			GPXTrackAnalysis analysis = accumulator.snapshot(fileTimestamp);
+			analysis.totalTracks = segments.size();
+			analysis.wptPoints = gpxFile.getPointsSize();
+			analysis.wptCategoryNames = gpxFile.getWaypointCategories(true);
+			return analysis;
+		}
+
+		private boolean isAppended(List<TrkSegment> current) {
+			int count = segments.size();
+			if (current.size() < count) {
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				TrkSegment segment = current.get(i);
+				int size = segmentSizes.get(i);
+				if (segment != segments.get(i) || segment.points != segmentPoints.get(i)
+						|| (i < count - 1 ? segment.points.size() != size : segment.points.size() < size)) {
+					return false;
+				}
+			}
+			if (count > 0) {
+				List<WptPt> points = segments.get(count - 1).points;
+				int size = segmentSizes.get(count - 1);
+				if (size > 0) {
+					WptPt last = points.get(size - 1);
+					return last.lat == lastLat && last.lon == lastLon && last.time == lastTime;
+				}
+			}
+			return true;
+		}
+
+		private void addPoints(List<WptPt> points, int from) {
+			int size = points.size();
+			PointColumns columns = points instanceof PointColumns ? (PointColumns) points : null;
+			for (int i = from; i < size; i++) {
+				// segments with single point are not analyzed
+				if (i == 1) {
+					accumulator.startSegment(false, 0, 0);
+					segmentStarted = true;
+					addPoint(points, columns, 0);
+				}
+				if (i > 0) {
+					addPoint(points, columns, i);
 				}
+			}
+			if (size > 0) {
+				WptPt last = points.get(size - 1);
+				lastLat = last.lat;
+				lastLon = last.lon;
+				lastTime = last.time;
+			}
+		}
+
+		private void addPoint(List<WptPt> points, PointColumns columns, int index) {
+			if (columns != null) {
+				accumulator.addPoint(columns, index);
 			} else {
-				avgSpeed = -1;
+				accumulator.addPoint(points.get(index));
+			}
+		}
+	}
+
+	/**
+	 * Elevation and speed data of analysis stored in primitive arrays (points have common distance and time),
+	 * {@link Elevation} and {@link Speed} are created on request. Data is only appended, so lists returned
+	 * before keep their size and values.
+	 */
+	private static class ChartData {
+		private static final byte FIRST_POINT = 1;
+		private static final byte LAST_POINT = 1 << 1;
+
+		private int size;
+		private float[] distance = new float[16];
+		private int[] time = new int[16];
+		private float[] elevation = new float[16];
+		private float[] speed = new float[16];
+		private byte[] flags = new byte[16];
+
+		void add(float distance, int time, float elevation, float speed, boolean firstPoint, boolean lastPoint) {
+			if (size == this.distance.length) {
+				int capacity = size + (size >> 1);
+				this.distance = Arrays.copyOf(this.distance, capacity);
+				this.time = Arrays.copyOf(this.time, capacity);
+				this.elevation = Arrays.copyOf(this.elevation, capacity);
+				this.speed = Arrays.copyOf(this.speed, capacity);
+				this.flags = Arrays.copyOf(this.flags, capacity);
+			}
+			this.distance[size] = distance;
+			this.time[size] = time;
+			this.elevation[size] = elevation;
+			this.speed[size] = speed;
+			this.flags[size] = (byte) ((firstPoint ? FIRST_POINT : 0) | (lastPoint ? LAST_POINT : 0));
+			size++;
+		}
+
+		void clearLastPoint() {
+			flags[size - 1] &= ~LAST_POINT;
+		}
+
+		List<Elevation> getElevationData() {
+			final int size = this.size;
+			return new ChartList<Elevation>(size) {
+				@Override
+				public Elevation get(int index) {
+					checkIndex(index);
+					Elevation e = new Elevation();
+					e.distance = distance[index];
+					e.time = time[index];
+					e.elevation = elevation[index];
+					e.firstPoint = (flags[index] & FIRST_POINT) != 0;
+					e.lastPoint = (flags[index] & LAST_POINT) != 0;
+					return e;
+				}
+			};
+		}
+
+		List<Speed> getSpeedData() {
+			final int size = this.size;
+			return new ChartList<Speed>(size) {
+				@Override
+				public Speed get(int index) {
+					checkIndex(index);
+					Speed s = new Speed();
+					s.distance = distance[index];
+					s.time = time[index];
+					s.speed = speed[index];
+					s.firstPoint = (flags[index] & FIRST_POINT) != 0;
+					s.lastPoint = (flags[index] & LAST_POINT) != 0;
+					return s;
+				}
+			};
+		}
+
+		private abstract static class ChartList<T> extends AbstractList<T> implements RandomAccess {
+			private final int size;
+
+			ChartList(int size) {
+				this.size = size;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			void checkIndex(int index) {
+				if (index < 0 || index >= size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
 			}
+		}
+	}
+
+	/**
+	 * Listener of gpx read by {@link #loadGPXFile(InputStream, GPXStreamListener)}.
+	 * Points are passed as soon as they are parsed and they are not kept by parser.
+	 * Name and description of track and route are known only when they are finished.
+	 * Segment is finished when the next segment starts or track is finished, as points outside of trkseg
+	 * belong to the last segment. Points of route point extensions are passed at the end as the last track.
+	 */
+	public abstract static class GPXStreamListener {
+
+		public boolean isCancelled() {
+			return false;
+		}
+
+		public void metadataLoaded(Metadata metadata) {
+		}
+
+		public void trackStarted(Track track) {
+		}
+
+		public void segmentStarted(Track track, TrkSegment segment) {
+		}
+
+		public void trackPoint(Track track, TrkSegment segment, WptPt point) {
+		}
+
+		public void segmentFinished(Track track, TrkSegment segment) {
+		}
+
+		public void trackFinished(Track track) {
+		}
+
+		public void routeStarted(Route route) {
+		}
+
+		public void routePoint(Route route, WptPt point) {
+		}
+
+		public void routeFinished(Route route) {
+		}
+
+		public void waypoint(WptPt point) {
+		}
+
+		public void gpxFinished(GPXFile gpxFile) {
+		}
+	}
+
+	/**
+	 * Calculates analysis, bounds and split of streamed gpx in constant memory (only points of route point
+	 * extensions are kept till the end of file by parser). Results are the same as
+	 * {@link GPXFile#getAnalysis(long)} and {@link TrkSegment#splitByDistance(double, boolean)} of every segment
+	 * of loaded file, except elevation and speed data which are not collected.
+	 */
+	public static class GPXStreamAnalyzer extends GPXStreamListener {
+
+		private final long fileTimestamp;
+		private final GPXAnalysisAccumulator accumulator;
+		private final QuadRect bounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		private final Set<String> wptCategoryNames = new HashSet<>();
+		private int wptPoints;
+		private int totalTracks;
+		private boolean finished;
+
+		// first point is kept till the second one: segments with single point are not analyzed
+		private WptPt firstPoint;
+		private int segmentPoints;
+
+		private SplitMetric splitMetric;
+		private SplitMetric secondarySplitMetric;
+		private double splitLimit;
+		private SegmentSplit split;
+		private final List<GPXTrackAnalysis> splitAnalysis = new ArrayList<>();
+
+		public GPXStreamAnalyzer(long fileTimestamp) {
+			this.fileTimestamp = fileTimestamp;
+			this.accumulator = new GPXAnalysisAccumulator(new GPXTrackAnalysis(), false);
+		}
+
+		public GPXStreamAnalyzer setSplitByDistance(double meters) {
+			return setSplit(getDistanceMetric(), getTimeSplit(), meters);
+		}
+
+		public GPXStreamAnalyzer setSplitByTime(int seconds) {
+			return setSplit(getTimeSplit(), getDistanceMetric(), seconds);
+		}
+
+		private GPXStreamAnalyzer setSplit(SplitMetric metric, SplitMetric secondaryMetric, double metricLimit) {
+			this.splitMetric = metric;
+			this.secondarySplitMetric = secondaryMetric;
+			this.splitLimit = metricLimit;
 			return this;
 		}
 
+		@Override
+		public void segmentStarted(Track track, TrkSegment segment) {
+			totalTracks++;
+			firstPoint = null;
+			segmentPoints = 0;
+			if (splitMetric != null) {
+				split = new SegmentSplit(splitMetric, secondarySplitMetric, splitLimit, false, false, false, splitAnalysis);
+			}
+		}
+
+		@Override
+		public void trackPoint(Track track, TrkSegment segment, WptPt point) {
+			updateBounds(point);
+			segmentPoints++;
+			if (segmentPoints == 1) {
+				firstPoint = point;
+			} else {
+				if (segmentPoints == 2) {
+					accumulator.startSegment(false, 0, 0);
+					accumulator.addPoint(firstPoint);
+					firstPoint = null;
+				}
+				accumulator.addPoint(point);
+			}
+			if (split != null) {
+				split.addPoint(point);
+			}
+		}
+
+		@Override
+		public void segmentFinished(Track track, TrkSegment segment) {
+			if (segmentPoints > 1) {
+				accumulator.finishSegment();
+			}
+			firstPoint = null;
+			if (split != null) {
+				split.finish();
+				split = null;
+			}
+		}
+
+		@Override
+		public void routePoint(Route route, WptPt point) {
+			updateBounds(point);
+		}
+
+		@Override
+		public void waypoint(WptPt point) {
+			updateBounds(point);
+			wptPoints++;
+			wptCategoryNames.add(point.category == null ? "" : point.category);
+		}
+
+		private void updateBounds(WptPt pt) {
+			bounds.right = Math.max(bounds.right, pt.lon);
+			bounds.left = Math.min(bounds.left, pt.lon);
+			bounds.top = Math.max(bounds.top, pt.lat);
+			bounds.bottom = Math.min(bounds.bottom, pt.lat);
+		}
+
+		public GPXTrackAnalysis getAnalysis() {
+			GPXTrackAnalysis analysis = accumulator.getAnalysis();
+			if (!finished) {
+				finished = true;
+				analysis.wptPoints = wptPoints;
+				analysis.wptCategoryNames = wptCategoryNames;
+				analysis.totalTracks = totalTracks;
+				accumulator.finish(fileTimestamp);
+			}
+			return analysis;
+		}
+
+		/**
+		 * @return analysis of split parts of all track segments in order of file
+		 */
+		public List<GPXTrackAnalysis> getSplitAnalysis() {
+			return splitAnalysis;
+		}
+
+		/**
+		 * @return bounds of track points, route points and waypoints
+		 */
+		public QuadRect getBounds() {
+			return bounds;
+		}
+	}
+
+	/**
+	 * Split of segment by metric: parts are analysed while points are added, so segment is passed once
+	 * and parts are not stored. Points of one segment are added either as objects or as indexes of the same columns.
+	 */
+	private static class SegmentSplit {
+		private final SplitMetric metric;
+		private final SplitMetric secondaryMetric;
+		private final double metricLimit;
+		private final boolean generalSegment;
+		// metric between segments of general segment is not counted
+		private final boolean skipGaps;
+		private final boolean collectChartData;
+		private final List<GPXTrackAnalysis> splitAnalysis;
+
+		private GPXAnalysisAccumulator current;
+		private double currentMetricEnd;
+		private double secondaryMetricEnd = 0;
+		private double total = 0;
+		private int points;
+		private WptPt prev;
+		private PointColumns prevColumns;
+		private int prevIndex;
+
+		SegmentSplit(SplitMetric metric, SplitMetric secondaryMetric, double metricLimit, boolean generalSegment,
+					 boolean skipGaps, boolean collectChartData, List<GPXTrackAnalysis> splitAnalysis) {
+			this.metric = metric;
+			this.secondaryMetric = secondaryMetric;
+			this.metricLimit = metricLimit;
+			this.generalSegment = generalSegment;
+			this.skipGaps = skipGaps;
+			this.collectChartData = collectChartData;
+			this.splitAnalysis = splitAnalysis;
+			this.currentMetricEnd = metricLimit;
+		}
+
+		void addPoint(WptPt point) {
+			addPoint(point, null, -1);
+		}
+
+		void addPoint(PointColumns columns, int index) {
+			addPoint(null, columns, index);
+		}
+
+		private void addPoint(WptPt point, PointColumns columns, int index) {
+			if (points++ == 0) {
+				startPart();
+			} else {
+				double currentSegment = 0;
+				boolean firstPoint = columns == null ? point.firstPoint : columns.isFirstPoint(index);
+				if (!(skipGaps && firstPoint)) {
+					if (columns == null) {
+						currentSegment = metric.metric(prev, point);
+						secondaryMetricEnd += secondaryMetric.metric(prev, point);
+					} else {
+						currentSegment = metric.metric(columns, prevIndex, index);
+						secondaryMetricEnd += secondaryMetric.metric(columns, prevIndex, index);
+					}
+				}
+				while (total + currentSegment > currentMetricEnd) {
+					double p = currentMetricEnd - total;
+					double cf = (p / currentSegment);
+					WptPt from = prevColumns == null ? prev : prevColumns.get(prevIndex);
+					WptPt to = columns == null ? point : columns.get(index);
+					current.addPoint(SplitSegment.approx(from, to, cf));
+					finishPart(currentMetricEnd);
+					startPart();
+					// as SplitSegment.get() part starts from the point itself when split is exactly at it
+					if (cf != 0) {
+						current.addPoint(SplitSegment.approx(from, to, cf));
+					} else if (prevColumns != null) {
+						current.addPoint(prevColumns, prevIndex);
+					} else {
+						current.addPoint(prev);
+					}
+					currentMetricEnd += metricLimit;
+				}
+				total += currentSegment;
+			}
+			if (columns == null) {
+				current.addPoint(point);
+			} else {
+				current.addPoint(columns, index);
+			}
+			prev = point;
+			prevColumns = columns;
+			prevIndex = index;
+		}
+
+		void finish() {
+			if (current != null) {
+				finishPart(total);
+			}
+		}
+
+		private void startPart() {
+			current = new GPXAnalysisAccumulator(new GPXTrackAnalysis(), collectChartData);
+			// metric end is only checked to be not 0 (it is 0 for whole segment) and it is set when part is finished
+			current.startSegment(generalSegment, currentMetricEnd, 0);
+		}
+
+		private void finishPart(double metricEnd) {
+			current.finishSegment();
+			GPXTrackAnalysis a = current.finish(0);
+			a.metricEnd = metricEnd;
+			a.secondaryMetricEnd = secondaryMetricEnd;
+			splitAnalysis.add(a);
+			current = null;
+		}
 	}
 
 	private static class SplitSegment {
@@ -905,12 +1855,6 @@ public class GPXUtilities {
 			this.segment = s;
 		}
 
-		public SplitSegment(TrkSegment s, int pointInd, double cf) {
-			this.segment = s;
-			this.startPointInd = pointInd;
-			this.startCoeff = cf;
-		}
-
 
 		public int getNumberOfPoints() {
 			return endPointInd - startPointInd + 2;
@@ -933,8 +1877,22 @@ public class GPXUtilities {
 			return segment.points.get(ind);
 		}
 
+		/**
+		 * @return index of point in segment or -1 if point is interpolated
+		 */
+		public int getPointIndex(int j) {
+			final int ind = j + startPointInd;
+			if (j == 0) {
+				return startCoeff == 0 ? ind : -1;
+			}
+			if (j == getNumberOfPoints() - 1) {
+				return endCoeff == 1 ? ind : -1;
+			}
+			return ind;
+		}
+
 
-		private WptPt approx(WptPt w1, WptPt w2, double cf) {
+		private static WptPt approx(WptPt w1, WptPt w2, double cf) {
 			long time = value(w1.time, w2.time, 0, cf);
 			double speed = value(w1.speed, w2.speed, 0, cf);
 			double ele = value(w1.ele, w2.ele, 0, cf);
@@ -944,7 +1902,7 @@ public class GPXUtilities {
 			return new WptPt(lat, lon, time, ele, speed, hdop);
 		}
 
-		private double value(double vl, double vl2, double none, double cf) {
+		private static double value(double vl, double vl2, double none, double cf) {
 			if (vl == none || Double.isNaN(vl)) {
 				return vl2;
 			} else if (vl2 == none || Double.isNaN(vl2)) {
@@ -953,7 +1911,7 @@ public class GPXUtilities {
 			return vl + cf * (vl2 - vl);
 		}
 
-		private long value(long vl, long vl2, long none, double cf) {
+		private static long value(long vl, long vl2, long none, double cf) {
 			if (vl == none) {
 				return vl2;
 			} else if (vl2 == none) {
@@ -961,14 +1919,6 @@ public class GPXUtilities {
 			}
 			return vl + ((long) (cf * (vl2 - vl)));
 		}
-
-
-		public double setLastPoint(int pointInd, double endCf) {
-			endCoeff = endCf;
-			endPointInd = pointInd;
-			return endCoeff;
-		}
-
 	}
 
 	private static SplitMetric getDistanceMetric() {
@@ -977,8 +1927,8 @@ public class GPXUtilities {
 			private float[] calculations = new float[1];
 
 			@Override
-			public double metric(WptPt p1, WptPt p2) {
-				net.osmand.Location.distanceBetween(p1.lat, p1.lon, p2.lat, p2.lon, calculations);
+			public double metric(double lat1, double lon1, long time1, double lat2, double lon2, long time2) {
+				net.osmand.Location.distanceBetween(lat1, lon1, lat2, lon2, calculations);
 				return calculations[0];
 			}
 		};
@@ -988,9 +1938,9 @@ public class GPXUtilities {
 		return new SplitMetric() {
 
 			@Override
-			public double metric(WptPt p1, WptPt p2) {
-				if (p1.time != 0 && p2.time != 0) {
-					return (int) Math.abs((p2.time - p1.time) / 1000l);
+			public double metric(double lat1, double lon1, long time1, double lat2, double lon2, long time2) {
+				if (time1 != 0 && time2 != 0) {
+					return (int) Math.abs((time2 - time1) / 1000l);
 				}
 				return 0;
 			}
@@ -999,58 +1949,16 @@ public class GPXUtilities {
 
 	private abstract static class SplitMetric {
 
-		public abstract double metric(WptPt p1, WptPt p2);
-
-	}
-
-	private static void splitSegment(SplitMetric metric, SplitMetric secondaryMetric,
-									 double metricLimit, List<SplitSegment> splitSegments,
-									 TrkSegment segment, boolean joinSegments) {
-		double currentMetricEnd = metricLimit;
-		double secondaryMetricEnd = 0;
-		SplitSegment sp = new SplitSegment(segment, 0, 0);
-		double total = 0;
-		WptPt prev = null;
-		for (int k = 0; k < segment.points.size(); k++) {
-			WptPt point = segment.points.get(k);
-			if (k > 0) {
-				double currentSegment = 0;
-				if (!(segment.generalSegment && !joinSegments && point.firstPoint)) {
-					currentSegment = metric.metric(prev, point);
-					secondaryMetricEnd += secondaryMetric.metric(prev, point);
-				}
-				while (total + currentSegment > currentMetricEnd) {
-					double p = currentMetricEnd - total;
-					double cf = (p / currentSegment);
-					sp.setLastPoint(k - 1, cf);
-					sp.metricEnd = currentMetricEnd;
-					sp.secondaryMetricEnd = secondaryMetricEnd;
-					splitSegments.add(sp);
+		public abstract double metric(double lat1, double lon1, long time1, double lat2, double lon2, long time2);
 
-					sp = new SplitSegment(segment, k - 1, cf);
-					currentMetricEnd += metricLimit;
-				}
-				total += currentSegment;
-			}
-			prev = point;
-		}
-		if (segment.points.size() > 0
-				&& !(sp.endPointInd == segment.points.size() - 1 && sp.startCoeff == 1)) {
-			sp.metricEnd = total;
-			sp.secondaryMetricEnd = secondaryMetricEnd;
-			sp.setLastPoint(segment.points.size() - 2, 1);
-			splitSegments.add(sp);
+		public double metric(WptPt p1, WptPt p2) {
+			return metric(p1.lat, p1.lon, p1.time, p2.lat, p2.lon, p2.time);
 		}
-	}
 
-	private static List<GPXTrackAnalysis> convert(List<SplitSegment> splitSegments) {
-		List<GPXTrackAnalysis> ls = new ArrayList<>();
-		for (SplitSegment s : splitSegments) {
-			GPXTrackAnalysis a = new GPXTrackAnalysis();
-			a.prepareInformation(0, s);
-			ls.add(a);
+		public double metric(PointColumns c, int i1, int i2) {
+			return metric(c.getLatitude(i1), c.getLongitude(i1), c.getTime(i1),
+					c.getLatitude(i2), c.getLongitude(i2), c.getTime(i2));
 		}
-		return ls;
 	}
 
 	public static QuadRect calculateBounds(List<WptPt> pts) {
@@ -1062,6 +1970,16 @@ public class GPXUtilities {
 	}
 
 	public static void updateBounds(QuadRect trackBounds, List<WptPt> pts, int startIndex) {
+		if (pts instanceof PointColumns) {
+			PointColumns columns = (PointColumns) pts;
+			for (int i = startIndex; i < columns.size(); i++) {
+				trackBounds.right = Math.max(trackBounds.right, columns.getLongitude(i));
+				trackBounds.left = Math.min(trackBounds.left, columns.getLongitude(i));
+				trackBounds.top = Math.max(trackBounds.top, columns.getLatitude(i));
+				trackBounds.bottom = Math.min(trackBounds.bottom, columns.getLatitude(i));
+			}
+			return;
+		}
 		for (int i = startIndex; i < pts.size(); i++) {
 			WptPt pt = pts.get(i);
 			trackBounds.right = Math.max(trackBounds.right, pt.lon);
@@ -1195,9 +2113,15 @@ public class GPXUtilities {
 
 		private void buildGeneralSegment() {
 			TrkSegment segment = new TrkSegment();
+			PointColumns columns = createGeneralSegmentColumns();
+			if (columns != null) {
+				segment.points = columns;
+			}
 			for (Track track : tracks) {
 				for (TrkSegment s : track.segments) {
-					if (s.points.size() > 0) {
+					if (columns != null) {
+						columns.appendSegmentCopy((PointColumns) s.points);
+					} else if (s.points.size() > 0) {
 						List<WptPt> waypoints = new ArrayList<>(s.points.size());
 						for (WptPt wptPt : s.points) {
 							waypoints.add(new WptPt(wptPt));
@@ -1214,6 +2138,20 @@ public class GPXUtilities {
 			}
 		}
 
+		// general segment of compact segments is compact too and their points are copied without creating objects
+		private PointColumns createGeneralSegmentColumns() {
+			int size = 0;
+			for (Track track : tracks) {
+				for (TrkSegment s : track.segments) {
+					if (!(s.points instanceof PointColumns)) {
+						return null;
+					}
+					size += s.points.size();
+				}
+			}
+			return size > 0 ? new PointColumns(size) : null;
+		}
+
 		public GPXTrackAnalysis getAnalysis(long fileTimestamp) {
 			GPXTrackAnalysis g = new GPXTrackAnalysis();
 			g.wptPoints = points.size();
@@ -1730,7 +2668,11 @@ public class GPXUtilities {
 			if (fout.getParentFile() != null) {
 				fout.getParentFile().mkdirs();
 			}
-			output = new OutputStreamWriter(new FileOutputStream(fout), "UTF-8"); //$NON-NLS-1$
+			OutputStream out = new FileOutputStream(fout);
+			if (isGzipFile(fout)) {
+				out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+			}
+			output = new OutputStreamWriter(out, "UTF-8"); //$NON-NLS-1$
 			if (Algorithms.isEmpty(file.path)) {
 				file.path = fout.getAbsolutePath();
 			}
@@ -1751,11 +2693,9 @@ public class GPXUtilities {
 
 	public static Exception writeGpx(Writer output, GPXFile file) {
 		try {
-			SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
-			format.setTimeZone(TimeZone.getTimeZone("UTC"));
-			XmlSerializer serializer = PlatformUtil.newSerializer();
+			GPXXmlSerializer serializer = new GPXXmlSerializer();
 			serializer.setOutput(output);
-			serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true); //$NON-NLS-1$
+			serializer.setFeature(GPXXmlSerializer.FEATURE_INDENT_OUTPUT, true);
 			serializer.startDocument("UTF-8", true); //$NON-NLS-1$
 			serializer.startTag(null, "gpx"); //$NON-NLS-1$
 			serializer.attribute(null, "version", "1.1"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1784,7 +2724,7 @@ public class GPXUtilities {
 				}
 				writeNotNullTextWithAttribute(serializer, "link", "href", file.metadata.link);
 				if (file.metadata.time != 0) {
-					writeNotNullText(serializer, "time", format.format(new Date(file.metadata.time)));
+					writeNotNullText(serializer, "time", serializer.formatTime(file.metadata.time));
 				}
 				writeNotNullText(serializer, "keywords", file.metadata.keywords);
 				if (file.metadata.bounds != null) {
@@ -1804,7 +2744,7 @@ public class GPXUtilities {
 						serializer.startTag(null, "trkseg"); //$NON-NLS-1$
 						for (WptPt p : segment.points) {
 							serializer.startTag(null, "trkpt"); //$NON-NLS-1$
-							writeWpt(format, serializer, p);
+							writeWpt(serializer, p);
 							serializer.endTag(null, "trkpt"); //$NON-NLS-1$
 						}
 						serializer.endTag(null, "trkseg"); //$NON-NLS-1$
@@ -1821,7 +2761,7 @@ public class GPXUtilities {
 
 				for (WptPt p : track.points) {
 					serializer.startTag(null, "rtept"); //$NON-NLS-1$
-					writeWpt(format, serializer, p);
+					writeWpt(serializer, p);
 					serializer.endTag(null, "rtept"); //$NON-NLS-1$
 				}
 				writeExtensions(serializer, track);
@@ -1830,7 +2770,7 @@ public class GPXUtilities {
 
 			for (WptPt l : file.points) {
 				serializer.startTag(null, "wpt"); //$NON-NLS-1$
-				writeWpt(format, serializer, l);
+				writeWpt(serializer, l);
 				serializer.endTag(null, "wpt"); //$NON-NLS-1$
 			}
 
@@ -1917,15 +2857,15 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeWpt(SimpleDateFormat format, XmlSerializer serializer, WptPt p) throws IOException {
-		serializer.attribute(null, "lat", latLonFormat.format(p.lat)); //$NON-NLS-1$ //$NON-NLS-2$
-		serializer.attribute(null, "lon", latLonFormat.format(p.lon)); //$NON-NLS-1$ //$NON-NLS-2$
+	private static void writeWpt(GPXXmlSerializer serializer, WptPt p) throws IOException {
+		serializer.attribute(null, "lat", serializer.formatLatLon(p.lat)); //$NON-NLS-1$ //$NON-NLS-2$
+		serializer.attribute(null, "lon", serializer.formatLatLon(p.lon)); //$NON-NLS-1$ //$NON-NLS-2$
 
 		if (!Double.isNaN(p.ele)) {
-			writeNotNullText(serializer, "ele", decimalFormat.format(p.ele));
+			writeNotNullText(serializer, "ele", serializer.formatDecimal(p.ele));
 		}
 		if (p.time != 0) {
-			writeNotNullText(serializer, "time", format.format(new Date(p.time)));
+			writeNotNullText(serializer, "time", serializer.formatTime(p.time));
 		}
 		writeNotNullText(serializer, "name", p.name);
 		writeNotNullText(serializer, "desc", p.desc);
@@ -1935,10 +2875,10 @@ public class GPXUtilities {
 			writeNotNullText(serializer, "cmt", p.comment);
 		}
 		if (!Double.isNaN(p.hdop)) {
-			writeNotNullText(serializer, "hdop", decimalFormat.format(p.hdop));
+			writeNotNullText(serializer, "hdop", serializer.formatDecimal(p.hdop));
 		}
 		if (p.speed > 0) {
-			p.getExtensionsToWrite().put("speed", decimalFormat.format(p.speed));
+			p.getExtensionsToWrite().put("speed", serializer.formatDecimal(p.speed));
 		}
 		if (!Float.isNaN(p.heading)) {
 			p.getExtensionsToWrite().put("heading", String.valueOf(Math.round(p.heading)));
@@ -1966,12 +2906,12 @@ public class GPXUtilities {
 		writeNotNullText(serializer, "license", copyright.license);
 	}
 
-	private static void writeBounds(XmlSerializer serializer, Bounds bounds) throws IOException {
+	private static void writeBounds(GPXXmlSerializer serializer, Bounds bounds) throws IOException {
 		serializer.startTag(null, "bounds");
-		serializer.attribute(null, "minlat", latLonFormat.format(bounds.minlat));
-		serializer.attribute(null, "minlon", latLonFormat.format(bounds.minlon));
-		serializer.attribute(null, "maxlat", latLonFormat.format(bounds.maxlat));
-		serializer.attribute(null, "maxlon", latLonFormat.format(bounds.maxlon));
+		serializer.attribute(null, "minlat", serializer.formatLatLon(bounds.minlat));
+		serializer.attribute(null, "minlon", serializer.formatLatLon(bounds.minlon));
+		serializer.attribute(null, "maxlat", serializer.formatLatLon(bounds.maxlat));
+		serializer.attribute(null, "maxlon", serializer.formatLatLon(bounds.maxlon));
 		serializer.endTag(null, "bounds");
 	}
 
@@ -2057,11 +2997,42 @@ public class GPXUtilities {
 		return time;
 	}
 
+	/**
+	 * @return true if gpx file is written and read with gzip compression
+	 */
+	public static boolean isGzipFile(File f) {
+		return f.getName().toLowerCase().endsWith(IndexConstants.GPX_GZ_FILE_EXT);
+	}
+
+	private static InputStream openGpxStream(File f) throws IOException {
+		InputStream is = new FileInputStream(f);
+		if (isGzipFile(f)) {
+			try {
+				is = new GZIPInputStream(is, GZIP_BUFFER_SIZE);
+			} catch (IOException e) {
+				Algorithms.closeStream(is);
+				throw e;
+			}
+		}
+		return is;
+	}
+
 	public static GPXFile loadGPXFile(File f) {
-		FileInputStream fis = null;
+		return loadGPXFile(f, false);
+	}
+
+	/**
+	 * Loads gpx file with points of track segments stored in {@link PointColumns}
+	 */
+	public static GPXFile loadCompactGPXFile(File f) {
+		return loadGPXFile(f, true);
+	}
+
+	private static GPXFile loadGPXFile(File f, boolean compact) {
+		InputStream fis = null;
 		try {
-			fis = new FileInputStream(f);
-			GPXFile file = loadGPXFile(fis);
+			fis = openGpxStream(f);
+			GPXFile file = compact ? loadCompactGPXFile(fis) : loadGPXFile(fis);
 			file.path = f.getAbsolutePath();
 			file.modifiedTime = f.lastModified();
 
@@ -2087,7 +3058,72 @@ public class GPXUtilities {
 	}
 
 	public static GPXFile loadGPXFile(InputStream f) {
+		return loadGPXFile(f, null);
+	}
+
+	/**
+	 * Analyses gpx file without loading points into memory, result is the same as {@link GPXFile#getAnalysis(long)}
+	 * of loaded file except elevation and speed data. Could be called from several threads.
+	 */
+	public static GPXTrackAnalysis analyzeGPXFile(File f) {
+		GPXStreamAnalyzer analyzer = new GPXStreamAnalyzer(f.lastModified());
+		InputStream fis = null;
+		try {
+			fis = openGpxStream(f);
+			loadGPXFile(fis, analyzer);
+		} catch (IOException e) {
+			log.error("Error reading gpx " + f.getAbsolutePath(), e); //$NON-NLS-1$
+		} finally {
+			Algorithms.closeStream(fis);
+		}
+		return analyzer.getAnalysis();
+	}
+
+	/**
+	 * Loads gpx with points of track segments stored in {@link PointColumns}:
+	 * objects of track points are not created for the whole file at once.
+	 */
+	public static GPXFile loadCompactGPXFile(InputStream f) {
+		final List<WptPt> waypoints = new ArrayList<>();
+		GPXFile gpxFile = loadGPXFile(f, new GPXStreamListener() {
+
+			@Override
+			public void segmentStarted(Track track, TrkSegment segment) {
+				segment.points = new PointColumns();
+			}
+
+			@Override
+			public void trackPoint(Track track, TrkSegment segment, WptPt point) {
+				((PointColumns) segment.points).append(point);
+			}
+
+			@Override
+			public void segmentFinished(Track track, TrkSegment segment) {
+				((PointColumns) segment.points).trimToSize();
+			}
+
+			@Override
+			public void routePoint(Route route, WptPt point) {
+				route.points.add(point);
+			}
+
+			@Override
+			public void waypoint(WptPt point) {
+				waypoints.add(point);
+			}
+		});
+		gpxFile.points.addAll(waypoints);
+		return gpxFile;
+	}
+
+	/**
+	 * Reads gpx and passes points to listener as they are parsed instead of storing them in {@link GPXFile}.
+	 * @param listener listener of points or null to load all points into returned file
+	 * @return file with metadata, extensions, tracks and routes (without points if listener is set)
+	 */
+	public static GPXFile loadGPXFile(InputStream f, GPXStreamListener listener) {
 		GPXFile gpxFile = new GPXFile(null);
+		boolean streaming = listener != null;
 		SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
 		format.setTimeZone(TimeZone.getTimeZone("UTC"));
 		SimpleDateFormat formatMillis = new SimpleDateFormat(GPX_TIME_FORMAT_MILLIS, Locale.US);
@@ -2105,10 +3141,16 @@ public class GPXUtilities {
 			List<RouteType> routeTypes = gpxFile.routeTypes;
 			boolean routeExtension = false;
 			boolean typesExtension = false;
+			int routeTrackPoints = 0;
+			// segment of track which receives streamed points, it is created for points outside of trkseg
+			TrkSegment streamedSegment = null;
 			parserState.push(gpxFile);
 			int tok;
 			while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
 				if (tok == XmlPullParser.START_TAG) {
+					if (streaming && listener.isCancelled()) {
+						break;
+					}
 					GPXExtensions parse = parserState.peek();
 					String tag = parser.getName();
 					if (extensionReadMode && parse != null && !routePointExtension) {
@@ -2128,7 +3170,7 @@ public class GPXUtilities {
 							case "routepointextension":
 								routePointExtension = true;
 								if (parse instanceof WptPt) {
-									parse.getExtensionsToWrite().put("offset", routeTrackSegment.points.size() + "");
+									parse.getExtensionsToWrite().put("offset", routeTrackPoints + "");
 								}
 								break;
 
@@ -2163,7 +3205,9 @@ public class GPXUtilities {
 					} else if (routePointExtension) {
 						if (tag.equals("rpt")) {
 							WptPt wptPt = parseWptAttributes(parser);
+							// route track is the last track of file, so its points are kept even while streaming
 							routeTrackSegment.points.add(wptPt);
+							routeTrackPoints++;
 							parserState.push(wptPt);
 						}
 					} else {
@@ -2180,15 +3224,23 @@ public class GPXUtilities {
 								Track track = new Track();
 								((GPXFile) parse).tracks.add(track);
 								parserState.push(track);
+								if (streaming) {
+									listener.trackStarted(track);
+								}
 							}
 							if (tag.equals("rte")) {
 								Route route = new Route();
 								((GPXFile) parse).routes.add(route);
 								parserState.push(route);
+								if (streaming) {
+									listener.routeStarted(route);
+								}
 							}
 							if (tag.equals("wpt")) {
 								WptPt wptPt = parseWptAttributes(parser);
-								((GPXFile) parse).points.add(wptPt);
+								if (!streaming) {
+									((GPXFile) parse).points.add(wptPt);
+								}
 								parserState.push(wptPt);
 							}
 						} else if (parse instanceof Metadata) {
@@ -2256,7 +3308,9 @@ public class GPXUtilities {
 							}
 							if (tag.equals("rtept")) {
 								WptPt wptPt = parseWptAttributes(parser);
-								((Route) parse).points.add(wptPt);
+								if (!streaming) {
+									((Route) parse).points.add(wptPt);
+								}
 								parserState.push(wptPt);
 							}
 						} else if (parse instanceof Track) {
@@ -2268,20 +3322,38 @@ public class GPXUtilities {
 								TrkSegment trkSeg = new TrkSegment();
 								((Track) parse).segments.add(trkSeg);
 								parserState.push(trkSeg);
+								if (streaming) {
+									if (streamedSegment != null) {
+										listener.segmentFinished((Track) parse, streamedSegment);
+									}
+									streamedSegment = trkSeg;
+									listener.segmentStarted((Track) parse, trkSeg);
+								}
 							} else if (tag.equals("trkpt") || tag.equals("rpt")) {
 								WptPt wptPt = parseWptAttributes(parser);
-								int size = ((Track) parse).segments.size();
-								if (size == 0) {
-									((Track) parse).segments.add(new TrkSegment());
-									size++;
+								if (streaming) {
+									// points outside of trkseg are added to the last segment
+									if (streamedSegment == null) {
+										streamedSegment = new TrkSegment();
+										((Track) parse).segments.add(streamedSegment);
+										listener.segmentStarted((Track) parse, streamedSegment);
+									}
+								} else {
+									int size = ((Track) parse).segments.size();
+									if (size == 0) {
+										((Track) parse).segments.add(new TrkSegment());
+										size++;
+									}
+									((Track) parse).segments.get(size - 1).points.add(wptPt);
 								}
-								((Track) parse).segments.get(size - 1).points.add(wptPt);
 								parserState.push(wptPt);
 							}
 						} else if (parse instanceof TrkSegment) {
 							if (tag.equals("trkpt") || tag.equals("rpt")) {
 								WptPt wptPt = parseWptAttributes(parser);
-								((TrkSegment) parse).points.add(wptPt);
+								if (!streaming) {
+									((TrkSegment) parse).points.add(wptPt);
+								}
 								parserState.push(wptPt);
 							}
 							if (tag.equals("csvattributes")) {
@@ -2295,10 +3367,16 @@ public class GPXUtilities {
 											WptPt wptPt = new WptPt();
 											wptPt.lon = Double.parseDouble(pointAttrs[0]);
 											wptPt.lat = Double.parseDouble(pointAttrs[1]);
-											((TrkSegment) parse).points.add(wptPt);
+											if (!streaming) {
+												((TrkSegment) parse).points.add(wptPt);
+											}
 											if (arrLength > 2) {
 												wptPt.ele = Double.parseDouble(pointAttrs[2]);
 											}
+											if (streaming) {
+												Track track = (Track) parserState.get(parserState.size() - 2);
+												listener.trackPoint(track, (TrkSegment) parse, wptPt);
+											}
 										}
 									} catch (NumberFormatException e) {
 									}
@@ -2374,6 +3452,9 @@ public class GPXUtilities {
 					if (tag.equals("metadata")) {
 						Object pop = parserState.pop();
 						assert pop instanceof Metadata;
+						if (streaming) {
+							listener.metadataLoaded((Metadata) pop);
+						}
 					} else if (tag.equals("author")) {
 						if (parse instanceof Author) {
 							parserState.pop();
@@ -2389,29 +3470,66 @@ public class GPXUtilities {
 					} else if (tag.equals("trkpt")) {
 						Object pop = parserState.pop();
 						assert pop instanceof WptPt;
+						if (streaming) {
+							streamTrackPoint(listener, parserState, streamedSegment, (WptPt) pop);
+						}
 					} else if (tag.equals("wpt")) {
 						Object pop = parserState.pop();
 						assert pop instanceof WptPt;
+						if (streaming) {
+							listener.waypoint((WptPt) pop);
+						}
 					} else if (tag.equals("rtept")) {
 						Object pop = parserState.pop();
 						assert pop instanceof WptPt;
+						if (streaming) {
+							listener.routePoint((Route) parserState.peek(), (WptPt) pop);
+						}
 					} else if (tag.equals("trk")) {
 						Object pop = parserState.pop();
 						assert pop instanceof Track;
+						if (streaming) {
+							if (streamedSegment != null) {
+								listener.segmentFinished((Track) pop, streamedSegment);
+								streamedSegment = null;
+							}
+							listener.trackFinished((Track) pop);
+						}
 					} else if (tag.equals("rte")) {
 						Object pop = parserState.pop();
 						assert pop instanceof Route;
+						if (streaming) {
+							listener.routeFinished((Route) pop);
+						}
 					} else if (tag.equals("trkseg")) {
 						Object pop = parserState.pop();
 						assert pop instanceof TrkSegment;
+						// segment is finished by the next one or by end of track
 					} else if (tag.equals("rpt")) {
 						Object pop = parserState.pop();
 						assert pop instanceof WptPt;
+						if (streaming) {
+							streamTrackPoint(listener, parserState, streamedSegment, (WptPt) pop);
+						}
 					}
 				}
 			}
-			if (!routeTrackSegment.points.isEmpty()) {
+			if (routeTrackPoints > 0) {
 				gpxFile.tracks.add(routeTrack);
+				if (streaming && !listener.isCancelled()) {
+					List<WptPt> points = routeTrackSegment.points;
+					routeTrackSegment.points = new ArrayList<>();
+					listener.trackStarted(routeTrack);
+					listener.segmentStarted(routeTrack, routeTrackSegment);
+					for (WptPt point : points) {
+						listener.trackPoint(routeTrack, routeTrackSegment, point);
+					}
+					listener.segmentFinished(routeTrack, routeTrackSegment);
+					listener.trackFinished(routeTrack);
+				}
+			}
+			if (streaming) {
+				listener.gpxFinished(gpxFile);
 			}
 		} catch (Exception e) {
 			gpxFile.error = e;
@@ -2420,6 +3538,18 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
+	private static void streamTrackPoint(GPXStreamListener listener, Stack<GPXExtensions> parserState,
+										 TrkSegment streamedSegment, WptPt point) {
+		GPXExtensions parent = parserState.peek();
+		if (parent instanceof TrkSegment) {
+			Track track = (Track) parserState.get(parserState.size() - 2);
+			listener.trackPoint(track, (TrkSegment) parent, point);
+		} else if (parent instanceof Track) {
+			listener.trackPoint((Track) parent, streamedSegment, point);
+		}
+		// points of route point extension are passed when file is finished
+	}
+
 	private static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
@@ -2518,7 +3648,15 @@ public class GPXUtilities {
 			to.points.addAll(from.points);
 		}
 		if (from.tracks != null) {
-			to.tracks.addAll(from.tracks);
+			// segments are shared, general track (copy of points of other tracks) is built again
+			// by getGeneralTrack() or addGeneralTrack() when it is requested
+			to.removeGeneralTrackIfExists();
+			for (Track track : from.tracks) {
+				if (!track.generalTrack) {
+					to.tracks.add(track);
+				}
+			}
+			to.modifiedTime = System.currentTimeMillis();
 		}
 		if (from.routes != null) {
 			to.routes.addAll(from.routes);
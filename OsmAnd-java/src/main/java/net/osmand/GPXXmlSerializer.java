@@ -0,0 +1,499 @@
+package net.osmand;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Buffered xml serializer of gpx files. Output is the same as output of kxml serializer
+ * ({@link PlatformUtil#newSerializer()}): text is escaped directly to the char buffer and coordinates, numbers and
+ * times are formatted without {@link DecimalFormat} and {@link SimpleDateFormat} (they are used only for values
+ * which could not be formatted exactly). Namespaces are not supported. Not thread safe.
+ */
+public class GPXXmlSerializer implements XmlSerializer {
+
+	public static final String FEATURE_INDENT_OUTPUT = "http://xmlpull.org/v1/doc/features.html#indent-output";
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L};
+	// scaled values are formatted with long arithmetic, precision of double is enough up to 1e10
+	private static final double MAX_SCALED_VALUE = 1e10;
+	// values with fraction close to half are formatted by DecimalFormat (its rounding is not always exact)
+	private static final double HALF_EPSILON = 1e-5;
+	// 1900-01-01 and 10000-01-01: range of times formatted without SimpleDateFormat
+	private static final long MIN_TIME = -2208988800000L;
+	private static final long MAX_TIME = 253402300800000L;
+	private static final long DAY_SECONDS = 24 * 60 * 60;
+
+	private Writer writer;
+	private final char[] buf = new char[BUFFER_SIZE];
+	private int pos;
+	private boolean unicode;
+	private boolean pending;
+	private int depth;
+	private String[] elements = new String[16];
+	private boolean[] indent = new boolean[16];
+
+	private final char[] number = new char[32];
+	// "yyyy-MM-ddTHH:mm:ssZ", date part is kept for the last formatted day
+	private final char[] time = new char[20];
+	private long timeDay = Long.MIN_VALUE;
+	private NumberFormat latLonFormat;
+	private NumberFormat decimalFormat;
+	private SimpleDateFormat timeFormat;
+
+	/**
+	 * @return latitude or longitude formatted as "0.00#####"
+	 */
+	public String formatLatLon(double value) {
+		String s = formatNumber(value, 2, 7);
+		if (s == null) {
+			if (latLonFormat == null) {
+				latLonFormat = new DecimalFormat("0.00#####", new DecimalFormatSymbols(new Locale("EN", "US")));
+			}
+			s = latLonFormat.format(value);
+		}
+		return s;
+	}
+
+	/**
+	 * @return value formatted as "#.###"
+	 */
+	public String formatDecimal(double value) {
+		String s = formatNumber(value, 0, 3);
+		if (s == null) {
+			if (decimalFormat == null) {
+				decimalFormat = new DecimalFormat("#.###", new DecimalFormatSymbols(new Locale("EN", "US")));
+			}
+			s = decimalFormat.format(value);
+		}
+		return s;
+	}
+
+	/**
+	 * @return utc time formatted as "yyyy-MM-dd'T'HH:mm:ss'Z'"
+	 */
+	public String formatTime(long millis) {
+		if (millis < MIN_TIME || millis >= MAX_TIME) {
+			if (timeFormat == null) {
+				timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+				timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+			}
+			return timeFormat.format(new Date(millis));
+		}
+		long seconds = millis / 1000;
+		if (millis % 1000 < 0) {
+			seconds--;
+		}
+		long day = seconds / DAY_SECONDS;
+		int secondOfDay = (int) (seconds % DAY_SECONDS);
+		if (secondOfDay < 0) {
+			day--;
+			secondOfDay += DAY_SECONDS;
+		}
+		if (day != timeDay) {
+			formatDate(day);
+			timeDay = day;
+		}
+		writeDigits(time, 11, secondOfDay / 3600, 2);
+		time[13] = ':';
+		writeDigits(time, 14, secondOfDay / 60 % 60, 2);
+		time[16] = ':';
+		writeDigits(time, 17, secondOfDay % 60, 2);
+		time[19] = 'Z';
+		return new String(time, 0, time.length);
+	}
+
+	// days since 1970-01-01 to proleptic gregorian date (the same as calendar of SimpleDateFormat after 1582)
+	private void formatDate(long day) {
+		long z = day + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int dayOfMonth = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		writeDigits(time, 0, year, 4);
+		time[4] = '-';
+		writeDigits(time, 5, month, 2);
+		time[7] = '-';
+		writeDigits(time, 8, dayOfMonth, 2);
+		time[10] = 'T';
+	}
+
+	private static void writeDigits(char[] chars, int offset, int value, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	// formats as DecimalFormat with HALF_EVEN rounding or returns null if value should be formatted by DecimalFormat
+	private String formatNumber(double value, int minFractionDigits, int maxFractionDigits) {
+		double scaled = Math.abs(value) * POW10[maxFractionDigits];
+		if (!(scaled < MAX_SCALED_VALUE)) {
+			return null;
+		}
+		long rounded = (long) scaled;
+		double fraction = scaled - rounded;
+		if (Math.abs(fraction - 0.5) < HALF_EPSILON) {
+			return null;
+		}
+		if (fraction > 0.5) {
+			rounded++;
+		}
+		long integerPart = rounded / POW10[maxFractionDigits];
+		long fractionPart = rounded % POW10[maxFractionDigits];
+		int fractionDigits = maxFractionDigits;
+		while (fractionDigits > minFractionDigits && fractionPart % 10 == 0) {
+			fractionPart /= 10;
+			fractionDigits--;
+		}
+		int len = 0;
+		// DecimalFormat keeps sign of negative values rounded to zero
+		if (value < 0 || (value == 0 && 1 / value < 0)) {
+			number[len++] = '-';
+		}
+		int integerDigits = 1;
+		for (long v = integerPart / 10; v > 0; v /= 10) {
+			integerDigits++;
+		}
+		for (int i = len + integerDigits - 1; i >= len; i--) {
+			number[i] = (char) ('0' + integerPart % 10);
+			integerPart /= 10;
+		}
+		len += integerDigits;
+		if (fractionDigits > 0) {
+			number[len++] = '.';
+			writeDigits(number, len, (int) fractionPart, fractionDigits);
+			len += fractionDigits;
+		}
+		return new String(number, 0, len);
+	}
+
+	@Override
+	public void setFeature(String name, boolean state) {
+		if (FEATURE_INDENT_OUTPUT.equals(name)) {
+			indent[depth] = state;
+		} else {
+			throw new IllegalArgumentException("Unsupported feature " + name);
+		}
+	}
+
+	@Override
+	public boolean getFeature(String name) {
+		return FEATURE_INDENT_OUTPUT.equals(name) && indent[depth];
+	}
+
+	@Override
+	public void setProperty(String name, Object value) {
+		throw new IllegalArgumentException("Unsupported property " + name);
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return null;
+	}
+
+	@Override
+	public void setOutput(OutputStream os, String encoding) throws IOException {
+		setOutput(encoding == null ? new OutputStreamWriter(os) : new OutputStreamWriter(os, encoding));
+		unicode = encoding != null && encoding.toLowerCase(Locale.US).startsWith("utf");
+	}
+
+	@Override
+	public void setOutput(Writer writer) {
+		this.writer = writer;
+		pos = 0;
+		pending = false;
+		depth = 0;
+		unicode = false;
+	}
+
+	@Override
+	public void startDocument(String encoding, Boolean standalone) throws IOException {
+		write("<?xml version='1.0' ");
+		if (encoding != null) {
+			unicode = encoding.toLowerCase(Locale.US).startsWith("utf");
+			write("encoding='");
+			write(encoding);
+			write("' ");
+		}
+		if (standalone != null) {
+			write("standalone='");
+			write(standalone ? "yes" : "no");
+			write("' ");
+		}
+		write("?>");
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		while (getDepth() > 0) {
+			endTag(null, getName());
+		}
+		flush();
+	}
+
+	@Override
+	public void setPrefix(String prefix, String namespace) {
+		throw new UnsupportedOperationException("Namespaces are not supported");
+	}
+
+	@Override
+	public String getPrefix(String namespace, boolean generatePrefix) {
+		if (namespace == null || namespace.length() == 0) {
+			return "";
+		}
+		if (generatePrefix) {
+			throw new UnsupportedOperationException("Namespaces are not supported");
+		}
+		return null;
+	}
+
+	@Override
+	public int getDepth() {
+		return pending ? depth + 1 : depth;
+	}
+
+	@Override
+	public String getNamespace() {
+		return null;
+	}
+
+	@Override
+	public String getName() {
+		int d = getDepth();
+		return d == 0 ? null : elements[d - 1];
+	}
+
+	@Override
+	public XmlSerializer startTag(String namespace, String name) throws IOException {
+		checkNamespace(namespace);
+		check(false);
+		if (indent[depth]) {
+			writeIndent(depth);
+		}
+		if (depth == elements.length) {
+			String[] ns = new String[depth * 2];
+			System.arraycopy(elements, 0, ns, 0, depth);
+			elements = ns;
+		}
+		elements[depth] = name;
+		write('<');
+		write(name);
+		pending = true;
+		return this;
+	}
+
+	@Override
+	public XmlSerializer attribute(String namespace, String name, String value) throws IOException {
+		checkNamespace(namespace);
+		if (!pending) {
+			throw new IllegalStateException("illegal position for attribute");
+		}
+		write(' ');
+		write(name);
+		write('=');
+		char quote = value.indexOf('"') == -1 ? '"' : '\'';
+		write(quote);
+		writeEscaped(value, quote);
+		write(quote);
+		return this;
+	}
+
+	@Override
+	public XmlSerializer endTag(String namespace, String name) throws IOException {
+		checkNamespace(namespace);
+		if (!pending) {
+			depth--;
+		}
+		if (depth < 0 || !elements[depth].equals(name)) {
+			throw new IllegalArgumentException("</" + name + "> does not match start");
+		}
+		if (pending) {
+			check(true);
+			depth--;
+		} else {
+			if (indent[depth + 1]) {
+				writeIndent(depth);
+			}
+			write("</");
+			write(name);
+			write('>');
+		}
+		return this;
+	}
+
+	@Override
+	public XmlSerializer text(String text) throws IOException {
+		check(false);
+		indent[depth] = false;
+		writeEscaped(text, -1);
+		return this;
+	}
+
+	@Override
+	public XmlSerializer text(char[] buf, int start, int len) throws IOException {
+		return text(new String(buf, start, len));
+	}
+
+	@Override
+	public void cdsect(String text) throws IOException {
+		check(false);
+		write("<![CDATA[");
+		write(text);
+		write("]]>");
+	}
+
+	@Override
+	public void entityRef(String text) throws IOException {
+		check(false);
+		write('&');
+		write(text);
+		write(';');
+	}
+
+	@Override
+	public void processingInstruction(String text) throws IOException {
+		check(false);
+		write("<?");
+		write(text);
+		write("?>");
+	}
+
+	@Override
+	public void comment(String text) throws IOException {
+		check(false);
+		write("<!--");
+		write(text);
+		write("-->");
+	}
+
+	@Override
+	public void docdecl(String text) throws IOException {
+		write("<!DOCTYPE");
+		write(text);
+		write('>');
+	}
+
+	@Override
+	public void ignorableWhitespace(String text) throws IOException {
+		text(text);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		check(false);
+		flushBuffer();
+		writer.flush();
+	}
+
+	private static void checkNamespace(String namespace) {
+		if (namespace != null && namespace.length() > 0) {
+			throw new IllegalArgumentException("Namespaces are not supported: " + namespace);
+		}
+	}
+
+	// closes pending start tag
+	private void check(boolean close) throws IOException {
+		if (!pending) {
+			return;
+		}
+		depth++;
+		pending = false;
+		if (depth + 1 >= indent.length) {
+			boolean[] ni = new boolean[indent.length * 2];
+			System.arraycopy(indent, 0, ni, 0, indent.length);
+			indent = ni;
+		}
+		indent[depth] = indent[depth - 1];
+		write(close ? " />" : ">");
+	}
+
+	private void writeIndent(int level) throws IOException {
+		write('\r');
+		write('\n');
+		for (int i = 0; i < level; i++) {
+			write(' ');
+			write(' ');
+		}
+	}
+
+	// the same as kxml: only markup chars are escaped, other chars are written as is (or as char refs
+	// for non utf encodings)
+	private void writeEscaped(String s, int quote) throws IOException {
+		int len = s.length();
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '&':
+					write("&amp;");
+					break;
+				case '>':
+					write("&gt;");
+					break;
+				case '<':
+					write("&lt;");
+					break;
+				case '"':
+				case '\'':
+					if (c == quote) {
+						write(c == '"' ? "&quot;" : "&apos;");
+					} else {
+						write(c);
+					}
+					break;
+				default:
+					if (c < 127 || unicode) {
+						write(c);
+					} else {
+						write("&#");
+						write(Integer.toString(c));
+						write(';');
+					}
+					break;
+			}
+		}
+	}
+
+	private void write(char c) throws IOException {
+		if (pos == buf.length) {
+			flushBuffer();
+		}
+		buf[pos++] = c;
+	}
+
+	private void write(String s) throws IOException {
+		int len = s.length();
+		int start = 0;
+		while (start < len) {
+			if (pos == buf.length) {
+				flushBuffer();
+			}
+			int end = Math.min(len, start + buf.length - pos);
+			s.getChars(start, end, buf, pos);
+			pos += end - start;
+			start = end;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (pos > 0) {
+			writer.write(buf, 0, pos);
+			pos = 0;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package net.osmand.binary;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 
@@ -12,6 +13,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.osmand.CollatorStringMatcher;
+import net.osmand.FuzzyStringMatcher;
 import net.osmand.PlatformUtil;
 import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -601,7 +603,10 @@ public class BinaryMapAddressReaderAdapter {
 
 	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
 		TIntArrayList loffsets = new TIntArrayList();
-		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		CollatorStringMatcher collatorMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		FuzzyStringMatcher fuzzyMatcher = req.getMaxTypos() > 0 ? new FuzzyStringMatcher(req.nameQuery, req.matcherMode,
+				req.getMaxTypos()) : null;
+		StringMatcher stringMatcher = fuzzyMatcher != null ? fuzzyMatcher : collatorMatcher;
 		String postcode = Postcode.normalize(req.nameQuery, map.getCountryName());
 		final CityMatcher postcodeMatcher = new DefaultCityMatcher(new CollatorStringMatcher(postcode, req.matcherMode));
 		final CityMatcher cityMatcher = new DefaultCityMatcher(stringMatcher);
@@ -627,7 +632,11 @@ public class BinaryMapAddressReaderAdapter {
 				indexOffset = codedIS.getTotalBytesRead();
 				int oldLimit = codedIS.pushLimit(length);
 				// here offsets are sorted by distance
-				map.readIndexedStringTable(stringMatcher.getCollator(), req.nameQuery, "", loffsets, 0);
+				if (fuzzyMatcher != null) {
+					map.readIndexedStringTable(fuzzyMatcher, "", loffsets);
+				} else {
+					map.readIndexedStringTable(collatorMatcher.getCollator(), req.nameQuery, "", loffsets, 0);
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
@@ -679,21 +688,38 @@ public class BinaryMapAddressReaderAdapter {
 						for (int j = 0; j < list.size(); j++) {
 							mp.put(list.get(j), listContainer.get(j));
 						}
+						// read each container once and in file order, then streets in file order
+						TIntObjectHashMap<City> containers = new TIntObjectHashMap<City>();
+						listContainer.sort();
+						if (map.isReadahead() && list.size() > 1) {
+							ReadaheadPlanner planner = new ReadaheadPlanner();
+							for (int j = 0; j < list.size(); j++) {
+								planner.addBlock(list.get(j));
+								planner.addBlock(listContainer.get(j));
+							}
+							planner.prefetch(codedIS);
+						}
+						for (int j = 0; j < listContainer.size() && !req.isCancelled(); j++) {
+							int contOffset = listContainer.get(j);
+							if (j > 0 && contOffset == listContainer.get(j - 1)) {
+								continue;
+							}
+							codedIS.seek(contOffset);
+							int len = codedIS.readRawVarint32();
+							int old = codedIS.pushLimit(len);
+							City c = readCityHeader(req, null, contOffset, reg.attributeTagsTable);
+							codedIS.popLimit(old);
+							if (c != null) {
+								containers.put(contOffset, c);
+							}
+						}
 						list.sort();
 						for (int j = 0; j < list.size() && !req.isCancelled(); j ++) {
 							int offset = list.get(j);
 							if (j > 0 &&  offset == list.get(j - 1)) {
 								continue;
 							}
-							City obj;
-							{
-								int contOffset = (int) mp.get(offset);
-								codedIS.seek(contOffset);
-								int len = codedIS.readRawVarint32();
-								int old = codedIS.pushLimit(len);
-								obj = readCityHeader(req, null, contOffset, reg.attributeTagsTable);
-								codedIS.popLimit(old);
-							}
+							City obj = containers.get((int) mp.get(offset));
 							if (obj != null) {
 								codedIS.seek(offset);
 								int len = codedIS.readRawVarint32();
@@ -779,10 +805,9 @@ public class BinaryMapAddressReaderAdapter {
 			case 0:
 				return;
 			case AddressNameIndexDataAtom.NAMEEN_FIELD_NUMBER:
-				codedIS.readString();
-				break;
 			case AddressNameIndexDataAtom.NAME_FIELD_NUMBER:
-				codedIS.readString();
+				// names are not used, skip without decoding
+				codedIS.skipRawBytes(codedIS.readRawVarint32());
 				break;
 			case AddressNameIndexDataAtom.SHIFTTOCITYINDEX_FIELD_NUMBER:
 				if (toAddCity != null) {
@@ -9,6 +9,7 @@ import com.google.protobuf.WireFormat;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.FuzzyStringMatcher;
 import net.osmand.Location;
 import net.osmand.OsmAndCollator;
 import net.osmand.PlatformUtil;
@@ -55,6 +56,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -101,6 +103,8 @@ public class BinaryMapIndexReader {
 	
 	private final RandomAccessFile raf;
 	protected final File file;
+	private final boolean mappedBuffer;
+	private boolean readahead = false;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
 	// keep them immutable inside
@@ -126,8 +130,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.mappedBuffer = false;
+		codedIS = createCodedInputStream(raf, mappedBuffer);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -136,10 +140,17 @@ public class BinaryMapIndexReader {
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
+		this(raf, file, init, false);
+	}
+
+	/**
+	 * @param mappedBuffer read file through memory mapped buffer instead of buffered random access reads
+	 */
+	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init, boolean mappedBuffer) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.mappedBuffer = mappedBuffer;
+		codedIS = createCodedInputStream(raf, mappedBuffer);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -152,8 +163,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.mappedBuffer = referenceToSameFile.mappedBuffer;
+		codedIS = createCodedInputStream(raf, mappedBuffer);
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
@@ -171,6 +182,40 @@ public class BinaryMapIndexReader {
 	}
 
 
+	static CodedInputStream createCodedInputStream(RandomAccessFile raf, boolean mappedBuffer) throws IOException {
+		CodedInputStream cis;
+		// buffer can't map files of 2 GB and larger, they are read with random access reads
+		if (mappedBuffer && raf.length() <= Integer.MAX_VALUE) {
+			cis = CodedInputStream.newInstance(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+		} else {
+			cis = CodedInputStream.newInstance(raf);
+		}
+		cis.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		return cis;
+	}
+
+	public boolean isMappedBuffer() {
+		return mappedBuffer;
+	}
+
+	/**
+	 * @return bytes loaded from file by this reader (always 0 for mapped buffer)
+	 */
+	public long getBytesLoaded() {
+		return codedIS.getBytesLoaded();
+	}
+
+	public boolean isReadahead() {
+		return readahead;
+	}
+
+	/**
+	 * Prefetch data blocks found by query with large sequential reads before decoding them
+	 */
+	public void setReadahead(boolean readahead) {
+		this.readahead = readahead;
+	}
+
 	public long getDateCreated() {
 		return dateCreated;
 	}
@@ -919,6 +964,13 @@ public class BinaryMapIndexReader {
 							return o1.mapDataBlock < o2.mapDataBlock ? -1 : (o1.mapDataBlock == o2.mapDataBlock ? 0 : 1);
 						}
 					});
+					if (readahead && foundSubtrees.size() > 1) {
+						ReadaheadPlanner planner = new ReadaheadPlanner();
+						for (MapTree tree : foundSubtrees) {
+							planner.addBlock((int) tree.mapDataBlock);
+						}
+						planner.prefetch(codedIS);
+					}
 					for (MapTree tree : foundSubtrees) {
 						if (!req.isCancelled()) {
 							codedIS.seek(tree.mapDataBlock);
@@ -1388,6 +1440,37 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 
+	/**
+	 * Streams poi search results through a bounded queue instead of collecting them in the request.
+	 * Reader should not be used by other threads until cursor is exhausted or closed.
+	 */
+	public SearchResultCursor<Amenity> searchPoiCursor(SearchRequest<Amenity> req, int capacity) {
+		return new SearchResultCursor<Amenity>(req, capacity, new SearchResultCursor.SearchTask<Amenity>() {
+			@Override
+			public void search(SearchRequest<Amenity> req) throws IOException {
+				searchPoi(req);
+			}
+		}).start();
+	}
+
+	public SearchResultCursor<Amenity> searchPoiByNameCursor(SearchRequest<Amenity> req, int capacity) {
+		return new SearchResultCursor<Amenity>(req, capacity, new SearchResultCursor.SearchTask<Amenity>() {
+			@Override
+			public void search(SearchRequest<Amenity> req) throws IOException {
+				searchPoiByName(req);
+			}
+		}).start();
+	}
+
+	public SearchResultCursor<BinaryMapDataObject> searchMapIndexCursor(SearchRequest<BinaryMapDataObject> req, int capacity) {
+		return new SearchResultCursor<BinaryMapDataObject>(req, capacity, new SearchResultCursor.SearchTask<BinaryMapDataObject>() {
+			@Override
+			public void search(SearchRequest<BinaryMapDataObject> req) throws IOException {
+				searchMapIndex(req);
+			}
+		}).start();
+	}
+
 	public List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
@@ -1584,6 +1667,10 @@ public class BinaryMapIndexReader {
 		return request;
 	}
 
+	public boolean isClosed() {
+		return codedIS == null;
+	}
+
 	public void close() throws IOException {
 		if (codedIS != null) {
 			raf.close();
@@ -1651,6 +1738,8 @@ public class BinaryMapIndexReader {
 
 		private ResultMatcher<T> resultMatcher;
 		private ResultMatcher<T> rawDataCollector;
+		// accepted objects are only passed to result matcher and not stored in search results
+		private boolean streaming = false;
 
 		// 31 zoom tiles
 		// common variables
@@ -1672,6 +1761,8 @@ public class BinaryMapIndexReader {
 
 		String nameQuery = null;
 		StringMatcherMode matcherMode = StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+		// > 0 for typo tolerant search by name
+		int maxTypos = 0;
 		SearchFilter searchFilter = null;
 
 		SearchPoiTypeFilter poiTypeFilter = null;
@@ -1691,6 +1782,7 @@ public class BinaryMapIndexReader {
 		int numberOfAcceptedObjects = 0;
 		int numberOfReadSubtrees = 0;
 		int numberOfAcceptedSubtrees = 0;
+		int numberOfPublishedObjects = 0;
 		boolean interrupted = false;
 
 		public MapObjectStat getStat() {
@@ -1722,12 +1814,59 @@ public class BinaryMapIndexReader {
 
 		public boolean publish(T obj) {
 			if (resultMatcher == null || resultMatcher.publish(obj)) {
-				searchResults.add(obj);
+				numberOfPublishedObjects++;
+				if (!streaming) {
+					searchResults.add(obj);
+				}
 				return true;
 			}
 			return false;
 		}
 
+		ResultMatcher<T> getResultMatcher() {
+			return resultMatcher;
+		}
+
+		void setResultMatcher(ResultMatcher<T> resultMatcher) {
+			this.resultMatcher = resultMatcher;
+		}
+
+		public boolean isStreaming() {
+			return streaming;
+		}
+
+		/**
+		 * In streaming mode accepted objects are delivered only to the result matcher,
+		 * search results list stays empty and search is stopped as soon as limit is reached.
+		 */
+		public void setStreaming(boolean streaming) {
+			this.streaming = streaming;
+		}
+
+		public int getLimit() {
+			return limit;
+		}
+
+		public void setLimit(int limit) {
+			this.limit = limit;
+		}
+
+		public int getMaxTypos() {
+			return maxTypos;
+		}
+
+		/**
+		 * Search by name finds names with typos, name index is walked with edit distance check
+		 * and objects are checked by {@link FuzzyStringMatcher}
+		 */
+		public void setMaxTypos(int maxTypos) {
+			this.maxTypos = maxTypos;
+		}
+
+		public int getNumberOfPublishedObjects() {
+			return numberOfPublishedObjects;
+		}
+
 		public void collectRawData(T obj) {
 			if (rawDataCollector != null) {
 				rawDataCollector.publish(obj);
@@ -1751,6 +1890,9 @@ public class BinaryMapIndexReader {
 		}
 
 		public boolean limitExceeded() {
+			if (streaming) {
+				return limit != -1 && numberOfPublishedObjects >= limit;
+			}
 			return limit != -1 && searchResults.size() > limit;
 		}
 
@@ -1758,6 +1900,9 @@ public class BinaryMapIndexReader {
 			if (this.interrupted) {
 				return interrupted;
 			}
+			if (streaming && limitExceeded()) {
+				return true;
+			}
 			if (resultMatcher != null) {
 				return resultMatcher.isCancelled();
 			}
@@ -1811,6 +1956,7 @@ public class BinaryMapIndexReader {
 			numberOfAcceptedObjects = 0;
 			numberOfReadSubtrees = 0;
 			numberOfAcceptedSubtrees = 0;
+			numberOfPublishedObjects = 0;
 		}
 
 		public boolean isBboxSpecified() {
@@ -2426,6 +2572,54 @@ public class BinaryMapIndexReader {
 		}
 	}
 
+	/**
+	 * Walks name index and collects values of keys matching query with typos.
+	 * Subtables are read for keys which could be extended to matching names.
+	 */
+	void readIndexedStringTable(FuzzyStringMatcher matcher, String prefix, TIntArrayList list) throws IOException {
+		String key = null;
+		boolean accept = false;
+		boolean descend = false;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER :
+				key = codedIS.readString();
+				if (prefix.length() > 0) {
+					key = prefix + key;
+				}
+				String folded = matcher.fold(key);
+				// short keys are checked with more typos only to decide whether to read subtables
+				descend = matcher.matchesKey(folded, false);
+				accept = descend && matcher.matchesKey(folded, true);
+				break;
+			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
+				int val = readInt();
+				if (accept) {
+					list.add(val);
+				}
+				break;
+			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER :
+				int len = codedIS.readRawVarint32();
+				int oldLim = codedIS.pushLimit(len);
+				if (descend) {
+					readIndexedStringTable(matcher, key, list);
+				} else {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				}
+				codedIS.popLimit(oldLim);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
+
 	private static void testAddressSearchByName(BinaryMapIndexReader reader) throws IOException {
 		SearchRequest<MapObject> req = buildAddressByNameRequest(new ResultMatcher<MapObject>() {
 			@Override
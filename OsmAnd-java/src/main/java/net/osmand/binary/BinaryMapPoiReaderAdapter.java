@@ -17,8 +17,10 @@ import java.util.Map.Entry;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.FuzzyStringMatcher;
 import net.osmand.Location;
 import net.osmand.PlatformUtil;
+import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex.OsmAndPoiNameIndexData;
 import net.osmand.data.Amenity;
@@ -299,6 +301,8 @@ public class BinaryMapPoiReaderAdapter {
 		String query = normalizeSearchPoiByNameQuery(req.nameQuery);
 		CollatorStringMatcher matcher = new CollatorStringMatcher(query,
 				StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		FuzzyStringMatcher fuzzyMatcher = req.getMaxTypos() > 0 ? new FuzzyStringMatcher(query,
+				StringMatcherMode.CHECK_STARTS_FROM_SPACE, req.getMaxTypos()) : null;
 		long time = System.currentTimeMillis();
 		int indexOffset = codedIS.getTotalBytesRead();
 		while (true) {
@@ -314,7 +318,7 @@ public class BinaryMapPoiReaderAdapter {
 				int length = readInt();
 				int oldLimit = codedIS.pushLimit(length);
 				// here offsets are sorted by distance
-				offsets = readPoiNameIndex(matcher.getCollator(), query, req);
+				offsets = readPoiNameIndex(matcher.getCollator(), fuzzyMatcher, query, req);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER:
@@ -349,11 +353,18 @@ public class BinaryMapPoiReaderAdapter {
 
 				LOG.info("Searched poi structure in " + (System.currentTimeMillis() - time) +
 						"ms. Found " + offKeys.length + " subtrees");
+				if (map.isReadahead() && offKeys.length > 1) {
+					ReadaheadPlanner planner = new ReadaheadPlanner();
+					for (int j = 0; j < offKeys.length; j++) {
+						planner.addBlock(offKeys[j] + indexOffset);
+					}
+					planner.prefetch(codedIS);
+				}
 				for (int j = 0; j < offKeys.length; j++) {
 					codedIS.seek(offKeys[j] + indexOffset);
 					int len = readInt();
 					int oldLim = codedIS.pushLimit(len);
-					readPoiData(matcher, req, region);
+					readPoiData(fuzzyMatcher != null ? fuzzyMatcher : matcher, req, region);
 					codedIS.popLimit(oldLim);
 					if (req.isCancelled() || req.limitExceeded()) {
 						return;
@@ -370,7 +381,8 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req) throws IOException {
+	private TIntLongHashMap readPoiNameIndex(Collator instance, FuzzyStringMatcher fuzzyMatcher, String query,
+											 SearchRequest<Amenity> req) throws IOException {
 		TIntLongHashMap offsets = new TIntLongHashMap();
 		TIntArrayList dataOffsets = null;
 		int offset = 0;
@@ -385,7 +397,11 @@ public class BinaryMapPoiReaderAdapter {
 				int oldLimit = codedIS.pushLimit(length);
 				dataOffsets = new TIntArrayList();
 				offset = codedIS.getTotalBytesRead();
-				map.readIndexedStringTable(instance, query, "", dataOffsets, 0);
+				if (fuzzyMatcher != null) {
+					map.readIndexedStringTable(fuzzyMatcher, "", dataOffsets);
+				} else {
+					map.readIndexedStringTable(instance, query, "", dataOffsets, 0);
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			}
@@ -505,6 +521,13 @@ public class BinaryMapPoiReaderAdapter {
 				}
 				LOG.info("Searched poi structure in " + (System.currentTimeMillis() - time) + " ms. Found "
 						+ offsets.length + " subtrees");
+				if (map.isReadahead() && offsets.length > 1) {
+					ReadaheadPlanner planner = new ReadaheadPlanner();
+					for (int j = 0; j < offsets.length; j++) {
+						planner.addBlock(offsets[j] + indexOffset);
+					}
+					planner.prefetch(codedIS);
+				}
 				for (int j = 0; j < offsets.length; j++) {
 					long skipVal = offsetsMap.get(offsets[j]);
 					if (skipTiles != null && skipVal != -1) {
@@ -538,7 +561,7 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private void readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
+	private void readPoiData(StringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
 		int x = 0;
 		int y = 0;
 		int zoom = 0;
@@ -1062,6 +1062,15 @@ public class BinaryMapRouteReaderAdapter {
 				return p1 == p2 ? 0 : (p1 < p2 ? -1 : 1);
 			}
 		});
+		if (map.isReadahead() && toLoad.size() > 1) {
+			ReadaheadPlanner planner = new ReadaheadPlanner();
+			for (RouteSubregion rs : toLoad) {
+				if (rs.dataObjects == null) {
+					planner.addBlock(rs.filePointer + rs.shiftToData);
+				}
+			}
+			planner.prefetch(codedIS);
+		}
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
 		for (RouteSubregion rs : toLoad) {
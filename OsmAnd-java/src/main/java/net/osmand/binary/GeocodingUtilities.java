@@ -22,15 +22,24 @@ import org.apache.commons.logging.Log;
 import java.io.IOException;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.set.hash.TLongHashSet;
 
 public class GeocodingUtilities {
@@ -49,6 +58,10 @@ public class GeocodingUtilities {
 	public static final float THRESHOLD_MULTIPLIER_SKIP_BUILDINGS_AFTER = 1.5f;
 	public static final float DISTANCE_BUILDING_PROXIMITY = 100;
 
+	// batch points are grouped by tiles of the zoom used to load routing data
+	public static final int BATCH_TILE_ZOOM = 14;
+	public static final int BATCH_TILES_PER_TASK = 16;
+
 
 	public static final Comparator<GeocodingResult> DISTANCE_COMPARATOR = new Comparator<GeocodingResult>() {
 
@@ -141,6 +154,90 @@ public class GeocodingUtilities {
 	}
 
 
+	/**
+	 * Address data shared between nearby points of a batch. Instance is not thread safe
+	 * and should be used together with a single reader / routing context.
+	 */
+	public static class GeocodingCache {
+		public static final int STREET_CACHE_ZOOM = 10;
+		public static final int MAX_CACHED_STREET_QUERIES = 2000;
+
+		private final Map<BinaryMapIndexReader, Map<String, List<Street>>> streetsByName = new HashMap<>();
+		private final Set<Street> preloadedStreets = Collections.newSetFromMap(new IdentityHashMap<Street, Boolean>());
+		private int cachedQueries = 0;
+		private int hits = 0;
+		private int misses = 0;
+
+		List<Street> getStreetsByName(final GeocodingUtilities gu, BinaryMapIndexReader reader, GeocodingResult road,
+				String mainWord, final List<String> streetNames, final boolean addCommonWords,
+				final ResultMatcher<GeocodingResult> result) throws IOException {
+			LatLon l = road.getLocation();
+			int tileX = (int) MapUtils.getTileNumberX(STREET_CACHE_ZOOM, l.getLongitude());
+			int tileY = (int) MapUtils.getTileNumberY(STREET_CACHE_ZOOM, l.getLatitude());
+			String key = tileX + "_" + tileY + "_" + streetNames;
+			Map<String, List<Street>> readerCache = streetsByName.get(reader);
+			if (readerCache == null) {
+				readerCache = new HashMap<>();
+				streetsByName.put(reader, readerCache);
+			}
+			List<Street> streets = readerCache.get(key);
+			if (streets != null) {
+				hits++;
+				return streets;
+			}
+			misses++;
+			if (cachedQueries >= MAX_CACHED_STREET_QUERIES) {
+				clear();
+				readerCache = new HashMap<>();
+				streetsByName.put(reader, readerCache);
+			}
+			final List<Street> found = new ArrayList<>();
+			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
+					new ResultMatcher<MapObject>() {
+						@Override
+						public boolean publish(MapObject object) {
+							if (object instanceof Street
+									&& gu.prepareStreetName(object.getName(), addCommonWords).equals(streetNames)) {
+								found.add((Street) object);
+								return true;
+							}
+							return false;
+						}
+
+						@Override
+						public boolean isCancelled() {
+							return result != null && result.isCancelled();
+						}
+					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+			// cover whole cache tile, so every point of the tile gets all streets within proximity distance
+			double lat = MapUtils.getLatitudeFromTile(STREET_CACHE_ZOOM, tileY + 0.5);
+			double lon = MapUtils.getLongitudeFromTile(STREET_CACHE_ZOOM, tileX + 0.5);
+			double halfDiagonal = MapUtils.getDistance(lat, lon, MapUtils.getLatitudeFromTile(STREET_CACHE_ZOOM, tileY),
+					MapUtils.getLongitudeFromTile(STREET_CACHE_ZOOM, tileX));
+			req.setBBoxRadius(lat, lon, (int) (DISTANCE_STREET_NAME_PROXIMITY_BY_NAME + halfDiagonal));
+			reader.searchAddressDataByName(req);
+			if (result == null || !result.isCancelled()) {
+				readerCache.put(key, found);
+				cachedQueries++;
+			}
+			return found;
+		}
+
+		public int getHits() {
+			return hits;
+		}
+
+		public int getMisses() {
+			return misses;
+		}
+
+		public void clear() {
+			streetsByName.clear();
+			preloadedStreets.clear();
+			cachedQueries = 0;
+		}
+	}
+
 	public List<GeocodingResult> reverseGeocodingSearch(RoutingContext ctx, double lat, double lon, boolean allowEmptyNames) throws IOException {
 		RoutePlannerFrontEnd rp = new RoutePlannerFrontEnd();
 		List<GeocodingResult> lst = new ArrayList<GeocodingUtilities.GeocodingResult>();
@@ -186,6 +283,149 @@ public class GeocodingUtilities {
 		return lst;
 	}
 
+	/**
+	 * Reverse geocodes all points, result list has the same order as points.
+	 * Points are processed in spatial order so loaded routing tiles and address data are shared between neighbours.
+	 * When justify is true results are resolved to streets and buildings with readers of routing context.
+	 */
+	public List<List<GeocodingResult>> reverseGeocodingBatch(RoutingContext ctx, List<LatLon> points,
+			boolean allowEmptyNames, boolean justify, ResultMatcher<GeocodingResult> result) throws IOException {
+		return reverseGeocodingBatch(Collections.singletonList(ctx), points, allowEmptyNames, justify, result);
+	}
+
+	/**
+	 * Same as single context batch, but groups of neighbour tiles are processed in parallel.
+	 * Each routing context (and its readers) is used exclusively by one worker thread.
+	 */
+	public List<List<GeocodingResult>> reverseGeocodingBatch(List<RoutingContext> contexts, final List<LatLon> points,
+			final boolean allowEmptyNames, final boolean justify, final ResultMatcher<GeocodingResult> result) throws IOException {
+		final List<List<GeocodingResult>> res = new ArrayList<>(Collections.nCopies(points.size(), (List<GeocodingResult>) null));
+		final long[] order = sortPointsByTiles(points);
+		final int[] tasks = splitTasks(order);
+		if (contexts.size() <= 1 || tasks.length <= 2) {
+			GeocodingCache cache = new GeocodingCache();
+			reverseGeocodingBatch(contexts.get(0), cache, points, order, 0, order.length, allowEmptyNames, justify, result, res);
+			return res;
+		}
+		final AtomicInteger nextTask = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(contexts.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (final RoutingContext ctx : contexts) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						GeocodingCache cache = new GeocodingCache();
+						int t;
+						while ((t = nextTask.getAndIncrement()) < tasks.length - 1) {
+							if (result != null && result.isCancelled()) {
+								break;
+							}
+							reverseGeocodingBatch(ctx, cache, points, order, tasks[t], tasks[t + 1], allowEmptyNames,
+									justify, result, res);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return res;
+	}
+
+	private void reverseGeocodingBatch(RoutingContext ctx, GeocodingCache cache, List<LatLon> points, long[] order,
+			int start, int end, boolean allowEmptyNames, boolean justify, ResultMatcher<GeocodingResult> result,
+			List<List<GeocodingResult>> res) throws IOException {
+		LatLon prev = null;
+		List<GeocodingResult> prevResult = null;
+		for (int i = start; i < end; i++) {
+			if (result != null && result.isCancelled()) {
+				return;
+			}
+			int ind = (int) order[i];
+			LatLon l = points.get(ind);
+			// repeated points (i.e. stops on a track) are resolved once
+			if (prev == null || !prev.equals(l)) {
+				prev = l;
+				prevResult = reverseGeocodingSearch(ctx, l.getLatitude(), l.getLongitude(), allowEmptyNames);
+				if (justify) {
+					prevResult = justifyReverseGeocodingSearch(ctx, prevResult, cache, result);
+				}
+				if (ctx.config != null && ctx.checkIfMemoryLimitCritical(ctx.config.memoryLimitation)) {
+					ctx.unloadUnusedTiles(ctx.config.memoryLimitation);
+				}
+			}
+			res.set(ind, prevResult);
+		}
+	}
+
+	private List<GeocodingResult> justifyReverseGeocodingSearch(RoutingContext ctx, List<GeocodingResult> roads,
+			GeocodingCache cache, ResultMatcher<GeocodingResult> result) throws IOException {
+		List<GeocodingResult> complete = new ArrayList<>();
+		double minBuildingDistance = 0;
+		for (GeocodingResult r : roads) {
+			BinaryMapIndexReader foundRepo = null;
+			for (Map.Entry<RouteRegion, BinaryMapIndexReader> e : ctx.reverseMap.entrySet()) {
+				if (r.regionFP == e.getKey().getFilePointer() && r.regionLen == e.getKey().getLength()) {
+					foundRepo = e.getValue();
+					break;
+				}
+			}
+			if (result != null && result.isCancelled()) {
+				break;
+			} else if (foundRepo != null) {
+				List<GeocodingResult> justified = justifyReverseGeocodingSearch(r, foundRepo, minBuildingDistance, result, cache);
+				if (!justified.isEmpty()) {
+					double md = justified.get(0).getDistance();
+					minBuildingDistance = minBuildingDistance == 0 ? md : Math.min(md, minBuildingDistance);
+					complete.addAll(justified);
+				}
+			} else {
+				complete.add(r);
+			}
+		}
+		filterDuplicateRegionResults(complete);
+		return complete;
+	}
+
+	// Z-order code of point tile in higher 32 bits and point index in lower 32 bits
+	private long[] sortPointsByTiles(List<LatLon> points) {
+		long[] order = new long[points.size()];
+		for (int i = 0; i < order.length; i++) {
+			LatLon l = points.get(i);
+			long tileX = (long) MapUtils.getTileNumberX(BATCH_TILE_ZOOM, l.getLongitude());
+			long tileY = (long) MapUtils.getTileNumberY(BATCH_TILE_ZOOM, l.getLatitude());
+			order[i] = (MapUtils.interleaveBits(tileX, tileY) << 32) | i;
+		}
+		Arrays.sort(order);
+		return order;
+	}
+
+	// ranges [tasks[i], tasks[i + 1]) of sorted points covering BATCH_TILES_PER_TASK neighbour tiles
+	private int[] splitTasks(long[] order) {
+		TIntArrayList tasks = new TIntArrayList();
+		tasks.add(0);
+		int tiles = 0;
+		for (int i = 1; i < order.length; i++) {
+			if ((order[i] >>> 32) != (order[i - 1] >>> 32) && ++tiles % BATCH_TILES_PER_TASK == 0) {
+				tasks.add(i);
+			}
+		}
+		tasks.add(order.length);
+		return tasks.toArray();
+	}
+
 	public List<String> prepareStreetName(String s, boolean addCommonWords) {
 		List<String> ls = new ArrayList<String>();
 		int beginning = 0;
@@ -225,6 +465,11 @@ public class GeocodingUtilities {
 
 	public List<GeocodingResult> justifyReverseGeocodingSearch(final GeocodingResult road, BinaryMapIndexReader reader,
 			double knownMinBuildingDistance, final ResultMatcher<GeocodingResult> result) throws IOException {
+		return justifyReverseGeocodingSearch(road, reader, knownMinBuildingDistance, result, null);
+	}
+
+	public List<GeocodingResult> justifyReverseGeocodingSearch(final GeocodingResult road, BinaryMapIndexReader reader,
+			double knownMinBuildingDistance, final ResultMatcher<GeocodingResult> result, GeocodingCache cache) throws IOException {
 		// test address index search
 		final List<GeocodingResult> streetsList = new ArrayList<GeocodingResult>();
 		boolean addCommonWords = false;
@@ -244,36 +489,52 @@ public class GeocodingUtilities {
 					mainWord = s;
 				}
 			}
-			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
-					new ResultMatcher<MapObject>() {
-						@Override
-						public boolean publish(MapObject object) {
-							if (object instanceof Street
-									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
-								double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
-										road.searchPoint.getLongitude());
-								// double check to suport old format
-								if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
-									GeocodingResult rs = new GeocodingResult(road);
-									rs.street = (Street) object;
-									// set connection point to sort
-									rs.connectionPoint = rs.street.getLocation();
-									rs.city = rs.street.getCity();
-									streetsList.add(rs);
-									return true;
+			if (cache != null) {
+				List<Street> streets = cache.getStreetsByName(this, reader, road, mainWord, streetNamesUsedFinal,
+						addCommonWordsFinal, result);
+				for (Street street : streets) {
+					double d = MapUtils.getDistance(street.getLocation(), road.searchPoint.getLatitude(),
+							road.searchPoint.getLongitude());
+					if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+						GeocodingResult rs = new GeocodingResult(road);
+						rs.street = street;
+						rs.connectionPoint = street.getLocation();
+						rs.city = street.getCity();
+						streetsList.add(rs);
+					}
+				}
+			} else {
+				SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
+						new ResultMatcher<MapObject>() {
+							@Override
+							public boolean publish(MapObject object) {
+								if (object instanceof Street
+										&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
+									double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
+											road.searchPoint.getLongitude());
+									// double check to suport old format
+									if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+										GeocodingResult rs = new GeocodingResult(road);
+										rs.street = (Street) object;
+										// set connection point to sort
+										rs.connectionPoint = rs.street.getLocation();
+										rs.city = rs.street.getCity();
+										streetsList.add(rs);
+										return true;
+									}
+									return false;
 								}
 								return false;
 							}
-							return false;
-						}
 
-						@Override
-						public boolean isCancelled() {
-							return result != null && result.isCancelled();
-						}
-					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
-			req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
-			reader.searchAddressDataByName(req);
+							@Override
+							public boolean isCancelled() {
+								return result != null && result.isCancelled();
+							}
+						}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+				req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+				reader.searchAddressDataByName(req);
+			}
 		}
 
 		final List<GeocodingResult> res = new ArrayList<GeocodingResult>();
@@ -289,7 +550,7 @@ public class GeocodingUtilities {
 					continue;
 				}
 				street.connectionPoint = road.connectionPoint;
-				final List<GeocodingResult> streetBuildings = loadStreetBuildings(road, reader, street);
+				final List<GeocodingResult> streetBuildings = loadStreetBuildings(road, reader, street, cache);
 				Collections.sort(streetBuildings, DISTANCE_COMPARATOR);
 				if (streetBuildings.size() > 0) {
 					Iterator<GeocodingResult> it = streetBuildings.iterator();
@@ -359,10 +620,12 @@ public class GeocodingUtilities {
 	}
 
 	private List<GeocodingResult> loadStreetBuildings(final GeocodingResult road, BinaryMapIndexReader reader,
-			GeocodingResult street) throws IOException {
+			GeocodingResult street, GeocodingCache cache) throws IOException {
 		final List<GeocodingResult> streetBuildings = new ArrayList<GeocodingResult>();
-		reader.preloadBuildings(street.street, null);
-		log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
+		if (cache == null || cache.preloadedStreets.add(street.street)) {
+			reader.preloadBuildings(street.street, null);
+			log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
+		}
 		for (Building b : street.street.getBuildings()) {
 			if (b.getLatLon2() != null) {
 				double slat = b.getLocation().getLatitude();
@@ -0,0 +1,88 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+
+import java.io.IOException;
+
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Collects file ranges which query is going to read, coalesces nearby ranges
+ * and plans them in stream, so they are loaded with few large sequential reads while decoding.
+ * It helps on storage with slow random access (sd cards, network file systems).
+ */
+public class ReadaheadPlanner {
+
+	// ranges closer than that are read together with the gap
+	public static final int DEFAULT_MAX_GAP = 64 * 1024;
+	// length assumed for blocks which size is not known before reading
+	public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+	public static final int MAX_RANGE_SIZE = 4 * 1024 * 1024;
+
+	private final int maxGap;
+	private final int blockSize;
+	// start in higher 32 bits and length in lower 32 bits
+	private final TLongArrayList ranges = new TLongArrayList();
+	private TLongArrayList plan;
+
+	public ReadaheadPlanner() {
+		this(DEFAULT_MAX_GAP, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ReadaheadPlanner(int maxGap, int blockSize) {
+		this.maxGap = maxGap;
+		this.blockSize = blockSize;
+	}
+
+	public void addRange(int start, int length) {
+		if (start >= 0 && length > 0) {
+			ranges.add((((long) start) << 32) | length);
+			plan = null;
+		}
+	}
+
+	public void addBlock(int start) {
+		addRange(start, blockSize);
+	}
+
+	/**
+	 * @return coalesced ranges in file order, encoded same way as added ranges
+	 */
+	public TLongArrayList plan() {
+		if (plan != null) {
+			return plan;
+		}
+		plan = new TLongArrayList();
+		ranges.sort();
+		long start = -1;
+		long end = -1;
+		for (int i = 0; i < ranges.size(); i++) {
+			long r = ranges.get(i);
+			long s = r >>> 32;
+			long e = s + (r & 0xffffffffL);
+			if (start != -1 && s - end <= maxGap && Math.max(e, end) - start <= MAX_RANGE_SIZE) {
+				end = Math.max(e, end);
+			} else {
+				addPlanned(start, end);
+				start = s;
+				end = e;
+			}
+		}
+		addPlanned(start, end);
+		return plan;
+	}
+
+	private void addPlanned(long start, long end) {
+		if (start != -1) {
+			plan.add((start << 32) | (end - start));
+		}
+	}
+
+	public void prefetch(CodedInputStream codedIS) throws IOException {
+		TLongArrayList p = plan();
+		for (int i = 0; i < p.size(); i++) {
+			long r = p.get(i);
+			codedIS.prefetch(r >>> 32, (int) (r & 0xffffffffL));
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package net.osmand.binary;
+
+import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+import org.apache.commons.logging.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Iterates over results of a search request while the search is still running.
+ * Search is executed on a separate thread in streaming mode and puts accepted objects
+ * into a bounded queue, so search thread is blocked when consumer is slower (back-pressure)
+ * and memory doesn't depend on the number of found objects. End of search is marked by end element.
+ * Closing cursor cancels the search.
+ * Request is switched to streaming mode with cursor matcher while search runs,
+ * its streaming flag and matcher are restored when search finishes (close() waits for it).
+ *
+ * Reader used by the search task should not be accessed by other threads until cursor is finished.
+ */
+public class SearchResultCursor<T> implements Iterator<T>, Closeable {
+
+	private static final Log LOG = PlatformUtil.getLog(SearchResultCursor.class);
+	private static final Object END = new Object();
+
+	public interface SearchTask<T> {
+		void search(SearchRequest<T> req) throws IOException;
+	}
+
+	private final SearchRequest<T> req;
+	private final SearchTask<T> task;
+	private final BlockingQueue<Object> queue;
+	private volatile boolean closed;
+	private volatile IOException error;
+	private Object next;
+	private boolean finished;
+	private Thread thread;
+	private ResultMatcher<T> requestMatcher;
+	private boolean requestStreaming;
+
+	public SearchResultCursor(SearchRequest<T> req, int capacity, SearchTask<T> task) {
+		this.req = req;
+		this.task = task;
+		this.queue = new ArrayBlockingQueue<Object>(Math.max(1, capacity));
+	}
+
+	public synchronized SearchResultCursor<T> start() {
+		if (thread != null) {
+			throw new IllegalStateException("Cursor is already started");
+		}
+		final ResultMatcher<T> matcher = req.getResultMatcher();
+		requestMatcher = matcher;
+		requestStreaming = req.isStreaming();
+		req.setStreaming(true);
+		req.setResultMatcher(new ResultMatcher<T>() {
+			@Override
+			public boolean publish(T object) {
+				if (matcher != null && !matcher.publish(object)) {
+					return false;
+				}
+				return put(object);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return closed || (matcher != null && matcher.isCancelled());
+			}
+		});
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.search(req);
+				} catch (IOException e) {
+					error = e;
+				} catch (RuntimeException e) {
+					LOG.error(e.getMessage(), e);
+					error = new IOException(e);
+				} finally {
+					req.setResultMatcher(requestMatcher);
+					req.setStreaming(requestStreaming);
+					put(END);
+				}
+			}
+		}, "SearchResultCursor");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	// blocks while queue is full, close() clears queue so producer is released and stops on closed flag
+	private boolean put(Object object) {
+		if (closed) {
+			return false;
+		}
+		try {
+			queue.put(object);
+			return true;
+		} catch (InterruptedException e) {
+			closed = true;
+			return false;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (finished) {
+			return false;
+		}
+		if (thread == null) {
+			start();
+		}
+		if (!closed) {
+			try {
+				Object o = queue.take();
+				if (o != END && !closed) {
+					next = o;
+					return true;
+				}
+				if (o == END && error != null && !closed) {
+					finished = true;
+					throw new IllegalStateException(error);
+				}
+			} catch (InterruptedException e) {
+				close();
+			}
+		}
+		finished = true;
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T o = (T) next;
+		next = null;
+		return o;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	public SearchRequest<T> getSearchRequest() {
+		return req;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		queue.clear();
+		Thread t;
+		synchronized (this) {
+			t = thread;
+		}
+		// search is cancelled by closed flag, request is restored when it is finished
+		if (t != null && t != Thread.currentThread()) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		// producer doesn't put results anymore, end element releases reader waiting in hasNext()
+		queue.clear();
+		queue.offer(END);
+	}
+}
@@ -93,6 +93,18 @@ public class City extends MapObject {
 	}
 
 
+	/**
+	 * @return copy of city without streets
+	 */
+	public City copyWithoutStreets() {
+		City c = isPostcode() ? new City(name, id) : new City(type);
+		c.copyObject(this);
+		c.postcode = postcode;
+		c.closestCity = closestCity;
+		c.isin = isin;
+		return c;
+	}
+
 	public void registerStreet(Street street) {
 		listOfStreets.add(street);
 	}
@@ -18,6 +18,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -176,6 +177,19 @@ public abstract class MapObject implements Comparable<MapObject> {
 		copyNames(s, true, true, false);
 	}
 
+	/**
+	 * Copies names, location, id and file reference of object
+	 */
+	protected void copyObject(MapObject o) {
+		name = o.name;
+		enName = o.enName;
+		names = o.names == null ? null : new LinkedHashMap<>(o.names);
+		location = o.location;
+		fileOffset = o.fileOffset;
+		id = o.id;
+		referenceFile = o.referenceFile;
+	}
+
 	public String getName(String lang) {
 		return getName(lang, false);
 	}
@@ -16,6 +16,7 @@ public class Street extends MapObject {
 	protected List<Building> buildings = new ArrayList<Building>();
 	protected List<Street> intersectedStreets = null;
 	protected final City city;
+	private boolean buildingsLoaded;
 
 	public Street(City city) {
 		this.city = city;
@@ -52,6 +53,35 @@ public class Street extends MapObject {
 		return buildings;
 	}
 
+	/**
+	 * @return true if all buildings and intersected streets were loaded
+	 */
+	public boolean isBuildingsLoaded() {
+		return buildingsLoaded;
+	}
+
+	public void setBuildingsLoaded(boolean buildingsLoaded) {
+		this.buildingsLoaded = buildingsLoaded;
+	}
+
+	/**
+	 * Removes buildings and intersected streets (loaded partly)
+	 */
+	public void clearBuildings() {
+		buildings.clear();
+		intersectedStreets = null;
+		buildingsLoaded = false;
+	}
+
+	/**
+	 * @return copy of street without buildings and intersected streets
+	 */
+	public Street copyWithoutBuildings(City city) {
+		Street s = new Street(city);
+		s.copyObject(this);
+		return s;
+	}
+
 	public City getCity() {
 		return city;
 	}
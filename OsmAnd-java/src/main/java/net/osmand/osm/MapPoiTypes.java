@@ -1,5 +1,7 @@
 package net.osmand.osm;
 
+import net.osmand.CollatorStringFolder;
+import net.osmand.CollatorStringMatcher;
 import net.osmand.PlatformUtil;
 import net.osmand.StringMatcher;
 import net.osmand.data.Amenity;
@@ -50,6 +52,7 @@ public class MapPoiTypes {
 	Map<String, String> deprecatedTags = new LinkedHashMap<String, String>();
 	Map<String, String> poiAdditionalCategoryIconNames = new LinkedHashMap<String, String>();
 	List<PoiType> textPoiAdditionals = new ArrayList<PoiType>();
+	private PoiTypesIndex poiTypesIndex;
 
 
 	public MapPoiTypes(String fileName) {
@@ -240,38 +243,67 @@ public class MapPoiTypes {
 
 	public List<AbstractPoiType> getAllTypesTranslatedNames(StringMatcher matcher) {
 		List<AbstractPoiType> tm = new ArrayList<AbstractPoiType>();
+		Set<AbstractPoiType> candidates = getPoiTypesCandidates(matcher);
 		for (int i = 0; i < categories.size(); i++) {
 			PoiCategory pc = categories.get(i);
 			if (pc == otherMapCategory) {
 				continue;
 			}
-			addIf(tm, pc, matcher);
+			addIf(tm, pc, matcher, candidates);
 			for (PoiFilter pt : pc.getPoiFilters()) {
-				addIf(tm, pt, matcher);
+				addIf(tm, pt, matcher, candidates);
 			}
 			for (PoiType pt : pc.getPoiTypes()) {
 				if (pt.isReference()) {
 					continue;
 				}
-				addIf(tm, pt, matcher);
+				addIf(tm, pt, matcher, candidates);
 			}
 		}
 
 		return tm;
 	}
 
-	private void addIf(List<AbstractPoiType> tm, AbstractPoiType pc, StringMatcher matcher) {
-		if (matcher.matches(pc.getTranslation()) || matcher.matches(pc.getKeyName().replace('_', ' '))) {
+	private void addIf(List<AbstractPoiType> tm, AbstractPoiType pc, StringMatcher matcher, Set<AbstractPoiType> candidates) {
+		if ((candidates == null || candidates.contains(pc))
+				&& (matcher.matches(pc.getTranslation()) || matcher.matches(pc.getKeyName().replace('_', ' ')))) {
 			tm.add(pc);
 		}
 		List<PoiType> additionals = pc.getPoiAdditionals();
 		if (additionals != null) {
 			for (PoiType a : additionals) {
-				addIf(tm, a, matcher);
+				addIf(tm, a, matcher, candidates);
 			}
 		}
 	}
 
+	/**
+	 * @return poi types (including additionals) which names could be matched by matcher,
+	 * null if all types should be checked
+	 */
+	public Set<AbstractPoiType> getPoiTypesCandidates(StringMatcher matcher) {
+		if (!(matcher instanceof CollatorStringMatcher)) {
+			return null;
+		}
+		return getPoiTypesIndex().getCandidates((CollatorStringMatcher) matcher);
+	}
+
+	public synchronized PoiTypesIndex getPoiTypesIndex() {
+		CollatorStringFolder folder = CollatorStringFolder.getInstance();
+		if (poiTypesIndex == null || poiTypesIndex.getFolder() != folder) {
+			long time = System.currentTimeMillis();
+			PoiTypesIndex index = new PoiTypesIndex(folder);
+			index.addCategories(categories);
+			poiTypesIndex = index;
+			log.info("Time to index poi types " + (System.currentTimeMillis() - time) + " ms, words " + index.getWordsCount()); //$NON-NLS-1$
+		}
+		return poiTypesIndex;
+	}
+
+	private synchronized void resetPoiTypesIndex() {
+		poiTypesIndex = null;
+	}
+
 
 	public Map<String, PoiType> getAllTranslatedNames(PoiCategory pc, boolean onlyTranslation) {
 		Map<String, PoiType> translation = new TreeMap<String, PoiType>();
@@ -317,6 +349,7 @@ public class MapPoiTypes {
 		List<PoiCategory> copy = new ArrayList<>(categories);
 		copy.add(category);
 		categories = copy;
+		resetPoiTypesIndex();
 	}
 
 	public PoiTranslator getPoiTranslator() {
@@ -326,6 +359,7 @@ public class MapPoiTypes {
 	public void setPoiTranslator(PoiTranslator poiTranslator) {
 		this.poiTranslator = poiTranslator;
 		sortList(categories);
+		resetPoiTypesIndex();
 
 	}
 
@@ -540,6 +574,7 @@ public class MapPoiTypes {
 		this.deprecatedTags = deprecatedTags;
 		this.poiAdditionalCategoryIconNames = poiAdditionalCategoryIconNames;
 		this.textPoiAdditionals = textPoiAdditionals;
+		resetPoiTypesIndex();
 		otherCategory = getPoiCategoryByName("user_defined_other");
 		if (otherCategory == null) {
 			throw new IllegalArgumentException("No poi category other");
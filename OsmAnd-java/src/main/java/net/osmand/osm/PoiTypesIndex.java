@@ -0,0 +1,131 @@
+package net.osmand.osm;
+
+import net.osmand.CollatorStringFolder;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.util.Algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inverted index of words of poi type names (translation, english translation, key and synonyms).
+ * Words are folded same way as names matched by {@link CollatorStringMatcher},
+ * so poi types which could match a query are found by a word prefix lookup
+ * and only they have to be checked by the matcher.
+ */
+public class PoiTypesIndex {
+
+	private final CollatorStringFolder folder;
+	private final TreeMap<String, List<AbstractPoiType>> words = new TreeMap<>();
+	private final Set<AbstractPoiType> indexed = new HashSet<>();
+
+	public PoiTypesIndex(CollatorStringFolder folder) {
+		this.folder = folder;
+	}
+
+	public CollatorStringFolder getFolder() {
+		return folder;
+	}
+
+	public int getWordsCount() {
+		return words.size();
+	}
+
+	public void addCategories(Collection<PoiCategory> categories) {
+		for (PoiCategory pc : categories) {
+			add(pc);
+			for (PoiFilter pf : pc.getPoiFilters()) {
+				add(pf);
+			}
+			for (PoiType pt : pc.getPoiTypes()) {
+				add(pt);
+			}
+		}
+	}
+
+	public void add(AbstractPoiType pt) {
+		if (!indexed.add(pt)) {
+			return;
+		}
+		addName(pt, pt.getTranslation());
+		addName(pt, pt.getEnTranslation());
+		addName(pt, pt.getKeyName().replace('_', ' '));
+		addName(pt, pt.getSynonyms());
+		List<PoiType> additionals = pt.getPoiAdditionals();
+		if (additionals != null) {
+			for (PoiType a : additionals) {
+				add(a);
+			}
+		}
+	}
+
+	private void addName(AbstractPoiType pt, String name) {
+		if (Algorithms.isEmpty(name)) {
+			return;
+		}
+		String folded = folder.fold(name);
+		int start = -1;
+		for (int i = 0; i <= folded.length(); i++) {
+			boolean space = i == folded.length() || isSpace(folded.charAt(i));
+			if (space && start != -1) {
+				addWord(pt, folded.substring(start, i));
+				start = -1;
+			} else if (!space && start == -1) {
+				start = i;
+			}
+		}
+	}
+
+	private void addWord(AbstractPoiType pt, String word) {
+		List<AbstractPoiType> list = words.get(word);
+		if (list == null) {
+			list = new ArrayList<>(2);
+			words.put(word, list);
+		}
+		if (list.isEmpty() || list.get(list.size() - 1) != pt) {
+			list.add(pt);
+		}
+	}
+
+	/**
+	 * @return poi types which could be matched by matcher (superset)
+	 * or null if matcher mode is not supported by index and all types should be checked
+	 */
+	public Set<AbstractPoiType> getCandidates(CollatorStringMatcher matcher) {
+		if (matcher.getMode() == StringMatcherMode.CHECK_CONTAINS) {
+			return null;
+		}
+		String part = folder.fold(matcher.getPart());
+		if (part.length() == 0 || isSpace(part.charAt(0))) {
+			return null;
+		}
+		int end = 0;
+		while (end < part.length() && !isSpace(part.charAt(end))) {
+			end++;
+		}
+		String word = part.substring(0, end);
+		Set<AbstractPoiType> res = new HashSet<>();
+		if (end < part.length()) {
+			// first word of query is complete
+			List<AbstractPoiType> list = words.get(word);
+			if (list != null) {
+				res.addAll(list);
+			}
+		} else {
+			for (Map.Entry<String, List<AbstractPoiType>> e : words.subMap(word, word + Character.MAX_VALUE).entrySet()) {
+				res.addAll(e.getValue());
+			}
+		}
+		return res;
+	}
+
+	private static boolean isSpace(char c) {
+		return !Character.isLetter(c) && !Character.isDigit(c);
+	}
+}
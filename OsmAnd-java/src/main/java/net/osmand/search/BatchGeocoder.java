@@ -0,0 +1,312 @@
+package net.osmand.search;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline geocoder of address lists. Every worker thread keeps its own {@link SearchUICore}
+ * (apis keep state between searches), readers of obf files and poi types are opened once and shared.
+ * Input lines are "address" or "address\tlat\tlon" (location to prefer nearest results),
+ * addresses without location are searched around default location or center of the first region.
+ * Output lines are "line\trank\tscore\ttype\tname\tlat\tlon\taddress" in the order of input.
+ */
+public class BatchGeocoder {
+
+	private static final Log LOG = PlatformUtil.getLog(BatchGeocoder.class);
+	private static final int PROGRESS_INTERVAL = 10000;
+	// addresses read ahead per worker
+	private static final int QUEUE_PER_THREAD = 16;
+
+	private final MapPoiTypes poiTypes;
+	private final List<BinaryMapIndexReader> files;
+	private final String lang;
+	private final int threads;
+	private int maxResults = 1;
+	private int radiusLevel = 1;
+	private LatLon defaultLocation;
+	private final ThreadLocal<SearchUICore> cores = new ThreadLocal<SearchUICore>() {
+		@Override
+		protected SearchUICore initialValue() {
+			SearchUICore core = new SearchUICore(poiTypes, lang, false);
+			core.init();
+			return core;
+		}
+	};
+
+	public static class GeocodingResult {
+		private final String address;
+		private final List<SearchResult> results;
+
+		GeocodingResult(String address, List<SearchResult> results) {
+			this.address = address;
+			this.results = results;
+		}
+
+		public String getAddress() {
+			return address;
+		}
+
+		/**
+		 * @return best matches sorted by rank
+		 */
+		public List<SearchResult> getResults() {
+			return results;
+		}
+	}
+
+	public BatchGeocoder(MapPoiTypes poiTypes, List<BinaryMapIndexReader> files, String lang, int threads) {
+		this.poiTypes = poiTypes;
+		this.files = files;
+		this.lang = lang;
+		this.threads = Math.max(1, threads);
+		for (BinaryMapIndexReader r : files) {
+			if (r.getRegionCenter() != null) {
+				defaultLocation = r.getRegionCenter();
+				break;
+			}
+		}
+	}
+
+	public void setMaxResults(int maxResults) {
+		this.maxResults = maxResults;
+	}
+
+	public void setRadiusLevel(int radiusLevel) {
+		this.radiusLevel = radiusLevel;
+	}
+
+	/**
+	 * @param defaultLocation location used for addresses without location (search apis require location)
+	 */
+	public void setDefaultLocation(LatLon defaultLocation) {
+		if (defaultLocation != null) {
+			this.defaultLocation = defaultLocation;
+		}
+	}
+
+	/**
+	 * Geocodes one address on the calling thread
+	 * @param location location to prefer results nearby or null to use default location
+	 */
+	public GeocodingResult geocode(String address, LatLon location) {
+		if (location == null) {
+			location = defaultLocation != null ? defaultLocation : new LatLon(0, 0);
+		}
+		SearchUICore core = cores.get();
+		SearchSettings settings = new SearchSettings(files).setLang(lang, false)
+				.setRadiusLevel(radiusLevel)
+				.setOriginalLocation(location);
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase(address, settings);
+		SearchResultMatcher rm = new SearchResultMatcher(null, phrase, 1, new AtomicInteger(1), -1);
+		core.searchInternal(phrase, rm);
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.setMaxResults(maxResults);
+		collection.addSearchResults(rm.getRequestResults(), true, true);
+		return new GeocodingResult(address, new ArrayList<>(collection.getCurrentSearchResults()));
+	}
+
+	/**
+	 * Geocodes all lines of input with worker threads, results are written in the order of input
+	 * @return number of geocoded addresses
+	 */
+	public int geocode(BufferedReader in, Writer out) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<GeocodingResult>> queue = new ArrayDeque<>();
+		long startTime = System.currentTimeMillis();
+		int lines = 0;
+		int written = 0;
+		int found = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String ln = line;
+				queue.add(executor.submit(new Callable<GeocodingResult>() {
+					@Override
+					public GeocodingResult call() throws Exception {
+						return geocodeLine(ln);
+					}
+				}));
+				lines++;
+				while (queue.size() >= threads * QUEUE_PER_THREAD) {
+					found += writeResult(out, ++written, waitFor(queue.poll()));
+					logProgress(written, startTime);
+				}
+			}
+			while (!queue.isEmpty()) {
+				found += writeResult(out, ++written, waitFor(queue.poll()));
+				logProgress(written, startTime);
+			}
+			out.flush();
+		} finally {
+			executor.shutdownNow();
+		}
+		long time = Math.max(1, System.currentTimeMillis() - startTime);
+		LOG.info(String.format(Locale.US, "Geocoded %d addresses (%d found) in %.1f s: %.1f addresses/s",
+				lines, found, time / 1000.0, lines * 1000.0 / time));
+		return lines;
+	}
+
+	private GeocodingResult geocodeLine(String line) {
+		String[] parts = line.split("\t");
+		LatLon location = null;
+		if (parts.length >= 3) {
+			try {
+				location = new LatLon(Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()));
+			} catch (NumberFormatException e) {
+				LOG.warn("Incorrect location: " + line);
+			}
+		}
+		String address = parts.length == 0 ? "" : parts[0].trim();
+		if (address.length() == 0) {
+			return new GeocodingResult(address, Collections.<SearchResult>emptyList());
+		}
+		return geocode(address, location);
+	}
+
+	private static GeocodingResult waitFor(Future<GeocodingResult> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static int writeResult(Writer out, int line, GeocodingResult res) throws IOException {
+		String address = res.getAddress().replace('\t', ' ');
+		if (res.getResults().isEmpty()) {
+			out.write(line + "\t0\t\t\t\t\t\t" + address + "\n");
+			return 0;
+		}
+		int rank = 1;
+		for (SearchResult r : res.getResults()) {
+			String name = r.localeName == null ? "" : r.localeName.replace('\t', ' ');
+			String lat = r.location == null ? "" : String.format(Locale.US, "%.6f", r.location.getLatitude());
+			String lon = r.location == null ? "" : String.format(Locale.US, "%.6f", r.location.getLongitude());
+			out.write(String.format(Locale.US, "%d\t%d\t%.3f\t%s\t%s\t%s\t%s\t%s\n", line, rank++,
+					r.getUnknownPhraseMatchWeight(), r.objectType, name, lat, lon, address));
+		}
+		return 1;
+	}
+
+	private static void logProgress(int written, long startTime) {
+		if (written % PROGRESS_INTERVAL == 0) {
+			long time = Math.max(1, System.currentTimeMillis() - startTime);
+			LOG.info(String.format(Locale.US, "Geocoded %d addresses: %.1f addresses/s", written, written * 1000.0 / time));
+		}
+	}
+
+	private static List<BinaryMapIndexReader> openFiles(File obf) throws IOException {
+		List<File> list = new ArrayList<>();
+		if (obf.isDirectory()) {
+			File[] fs = obf.listFiles();
+			if (fs != null) {
+				for (File f : fs) {
+					if (f.getName().endsWith(".obf")) {
+						list.add(f);
+					}
+				}
+			}
+		} else {
+			list.add(obf);
+		}
+		Collections.sort(list);
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		for (File f : list) {
+			readers.add(new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f));
+		}
+		return readers;
+	}
+
+	private static void info() {
+		System.out.println("Batch geocoder of addresses (one per line: address or address<TAB>lat<TAB>lon) with offline obf files.");
+		System.out.println("\nUsage: batchGeocoder -obf=FILE_OR_DIR [-input=FILE] [-output=FILE] [-threads=N] [-results=N]"
+				+ " [-radiusLevel=N] [-lang=LANG] [-location=lat;lon]");
+	}
+
+	public static void main(String[] args) throws IOException {
+		String obf = null;
+		String input = null;
+		String output = null;
+		String lang = "en";
+		int threads = Runtime.getRuntime().availableProcessors();
+		int results = 1;
+		int radiusLevel = 1;
+		LatLon location = null;
+		for (String a : args) {
+			if (a.startsWith("-obf=")) {
+				obf = a.substring("-obf=".length());
+			} else if (a.startsWith("-input=")) {
+				input = a.substring("-input=".length());
+			} else if (a.startsWith("-output=")) {
+				output = a.substring("-output=".length());
+			} else if (a.startsWith("-threads=")) {
+				threads = Integer.parseInt(a.substring("-threads=".length()));
+			} else if (a.startsWith("-results=")) {
+				results = Integer.parseInt(a.substring("-results=".length()));
+			} else if (a.startsWith("-radiusLevel=")) {
+				radiusLevel = Integer.parseInt(a.substring("-radiusLevel=".length()));
+			} else if (a.startsWith("-lang=")) {
+				lang = a.substring("-lang=".length());
+			} else if (a.startsWith("-location=")) {
+				String[] pt = a.substring("-location=".length()).split(";");
+				location = new LatLon(Double.parseDouble(pt[0]), Double.parseDouble(pt[1]));
+			}
+		}
+		if (obf == null) {
+			info();
+			return;
+		}
+		List<BinaryMapIndexReader> files = openFiles(new File(obf));
+		BatchGeocoder geocoder = new BatchGeocoder(MapPoiTypes.getDefault(), files, lang, threads);
+		geocoder.setMaxResults(results);
+		geocoder.setRadiusLevel(radiusLevel);
+		geocoder.setDefaultLocation(location);
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				input == null ? System.in : new FileInputStream(input), "UTF-8"));
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				output == null ? System.out : new FileOutputStream(output), "UTF-8"));
+		try {
+			geocoder.geocode(in, out);
+		} finally {
+			in.close();
+			out.close();
+			for (BinaryMapIndexReader r : files) {
+				r.close();
+			}
+		}
+	}
+}
@@ -20,6 +20,8 @@ import net.osmand.search.core.SearchCoreFactory.SearchAmenityTypesAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchStreetByCityAPI;
 import net.osmand.search.core.SearchExportSettings;
+import net.osmand.search.core.SearchMetrics;
+import net.osmand.search.core.SearchMetrics.SearchMetricsListener;
 import net.osmand.search.core.SearchPhrase;
 import net.osmand.search.core.SearchPhrase.NameStringMatcher;
 import net.osmand.search.core.SearchResult;
@@ -32,16 +34,27 @@ import org.apache.commons.logging.Log;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import gnu.trove.map.hash.TLongObjectHashMap;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -51,18 +64,27 @@ public class SearchUICore {
 	private static final int TIMEOUT_BETWEEN_CHARS = 700;
 	private static final int TIMEOUT_BEFORE_SEARCH = 50;
 	private static final int TIMEOUT_BEFORE_FILTER = 20;
+	private static final int PARALLEL_KEEP_ALIVE_SECONDS = 60;
+	private static final String ADDRESS_API_GROUP = "address";
+	private static final String POI_TYPES_API_GROUP = "poi_types";
 	private static final Log LOG = PlatformUtil.getLog(SearchUICore.class);
 	private SearchPhrase phrase;
 	private SearchResultCollection  currentSearchResult;
 
 	private ThreadPoolExecutor singleThreadedExecutor;
+	// replaced by cancel from ui thread and read by search thread
+	private volatile ThreadPoolExecutor parallelExecutor;
+	private int parallelThreads;
 	private LinkedBlockingQueue<Runnable> taskQueue;
 	private Runnable onSearchStart = null;
 	private Runnable onResultsComplete = null;
+	private SearchMetricsListener metricsListener = null;
 	private AtomicInteger requestNumber = new AtomicInteger();
 	private int totalLimit = -1; // -1 unlimited - not used
 
 	List<SearchCoreAPI> apis = new ArrayList<>();
+	// apis of one group share state and are never executed concurrently
+	private Map<SearchCoreAPI, String> apiGroups = new HashMap<>();
 	private SearchSettings searchSettings;
 	private MapPoiTypes poiTypes;
 
@@ -89,7 +111,10 @@ public class SearchUICore {
 	public static class SearchResultCollection {
 		private List<SearchResult> searchResults;
 		private SearchPhrase phrase;
-		private static final int DEPTH_TO_CHECK_SAME_SEARCH_RESULTS = 20;
+		private DuplicatesIndex duplicatesIndex = new DuplicatesIndex();
+		private int maxResults = -1;
+		// results are in order of SearchResultComparator (required to merge sorted results)
+		private boolean sorted = true;
 
 		public SearchResultCollection(SearchPhrase phrase) {
 			searchResults = new ArrayList<>();
@@ -98,66 +123,45 @@ public class SearchUICore {
 
 		public SearchResultCollection combineWithCollection(SearchResultCollection collection, boolean resort, boolean removeDuplicates) {
 			SearchResultCollection src = new SearchResultCollection(phrase);
+			src.maxResults = maxResults;
 			src.addSearchResults(searchResults, false, false);
 			src.addSearchResults(collection.searchResults, resort, removeDuplicates);
 			return src;
 		}
 
+		public int getMaxResults() {
+			return maxResults;
+		}
+
+		/**
+		 * Keeps only top results (sorted results are cut, not sorted results are not added after limit)
+		 * @param maxResults -1 unlimited
+		 */
+		public void setMaxResults(int maxResults) {
+			this.maxResults = maxResults;
+		}
+
 		public SearchResultCollection addSearchResults(List<SearchResult> sr, boolean resortAll, boolean removeDuplicates) {
 			if (SearchUICore.isDebugMode()) {
 				LOG.info("Add search results resortAll=" + (resortAll ? "true" : "false") + " removeDuplicates=" + (removeDuplicates ? "true" : "false") + " Results=" + sr.size() + " Current results=" + this.searchResults.size());
 			}
 			if (resortAll) {
-				this.searchResults.addAll(sr);
-				sortSearchResults();
-				if (removeDuplicates) {
-					filterSearchDuplicateResults();
+				ArrayList<SearchResult> addedResults = new ArrayList<>(sr);
+				SearchResultComparator cmp = new SearchResultComparator(phrase);
+				Collections.sort(addedResults, cmp);
+				mergeSearchResults(addedResults, cmp, removeDuplicates);
+			} else if (!removeDuplicates) {
+				SearchResultComparator cmp = new SearchResultComparator(phrase);
+				for (SearchResult r : sr) {
+					appendSearchResult(r, cmp);
 				}
 			} else {
-				if (!removeDuplicates) {
-					this.searchResults.addAll(sr);
-				} else {
-					ArrayList<SearchResult> addedResults = new ArrayList<>(sr);
-					SearchResultComparator cmp = new SearchResultComparator(phrase);
-					Collections.sort(addedResults, cmp);
-					filterSearchDuplicateResults(addedResults);
-					int i = 0;
-					int j = 0;
-					while (j < addedResults.size()) {
-						SearchResult addedResult = addedResults.get(j);
-						if (i >= searchResults.size()) {
-							int k = 0;
-							boolean same = false;
-							while (searchResults.size() > k && k < DEPTH_TO_CHECK_SAME_SEARCH_RESULTS) {
-								if (sameSearchResult(addedResult, searchResults.get(searchResults.size() - k - 1))) {
-									same = true;
-									break;
-								}
-								k++;
-							}
-							if (!same) {
-								searchResults.add(addedResult);
-							}
-							j++;
-							continue;
-						}
-						SearchResult existingResult = searchResults.get(i);
-						if (sameSearchResult(addedResult, existingResult)) {
-							j++;
-							continue;
-						}
-						int compare = cmp.compare(existingResult, addedResult);
-						if (compare == 0) {
-							// existingResult == addedResult
-							j++;
-						} else if (compare > 0) {
-							// existingResult > addedResult
-							this.searchResults.add(addedResults.get(j));
-							j++;
-						} else {
-							// existingResult < addedResult
-							i++;
-						}
+				ArrayList<SearchResult> addedResults = new ArrayList<>(sr);
+				SearchResultComparator cmp = new SearchResultComparator(phrase);
+				Collections.sort(addedResults, cmp);
+				for (SearchResult r : addedResults) {
+					if (duplicatesIndex.getSameResults(r).isEmpty()) {
+						appendSearchResult(r, cmp);
 					}
 				}
 			}
@@ -167,6 +171,74 @@ public class SearchUICore {
 			return this;
 		}
 
+		private void appendSearchResult(SearchResult r, SearchResultComparator cmp) {
+			if (maxResults == -1 || searchResults.size() < maxResults) {
+				if (sorted && !searchResults.isEmpty() && cmp.compare(searchResults.get(searchResults.size() - 1), r) > 0) {
+					sorted = false;
+				}
+				searchResults.add(r);
+				duplicatesIndex.add(r);
+			}
+		}
+
+		// sorted results are merged with current sorted results, from duplicates the best result is kept
+		private void mergeSearchResults(List<SearchResult> addedResults, SearchResultComparator cmp, boolean removeDuplicates) {
+			if (!sorted) {
+				// results were appended not in order
+				Collections.sort(searchResults, cmp);
+				sorted = true;
+			}
+			Set<SearchResult> replaced = Collections.newSetFromMap(new IdentityHashMap<SearchResult, Boolean>());
+			List<SearchResult> accepted = new ArrayList<>(addedResults.size());
+			for (SearchResult r : addedResults) {
+				if (removeDuplicates) {
+					List<SearchResult> same = duplicatesIndex.getSameResults(r);
+					boolean worse = false;
+					for (SearchResult s : same) {
+						if (cmp.compare(s, r) <= 0) {
+							worse = true;
+							break;
+						}
+					}
+					if (worse) {
+						continue;
+					}
+					for (SearchResult s : same) {
+						duplicatesIndex.remove(s);
+						replaced.add(s);
+					}
+				}
+				duplicatesIndex.add(r);
+				accepted.add(r);
+			}
+			int size = searchResults.size() + accepted.size() - replaced.size();
+			if (maxResults != -1) {
+				size = Math.min(size, maxResults);
+			}
+			List<SearchResult> merged = new ArrayList<>(size);
+			int i = 0;
+			int j = 0;
+			while (i < searchResults.size() || j < accepted.size()) {
+				SearchResult next;
+				if (i < searchResults.size() && replaced.contains(searchResults.get(i))) {
+					i++;
+					continue;
+				} else if (j >= accepted.size()) {
+					next = searchResults.get(i++);
+				} else if (i >= searchResults.size() || cmp.compare(searchResults.get(i), accepted.get(j)) > 0) {
+					next = accepted.get(j++);
+				} else {
+					next = searchResults.get(i++);
+				}
+				if (merged.size() < size) {
+					merged.add(next);
+				} else {
+					duplicatesIndex.remove(next);
+				}
+			}
+			searchResults = merged;
+		}
+
 		public List<SearchResult> getCurrentSearchResults() {
 			return Collections.unmodifiableList(searchResults);
 		}
@@ -180,6 +252,7 @@ public class SearchUICore {
 				LOG.info("Sorting search results <" + phrase + "> Results=" + searchResults.size());
 			}
 			Collections.sort(searchResults, new SearchResultComparator(phrase));
+			sorted = true;
 			if (debugMode) {
 				LOG.info("Search results sorted <" + phrase + ">");
 			}
@@ -189,30 +262,156 @@ public class SearchUICore {
 			if (debugMode) {
 				LOG.info("Filter duplicate results <" + phrase + "> Results=" + searchResults.size());
 			}
-			filterSearchDuplicateResults(searchResults);
+			duplicatesIndex = new DuplicatesIndex();
+			Iterator<SearchResult> it = searchResults.iterator();
+			while (it.hasNext()) {
+				SearchResult r = it.next();
+				if (duplicatesIndex.getSameResults(r).isEmpty()) {
+					duplicatesIndex.add(r);
+				} else {
+					it.remove();
+				}
+			}
 			if (debugMode) {
 				LOG.info("Duplicate results filtered <" + phrase + "> Results=" + searchResults.size());
 			}
 		}
 
-		private void filterSearchDuplicateResults(List<SearchResult> lst) {
-			ListIterator<SearchResult> it = lst.listIterator();
-			LinkedList<SearchResult> lstUnique = new LinkedList<SearchResult>();
-			while (it.hasNext()) {
-				SearchResult r = it.next();
-				boolean same = false;
-				for (SearchResult rs : lstUnique) {
-					same = sameSearchResult(rs, r);
-					if (same) {
-						break;
+		/**
+		 * Finds candidates for sameSearchResult without comparing with all results:
+		 * by object, by street location and by name in tiles around result.
+		 */
+		private class DuplicatesIndex {
+			// tile (~10 km) is larger than similarity radius of same names except wide one
+			private static final int TILE_ZOOM = 12;
+
+			private Map<Object, List<SearchResult>> byObject = new IdentityHashMap<>();
+			private Map<LatLon, List<SearchResult>> byStreetLocation = new HashMap<>();
+			private Map<String, TLongObjectHashMap<List<SearchResult>>> byName = new HashMap<>();
+
+			void add(SearchResult r) {
+				if (r.object != null) {
+					put(byObject, r.object, r);
+				}
+				LatLon streetLocation = getStreetLocation(r);
+				if (streetLocation != null) {
+					put(byStreetLocation, streetLocation, r);
+				}
+				if (isIndexedByName(r)) {
+					TLongObjectHashMap<List<SearchResult>> tiles = byName.get(r.localeName);
+					if (tiles == null) {
+						tiles = new TLongObjectHashMap<>();
+						byName.put(r.localeName, tiles);
+					}
+					long tile = getTile(r.location, 0, 0);
+					List<SearchResult> l = tiles.get(tile);
+					if (l == null) {
+						l = new ArrayList<>(1);
+						tiles.put(tile, l);
 					}
+					l.add(r);
 				}
-				if (same) {
-					it.remove();
-				} else {
-					lstUnique.add(r);
-					if (lstUnique.size() > DEPTH_TO_CHECK_SAME_SEARCH_RESULTS) {
-						lstUnique.remove(0);
+			}
+
+			void remove(SearchResult r) {
+				if (r.object != null) {
+					removeFrom(byObject.get(r.object), r);
+				}
+				LatLon streetLocation = getStreetLocation(r);
+				if (streetLocation != null) {
+					removeFrom(byStreetLocation.get(streetLocation), r);
+				}
+				if (isIndexedByName(r)) {
+					TLongObjectHashMap<List<SearchResult>> tiles = byName.get(r.localeName);
+					if (tiles != null) {
+						removeFrom(tiles.get(getTile(r.location, 0, 0)), r);
+					}
+				}
+			}
+
+			List<SearchResult> getSameResults(SearchResult r) {
+				List<SearchResult> res = new ArrayList<>(0);
+				if (r.object != null) {
+					collectSame(byObject.get(r.object), r, res);
+				}
+				LatLon streetLocation = getStreetLocation(r);
+				if (streetLocation != null) {
+					collectSame(byStreetLocation.get(streetLocation), r, res);
+				}
+				if (isIndexedByName(r)) {
+					TLongObjectHashMap<List<SearchResult>> tiles = byName.get(r.localeName);
+					if (tiles != null) {
+						if (isWideSimilarity(r)) {
+							for (List<SearchResult> l : tiles.valueCollection()) {
+								collectSame(l, r, res);
+							}
+						} else {
+							for (int dx = -1; dx <= 1; dx++) {
+								for (int dy = -1; dy <= 1; dy++) {
+									collectSame(tiles.get(getTile(r.location, dx, dy)), r, res);
+								}
+							}
+						}
+					}
+				}
+				return res;
+			}
+
+			private void collectSame(List<SearchResult> candidates, SearchResult r, List<SearchResult> res) {
+				if (candidates != null) {
+					for (SearchResult c : candidates) {
+						if (c != r && !res.contains(c) && sameSearchResult(c, r)) {
+							res.add(c);
+						}
+					}
+				}
+			}
+
+			private boolean isIndexedByName(SearchResult r) {
+				return r.location != null && r.localeName != null && !ObjectType.isTopVisible(r.objectType);
+			}
+
+			private LatLon getStreetLocation(SearchResult r) {
+				if (r.location != null && r.objectType == ObjectType.STREET && r.object instanceof Street
+						&& !ObjectType.isTopVisible(r.objectType)) {
+					return ((Street) r.object).getLocation();
+				}
+				return null;
+			}
+
+			// see similarity radius in sameSearchResult
+			private boolean isWideSimilarity(SearchResult r) {
+				if (r.object instanceof Amenity) {
+					Amenity a = (Amenity) r.object;
+					String subType = a.getSubType();
+					return "natural".equals(a.getType().getKeyName()) || (subType != null && (subType.contains("cn_ref")
+							|| subType.contains("wn_ref") || (subType.startsWith("route_hiking_") && subType.endsWith("n_poi"))));
+				}
+				return false;
+			}
+
+			private long getTile(LatLon l, int dx, int dy) {
+				long x = (MapUtils.get31TileNumberX(l.getLongitude()) >> (31 - TILE_ZOOM)) + dx;
+				long y = (MapUtils.get31TileNumberY(l.getLatitude()) >> (31 - TILE_ZOOM)) + dy;
+				return (x << 32) | (y & 0xffffffffL);
+			}
+
+			private <K> void put(Map<K, List<SearchResult>> map, K key, SearchResult r) {
+				List<SearchResult> l = map.get(key);
+				if (l == null) {
+					l = new ArrayList<>(1);
+					map.put(key, l);
+				}
+				l.add(r);
+			}
+
+			private void removeFrom(List<SearchResult> l, SearchResult r) {
+				if (l != null) {
+					for (int i = 0; i < l.size(); i++) {
+						if (l.get(i) == r) {
+							l.remove(i);
+							break;
+						}
 					}
 				}
 			}
@@ -326,14 +525,21 @@ public class SearchUICore {
 		apis.add(new SearchCoreFactory.SearchLocationAndUrlAPI());
 		SearchAmenityTypesAPI searchAmenityTypesAPI = new SearchAmenityTypesAPI(poiTypes);
 		apis.add(searchAmenityTypesAPI);
-		apis.add(new SearchAmenityByTypeAPI(poiTypes, searchAmenityTypesAPI));
+		SearchAmenityByTypeAPI amenityByTypeApi = new SearchAmenityByTypeAPI(poiTypes, searchAmenityTypesAPI);
+		apis.add(amenityByTypeApi);
+		apiGroups.put(searchAmenityTypesAPI, POI_TYPES_API_GROUP);
+		apiGroups.put(amenityByTypeApi, POI_TYPES_API_GROUP);
 		apis.add(new SearchCoreFactory.SearchAmenityByNameAPI());
 		SearchBuildingAndIntersectionsByStreetAPI streetsApi =
 				new SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI();
 		apis.add(streetsApi);
 		SearchStreetByCityAPI cityApi = new SearchCoreFactory.SearchStreetByCityAPI(streetsApi);
 		apis.add(cityApi);
-		apis.add(new SearchCoreFactory.SearchAddressByNameAPI(streetsApi, cityApi));
+		SearchCoreFactory.SearchAddressByNameAPI addressApi = new SearchCoreFactory.SearchAddressByNameAPI(streetsApi, cityApi);
+		apis.add(addressApi);
+		apiGroups.put(streetsApi, ADDRESS_API_GROUP);
+		apiGroups.put(cityApi, ADDRESS_API_GROUP);
+		apiGroups.put(addressApi, ADDRESS_API_GROUP);
 	}
 
 	public void clearCustomSearchPoiFilters() {
@@ -364,6 +570,49 @@ public class SearchUICore {
 		apis.add(api);
 	}
 
+	/**
+	 * Runs search apis and regions of offline indexes concurrently, results are still
+	 * published in the order of api priority and region order.
+	 * @param threads number of worker threads, 0 or 1 - search is executed on one thread
+	 */
+	public synchronized void setParallelSearch(int threads) {
+		parallelThreads = threads;
+		ThreadPoolExecutor prev = parallelExecutor;
+		ThreadPoolExecutor executor = null;
+		if (threads > 1) {
+			executor = new ThreadPoolExecutor(threads, threads, PARALLEL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>());
+			executor.allowCoreThreadTimeOut(true);
+		}
+		parallelExecutor = executor;
+		if (prev != null) {
+			prev.shutdown();
+		}
+	}
+
+	public boolean isParallelSearch() {
+		return parallelExecutor != null;
+	}
+
+	/**
+	 * Cancels running search. Its workers finish in background, next search uses new worker threads.
+	 */
+	public synchronized void cancelSearch() {
+		requestNumber.incrementAndGet();
+		if (parallelExecutor != null) {
+			setParallelSearch(parallelThreads);
+		}
+	}
+
+	/**
+	 * Cancels running search and stops search threads, search can't be started after shutdown.
+	 */
+	public synchronized void shutdown() {
+		requestNumber.incrementAndGet();
+		singleThreadedExecutor.shutdown();
+		setParallelSearch(0);
+	}
+
 
 	public SearchResultCollection getCurrentSearchResult() {
 		return currentSearchResult;
@@ -377,6 +626,13 @@ public class SearchUICore {
 		this.onSearchStart = onSearchStart;
 	}
 
+	/**
+	 * Listener is notified with metrics of every finished or cancelled search (on search thread)
+	 */
+	public void setSearchMetricsListener(SearchMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+	}
+
 	public void setOnResultsComplete(Runnable onResultsComplete) {
 		this.onResultsComplete = onResultsComplete;
 	}
@@ -444,6 +700,10 @@ public class SearchUICore {
 						onSearchStart.run();
 					}
 					final SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request, requestNumber, totalLimit);
+					rm.setExecutor(parallelExecutor);
+					if (metricsListener != null || debugMode) {
+						rm.setMetrics(new SearchMetrics(phrase.toString(), phrase.getSettings().getOfflineIndexes()));
+					}
 					if (debugMode) {
 						LOG.info("Starting search <" + phrase.toString() + ">");
 					}
@@ -469,13 +729,14 @@ public class SearchUICore {
 
 							if (!filtered) {
 								final SearchResultCollection quickRes = new SearchResultCollection(phrase);
+								final SearchResultComparator cmp = new SearchResultComparator(phrase);
 								if (debugMode) {
 									LOG.info("Filtering current data <" + phrase + "> Results=" + currentSearchResult.searchResults.size());
 								}
 								filterCurrentResults(phrase, new ResultMatcher<SearchResult>() {
 									@Override
 									public boolean publish(SearchResult object) {
-										quickRes.searchResults.add(object);
+										quickRes.appendSearchResult(object, cmp);
 										return true;
 									}
 
@@ -515,6 +776,8 @@ public class SearchUICore {
 							LOG.info("Finishing search <" + phrase + "> Results=" + rm.getRequestResults().size());
 						}
 						currentSearchResult = collection;
+						publishMetrics(rm.getMetrics(), rm.getRequestResults().size(),
+								collection.getCurrentSearchResults().size(), false);
 						if (phrase.getSettings().isExportObjects()) {
 							rm.createTestJSON(collection);
 						}
@@ -526,6 +789,7 @@ public class SearchUICore {
 							LOG.info("Search finished <" + phrase + "> Results=" + rm.getRequestResults().size());
 						}
 					} else {
+						publishMetrics(rm.getMetrics(), rm.getRequestResults().size(), 0, true);
 						if (debugMode) {
 							LOG.info("Search cancelled <" + phrase + ">");
 						}
@@ -603,6 +867,10 @@ public class SearchUICore {
 						o2.getSearchPriority(phrase));
 			}
 		});
+		if (matcher.isParallel()) {
+			searchApisInParallel(phrase, lst, matcher);
+			return;
+		}
 		for (SearchCoreAPI api : lst) {
 			if (matcher.isCancelled()) {
 				break;
@@ -610,22 +878,91 @@ public class SearchUICore {
 			if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
 				continue;
 			}
-			try {
-				if (debugMode) {
-					LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
-				}
-				api.search(phrase, matcher);
-				if (debugMode) {
-					LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
-				}
-				matcher.apiSearchFinished(api, phrase);
-				if (debugMode) {
-					LOG.info("API search done <" + phrase + "> API=<" + api + ">");
+			searchApi(phrase, api, matcher);
+		}
+	}
+
+	private void searchApisInParallel(final SearchPhrase phrase, List<SearchCoreAPI> lst, SearchResultMatcher matcher) {
+		List<ParallelSearchTask> tasks = new ArrayList<>();
+		List<Integer> runAfter = new ArrayList<>();
+		Map<String, Integer> lastGroupTask = new HashMap<>();
+		List<SearchCoreAPI> afterMerge = new ArrayList<>();
+		for (final SearchCoreAPI api : lst) {
+			int priority = api.getSearchPriority(phrase);
+			if (!api.isSearchAvailable(phrase) || priority == -1) {
+				continue;
+			}
+			if (priority == SearchCoreFactory.SEARCH_MAX_PRIORITY) {
+				// api uses results of all other apis (open location code with place name)
+				afterMerge.add(api);
+				continue;
+			}
+			String group = apiGroups.get(api);
+			Integer prev = group == null ? null : lastGroupTask.get(group);
+			runAfter.add(prev == null ? -1 : prev);
+			if (group != null) {
+				lastGroupTask.put(group, tasks.size());
+			}
+			tasks.add(new ParallelSearchTask() {
+				@Override
+				public void search(SearchResultMatcher resultMatcher) {
+					searchApi(phrase, api, resultMatcher);
 				}
-			} catch (Throwable e) {
-				e.printStackTrace();
-				LOG.error(e.getMessage(), e);
+			});
+		}
+		int[] order = new int[runAfter.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = runAfter.get(i);
+		}
+		try {
+			matcher.searchInParallel(tasks, order);
+		} catch (IOException e) {
+			LOG.error(e.getMessage(), e);
+		}
+		for (SearchCoreAPI api : afterMerge) {
+			if (matcher.isCancelled()) {
+				break;
 			}
+			searchApi(phrase, api, matcher);
+		}
+	}
+
+	private void publishMetrics(SearchMetrics metrics, int results, int resultsAfterDedup, boolean cancelled) {
+		if (metrics == null) {
+			return;
+		}
+		metrics.searchFinished(results, resultsAfterDedup, cancelled);
+		if (debugMode) {
+			LOG.info("Search metrics " + metrics.toJSON());
+		}
+		SearchMetricsListener listener = metricsListener;
+		if (listener != null) {
+			listener.searchMetricsCollected(metrics);
+		}
+	}
+
+	void searchApi(SearchPhrase phrase, SearchCoreAPI api, SearchResultMatcher matcher) {
+		try {
+			if (debugMode) {
+				LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
+			}
+			long startTime = System.nanoTime();
+			int startResults = matcher.apiSearchStarted();
+			api.search(phrase, matcher);
+			if (debugMode) {
+				LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+			}
+			if (matcher.getMetrics() != null) {
+				matcher.getMetrics().apiFinished(api, System.nanoTime() - startTime,
+						matcher.getPublishedCount() - startResults);
+			}
+			matcher.apiSearchFinished(api, phrase);
+			if (debugMode) {
+				LOG.info("API search done <" + phrase + "> API=<" + api + ">");
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+			LOG.error(e.getMessage(), e);
 		}
 	}
 
@@ -644,6 +981,23 @@ public class SearchUICore {
 		}
 	}
 
+	public interface ParallelSearchTask {
+
+		void search(SearchResultMatcher resultMatcher) throws IOException;
+	}
+
+	/**
+	 * Task which reads data on worker thread and publishes it on the thread of search in the order of tasks,
+	 * so state shared between regions (found ids, limits) is updated the same way as in serial search.
+	 */
+	public interface MergedSearchTask extends ParallelSearchTask {
+
+		/**
+		 * Called after results buffered by {@link #search(SearchResultMatcher)} are merged
+		 */
+		void merge(SearchResultMatcher resultMatcher) throws IOException;
+	}
+
 	public static class SearchResultMatcher implements ResultMatcher<SearchResult>{
 		private final List<SearchResult> requestResults = new ArrayList<>();
 		private final ResultMatcher<SearchResult> matcher;
@@ -655,6 +1009,15 @@ public class SearchUICore {
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		// parallel search: results of worker are buffered and merged into owner in order of tasks
+		private final SearchResultMatcher owner;
+		private final List<SearchResult> bufferedResults;
+		private Executor executor;
+		private SearchMetrics metrics;
+		// results published by this matcher (including merged buffers) and start of current region
+		private int publishedCount;
+		private int regionStartResults;
+		private long regionStartTime;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
@@ -663,6 +1026,180 @@ public class SearchUICore {
 			this.request = request;
 			this.requestNumber = requestNumber;
 			this.totalLimit = totalLimit;
+			this.owner = null;
+			this.bufferedResults = null;
+		}
+
+		private SearchResultMatcher(SearchResultMatcher owner) {
+			this.matcher = null;
+			this.phrase = owner.phrase;
+			this.request = owner.request;
+			this.requestNumber = owner.requestNumber;
+			this.totalLimit = -1;
+			this.parentSearchResult = owner.parentSearchResult;
+			this.executor = owner.executor;
+			this.metrics = owner.metrics;
+			this.owner = owner;
+			this.bufferedResults = new ArrayList<>();
+			this.regionStartTime = System.nanoTime();
+		}
+
+		void setExecutor(Executor executor) {
+			this.executor = executor;
+		}
+
+		void setMetrics(SearchMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		/**
+		 * @return metrics of the search or null if they are not collected
+		 */
+		public SearchMetrics getMetrics() {
+			return metrics;
+		}
+
+		int getPublishedCount() {
+			return publishedCount;
+		}
+
+		/**
+		 * Marks start of the first region of api
+		 * @return number of results published so far
+		 */
+		int apiSearchStarted() {
+			regionStartTime = System.nanoTime();
+			regionStartResults = publishedCount;
+			return publishedCount;
+		}
+
+		public boolean isParallel() {
+			return executor != null;
+		}
+
+		/**
+		 * Executes tasks on worker threads in parallel mode or one by one otherwise.
+		 * Each task publishes into its own buffer which is merged in the order of tasks,
+		 * {@link MergedSearchTask#merge(SearchResultMatcher)} is called after buffer of task is merged.
+		 */
+		public void searchInParallel(List<? extends ParallelSearchTask> tasks) throws IOException {
+			searchInParallel(tasks, null);
+		}
+
+		/**
+		 * @param runAfter index of the task which should be finished before task is started or -1
+		 */
+		void searchInParallel(List<? extends ParallelSearchTask> tasks, int[] runAfter) throws IOException {
+			if (executor == null) {
+				for (ParallelSearchTask task : tasks) {
+					if (isCancelled()) {
+						break;
+					}
+					task.search(this);
+					if (task instanceof MergedSearchTask) {
+						((MergedSearchTask) task).merge(this);
+					}
+				}
+				return;
+			}
+			final List<FutureTask<SearchResultMatcher>> futures = new ArrayList<>();
+			for (int i = 0; i < tasks.size(); i++) {
+				final ParallelSearchTask task = tasks.get(i);
+				final int prev = runAfter == null ? -1 : runAfter[i];
+				futures.add(new FutureTask<>(new Callable<SearchResultMatcher>() {
+					@Override
+					public SearchResultMatcher call() throws Exception {
+						if (prev >= 0) {
+							waitFor(futures.get(prev));
+						}
+						SearchResultMatcher buffer = new SearchResultMatcher(SearchResultMatcher.this);
+						if (!buffer.isCancelled()) {
+							task.search(buffer);
+						}
+						return buffer;
+					}
+				}));
+			}
+			try {
+				try {
+					for (FutureTask<SearchResultMatcher> f : futures) {
+						executor.execute(f);
+					}
+				} catch (RejectedExecutionException e) {
+					// executor is shut down by cancel, tasks not started are executed by waiting thread
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					if (isCancelled()) {
+						break;
+					}
+					SearchResultMatcher buffer = waitFor(futures.get(i));
+					if (buffer != null) {
+						merge(buffer);
+						if (tasks.get(i) instanceof MergedSearchTask && !isCancelled()) {
+							((MergedSearchTask) tasks.get(i)).merge(this);
+						}
+					}
+				}
+			} finally {
+				// don't interrupt running tasks: interrupted file channel is closed
+				for (FutureTask<SearchResultMatcher> f : futures) {
+					f.cancel(false);
+				}
+			}
+		}
+
+		private static SearchResultMatcher waitFor(FutureTask<SearchResultMatcher> f) throws IOException {
+			// task not taken by workers yet is executed by the waiting thread, so pool can't be exhausted by waiting tasks
+			f.run();
+			try {
+				return f.get();
+			} catch (CancellationException e) {
+				return null;
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException(e.getMessage());
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+
+		private void merge(SearchResultMatcher buffer) {
+			for (SearchResult sr : buffer.bufferedResults) {
+				if (sr.objectType == ObjectType.SEARCH_API_FINISHED
+						|| sr.objectType == ObjectType.SEARCH_API_REGION_FINISHED) {
+					publishEvent(sr);
+				} else {
+					publishResult(sr);
+				}
+			}
+			buffer.bufferedResults.clear();
+			if (buffer.exportedObjects != null) {
+				if (exportedObjects == null) {
+					exportedObjects = new ArrayList<>();
+				}
+				exportedObjects.addAll(buffer.exportedObjects);
+			}
+			if (buffer.exportedCities != null) {
+				if (exportedCities == null) {
+					exportedCities = new ArrayList<>();
+				}
+				exportedCities.addAll(buffer.exportedCities);
+			}
+		}
+
+		private void publishEvent(SearchResult sr) {
+			if (bufferedResults != null) {
+				bufferedResults.add(sr);
+			} else if (matcher != null) {
+				matcher.publish(sr);
+			}
 		}
 
 		public SearchResult setParentSearchResult(SearchResult parentSearchResult) {
@@ -683,6 +1220,13 @@ public class SearchUICore {
 			return requestResults.size();
 		}
 
+		/**
+		 * @return limit of results set by ui, -1 if results are not limited
+		 */
+		public int getTotalLimit() {
+			return owner != null ? owner.getTotalLimit() : totalLimit;
+		}
+
 		public void searchStarted(SearchPhrase phrase) {
 			if (matcher != null) {
 				SearchResult sr = new SearchResult(phrase);
@@ -708,27 +1252,34 @@ public class SearchUICore {
 		}
 
 		public void apiSearchFinished(SearchCoreAPI api, SearchPhrase phrase) {
-			if (matcher != null) {
+			if (matcher != null || bufferedResults != null) {
 				SearchResult sr = new SearchResult(phrase);
 				sr.objectType = ObjectType.SEARCH_API_FINISHED;
 				sr.object = api;
 				sr.parentSearchResult = parentSearchResult;
-				matcher.publish(sr);
+				publishEvent(sr);
 			}
 		}
 
 		public void apiSearchRegionFinished(SearchCoreAPI api, BinaryMapIndexReader region, SearchPhrase phrase) {
-			if(matcher != null) {
+			if (matcher != null || bufferedResults != null) {
 				SearchResult sr = new SearchResult(phrase);
 				sr.objectType = ObjectType.SEARCH_API_REGION_FINISHED;
 				sr.object = api;
 				sr.parentSearchResult = parentSearchResult;
 				sr.file = region;
-				matcher.publish(sr);
+				publishEvent(sr);
 				if (debugMode) {
 					LOG.info("API region search done <" + phrase + "> API=<" + api + "> Region=<" + region.getFile().getName() + ">");
 				}
 			}
+			if (metrics != null) {
+				// region time is counted from the previous region of this matcher or start of api (task)
+				long time = System.nanoTime();
+				metrics.regionFinished(api, region, time - regionStartTime, publishedCount - regionStartResults);
+				regionStartTime = time;
+				regionStartResults = publishedCount;
+			}
 		}
 
 		@Override
@@ -754,7 +1305,23 @@ public class SearchUICore {
 				object.alternateName = null;
 			}
 			object.parentSearchResult = parentSearchResult;
+			return publishResult(object);
+		}
+
+		private boolean publishResult(SearchResult object) {
+			publishedCount++;
+			if (bufferedResults != null) {
+				bufferedResults.add(object);
+				// first result is found by worker, not when buffers are merged
+				if (metrics != null && publishedCount == 1) {
+					metrics.resultPublished();
+				}
+				return true;
+			}
 			if (matcher == null || matcher.publish(object)) {
+				if (metrics != null && count == 0) {
+					metrics.resultPublished();
+				}
 				count++;
 				if (totalLimit == -1 || count < totalLimit) {
 					requestResults.add(object);
@@ -766,6 +1333,9 @@ public class SearchUICore {
 		
 		@Override
 		public boolean isCancelled() {
+			if (owner != null) {
+				return owner.isCancelled();
+			}
 			boolean cancelled = request != requestNumber.get();
 			return cancelled || (matcher != null && matcher.isCancelled());
 		}
@@ -0,0 +1,158 @@
+package net.osmand.search.core;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps objects read from the name index of a region for searched word.
+ * When the word is extended while typing (Berl -> Berli) objects are taken from the cached
+ * superset and filtered in memory by api matchers instead of reading the file again.
+ * Total number of cached objects is limited, least recently used entries are removed first.
+ * Entries of closed files are removed on next access.
+ * Objects which are modified by searches should be copied by {@link #copy(List)},
+ * so cached objects are never shared with results.
+ */
+public class NameIndexCache<T> {
+
+	public static final int DEFAULT_MAX_OBJECTS = 30000;
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+
+	private final int maxObjects;
+	private final int maxEntries;
+	// least recently used first
+	private final List<Entry<T>> entries = new ArrayList<>();
+	private int objectsCount;
+	private int hits;
+	private int misses;
+
+	private static class Entry<T> {
+		BinaryMapIndexReader file;
+		String area;
+		String word;
+		boolean prefix;
+		List<T> objects;
+	}
+
+	public NameIndexCache() {
+		this(DEFAULT_MAX_OBJECTS, DEFAULT_MAX_ENTRIES);
+	}
+
+	public NameIndexCache(int maxObjects, int maxEntries) {
+		this.maxObjects = maxObjects;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * @param area key of search area (bbox), results for different areas are not reused
+	 * @param prefix true if objects were found by word prefix and could be used for longer words
+	 * @return cached objects (superset of objects for the word) or null
+	 */
+	public synchronized List<T> get(BinaryMapIndexReader file, String area, String word, boolean prefix) {
+		word = normalize(word);
+		removeClosedFiles();
+		Entry<T> found = null;
+		for (Entry<T> e : entries) {
+			if (e.file != file || !equals(e.area, area)) {
+				continue;
+			}
+			// objects found by prefix contain objects for any longer word or exact match
+			boolean usable = e.prefix ? word.startsWith(e.word) : !prefix && e.word.equals(word);
+			if (usable) {
+				if (found == null || e.word.length() > found.word.length()) {
+					found = e;
+				}
+			}
+		}
+		if (found == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		entries.remove(found);
+		entries.add(found);
+		return copy(found.objects);
+	}
+
+	public synchronized void put(BinaryMapIndexReader file, String area, String word, boolean prefix, List<T> objects) {
+		removeClosedFiles();
+		if (objects.size() > maxObjects || file.isClosed()) {
+			return;
+		}
+		Entry<T> e = new Entry<>();
+		e.file = file;
+		e.area = area;
+		e.word = normalize(word);
+		e.prefix = prefix;
+		e.objects = copy(objects);
+		entries.add(e);
+		objectsCount += objects.size();
+		while (entries.size() > maxEntries || objectsCount > maxObjects) {
+			Entry<T> r = entries.remove(0);
+			objectsCount -= r.objects.size();
+		}
+	}
+
+	/**
+	 * Wraps matcher of a request so all objects published by the reader are collected.
+	 */
+	public ResultMatcher<T> collect(final ResultMatcher<T> matcher, final List<T> collected) {
+		return new ResultMatcher<T>() {
+
+			@Override
+			public boolean publish(T object) {
+				collected.add(object);
+				return matcher.publish(object);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return matcher.isCancelled();
+			}
+		};
+	}
+
+	/**
+	 * @return objects which could be given to search (objects are immutable by default)
+	 */
+	protected List<T> copy(List<T> objects) {
+		return objects;
+	}
+
+	private void removeClosedFiles() {
+		for (int i = entries.size() - 1; i >= 0; i--) {
+			Entry<T> e = entries.get(i);
+			if (e.file.isClosed()) {
+				entries.remove(i);
+				objectsCount -= e.objects.size();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		objectsCount = 0;
+	}
+
+	public synchronized int getObjectsCount() {
+		return objectsCount;
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	private static String normalize(String word) {
+		return word.trim().toLowerCase();
+	}
+
+	private static boolean equals(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
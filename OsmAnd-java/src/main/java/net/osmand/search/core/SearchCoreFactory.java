@@ -3,6 +3,7 @@ package net.osmand.search.core;
 
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.FuzzyStringMatcher;
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapAddressReaderAdapter;
 import net.osmand.binary.BinaryMapIndexReader;
@@ -15,6 +16,7 @@ import net.osmand.data.City;
 import net.osmand.data.City.CityType;
 import net.osmand.data.LatLon;
 import net.osmand.data.MapObject;
+import net.osmand.data.Postcode;
 import net.osmand.data.QuadRect;
 import net.osmand.data.QuadTree;
 import net.osmand.data.Street;
@@ -22,6 +24,8 @@ import net.osmand.osm.AbstractPoiType;
 import net.osmand.osm.MapPoiTypes;
 import net.osmand.osm.PoiCategory;
 import net.osmand.osm.PoiType;
+import net.osmand.search.SearchUICore.MergedSearchTask;
+import net.osmand.search.SearchUICore.ParallelSearchTask;
 import net.osmand.search.SearchUICore.SearchResultMatcher;
 import net.osmand.search.core.SearchPhrase.NameStringMatcher;
 import net.osmand.search.core.SearchPhrase.SearchPhraseDataType;
@@ -41,6 +45,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -49,6 +54,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class SearchCoreFactory {
@@ -84,6 +90,8 @@ public class SearchCoreFactory {
 	protected static final double SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE = 0.001;
 	protected static final double SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE = 0.005;
 
+	// reader is not thread safe, in parallel search every access to a reader is synchronized on it
+	// and no other reader is accessed while holding the lock
 	public static abstract class SearchBaseAPI implements SearchCoreAPI {
 
 		private ObjectType[] searchTypes;
@@ -216,6 +224,23 @@ public class SearchCoreFactory {
 
 		}
 
+		/**
+		 * @return number of typos allowed when nothing is found by exact name, 0 if fuzzy search is disabled
+		 */
+		protected int getFuzzySearchTypos(SearchPhrase phrase, String word) {
+			if (!phrase.getSettings().isFuzzySearch()) {
+				return 0;
+			}
+			return FuzzyStringMatcher.getMaxTypos(word.length());
+		}
+
+		protected String getCacheArea(QuadRect bbox) {
+			if (bbox == null) {
+				return null;
+			}
+			return (int) bbox.left + " " + (int) bbox.top + " " + (int) bbox.right + " " + (int) bbox.bottom;
+		}
+
 		@Override
 		public String toString() {
 			return getClass().getSimpleName();
@@ -273,6 +298,37 @@ public class SearchCoreFactory {
 		private QuadTree<City> townCitiesQR = new QuadTree<City>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
 				8, 0.55f);
 		private List<City> resArray = new ArrayList<>();
+		// buildings and streets are loaded into found streets and cities, so every search gets own copies
+		private NameIndexCache<MapObject> cache = new NameIndexCache<MapObject>() {
+			@Override
+			protected List<MapObject> copy(List<MapObject> objects) {
+				List<MapObject> res = new ArrayList<>(objects.size());
+				Map<City, City> cities = new IdentityHashMap<>();
+				for (MapObject o : objects) {
+					if (o instanceof Street) {
+						Street s = (Street) o;
+						res.add(s.copyWithoutBuildings(copyCity(s.getCity(), cities)));
+					} else if (o instanceof City) {
+						res.add(copyCity((City) o, cities));
+					} else {
+						res.add(o);
+					}
+				}
+				return res;
+			}
+
+			private City copyCity(City c, Map<City, City> cities) {
+				if (c == null) {
+					return null;
+				}
+				City copy = cities.get(c);
+				if (copy == null) {
+					copy = c.copyWithoutStreets();
+					cities.put(c, copy);
+				}
+				return copy;
+			}
+		};
 		private SearchStreetByCityAPI cityApi;
 		private SearchBuildingAndIntersectionsByStreetAPI streetsApi;
 
@@ -284,6 +340,10 @@ public class SearchCoreFactory {
 			this.cityApi = cityApi;
 		}
 
+		public NameIndexCache<MapObject> getCache() {
+			return cache;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (!p.isNoSelectedType() && p.getRadiusLevel() == 1) {
@@ -336,7 +396,10 @@ public class SearchCoreFactory {
 				BinaryMapIndexReader r = offlineIndexes.next();
 				if (!townCities.containsKey(r)) {
 					BinaryMapIndexReader.buildAddressRequest(null);
-					List<City> l = r.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+					List<City> l;
+					synchronized (r) {
+						l = r.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+					}
 					townCities.put(r, l);
 					for (City c  : l) {
 						LatLon cl = c.getLocation();
@@ -510,29 +573,80 @@ public class SearchCoreFactory {
 					};
 				}
 
-				Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(DEFAULT_ADDRESS_BBOX_RADIUS * 5,
-						SearchPhraseDataType.ADDRESS);
 				String wordToSearch = phrase.getUnknownWordToSearch();
-				while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
-					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					immediateResults.clear();
-					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
-							phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
-									: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
-					if (locSpecified) {
-						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
-								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
-					}
-					r.searchAddressDataByName(req);
-					for (SearchResult res : immediateResults) {
-						if (res.objectType == ObjectType.STREET) {
-							subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+				StringMatcherMode mode = phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
+						: StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+				boolean prefix = mode == StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+				String area = locSpecified ? loc.getLatitude() + " " + loc.getLongitude() + " "
+						+ phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5) : null;
+				List<MapObject> collected = new ArrayList<>();
+				int maxTypos = 0;
+				boolean found = false;
+				do {
+					boolean useCache = !phrase.getSettings().isExportObjects() && maxTypos == 0;
+					Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(DEFAULT_ADDRESS_BBOX_RADIUS * 5,
+							SearchPhraseDataType.ADDRESS);
+					while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
+						BinaryMapIndexReader r = offlineIterator.next();
+						currentFile[0] = r;
+						immediateResults.clear();
+						List<MapObject> cached = useCache ? cache.get(r, area, wordToSearch, prefix) : null;
+						if (cached != null) {
+							publishCachedObjects(r, cached, wordToSearch.toLowerCase(), mode, rm);
 						} else {
-							subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
+							collected.clear();
+							SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(cache.collect(rm, collected),
+									rawDataCollector, wordToSearch.toLowerCase(), mode);
+							req.setMaxTypos(maxTypos);
+							if (locSpecified) {
+								req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+										phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+							}
+							synchronized (r) {
+								r.searchAddressDataByName(req);
+							}
+							if (useCache && !rm.isCancelled()) {
+								cache.put(r, area, wordToSearch, prefix, new ArrayList<>(collected));
+							}
+						}
+						found |= !immediateResults.isEmpty();
+						for (SearchResult res : immediateResults) {
+							if (res.objectType == ObjectType.STREET) {
+								subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+							} else {
+								subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
+							}
+						}
+						resultMatcher.apiSearchRegionFinished(this, r, phrase);
+					}
+					// names with typos are searched only when nothing is found by exact name
+					maxTypos = found || maxTypos > 0 || rm.isCancelled() ? 0 : getFuzzySearchTypos(phrase, wordToSearch);
+				} while (maxTypos > 0);
+			}
+		}
+
+		// objects found by shorter word are filtered same way as by the reader
+		private void publishCachedObjects(BinaryMapIndexReader r, List<MapObject> cached, String word,
+										  StringMatcherMode mode, ResultMatcher<MapObject> rm) {
+			CollatorStringMatcher nameMatcher = new CollatorStringMatcher(word, mode);
+			CollatorStringMatcher postcodeMatcher = new CollatorStringMatcher(Postcode.normalize(word, r.getCountryName()), mode);
+			for (MapObject object : cached) {
+				if (rm.isCancelled()) {
+					break;
+				}
+				boolean postcode = object instanceof City && ((City) object).isPostcode();
+				CollatorStringMatcher m = postcode ? postcodeMatcher : nameMatcher;
+				boolean matches = m.matches(object.getName());
+				if (!matches) {
+					for (String n : object.getAllNames()) {
+						if (m.matches(n)) {
+							matches = true;
+							break;
 						}
 					}
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+				}
+				if (matches) {
+					rm.publish(object);
 				}
 			}
 		}
@@ -544,10 +658,16 @@ public class SearchCoreFactory {
 		private static final int BBOX_RADIUS_INSIDE = 10000 * 1000; // to support city search for basemap
 		private static final int FIRST_WORD_MIN_LENGTH = 3;
 
+		private NameIndexCache<Amenity> cache = new NameIndexCache<>();
+
 		public SearchAmenityByNameAPI() {
 			super(ObjectType.POI);
 		}
 
+		public NameIndexCache<Amenity> getCache() {
+			return cache;
+		}
+
 		@Override
 		public boolean search(final SearchPhrase phrase, final SearchResultMatcher resultMatcher) throws IOException {
 			if (!phrase.isUnknownSearchWordPresent()) {
@@ -559,33 +679,127 @@ public class SearchCoreFactory {
 			}
 			// Take into account POI [bar] - 'Hospital 512'
 			// BEFORE: it was searching exact match of whole phrase.getUnknownSearchPhrase() [ Check feedback ] 
+			AtomicInteger found = new AtomicInteger();
+			searchRegions(phrase, resultMatcher, 0, found);
+			int typos = getFuzzySearchTypos(phrase, phrase.getUnknownWordToSearch());
+			if (typos > 0 && found.get() == 0 && !resultMatcher.isCancelled()) {
+				searchRegions(phrase, resultMatcher, typos, found);
+			}
+			return true;
+		}
 
-			final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
+		private void searchRegions(final SearchPhrase phrase, SearchResultMatcher resultMatcher, final int maxTypos,
+								   final AtomicInteger found) throws IOException {
 			Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(BBOX_RADIUS,
 					SearchPhraseDataType.POI);
-			String searchWord = phrase.getUnknownWordToSearch();
-			final NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
-			QuadRect bbox = phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
-			final Set<String> ids = new HashSet<String>();
+			final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
+			final List<Amenity> collected = new ArrayList<>();
+			final SearchRequest<Amenity> req = buildRequest(phrase, resultMatcher, currentFile, collected, maxTypos, found);
+			if (resultMatcher.isParallel()) {
+				// regions are read concurrently, read amenities are published through one request in order of regions
+				// so limit and duplicates are checked as in serial search
+				List<ParallelSearchTask> tasks = new ArrayList<>();
+				while (offlineIterator.hasNext()) {
+					final BinaryMapIndexReader r = offlineIterator.next();
+					tasks.add(new MergedSearchTask() {
+						private List<Amenity> read = Collections.emptyList();
 
-			ResultMatcher<Amenity> rawDataCollector = null;
-			if (phrase.getSettings().isExportObjects()) {
-				rawDataCollector = new ResultMatcher<Amenity>() {
-					@Override
-					public boolean publish(Amenity object) {
-						resultMatcher.exportObject(phrase, object);
-						return true;
-					}
+						@Override
+						public void search(SearchResultMatcher regionMatcher) throws IOException {
+							read = readRegion(phrase, r, maxTypos, regionMatcher);
+						}
 
-					@Override
-					public boolean isCancelled() {
-						return false;
+						@Override
+						public void merge(SearchResultMatcher resultMatcher) {
+							currentFile[0] = r;
+							for (Amenity a : read) {
+								if (resultMatcher.isCancelled()) {
+									break;
+								}
+								req.publish(a);
+							}
+							collected.clear();
+							resultMatcher.apiSearchRegionFinished(SearchAmenityByNameAPI.this, r, phrase);
+						}
+					});
+				}
+				resultMatcher.searchInParallel(tasks);
+				return;
+			}
+			while (offlineIterator.hasNext()) {
+				BinaryMapIndexReader r = offlineIterator.next();
+				currentFile[0] = r;
+				searchRegion(phrase, r, req, collected, resultMatcher);
+			}
+		}
+
+		private void searchRegion(SearchPhrase phrase, BinaryMapIndexReader r, SearchRequest<Amenity> req,
+								  List<Amenity> collected, SearchResultMatcher resultMatcher) throws IOException {
+			String word = phrase.getUnknownWordToSearch();
+			String area = getCacheArea(phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE));
+			boolean useCache = !phrase.getSettings().isExportObjects() && req.getMaxTypos() == 0;
+			List<Amenity> cached = useCache ? cache.get(r, area, word, true) : null;
+			collected.clear();
+			if (cached != null) {
+				// found by shorter word, amenities are filtered by name matcher of request
+				for (Amenity a : cached) {
+					if (resultMatcher.isCancelled()) {
+						break;
 					}
-				};
+					req.publish(a);
+				}
+				// cached objects are collected again by request
+				collected.clear();
+			} else {
+				synchronized (r) {
+					r.searchPoiByName(req);
+				}
+				if (useCache && !resultMatcher.isCancelled()) {
+					cache.put(r, area, word, true, new ArrayList<>(collected));
+				}
 			}
-			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
-					(int) bbox.centerY(), searchWord, (int) bbox.left, (int) bbox.right, (int) bbox.top,
-					(int) bbox.bottom, new ResultMatcher<Amenity>() {
+			resultMatcher.apiSearchRegionFinished(this, r, phrase);
+		}
+
+		// amenities of region found by name index (not filtered by name matcher yet)
+		private List<Amenity> readRegion(SearchPhrase phrase, BinaryMapIndexReader r, int maxTypos,
+										 final SearchResultMatcher resultMatcher) throws IOException {
+			String word = phrase.getUnknownWordToSearch();
+			String area = getCacheArea(phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE));
+			boolean useCache = !phrase.getSettings().isExportObjects() && maxTypos == 0;
+			List<Amenity> cached = useCache ? cache.get(r, area, word, true) : null;
+			if (cached != null) {
+				return cached;
+			}
+			final List<Amenity> read = new ArrayList<>();
+			SearchRequest<Amenity> req = buildRequest(phrase, resultMatcher, new ResultMatcher<Amenity>() {
+				@Override
+				public boolean publish(Amenity object) {
+					read.add(object);
+					return false;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled();
+				}
+			}, maxTypos);
+			synchronized (r) {
+				r.searchPoiByName(req);
+			}
+			if (useCache && !resultMatcher.isCancelled()) {
+				cache.put(r, area, word, true, new ArrayList<>(read));
+			}
+			return read;
+		}
+
+		private SearchRequest<Amenity> buildRequest(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+													final BinaryMapIndexReader[] currentFile, List<Amenity> collected,
+													int maxTypos, final AtomicInteger found) {
+			final NameStringMatcher nm = maxTypos > 0 ? phrase.getMainUnknownNameStringMatcher(maxTypos)
+					: phrase.getMainUnknownNameStringMatcher();
+			final Set<String> ids = new HashSet<String>();
+			return buildRequest(phrase, resultMatcher, cache.collect(new ResultMatcher<Amenity>() {
 						int limit = 0;
 
 						@Override
@@ -622,6 +836,7 @@ public class SearchCoreFactory {
 							sr.objectType = ObjectType.POI;
 							resultMatcher.publish(sr);
 							ids.add(poiID);
+							found.incrementAndGet();
 							return false;
 						}
 
@@ -629,16 +844,33 @@ public class SearchCoreFactory {
 						public boolean isCancelled() {
 							return resultMatcher.isCancelled() && (limit < LIMIT);
 						}
-					}, rawDataCollector);
+					}, collected), maxTypos);
+		}
 
-			while (offlineIterator.hasNext()) {
-				BinaryMapIndexReader r = offlineIterator.next();
-				currentFile[0] = r;
-				r.searchPoiByName(req);
+		private SearchRequest<Amenity> buildRequest(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+													ResultMatcher<Amenity> matcher, int maxTypos) {
+			String searchWord = phrase.getUnknownWordToSearch();
+			QuadRect bbox = phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
+			ResultMatcher<Amenity> rawDataCollector = null;
+			if (phrase.getSettings().isExportObjects()) {
+				rawDataCollector = new ResultMatcher<Amenity>() {
+					@Override
+					public boolean publish(Amenity object) {
+						resultMatcher.exportObject(phrase, object);
+						return true;
+					}
 
-				resultMatcher.apiSearchRegionFinished(this, r, phrase);
+					@Override
+					public boolean isCancelled() {
+						return false;
+					}
+				};
 			}
-			return true;
+			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
+					(int) bbox.centerY(), searchWord, (int) bbox.left, (int) bbox.right, (int) bbox.top,
+					(int) bbox.bottom, matcher, rawDataCollector);
+			req.setMaxTypos(maxTypos);
+			return req;
 		}
 
 		@Override
@@ -713,22 +945,26 @@ public class SearchCoreFactory {
 
 		public Map<String, PoiTypeResult> getPoiTypeResults(NameStringMatcher nm, NameStringMatcher nmAdditional) {
 			Map<String, PoiTypeResult> results = new LinkedHashMap<>();
+			// only types found in the index of names are checked by matchers
+			Set<AbstractPoiType> candidates = types.getPoiTypesCandidates(nm.getMatcher());
+			Set<AbstractPoiType> additionalCandidates = nmAdditional == null ? null
+					: types.getPoiTypesCandidates(nmAdditional.getMatcher());
 			for (AbstractPoiType pf : topVisibleFilters) {
-				PoiTypeResult res = checkPoiType(nm, pf);
+				PoiTypeResult res = checkPoiType(nm, pf, candidates);
 				if(res != null) {
 					results.put(res.pt.getKeyName(), res);
 				}
 			}
 			if (nmAdditional != null) {
-				addAditonals(nmAdditional, results, types.getOtherMapCategory());
+				addAditonals(nmAdditional, results, types.getOtherMapCategory(), additionalCandidates);
 			}
 			for (PoiCategory c : categories) {
-				PoiTypeResult res = checkPoiType(nm, c);
+				PoiTypeResult res = checkPoiType(nm, c, candidates);
 				if(res != null) {
 					results.put(res.pt.getKeyName(), res);
 				}
 				if (nmAdditional != null) {
-					addAditonals(nmAdditional, results, c);
+					addAditonals(nmAdditional, results, c, additionalCandidates);
 				}
 			}
 			Iterator<Entry<String, PoiType>> it = translatedNames.entrySet().iterator();
@@ -736,19 +972,20 @@ public class SearchCoreFactory {
 				Entry<String, PoiType> e = it.next();
 				PoiType pt = e.getValue();
 				if (pt.getCategory() != types.getOtherMapCategory() && !pt.isReference()) {
-					PoiTypeResult res = checkPoiType(nm, pt);
+					PoiTypeResult res = checkPoiType(nm, pt, candidates);
 					if(res != null) {
 						results.put(res.pt.getKeyName(), res);
 					}
 					if (nmAdditional != null) {
-						addAditonals(nmAdditional, results, pt);
+						addAditonals(nmAdditional, results, pt, additionalCandidates);
 					}
 				}
 			}
 			return results;
 		}
 
-		private void addAditonals(NameStringMatcher nm, Map<String, PoiTypeResult> results, AbstractPoiType pt) {
+		private void addAditonals(NameStringMatcher nm, Map<String, PoiTypeResult> results, AbstractPoiType pt,
+								  Set<AbstractPoiType> candidates) {
 			List<PoiType> additionals = pt.getPoiAdditionals();
 			if (additionals != null) {
 				for (PoiType a : additionals) {
@@ -766,7 +1003,7 @@ public class SearchCoreFactory {
 						String enTranslation = a.getEnTranslation().toLowerCase();
 						if (!"no".equals(enTranslation) // && !"yes".equals(enTranslation)
 						) {
-							PoiTypeResult ptr = checkPoiType(nm, a);
+							PoiTypeResult ptr = checkPoiType(nm, a, candidates);
 							if (ptr != null) {
 								results.put(a.getKeyName(), ptr);
 							}
@@ -776,7 +1013,10 @@ public class SearchCoreFactory {
 			}
 		}
 
-		private PoiTypeResult checkPoiType(NameStringMatcher nm, AbstractPoiType pf) {
+		private PoiTypeResult checkPoiType(NameStringMatcher nm, AbstractPoiType pf, Set<AbstractPoiType> candidates) {
+			if (candidates != null && !candidates.contains(pf)) {
+				return null;
+			}
 			PoiTypeResult res = null;
 			if (nm.matches(pf.getTranslation())) {
 				res = addIfMatch(nm, pf.getTranslation(), pf, res);
@@ -924,10 +1164,83 @@ public class SearchCoreFactory {
 	public static class SearchAmenityByTypeAPI extends SearchBaseAPI {
 		private static final int BBOX_RADIUS = 10000;
 		private static final int BBOX_RADIUS_NEAREST = 1000;
+		private static final int MAX_RING_CACHE_OBJECTS = 20000;
 		private SearchAmenityTypesAPI searchAmenityTypesAPI;
 		private MapPoiTypes types;
 		private AbstractPoiType unselectedPoiType;
 		private String nameFilter;
+		// amenities of the area searched by previous radius level, "search more" reads only the ring around it
+		private RingCache ringCache;
+
+		private static class RingCache {
+			final Object filterKey;
+			final String nameFilter;
+			final LatLon location;
+			final List<BinaryMapIndexReader> files;
+			final int radiusLevel;
+			final QuadRect bbox;
+			final Map<BinaryMapIndexReader, List<Amenity>> amenities = new HashMap<>();
+			// results published inside of circle inscribed into bbox
+			final AtomicInteger nearResults = new AtomicInteger();
+			final double nearRadius;
+			int size;
+
+			RingCache(Object filterKey, String nameFilter, SearchPhrase phrase, QuadRect bbox, int radiusLevel) {
+				this.filterKey = filterKey;
+				this.nameFilter = nameFilter;
+				this.location = phrase.getLastTokenLocation();
+				this.files = phrase.getOfflineIndexes();
+				this.radiusLevel = radiusLevel;
+				this.bbox = bbox;
+				int cx = MapUtils.get31TileNumberX(location.getLongitude());
+				int cy = MapUtils.get31TileNumberY(location.getLatitude());
+				this.nearRadius = Math.min(
+						Math.min(MapUtils.measuredDist31(cx, cy, (int) bbox.left, cy), MapUtils.measuredDist31(cx, cy, (int) bbox.right, cy)),
+						Math.min(MapUtils.measuredDist31(cx, cy, cx, (int) bbox.top), MapUtils.measuredDist31(cx, cy, cx, (int) bbox.bottom)));
+			}
+
+			boolean isNear(Amenity a) {
+				return a.getLocation() != null && MapUtils.getDistance(location, a.getLocation()) <= nearRadius;
+			}
+
+			synchronized void put(BinaryMapIndexReader r, List<Amenity> list) {
+				amenities.put(r, list);
+				size += list.size();
+			}
+
+			synchronized List<Amenity> get(BinaryMapIndexReader r) {
+				return amenities.get(r);
+			}
+
+			boolean isExtendedBy(Object filterKey, SearchPhrase phrase, QuadRect bbox) {
+				// cache is used only by "search more", new search with the first level reads everything again
+				return this.filterKey == filterKey && phrase.getRadiusLevel() > radiusLevel
+						&& Algorithms.objectEquals(location, phrase.getLastTokenLocation())
+						&& files.equals(phrase.getOfflineIndexes())
+						&& bbox.left <= this.bbox.left && bbox.right >= this.bbox.right
+						&& bbox.top <= this.bbox.top && bbox.bottom >= this.bbox.bottom;
+			}
+
+			/**
+			 * @return rectangles covering bbox without area of this cache
+			 */
+			List<QuadRect> getRing(QuadRect bbox) {
+				List<QuadRect> ring = new ArrayList<>(4);
+				if (bbox.top < this.bbox.top) {
+					ring.add(new QuadRect(bbox.left, bbox.top, bbox.right, this.bbox.top));
+				}
+				if (bbox.bottom > this.bbox.bottom) {
+					ring.add(new QuadRect(bbox.left, this.bbox.bottom, bbox.right, bbox.bottom));
+				}
+				if (bbox.left < this.bbox.left) {
+					ring.add(new QuadRect(bbox.left, this.bbox.top, this.bbox.left, this.bbox.bottom));
+				}
+				if (bbox.right > this.bbox.right) {
+					ring.add(new QuadRect(this.bbox.right, this.bbox.top, bbox.right, this.bbox.bottom));
+				}
+				return ring;
+			}
+		}
 
 		public SearchAmenityByTypeAPI(MapPoiTypes types, SearchAmenityTypesAPI searchAmenityTypesAPI) {
 			super(ObjectType.POI);
@@ -962,11 +1275,13 @@ public class SearchCoreFactory {
 		public boolean search(final SearchPhrase phrase, final SearchResultMatcher resultMatcher) throws IOException {
 			unselectedPoiType = null;
 			SearchPoiTypeFilter poiTypeFilter = null;
+			Object filterKey = null;
 			String nameFilter = null;
 			int countExtraWords = 0;
 			Set<String> poiAdditionals = new LinkedHashSet<>();
 			if (phrase.isLastWord(ObjectType.POI_TYPE)) {
 				Object obj = phrase.getLastSelectedWord().getResult().object;
+				filterKey = obj;
 				if (obj instanceof AbstractPoiType) {
 					poiTypeFilter = getPoiTypeFilter((AbstractPoiType) obj, poiAdditionals);
 				} else if (obj instanceof SearchPoiTypeFilter) {
@@ -1002,6 +1317,7 @@ public class SearchCoreFactory {
 							}
 							poiTypeFilter = getPoiTypeFilter(poiTypeResult.pt, poiAdditionals);
 							unselectedPoiType = poiTypeResult.pt;
+							filterKey = poiTypeResult.pt;
 						}
 					}
 				}
@@ -1015,29 +1331,160 @@ public class SearchCoreFactory {
 						radius = BBOX_RADIUS_NEAREST;
 					}
 				}
-				QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
+				final QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
 				List<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes();
-				Set<String> searchedPois = new TreeSet<>();
-				for (BinaryMapIndexReader r : offlineIndexes) {
-					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, r,
-							searchedPois, poiAdditionals, countExtraWords);
-					if (poiTypeFilter instanceof CustomSearchPoiFilter) {
-						rm = ((CustomSearchPoiFilter) poiTypeFilter).wrapResultMatcher(rm);
+				final RingCache prev = ringCache != null && ringCache.isExtendedBy(filterKey, phrase, bbox) ? ringCache : null;
+				final RingCache cache;
+				final List<QuadRect> rects;
+				int totalLimit = resultMatcher.getTotalLimit();
+				if (prev == null) {
+					rects = Collections.singletonList(bbox);
+					cache = new RingCache(filterKey, nameFilter, phrase, bbox, phrase.getRadiusLevel());
+				} else if (totalLimit > 0 && Algorithms.objectEquals(prev.nameFilter, nameFilter)
+						&& prev.nearResults.get() >= totalLimit) {
+					// results of the ring are farther than enough results found already,
+					// ring is not read so cache still covers area of previous level, but level is advanced
+					// and next "search more" is compared with this level
+					rects = Collections.emptyList();
+					cache = new RingCache(filterKey, nameFilter, phrase, prev.bbox, phrase.getRadiusLevel());
+				} else {
+					rects = prev.getRing(bbox);
+					cache = new RingCache(filterKey, nameFilter, phrase, bbox, phrase.getRadiusLevel());
+				}
+				ringCache = null;
+				final Set<String> searchedPois = new TreeSet<>();
+				if (resultMatcher.isParallel()) {
+					// regions are read concurrently, read amenities are filtered in order of regions
+					// so duplicates are removed as in serial search
+					final SearchPoiTypeFilter filter = poiTypeFilter;
+					final String regionNameFilter = nameFilter;
+					final Set<String> additionals = poiAdditionals;
+					final int extraWords = countExtraWords;
+					List<ParallelSearchTask> tasks = new ArrayList<>();
+					for (final BinaryMapIndexReader r : offlineIndexes) {
+						tasks.add(new MergedSearchTask() {
+							private List<Amenity> read = Collections.emptyList();
+
+							@Override
+							public void search(SearchResultMatcher regionMatcher) throws IOException {
+								read = readRegion(r, rects, filter, regionMatcher);
+							}
+
+							@Override
+							public void merge(SearchResultMatcher resultMatcher) throws IOException {
+								searchRegion(phrase, r, rects, read, prev, cache, filter, regionNameFilter,
+										searchedPois, additionals, extraWords, resultMatcher);
+							}
+						});
 					}
-					SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
-							(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, rm);
-					r.searchPoi(req);
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+					resultMatcher.searchInParallel(tasks);
+				} else {
+					for (BinaryMapIndexReader r : offlineIndexes) {
+						if (resultMatcher.isCancelled()) {
+							break;
+						}
+						searchRegion(phrase, r, rects, null, prev, cache, poiTypeFilter, nameFilter, searchedPois,
+								poiAdditionals, countExtraWords, resultMatcher);
+					}
+				}
+				if (!resultMatcher.isCancelled() && cache.size <= MAX_RING_CACHE_OBJECTS) {
+					ringCache = cache;
 				}
 			}
 			return true;
 		}
 
+		/**
+		 * @param read amenities of rects read already or null if rects should be read
+		 */
+		private void searchRegion(SearchPhrase phrase, BinaryMapIndexReader r, List<QuadRect> rects,
+								  List<Amenity> read, RingCache prev, RingCache cache, SearchPoiTypeFilter poiTypeFilter,
+								  String nameFilter, Set<String> searchedPois, Collection<String> poiAdditionals,
+								  int countExtraWords, SearchResultMatcher resultMatcher) throws IOException {
+			ResultMatcher<Amenity> matcher = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, r,
+					searchedPois, poiAdditionals, countExtraWords, cache);
+			if (poiTypeFilter instanceof CustomSearchPoiFilter) {
+				matcher = ((CustomSearchPoiFilter) poiTypeFilter).wrapResultMatcher(matcher);
+			}
+			final ResultMatcher<Amenity> rm = matcher;
+			final List<Amenity> collected = new ArrayList<>();
+			List<Amenity> prevAmenities = prev == null ? null : prev.get(r);
+			if (prevAmenities != null) {
+				for (Amenity a : prevAmenities) {
+					if (resultMatcher.isCancelled()) {
+						break;
+					}
+					collected.add(a);
+					rm.publish(a);
+				}
+			}
+			// amenities accepted by type filter are kept before other filters, those are applied again on reuse
+			ResultMatcher<Amenity> collector = new ResultMatcher<Amenity>() {
+				@Override
+				public boolean publish(Amenity object) {
+					collected.add(object);
+					return rm.publish(object);
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return rm.isCancelled();
+				}
+			};
+			if (read != null) {
+				for (Amenity a : read) {
+					if (resultMatcher.isCancelled()) {
+						break;
+					}
+					collector.publish(a);
+				}
+			} else {
+				readRings(r, rects, poiTypeFilter, collector);
+			}
+			cache.put(r, collected);
+			resultMatcher.apiSearchRegionFinished(this, r, phrase);
+		}
+
+		// amenities of rects accepted by type filter, other filters are applied by searchRegion
+		private List<Amenity> readRegion(BinaryMapIndexReader r, List<QuadRect> rects,
+										 SearchPoiTypeFilter poiTypeFilter, final SearchResultMatcher resultMatcher)
+				throws IOException {
+			final List<Amenity> read = new ArrayList<>();
+			readRings(r, rects, poiTypeFilter, new ResultMatcher<Amenity>() {
+				@Override
+				public boolean publish(Amenity object) {
+					read.add(object);
+					return false;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled();
+				}
+			});
+			return read;
+		}
+
+		void readRings(BinaryMapIndexReader r, List<QuadRect> rects, SearchPoiTypeFilter poiTypeFilter,
+					   ResultMatcher<Amenity> matcher) throws IOException {
+			for (QuadRect bbox : rects) {
+				if (matcher.isCancelled()) {
+					break;
+				}
+				SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
+						(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, matcher);
+				synchronized (r) {
+					r.searchPoi(req);
+				}
+			}
+		}
+
 
 		private ResultMatcher<Amenity> getResultMatcher(final SearchPhrase phrase, final SearchPoiTypeFilter poiTypeFilter,
 														final SearchResultMatcher resultMatcher, final String nameFilter,
 														final BinaryMapIndexReader selected, final Set<String> searchedPois,
-														final Collection<String> poiAdditionals, final int countExtraWords) {
+														final Collection<String> poiAdditionals, final int countExtraWords,
+														final RingCache cache) {
 
 
 			final NameStringMatcher ns = nameFilter == null ? null : new NameStringMatcher(nameFilter, StringMatcherMode.CHECK_STARTS_FROM_SPACE);
@@ -1101,7 +1548,9 @@ public class SearchCoreFactory {
 					res.priority = SEARCH_AMENITY_BY_TYPE_PRIORITY;
 					res.priorityDistance = 1;
 					res.objectType = ObjectType.POI;
-					resultMatcher.publish(res);
+					if (resultMatcher.publish(res) && cache.isNear(object)) {
+						cache.nearResults.incrementAndGet();
+					}
 					return false;
 				}
 
@@ -1188,8 +1637,11 @@ public class SearchCoreFactory {
 			SearchWord sw = phrase.getLastSelectedWord();
 			if (isLastWordCityGroup(phrase) && sw.getResult() != null && sw.getResult().file != null) {
 				City c = (City) sw.getResult().object;
-				if (c.getStreets().isEmpty()) {
-					sw.getResult().file.preloadStreets(c, null);
+				BinaryMapIndexReader file = sw.getResult().file;
+				synchronized (file) {
+					if (c.getStreets().isEmpty()) {
+						file.preloadStreets(c, null);
+					}
 				}
 				int limit = 0;
 				NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
@@ -1236,7 +1688,6 @@ public class SearchCoreFactory {
 	}
 
 	public static class SearchBuildingAndIntersectionsByStreetAPI extends SearchBaseAPI {
-		Street cacheBuilding;
 
 		public SearchBuildingAndIntersectionsByStreetAPI() {
 			super(ObjectType.HOUSE, ObjectType.STREET_INTERSECTION);
@@ -1276,8 +1727,8 @@ public class SearchCoreFactory {
 			if (s != null) {
 				BinaryMapIndexReader file = phrase.getLastSelectedWord().getResult().file;
 
-				if (cacheBuilding != s) {
-					cacheBuilding = s;
+				// street keeps loaded buildings and intersections, partly loaded street (search cancelled) is loaded again
+				if (!s.isBuildingsLoaded()) {
 					SearchRequest<Building> sr = BinaryMapIndexReader
 							.buildAddressRequest(new ResultMatcher<Building>() {
 
@@ -1292,19 +1743,27 @@ public class SearchCoreFactory {
 								}
 							});
 
-					file.preloadBuildings(s, sr);
-					Collections.sort(s.getBuildings(), new Comparator<Building>() {
-
-						@Override
-						public int compare(Building o1, Building o2) {
-							int i1 = Algorithms.extractFirstIntegerNumber(o1.getName());
-							int i2 = Algorithms.extractFirstIntegerNumber(o2.getName());
-							if (i1 == i2) {
-								return 0;
+					synchronized (file) {
+						if (!s.isBuildingsLoaded()) {
+							s.clearBuildings();
+							file.preloadBuildings(s, sr);
+							if (!resultMatcher.isCancelled()) {
+								Collections.sort(s.getBuildings(), new Comparator<Building>() {
+
+									@Override
+									public int compare(Building o1, Building o2) {
+										int i1 = Algorithms.extractFirstIntegerNumber(o1.getName());
+										int i2 = Algorithms.extractFirstIntegerNumber(o2.getName());
+										if (i1 == i2) {
+											return 0;
+										}
+										return Algorithms.compare(i1, i2);
+									}
+								});
+								s.setBuildingsLoaded(true);
 							}
-							return Algorithms.compare(i1, i2);
 						}
-					});
+					}
 				}
 				String lw = phrase.getUnknownWordToSearchBuilding();
 				NameStringMatcher buildingMatch = phrase.getUnknownWordToSearchBuildingNameMatcher();
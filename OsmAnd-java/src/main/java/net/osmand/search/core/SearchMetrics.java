@@ -0,0 +1,243 @@
+package net.osmand.search.core;
+
+import net.osmand.binary.BinaryMapIndexReader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of one search request: time spent in every api and region, bytes loaded from files,
+ * number of results and time to the first result. Filled concurrently by parallel search tasks.
+ */
+public class SearchMetrics {
+
+	public interface SearchMetricsListener {
+
+		void searchMetricsCollected(SearchMetrics metrics);
+	}
+
+	public static class ApiMetrics {
+		private final String api;
+		private final AtomicLong time = new AtomicLong();
+		private final AtomicInteger results = new AtomicInteger();
+
+		ApiMetrics(String api) {
+			this.api = api;
+		}
+
+		public String getApi() {
+			return api;
+		}
+
+		/**
+		 * @return time in nanoseconds
+		 */
+		public long getTime() {
+			return time.get();
+		}
+
+		public int getResults() {
+			return results.get();
+		}
+	}
+
+	public static class RegionMetrics {
+		private final String api;
+		private final String region;
+		private final long time;
+		private final int results;
+		private final long bytesLoaded;
+
+		RegionMetrics(String api, String region, long time, int results, long bytesLoaded) {
+			this.api = api;
+			this.region = region;
+			this.time = time;
+			this.results = results;
+			this.bytesLoaded = bytesLoaded;
+		}
+
+		public String getApi() {
+			return api;
+		}
+
+		public String getRegion() {
+			return region;
+		}
+
+		/**
+		 * @return time in nanoseconds
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		public int getResults() {
+			return results;
+		}
+
+		/**
+		 * Bytes loaded from file since previous region of the same file was finished,
+		 * files with memory mapped buffer are not counted.
+		 */
+		public long getBytesLoaded() {
+			return bytesLoaded;
+		}
+	}
+
+	private final String phrase;
+	private final long startTime = System.nanoTime();
+	private final AtomicLong firstResultTime = new AtomicLong(-1);
+	private long finishTime = -1;
+	private int resultsBeforeDedup;
+	private int resultsAfterDedup;
+	private boolean cancelled;
+	// counters of api are updated by tasks without lock
+	private final Map<String, ApiMetrics> apis = new LinkedHashMap<>();
+	private final List<RegionMetrics> regions = new ArrayList<>();
+	private final Map<BinaryMapIndexReader, Long> startBytesLoaded = new IdentityHashMap<>();
+	private final Map<BinaryMapIndexReader, Long> lastBytesLoaded = new IdentityHashMap<>();
+
+	public SearchMetrics(String phrase, List<BinaryMapIndexReader> files) {
+		this.phrase = phrase;
+		if (files != null) {
+			for (BinaryMapIndexReader r : files) {
+				startBytesLoaded.put(r, r.getBytesLoaded());
+			}
+		}
+		lastBytesLoaded.putAll(startBytesLoaded);
+	}
+
+	public static String getApiName(SearchCoreAPI api) {
+		String name = api.getClass().getSimpleName();
+		return name.length() == 0 ? api.getClass().getName() : name;
+	}
+
+	public void apiFinished(SearchCoreAPI api, long time, int results) {
+		ApiMetrics m = getApiMetrics(getApiName(api));
+		m.time.addAndGet(time);
+		m.results.addAndGet(results);
+	}
+
+	private synchronized ApiMetrics getApiMetrics(String name) {
+		ApiMetrics m = apis.get(name);
+		if (m == null) {
+			m = new ApiMetrics(name);
+			apis.put(name, m);
+		}
+		return m;
+	}
+
+	public synchronized void regionFinished(SearchCoreAPI api, BinaryMapIndexReader region, long time, int results) {
+		long loaded = region.getBytesLoaded();
+		Long last = lastBytesLoaded.get(region);
+		if (!startBytesLoaded.containsKey(region)) {
+			startBytesLoaded.put(region, loaded);
+		}
+		lastBytesLoaded.put(region, loaded);
+		String name = region.getFile() != null ? region.getFile().getName() : region.getRegionName();
+		regions.add(new RegionMetrics(getApiName(api), name, time, results, last == null ? 0 : loaded - last));
+	}
+
+	/**
+	 * Called when result is found, in parallel search it is called by workers before results are merged
+	 */
+	public void resultPublished() {
+		if (firstResultTime.get() == -1) {
+			firstResultTime.compareAndSet(-1, System.nanoTime());
+		}
+	}
+
+	public synchronized void searchFinished(int resultsBeforeDedup, int resultsAfterDedup, boolean cancelled) {
+		this.finishTime = System.nanoTime();
+		this.resultsBeforeDedup = resultsBeforeDedup;
+		this.resultsAfterDedup = resultsAfterDedup;
+		this.cancelled = cancelled;
+	}
+
+	public String getPhrase() {
+		return phrase;
+	}
+
+	/**
+	 * @return time from start till search finished (or till now) in milliseconds
+	 */
+	public synchronized long getTotalTime() {
+		return ((finishTime == -1 ? System.nanoTime() : finishTime) - startTime) / 1000000;
+	}
+
+	/**
+	 * @return time to the first published result in milliseconds or -1 if nothing is found
+	 */
+	public long getFirstResultTime() {
+		long time = firstResultTime.get();
+		return time == -1 ? -1 : (time - startTime) / 1000000;
+	}
+
+	public synchronized int getResultsBeforeDedup() {
+		return resultsBeforeDedup;
+	}
+
+	public synchronized int getResultsAfterDedup() {
+		return resultsAfterDedup;
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	public synchronized List<ApiMetrics> getApis() {
+		return new ArrayList<>(apis.values());
+	}
+
+	public synchronized List<RegionMetrics> getRegions() {
+		return new ArrayList<>(regions);
+	}
+
+	public synchronized long getBytesLoaded() {
+		long total = 0;
+		for (Map.Entry<BinaryMapIndexReader, Long> e : startBytesLoaded.entrySet()) {
+			total += e.getKey().getBytesLoaded() - e.getValue();
+		}
+		return total;
+	}
+
+	public synchronized JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put("phrase", phrase);
+		json.put("totalTime", getTotalTime());
+		json.put("firstResultTime", getFirstResultTime());
+		json.put("resultsBeforeDedup", resultsBeforeDedup);
+		json.put("resultsAfterDedup", resultsAfterDedup);
+		json.put("cancelled", cancelled);
+		json.put("bytesLoaded", getBytesLoaded());
+		JSONArray apisArr = new JSONArray();
+		for (ApiMetrics m : apis.values()) {
+			JSONObject a = new JSONObject();
+			a.put("api", m.api);
+			a.put("time", m.getTime() / 1000000);
+			a.put("results", m.getResults());
+			apisArr.put(a);
+		}
+		json.put("apis", apisArr);
+		JSONArray regionsArr = new JSONArray();
+		for (RegionMetrics m : regions) {
+			JSONObject r = new JSONObject();
+			r.put("api", m.api);
+			r.put("region", m.region);
+			r.put("time", m.time / 1000000);
+			r.put("results", m.results);
+			r.put("bytesLoaded", m.bytesLoaded);
+			regionsArr.put(r);
+		}
+		json.put("regions", regionsArr);
+		return json;
+	}
+}
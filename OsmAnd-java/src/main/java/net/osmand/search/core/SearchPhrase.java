@@ -3,6 +3,7 @@ package net.osmand.search.core;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;import net.osmand.OsmAndCollator;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.FuzzyStringMatcher;
 import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -532,6 +533,15 @@ public class SearchPhrase {
 		return mainUnknownNameStringMatcher;
 	}
 	
+	/**
+	 * @return matcher of main unknown word which accepts names with typos (not cached)
+	 */
+	public NameStringMatcher getMainUnknownNameStringMatcher(int maxTypos) {
+		calcMainUnknownWordToSearch();
+		return new NameStringMatcher(mainUnknownWordToSearch, mainUnknownSearchWordComplete ?
+				StringMatcherMode.CHECK_EQUALS_FROM_SPACE : StringMatcherMode.CHECK_STARTS_FROM_SPACE, maxTypos);
+	}
+
 	public NameStringMatcher getFirstUnknownNameStringMatcher() {
 		if (firstUnknownNameStringMatcher == null) {
 			firstUnknownNameStringMatcher = getNameStringMatcher(firstUnknownSearchWord, isFirstUnknownSearchWordComplete());
@@ -731,17 +741,33 @@ public class SearchPhrase {
 	public static class NameStringMatcher implements StringMatcher {
 
 		private CollatorStringMatcher sm;
+		private FuzzyStringMatcher fuzzy;
 
 		public NameStringMatcher(String namePart, StringMatcherMode mode) {
 			sm = new CollatorStringMatcher(namePart, mode);
 		}
+
+		public NameStringMatcher(String namePart, StringMatcherMode mode, int maxTypos) {
+			this(namePart, mode);
+			if (maxTypos > 0) {
+				fuzzy = new FuzzyStringMatcher(namePart, mode, maxTypos);
+			}
+		}
+
+		public CollatorStringMatcher getMatcher() {
+			return sm;
+		}
+
+		public boolean isFuzzy() {
+			return fuzzy != null;
+		}
 		
 		public boolean matches(Collection<String> map) {
 			if(map == null) {
 				return false;
 			}
 			for(String v : map) {
-				if(sm.matches(v)) {
+				if(matches(v)) {
 					return true;
 				}
 			}
@@ -750,7 +776,7 @@ public class SearchPhrase {
 
 		@Override
 		public boolean matches(String name) {
-			return sm.matches(name);
+			return fuzzy != null ? fuzzy.matches(name) : sm.matches(name);
 		}
 		
 	}
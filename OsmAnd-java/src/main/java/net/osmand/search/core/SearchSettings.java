@@ -23,6 +23,7 @@ public class SearchSettings {
 	private ObjectType[] searchTypes;
 	private boolean emptyQueryAllowed;
 	private boolean sortByName;
+	private boolean fuzzySearch;
 	private SearchExportSettings exportSettings; // = new SearchExportSettings(true, true, -1);
 
 	public SearchSettings(SearchSettings s) {
@@ -36,6 +37,7 @@ public class SearchSettings {
 			this.searchTypes = s.searchTypes;
 			this.emptyQueryAllowed = s.emptyQueryAllowed;
 			this.sortByName = s.sortByName;
+			this.fuzzySearch = s.fuzzySearch;
 			this.exportSettings = s.exportSettings;
 		}
 	}
@@ -137,6 +139,17 @@ public class SearchSettings {
 		return s;
 	}
 
+	public boolean isFuzzySearch() {
+		return fuzzySearch;
+	}
+
+	// names with typos are searched when nothing is found by exact name
+	public SearchSettings setFuzzySearch(boolean fuzzySearch) {
+		SearchSettings s = new SearchSettings(this);
+		s.fuzzySearch = fuzzySearch;
+		return s;
+	}
+
 	public SearchExportSettings getExportSettings() {
 		return exportSettings;
 	}
@@ -174,6 +187,7 @@ public class SearchSettings {
 		json.put("transliterateIfMissing", transliterateIfMissing);
 		json.put("emptyQueryAllowed", emptyQueryAllowed);
 		json.put("sortByName", sortByName);
+		json.put("fuzzySearch", fuzzySearch);
 		if (searchTypes != null && searchTypes.length > 0) {
 			JSONArray searchTypesArr = new JSONArray();
 			for (ObjectType type : searchTypes) {
@@ -195,6 +209,7 @@ public class SearchSettings {
 		s.transliterateIfMissing = json.optBoolean("transliterateIfMissing", false);
 		s.emptyQueryAllowed = json.optBoolean("emptyQueryAllowed", false);
 		s.sortByName = json.optBoolean("sortByName", false);
+		s.fuzzySearch = json.optBoolean("fuzzySearch", false);
 		if (json.has("lang")) {
 			s.lang = json.getString("lang");
 		}
@@ -5,12 +5,25 @@ import net.sf.junidecode.Junidecode;
 
 import org.apache.commons.logging.Log;
 
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class TransliterationHelper {
 
 	public final static Log LOG = PlatformUtil.getLog(TransliterationHelper.class);
+	static final int CACHE_GENERATION_SIZE = 8192;
 
 	private static boolean japanese;
 
+	// same names are transliterated by search, routing and rendering: results are cached and shared.
+	// Cache has 2 generations, names used from old generation are moved to current one,
+	// old generation is dropped when current one is full
+	private static volatile ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+	private static volatile ConcurrentHashMap<String, String> oldCache = new ConcurrentHashMap<>();
+	private static final AtomicLong cacheHits = new AtomicLong();
+	private static final AtomicLong cacheMisses = new AtomicLong();
+
 	//private static Tokenizer tokenizer;
 	//private static Map<String, String> katakanaMap = new HashMap<>();
 
@@ -30,9 +43,65 @@ public class TransliterationHelper {
 			// do not transliterate japanese for now
 			//return japanese2Romaji(text);
 			return text;
-		} else {
+		} else if (text == null || isAscii(text)) {
 			return Junidecode.unidecode(text);
 		}
+		ConcurrentHashMap<String, String> current = cache;
+		String res = current.get(text);
+		if (res != null) {
+			cacheHits.incrementAndGet();
+			return res;
+		}
+		res = oldCache.get(text);
+		if (res != null) {
+			cacheHits.incrementAndGet();
+		} else {
+			cacheMisses.incrementAndGet();
+			res = Junidecode.unidecode(text);
+		}
+		if (current.size() >= CACHE_GENERATION_SIZE) {
+			synchronized (TransliterationHelper.class) {
+				if (cache == current) {
+					oldCache = current;
+					cache = new ConcurrentHashMap<>();
+				}
+				current = cache;
+			}
+		}
+		String prev = current.putIfAbsent(text, res);
+		// the same instance is returned for equal names
+		return prev != null ? prev : res;
+	}
+
+	private static boolean isAscii(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 128) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	public static long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	public static String getCacheStats() {
+		long hits = cacheHits.get();
+		long total = hits + cacheMisses.get();
+		return String.format(Locale.US, "Transliteration cache: %d names, hits %d of %d (%.1f%%)",
+				cache.size() + oldCache.size(), hits, total, total == 0 ? 0 : hits * 100.0 / total);
+	}
+
+	public static synchronized void clearCache() {
+		cache = new ConcurrentHashMap<>();
+		oldCache = new ConcurrentHashMap<>();
+		cacheHits.set(0);
+		cacheMisses.set(0);
 	}
 
 	/*
@@ -0,0 +1,98 @@
+package net.osmand;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CollatorStringMatcherTest {
+
+	private static final String[] NAMES = {"Auhofstraße", "Straße des 17. Juni", "Nürnberger Platz",
+			"Zürich Hauptbahnhof", "Ёлкино", "Елкино", "Łódź", "São Paulo", "New York", "Champs-Élysées",
+			"Øresund", "Kraków Główny", "Москва", "Санкт-Петербург", "ул. Ленина", "Hôtel de Ville"};
+
+	private static final String[] PARTS = {"stra", "strasse", "str.", "nurn", "zur", "ёлк", "елк", "lod",
+			"sao", "new y", "york", "champs", "elys", "ores", "krak", "моск", "санкт", "лен", "hotel", "17",
+			"champselys", "newyork", "сква", "ауhof", "strassedes", "ёлкино"};
+
+	@Test
+	public void testFoldedMatchesCollator() {
+		for (StringMatcherMode mode : new StringMatcherMode[] { StringMatcherMode.CHECK_ONLY_STARTS_WITH,
+				StringMatcherMode.CHECK_STARTS_FROM_SPACE, StringMatcherMode.CHECK_STARTS_FROM_SPACE_NOT_BEGINNING,
+				StringMatcherMode.CHECK_EQUALS_FROM_SPACE, StringMatcherMode.CHECK_EQUALS, StringMatcherMode.CHECK_CONTAINS }) {
+			for (String part : PARTS) {
+				CollatorStringMatcher matcher = new CollatorStringMatcher(part, mode);
+				for (String name : NAMES) {
+					Assert.assertEquals(mode + " " + part + " " + name, matcher.matchesWithCollator(name),
+							matcher.matches(name));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFolding() {
+		CollatorStringFolder folder = CollatorStringFolder.getInstance();
+		Assert.assertEquals(folder.fold("auhofstrasse"), folder.fold("Auhofstraße"));
+		Assert.assertEquals(folder.fold("zurich"), folder.fold("Zürich"));
+		Assert.assertEquals(folder.fold("елкино"), folder.fold("Елкино"));
+		Assert.assertTrue(matches("Großbeerenstraße", "beeren", StringMatcherMode.CHECK_CONTAINS));
+		Assert.assertTrue(matches("Café Æblegård", "aeble", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertTrue(matches("Straße des 17. Juni", "", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertFalse(matches("Straße des 17. Juni", "des", StringMatcherMode.CHECK_ONLY_STARTS_WITH));
+	}
+
+	@Test
+	public void testContainsFolding() {
+		CollatorStringFolder folder = CollatorStringFolder.getInstance();
+		// ignorable separators are removed, case is kept where collator distinguishes it
+		Assert.assertEquals(folder.foldForContains("champselysees"), folder.foldForContains("Champs-Élysées"));
+		Assert.assertEquals(folder.foldForContains("strasse"), folder.foldForContains("Straße"));
+		Assert.assertTrue(matches("Champs-Élysées", "pselys", StringMatcherMode.CHECK_CONTAINS));
+		Assert.assertTrue(matches("Санкт-Петербург", "етербург", StringMatcherMode.CHECK_CONTAINS));
+		Assert.assertEquals(new CollatorStringMatcher("моск", StringMatcherMode.CHECK_CONTAINS).matchesWithCollator("Москва"),
+				matches("Москва", "моск", StringMatcherMode.CHECK_CONTAINS));
+	}
+
+	private static boolean matches(String name, String part, StringMatcherMode mode) {
+		return new CollatorStringMatcher(part, mode).matches(name);
+	}
+
+	public static void main(String[] args) {
+		List<String> names = new ArrayList<>();
+		Random rnd = new Random(1);
+		for (int i = 0; i < 200000; i++) {
+			names.add(NAMES[rnd.nextInt(NAMES.length)] + " " + i);
+		}
+		benchmark(names, new CollatorStringMatcher("krak", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		// collator contains checks every substring, so less names are used
+		benchmark(names.subList(0, 20000), new CollatorStringMatcher("sse", StringMatcherMode.CHECK_CONTAINS));
+	}
+
+	private static void benchmark(List<String> names, CollatorStringMatcher matcher) {
+		for (int k = 0; k < 5; k++) {
+			long time = System.nanoTime();
+			int collatorMatched = 0;
+			for (String n : names) {
+				if (matcher.matchesWithCollator(n)) {
+					collatorMatched++;
+				}
+			}
+			long collatorTime = System.nanoTime() - time;
+			time = System.nanoTime();
+			int foldedMatched = 0;
+			for (String n : names) {
+				if (matcher.matches(n)) {
+					foldedMatched++;
+				}
+			}
+			long foldedTime = System.nanoTime() - time;
+			System.out.println(String.format("%s %s: collator %d ms (%d), folded %d ms (%d)", matcher.getMode(),
+					matcher.getPart(), collatorTime / 1000000, collatorMatched, foldedTime / 1000000, foldedMatched));
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package net.osmand;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FuzzyStringMatcherTest {
+
+	@Test
+	public void testDistance() {
+		Assert.assertEquals(0, distance("berlin", "berlin"));
+		Assert.assertEquals(1, distance("berlin", "berlim"));
+		Assert.assertEquals(1, distance("berlin", "berln"));
+		Assert.assertEquals(1, distance("berlin", "bertlin"));
+		// transposition of neighbour characters is one typo
+		Assert.assertEquals(1, distance("berlin", "brelin"));
+		Assert.assertEquals(2, distance("berlin", "brelni"));
+		Assert.assertEquals(0, distance("", ""));
+		Assert.assertEquals(3, distance("abc", ""));
+		Assert.assertEquals(3, distance("", "abc"));
+	}
+
+	@Test
+	public void testDistanceLimit() {
+		// distance greater than max is returned as max + 1
+		Assert.assertEquals(2, FuzzyStringMatcher.distance("berlin", "paris", 0, 1, true, false, null));
+		Assert.assertEquals(1, FuzzyStringMatcher.distance("berlin", "berlim", 0, 1, true, false, null));
+	}
+
+	@Test
+	public void testTypoLimit() {
+		Assert.assertEquals(0, FuzzyStringMatcher.getMaxTypos(0));
+		Assert.assertEquals(0, FuzzyStringMatcher.getMaxTypos(3));
+		Assert.assertEquals(1, FuzzyStringMatcher.getMaxTypos(4));
+		Assert.assertEquals(1, FuzzyStringMatcher.getMaxTypos(7));
+		Assert.assertEquals(2, FuzzyStringMatcher.getMaxTypos(8));
+		Assert.assertEquals(0, new FuzzyStringMatcher("ulm", StringMatcherMode.CHECK_EQUALS).getMaxTypos());
+		Assert.assertEquals(1, new FuzzyStringMatcher("berlin", StringMatcherMode.CHECK_EQUALS, 5).getMaxTypos());
+		Assert.assertEquals(0, new FuzzyStringMatcher("berlin", StringMatcherMode.CHECK_EQUALS, 0).getMaxTypos());
+
+		Assert.assertTrue(matches("Ulm", "ulm", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertFalse(matches("Ulm", "ulk", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertTrue(matches("Berlin", "berlim", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertTrue(matches("Berlin", "brelin", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertFalse(matches("Berlin", "brelni", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertTrue(matches("Amsterdam", "amstredma", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertFalse(matches("Amsterdam", "amstredmaxx", StringMatcherMode.CHECK_EQUALS));
+	}
+
+	@Test
+	public void testPrefixModes() {
+		Assert.assertTrue(matches("Hauptbahnhof", "haupr", StringMatcherMode.CHECK_ONLY_STARTS_WITH));
+		Assert.assertFalse(matches("Zürich Hauptbahnhof", "haupr", StringMatcherMode.CHECK_ONLY_STARTS_WITH));
+		Assert.assertTrue(matches("Zürich Hauptbahnhof", "haupr", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertTrue(matches("Zürich Hauptbahnhof", "zurihc", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertFalse(matches("Zürich Hauptbahnhof", "zurihc",
+				StringMatcherMode.CHECK_STARTS_FROM_SPACE_NOT_BEGINNING));
+		Assert.assertTrue(matches("Zürich Hauptbahnhof", "hauptbanhof", StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+		Assert.assertFalse(matches("Zürich Hauptbahnhof", "haupt", StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+		Assert.assertTrue(matches("Großbeerenstraße", "beeren", StringMatcherMode.CHECK_CONTAINS));
+	}
+
+	@Test
+	public void testEmptyStrings() {
+		Assert.assertTrue(matches("Berlin", "", StringMatcherMode.CHECK_EQUALS));
+		Assert.assertTrue(matches("", "", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertFalse(matches("", "berlin", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertFalse(matches("", "berlin", StringMatcherMode.CHECK_EQUALS));
+	}
+
+	@Test
+	public void testAbbreviation() {
+		FuzzyStringMatcher matcher = new FuzzyStringMatcher("str.", StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		Assert.assertEquals("str", matcher.getPart());
+		Assert.assertTrue(matcher.matches("Str des 17. Juni"));
+		Assert.assertTrue(matcher.matches("Straße des 17. Juni"));
+		Assert.assertTrue(matches("Straße", "stra.", StringMatcherMode.CHECK_EQUALS));
+	}
+
+	@Test
+	public void testMatchesKey() {
+		FuzzyStringMatcher matcher = new FuzzyStringMatcher("hauptbanhof", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		Assert.assertTrue(matcher.matchesKey(matcher.fold("haupt"), true));
+		Assert.assertTrue(matcher.matchesKey(matcher.fold("hauptbahnhof"), true));
+		Assert.assertFalse(matcher.matchesKey(matcher.fold("zurich"), true));
+	}
+
+	private static int distance(String pattern, String text) {
+		return FuzzyStringMatcher.distance(pattern, text, 0, 10, true, false, null);
+	}
+
+	private static boolean matches(String name, String part, StringMatcherMode mode) {
+		return new FuzzyStringMatcher(part, mode).matches(name);
+	}
+}
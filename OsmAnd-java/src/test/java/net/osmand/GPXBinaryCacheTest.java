@@ -0,0 +1,198 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Author;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import com.google.protobuf.CodedInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class GPXBinaryCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File gpx = writeTestFile();
+		GPXBinaryCache cache = new GPXBinaryCache(folder.newFolder("cache"));
+		GPXFile expected = GPXUtilities.loadGPXFile(gpx);
+		File cacheFile = cache.getCacheFile(gpx);
+		cache.writeCache(expected, gpx, cacheFile);
+		Assert.assertTrue(cache.isCacheValid(gpx));
+
+		GPXFile actual = cache.readCache(cacheFile, gpx);
+		Assert.assertNotNull(actual);
+		GPXTestUtils.assertSameFile(expected, actual);
+		Assert.assertEquals(gpx.getAbsolutePath(), actual.path);
+		Assert.assertEquals(gpx.lastModified(), actual.modifiedTime);
+		// no temp files are left
+		Assert.assertEquals(1, cacheFile.getParentFile().listFiles().length);
+	}
+
+	@Test
+	public void testLoadFromCache() throws IOException {
+		File gpx = writeTestFile();
+		GPXBinaryCache cache = new GPXBinaryCache(folder.newFolder("cache"));
+		cache.setMinFileSize(0);
+		GPXFile parsed = cache.loadGPXFile(gpx, true);
+		Assert.assertTrue(cache.isCacheValid(gpx));
+		GPXFile cached = cache.loadGPXFile(gpx, true);
+		Assert.assertTrue(cached.tracks.get(0).segments.get(0).points instanceof PointColumns);
+		GPXTestUtils.assertSameFile(parsed, cached);
+		// the same cache is used for tracks which could be modified
+		GPXFile editable = cache.loadGPXFile(gpx);
+		Assert.assertFalse(editable.tracks.get(0).segments.get(0).points instanceof PointColumns);
+		editable.tracks.get(0).segments.get(0).points.remove(0);
+		GPXTestUtils.assertSameFile(parsed, cache.loadGPXFile(gpx));
+	}
+
+	@Test
+	public void testCorruptedCache() throws IOException {
+		File gpx = writeTestFile();
+		GPXBinaryCache cache = new GPXBinaryCache(folder.newFolder("cache"));
+		GPXFile expected = GPXUtilities.loadGPXFile(gpx);
+		File cacheFile = cache.getCacheFile(gpx);
+		cache.writeCache(expected, gpx, cacheFile);
+		long length = cacheFile.length();
+
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+		try {
+			raf.seek(length - 10);
+			int b = raf.read();
+			raf.seek(length - 10);
+			raf.write(b ^ 0xff);
+		} finally {
+			raf.close();
+		}
+		Assert.assertNull(cache.readCache(cacheFile, gpx));
+
+		cache.writeCache(expected, gpx, cacheFile);
+		raf = new RandomAccessFile(cacheFile, "rw");
+		try {
+			raf.setLength(length - 1);
+		} finally {
+			raf.close();
+		}
+		Assert.assertNull(cache.readCache(cacheFile, gpx));
+		// corrupted cache is replaced
+		cache.setMinFileSize(0);
+		GPXTestUtils.assertSameFile(expected, cache.loadGPXFile(gpx));
+		Assert.assertNotNull(cache.readCache(cacheFile, gpx));
+	}
+
+	@Test
+	public void testChangedFile() throws IOException {
+		File gpx = writeTestFile();
+		GPXBinaryCache cache = new GPXBinaryCache(folder.newFolder("cache"));
+		File cacheFile = cache.getCacheFile(gpx);
+		cache.writeCache(GPXUtilities.loadGPXFile(gpx), gpx, cacheFile);
+		Assert.assertTrue(gpx.setLastModified(gpx.lastModified() - 10000));
+		Assert.assertFalse(cache.isCacheValid(gpx));
+		Assert.assertNull(cache.readCache(cacheFile, gpx));
+	}
+
+	@Test
+	public void testCorruptedBodyWithValidChecksum() throws IOException {
+		File gpx = writeTestFile();
+		GPXBinaryCache cache = new GPXBinaryCache(folder.newFolder("cache"));
+		GPXFile expected = GPXUtilities.loadGPXFile(gpx);
+		File cacheFile = cache.getCacheFile(gpx);
+		cache.writeCache(expected, gpx, cacheFile);
+
+		// broken body with valid header and checksum
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+		try {
+			byte[] header = new byte[1024];
+			raf.readFully(header);
+			CodedInputStream cis = CodedInputStream.newInstance(header);
+			cis.readFixed32();
+			cis.readRawVarint32();
+			cis.readString();
+			cis.readInt64();
+			cis.readInt64();
+			long bodyLength = cis.readInt64();
+			int checksumOffset = cis.getTotalBytesRead();
+			byte[] body = new byte[(int) bodyLength];
+			Arrays.fill(body, (byte) 0xff);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			raf.seek(checksumOffset);
+			int checksum = (int) crc.getValue();
+			raf.write(new byte[] {(byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24)});
+			raf.write(body);
+		} finally {
+			raf.close();
+		}
+		Assert.assertTrue(cache.isCacheValid(gpx));
+		try {
+			cache.readCache(cacheFile, gpx);
+			Assert.fail("Corrupted body is read");
+		} catch (IOException e) {
+			// expected
+		}
+		// gpx is parsed and cache is written again
+		cache.setMinFileSize(0);
+		GPXTestUtils.assertSameFile(expected, cache.loadGPXFile(gpx));
+		GPXTestUtils.assertSameFile(expected, cache.readCache(cacheFile, gpx));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		File gpx = folder.newFile("empty.gpx");
+		GPXFile empty = new GPXFile("test");
+		Track track = new Track();
+		track.segments.add(new TrkSegment());
+		empty.tracks.add(track);
+		Assert.assertNull(GPXUtilities.writeGpxFile(gpx, empty));
+		GPXBinaryCache cache = new GPXBinaryCache(folder.newFolder("cache"));
+		cache.setMinFileSize(0);
+		GPXFile parsed = cache.loadGPXFile(gpx, true);
+		Assert.assertTrue(cache.isCacheValid(gpx));
+		GPXFile cached = cache.loadGPXFile(gpx, true);
+		GPXTestUtils.assertSameFile(parsed, cached);
+		Assert.assertTrue(cached.tracks.get(0).segments.get(0).points.isEmpty());
+	}
+
+	// shared fixture with metadata, extensions and details of points
+	private File writeTestFile() throws IOException {
+		GPXFile gpx = GPXTestUtils.createTestFile(43);
+		gpx.metadata = new Metadata();
+		gpx.metadata.name = "name";
+		gpx.metadata.desc = "desc";
+		gpx.metadata.time = 1577836800000L;
+		gpx.metadata.author = new Author();
+		gpx.metadata.author.name = "author";
+		Track track = gpx.tracks.get(0);
+		track.getExtensionsToWrite().put("color", "#ff0000");
+		List<WptPt> points = track.segments.get(0).points;
+		points.get(5).name = "point";
+		points.get(5).desc = "desc";
+		points.get(5).getExtensionsToWrite().put("custom", "value");
+		points.get(6).heading = 180.5f;
+		points.get(7).hdop = 3;
+		for (WptPt p : gpx.getPoints()) {
+			p.setColor(0xff0000ff);
+		}
+		gpx.getExtensionsToWrite().put("file", "value");
+
+		File file = folder.newFile("test.gpx");
+		Assert.assertNull(GPXUtilities.writeGpxFile(file, gpx));
+		return file;
+	}
+}
@@ -0,0 +1,161 @@
+package net.osmand;
+
+import net.osmand.GPXChartDataSampler.SamplingMethod;
+import net.osmand.GPXChartDataSampler.Series;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class GPXChartDataSamplerTest {
+
+	@Test
+	public void testLargestTriangleThreeBuckets() {
+		Series series = createSeries(10000, new Random(11));
+		// spike should be kept
+		series = withValue(series, 5000, 1000);
+		for (int maxPoints : new int[] {3, 10, 100, 1000, 9999}) {
+			Series sampled = GPXChartDataSampler.sample(series, maxPoints, SamplingMethod.LARGEST_TRIANGLE_THREE_BUCKETS);
+			Assert.assertTrue(sampled.size() <= maxPoints);
+			assertEndpoints(series, sampled);
+			assertOrder(series, sampled);
+			if (maxPoints >= 10) {
+				Assert.assertEquals(1000, max(sampled), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testMinMaxBuckets() {
+		Series series = createSeries(10000, new Random(12));
+		for (int maxPoints : new int[] {4, 5, 10, 101, 1000, 9999}) {
+			Series sampled = GPXChartDataSampler.sample(series, maxPoints, SamplingMethod.MIN_MAX_BUCKETS);
+			Assert.assertTrue(sampled.size() <= maxPoints);
+			assertEndpoints(series, sampled);
+			assertOrder(series, sampled);
+			Assert.assertEquals(min(series), min(sampled), 0);
+			Assert.assertEquals(max(series), max(sampled), 0);
+		}
+	}
+
+	@Test
+	public void testPassthrough() {
+		Series series = createSeries(100, new Random(13));
+		for (SamplingMethod method : SamplingMethod.values()) {
+			Assert.assertSame(series, GPXChartDataSampler.sample(series, 100, method));
+			Assert.assertSame(series, GPXChartDataSampler.sample(series, 1000, method));
+		}
+	}
+
+	@Test
+	public void testSpeedZeroMarkers() {
+		// segments of speed series are surrounded by zero points, gaps are flat zero lines
+		int segments = 20;
+		int segmentPoints = 500;
+		float[] x = new float[segments * (segmentPoints + 4)];
+		float[] y = new float[x.length];
+		Random random = new Random(14);
+		int size = 0;
+		float nextX = 0;
+		for (int s = 0; s < segments; s++) {
+			x[size] = nextX + 1;
+			y[size++] = 0;
+			nextX += 100;
+			x[size] = nextX;
+			y[size++] = 0;
+			for (int i = 0; i < segmentPoints; i++) {
+				nextX += 1 + random.nextInt(5);
+				x[size] = nextX;
+				y[size++] = 5 + random.nextInt(100) / 10f;
+			}
+			x[size] = nextX;
+			y[size++] = 0;
+		}
+		Series series = new Series(x, y, size);
+		Series sampled = GPXChartDataSampler.sample(series, 500, SamplingMethod.MIN_MAX_BUCKETS);
+		Assert.assertTrue(sampled.size() <= 500);
+		assertEndpoints(series, sampled);
+		assertOrder(series, sampled);
+		for (int i = 0; i < size; i++) {
+			boolean zeroRunEnd = y[i] == 0 && (i == 0 || y[i - 1] != 0 || i == size - 1 || y[i + 1] != 0);
+			if (zeroRunEnd) {
+				Assert.assertTrue("Zero point " + i, contains(sampled, x[i], 0));
+			}
+		}
+
+		// too many zero runs for maxPoints: size is still limited
+		sampled = GPXChartDataSampler.sample(series, 50, SamplingMethod.MIN_MAX_BUCKETS);
+		Assert.assertTrue(sampled.size() <= 50);
+		assertEndpoints(series, sampled);
+		assertOrder(series, sampled);
+	}
+
+	private static Series createSeries(int size, Random random) {
+		float[] x = new float[size];
+		float[] y = new float[size];
+		float value = 100;
+		for (int i = 0; i < size; i++) {
+			x[i] = i * 2.5f;
+			value += random.nextFloat() * 2 - 1;
+			y[i] = value;
+		}
+		return new Series(x, y, size);
+	}
+
+	private static Series withValue(Series series, int index, float value) {
+		float[] x = new float[series.size()];
+		float[] y = new float[series.size()];
+		for (int i = 0; i < series.size(); i++) {
+			x[i] = series.getX(i);
+			y[i] = i == index ? value : series.getY(i);
+		}
+		return new Series(x, y, series.size());
+	}
+
+	private static void assertEndpoints(Series series, Series sampled) {
+		int last = series.size() - 1;
+		Assert.assertEquals(series.getX(0), sampled.getX(0), 0);
+		Assert.assertEquals(series.getY(0), sampled.getY(0), 0);
+		Assert.assertEquals(series.getX(last), sampled.getX(sampled.size() - 1), 0);
+		Assert.assertEquals(series.getY(last), sampled.getY(sampled.size() - 1), 0);
+	}
+
+	// every sampled point is a point of series and points are in the same order
+	private static void assertOrder(Series series, Series sampled) {
+		int index = -1;
+		for (int i = 0; i < sampled.size(); i++) {
+			index++;
+			while (index < series.size()
+					&& (series.getX(index) != sampled.getX(i) || series.getY(index) != sampled.getY(i))) {
+				index++;
+			}
+			Assert.assertTrue("Point " + i + " is not found in order", index < series.size());
+		}
+	}
+
+	private static boolean contains(Series series, float x, float y) {
+		for (int i = 0; i < series.size(); i++) {
+			if (series.getX(i) == x && series.getY(i) == y) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static float min(Series series) {
+		float min = Float.MAX_VALUE;
+		for (int i = 0; i < series.size(); i++) {
+			min = Math.min(min, series.getY(i));
+		}
+		return min;
+	}
+
+	private static float max(Series series) {
+		float max = -Float.MAX_VALUE;
+		for (int i = 0; i < series.size(); i++) {
+			max = Math.max(max, series.getY(i));
+		}
+		return max;
+	}
+}
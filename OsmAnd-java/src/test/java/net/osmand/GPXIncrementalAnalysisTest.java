@@ -0,0 +1,104 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXIncrementalAnalysis;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GPXIncrementalAnalysisTest {
+
+	private static final long FILE_TIMESTAMP = 1577836800000L;
+
+	@Test
+	public void testAppendInBatches() {
+		GPXFile source = GPXTestUtils.createTestFile(44);
+		GPXFile gpx = new GPXFile("test");
+		gpx.addPoints(source.getPoints());
+		GPXIncrementalAnalysis incremental = new GPXIncrementalAnalysis();
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+
+		Random random = new Random(44);
+		List<GPXTrackAnalysis> updates = new ArrayList<>();
+		List<GPXTrackAnalysis> expected = new ArrayList<>();
+		for (Track sourceTrack : source.tracks) {
+			Track track = new Track();
+			gpx.tracks.add(track);
+			for (TrkSegment sourceSegment : sourceTrack.segments) {
+				TrkSegment segment = new TrkSegment();
+				track.segments.add(segment);
+				List<WptPt> points = sourceSegment.points;
+				int i = 0;
+				do {
+					// single points, small and large batches like recording with screen on and off
+					int batch = random.nextInt(4) == 0 ? 1 : random.nextInt(40);
+					for (int k = 0; k < batch && i < points.size(); k++, i++) {
+						segment.points.add(points.get(i));
+					}
+					GPXTrackAnalysis analysis = incremental.update(gpx, FILE_TIMESTAMP);
+					expected.add(assertSameAsFull(gpx, analysis));
+					updates.add(analysis);
+				} while (i < points.size());
+			}
+		}
+		// chart data of previous snapshots is not changed by next updates
+		for (int i = 0; i < updates.size(); i++) {
+			GPXTestUtils.assertSameAnalysis(expected.get(i), updates.get(i));
+			GPXTestUtils.assertSameChartData(expected.get(i), updates.get(i));
+		}
+	}
+
+	@Test
+	public void testChangedPointsAreReanalyzed() {
+		GPXFile gpx = GPXTestUtils.createTestFile(45);
+		GPXIncrementalAnalysis incremental = new GPXIncrementalAnalysis();
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+
+		// earlier point is edited in place
+		WptPt p = gpx.tracks.get(0).segments.get(0).points.get(10);
+		p.lat += 0.01;
+		p.ele += 100;
+		incremental.reset();
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+
+		// last point is replaced
+		List<WptPt> points = gpx.tracks.get(2).segments.get(3).points;
+		WptPt last = points.get(points.size() - 1);
+		points.set(points.size() - 1, new WptPt(last.lat + 0.01, last.lon, last.time, last.ele, 0, Double.NaN));
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+
+		// points are removed from earlier and last segments
+		gpx.tracks.get(1).segments.get(0).points.remove(0);
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+		points.remove(points.size() - 1);
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+
+		// segment is removed and list of points is replaced
+		gpx.tracks.get(1).segments.remove(2);
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+		TrkSegment segment = gpx.tracks.get(0).segments.get(1);
+		segment.points = new ArrayList<>(segment.points);
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+
+		// all tracks are removed
+		gpx.tracks.clear();
+		assertSameAsFull(gpx, incremental.update(gpx, FILE_TIMESTAMP));
+	}
+
+	private static GPXTrackAnalysis assertSameAsFull(GPXFile gpx, GPXTrackAnalysis analysis) {
+		GPXTrackAnalysis expected = gpx.getAnalysis(FILE_TIMESTAMP);
+		GPXTestUtils.assertSameAnalysis(expected, analysis);
+		GPXTestUtils.assertSameChartData(expected, analysis);
+		Assert.assertEquals(expected.wptPoints, analysis.wptPoints);
+		Assert.assertEquals(expected.wptCategoryNames, analysis.wptCategoryNames);
+		return expected;
+	}
+}
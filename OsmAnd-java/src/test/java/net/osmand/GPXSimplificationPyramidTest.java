@@ -0,0 +1,192 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GPXSimplificationPyramidTest {
+
+	// segment size used by track layers
+	private static final double SEGMENT_SIZE = 17.2;
+
+	@Test
+	public void testSameAsDouglasPeucker() {
+		Random random = new Random(47);
+		List<List<WptPt>> tracks = new ArrayList<>();
+		for (int t = 0; t < 20; t++) {
+			tracks.add(createTrack(random, 1 + random.nextInt(3000), t % 4));
+		}
+		for (TrkSegment segment : GPXTestUtils.createTestFile(47).tracks.get(0).segments) {
+			tracks.add(segment.points);
+		}
+		tracks.add(createTrack(random, 2, 0));
+		for (List<WptPt> points : tracks) {
+			GPXSimplificationPyramid pyramid = new GPXSimplificationPyramid(points, SEGMENT_SIZE);
+			for (int zoom = 0; zoom < GPXSimplificationPyramid.FULL_POINTS_ZOOM; zoom++) {
+				List<WptPt> expected = douglasPeucker(points, Math.pow(2.0, SEGMENT_SIZE - zoom));
+				assertSamePoints("Zoom " + zoom, expected, pyramid.getPoints(zoom));
+				// fractional zoom uses simplification of the next zoom
+				assertSamePoints("Zoom " + (zoom - 0.5), expected, pyramid.getPoints(zoom - 0.5));
+			}
+			Assert.assertSame(points, pyramid.getPoints(GPXSimplificationPyramid.FULL_POINTS_ZOOM - 0.5));
+			Assert.assertSame(points, pyramid.getPoints(GPXSimplificationPyramid.FULL_POINTS_ZOOM));
+		}
+	}
+
+	@Test
+	public void testPointColumns() throws IOException {
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		TrkSegment segment = new TrkSegment();
+		segment.points = createTrack(new Random(48), 2000, 0);
+		track.segments.add(segment);
+		gpx.tracks.add(track);
+		byte[] xml = GPXUtilities.asString(gpx).getBytes("UTF-8");
+		List<WptPt> points = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml)).tracks.get(0).segments.get(0).points;
+		List<WptPt> columns = GPXUtilities.loadCompactGPXFile(new ByteArrayInputStream(xml)).tracks.get(0).segments.get(0).points;
+		Assert.assertTrue(columns instanceof PointColumns);
+		GPXSimplificationPyramid expected = new GPXSimplificationPyramid(points, SEGMENT_SIZE);
+		GPXSimplificationPyramid actual = new GPXSimplificationPyramid(columns, SEGMENT_SIZE);
+		for (int zoom = 0; zoom < GPXSimplificationPyramid.FULL_POINTS_ZOOM; zoom++) {
+			assertSamePoints("Zoom " + zoom, expected.getPoints(zoom), actual.getPoints(zoom));
+		}
+	}
+
+	@Test
+	public void testAppendedPoints() {
+		Random random = new Random(49);
+		List<WptPt> source = createTrack(random, 5000, 0);
+		List<WptPt> points = new ArrayList<>(source.subList(0, 1000));
+		GPXSimplificationPyramid pyramid = new GPXSimplificationPyramid(points, SEGMENT_SIZE);
+		int zoom = 10;
+		List<WptPt> simplified = pyramid.getPoints(zoom);
+		Assert.assertTrue(simplified.size() < points.size());
+		Assert.assertFalse(pyramid.isRebuildNeeded(points));
+
+		// appended points are drawn after simplification until pyramid is rebuilt
+		int rebuilds = 0;
+		for (int i = 1000; i < source.size(); i++) {
+			points.add(source.get(i));
+			Assert.assertTrue(pyramid.isExtendedBy(points));
+			if (pyramid.isRebuildNeeded(points)) {
+				Assert.assertTrue(points.size() - pyramid.getSize() > pyramid.getSize() / 10);
+				pyramid = new GPXSimplificationPyramid(points, SEGMENT_SIZE);
+				simplified = pyramid.getPoints(zoom);
+				rebuilds++;
+			}
+			List<WptPt> drawn = pyramid.getPoints(zoom, points);
+			Assert.assertEquals(simplified.size() + points.size() - pyramid.getSize(), drawn.size());
+			Assert.assertEquals(simplified, drawn.subList(0, simplified.size()));
+			Assert.assertEquals(points.subList(pyramid.getSize(), points.size()), drawn.subList(simplified.size(), drawn.size()));
+			// list is reused while points are not changed
+			Assert.assertSame(drawn, pyramid.getPoints(zoom, points));
+		}
+		// number of rebuilds grows logarithmically with number of points
+		Assert.assertTrue("Rebuilds " + rebuilds, rebuilds > 0 && rebuilds < 20);
+		Assert.assertSame(points, pyramid.getPoints(GPXSimplificationPyramid.FULL_POINTS_ZOOM, points));
+
+		// changed points are not extension of pyramid
+		List<WptPt> changed = new ArrayList<>(points.subList(0, pyramid.getSize() - 1));
+		Assert.assertFalse(pyramid.isExtendedBy(changed));
+		Assert.assertTrue(pyramid.isRebuildNeeded(changed));
+		changed.add(new WptPt(0, 0, 0, Double.NaN, 0, Double.NaN));
+		Assert.assertFalse(pyramid.isExtendedBy(changed));
+
+		// empty pyramid is extended by any points
+		GPXSimplificationPyramid empty = new GPXSimplificationPyramid(new ArrayList<WptPt>(), SEGMENT_SIZE);
+		Assert.assertTrue(empty.isExtendedBy(points));
+		Assert.assertTrue(empty.isRebuildNeeded(points));
+	}
+
+	// random walk, zigzag, straight line with repeated points and closed loop
+	private static List<WptPt> createTrack(Random random, int size, int type) {
+		List<WptPt> points = new ArrayList<>(size);
+		double lat = 52 + random.nextDouble();
+		double lon = 4 + random.nextDouble();
+		for (int i = 0; i < size; i++) {
+			switch (type) {
+			case 0:
+				lat += (random.nextDouble() - 0.4) * 1e-3;
+				lon += (random.nextDouble() - 0.4) * 1e-3;
+				break;
+			case 1:
+				lat += 1e-4;
+				lon += (i % 2 == 0 ? 1 : -1) * random.nextDouble() * 1e-3;
+				break;
+			case 2:
+				if (random.nextInt(3) != 0) {
+					lat += 1e-4;
+					lon += 2e-4;
+				}
+				break;
+			default:
+				double angle = 2 * Math.PI * i / size;
+				lat = 52 + Math.sin(angle) * 0.05 + random.nextDouble() * 1e-5;
+				lon = 4 + Math.cos(angle) * 0.08;
+			}
+			points.add(new WptPt(lat, lon, 1000L * i, Double.NaN, 0, Double.NaN));
+		}
+		return points;
+	}
+
+	// recursive Douglas-Peucker culler used before the pyramid
+	private static List<WptPt> douglasPeucker(List<WptPt> points, double epsilon) {
+		List<WptPt> culled = new ArrayList<>();
+		int size = points.size();
+		if (size > 0) {
+			boolean[] survivor = new boolean[size];
+			cull(points, survivor, 0, size - 1, epsilon);
+			survivor[0] = true;
+			for (int i = 0; i < size; i++) {
+				if (survivor[i]) {
+					culled.add(points.get(i));
+				}
+			}
+		}
+		return culled;
+	}
+
+	private static void cull(List<WptPt> points, boolean[] survivor, int start, int end, double epsilon) {
+		double dmax = Double.NEGATIVE_INFINITY;
+		int index = -1;
+		WptPt startPt = points.get(start);
+		WptPt endPt = points.get(end);
+		for (int i = start + 1; i < end; i++) {
+			WptPt pt = points.get(i);
+			double d = MapUtils.getOrthogonalDistance(pt.lat, pt.lon, startPt.lat, startPt.lon, endPt.lat, endPt.lon);
+			if (d > dmax) {
+				dmax = d;
+				index = i;
+			}
+		}
+		if (dmax > epsilon) {
+			cull(points, survivor, start, index, epsilon);
+			cull(points, survivor, index, end, epsilon);
+		} else {
+			survivor[end] = true;
+		}
+	}
+
+	private static void assertSamePoints(String message, List<WptPt> expected, List<WptPt> actual) {
+		Assert.assertEquals(message, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			WptPt e = expected.get(i);
+			WptPt a = actual.get(i);
+			Assert.assertEquals(message, e.lat, a.lat, 0);
+			Assert.assertEquals(message, e.lon, a.lon, 0);
+			Assert.assertEquals(message, e.time, a.time);
+		}
+	}
+}
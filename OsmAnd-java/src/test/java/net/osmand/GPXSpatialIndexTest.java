@@ -0,0 +1,193 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.QuadRect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import gnu.trove.list.array.TIntArrayList;
+
+public class GPXSpatialIndexTest {
+
+	@Test
+	public void testWaypoints() {
+		GPXFile gpx = GPXTestUtils.createTestFile(48);
+		Random random = new Random(48);
+		for (int i = 0; i < 500; i++) {
+			gpx.addPoint(new WptPt(55 + random.nextDouble() * 0.5, 14 + random.nextDouble(), 0, Double.NaN, 0, Double.NaN));
+		}
+		GPXSpatialIndex<String> index = new GPXSpatialIndex<>();
+		index.updateFile("a", gpx, getSegments(gpx));
+		Assert.assertTrue(index.containsFile("a"));
+		for (int i = 0; i < 200; i++) {
+			QuadRect bounds = randomBounds(random, 55.25, 14.5, i % 10 == 0 ? 2 : 0.05);
+			Assert.assertEquals(filterWaypoints(gpx.getPoints(), bounds), index.getWaypoints("a", bounds));
+		}
+		QuadRect all = new QuadRect(-180, 90, 180, -90);
+		Assert.assertEquals(gpx.getPoints(), index.getWaypoints("a", all));
+		Assert.assertTrue(index.getWaypoints("b", all).isEmpty());
+
+		index.retainFiles(Collections.singletonList("b"));
+		Assert.assertFalse(index.containsFile("a"));
+		Assert.assertTrue(index.getWaypoints("a", all).isEmpty());
+	}
+
+	@Test
+	public void testSegmentEdges() {
+		GPXFile gpx = GPXTestUtils.createTestFile(49);
+		// long edges cross many tiles
+		TrkSegment longEdges = new TrkSegment();
+		longEdges.points.add(new WptPt(50, 10, 0, Double.NaN, 0, Double.NaN));
+		longEdges.points.add(new WptPt(51, 11, 0, Double.NaN, 0, Double.NaN));
+		longEdges.points.add(new WptPt(51, 11.001, 0, Double.NaN, 0, Double.NaN));
+		gpx.tracks.get(0).segments.add(longEdges);
+		List<TrkSegment> segments = getSegments(gpx);
+		GPXSpatialIndex<String> index = new GPXSpatialIndex<>();
+		index.updateFile("a", gpx, segments);
+		Random random = new Random(49);
+		for (TrkSegment segment : segments) {
+			for (int i = 0; i < 100; i++) {
+				QuadRect bounds = randomBounds(random, 50.5, 10.5, i % 10 == 0 ? 0.5 : 0.01);
+				assertEdges(segment, bounds, index.getSegmentEdges("a", segment, bounds));
+			}
+		}
+		// edge is found near location between its points
+		QuadRect middle = new QuadRect(10.499, 50.501, 10.501, 50.499);
+		Assert.assertEquals(0, index.getSegmentEdges("a", longEdges, middle).get(0));
+		Assert.assertTrue(index.getSegmentEdges("a", new TrkSegment(), middle).isEmpty());
+	}
+
+	@Test
+	public void testAppendedPoints() {
+		GPXFile source = GPXTestUtils.createTestFile(50);
+		GPXFile gpx = new GPXFile("test");
+		gpx.showCurrentTrack = true;
+		Track track = new Track();
+		gpx.tracks.add(track);
+		GPXSpatialIndex<String> index = new GPXSpatialIndex<>();
+		Random random = new Random(50);
+		long time = 1;
+		for (TrkSegment sourceSegment : source.tracks.get(0).segments) {
+			TrkSegment segment = new TrkSegment();
+			track.segments.add(segment);
+			for (WptPt p : sourceSegment.points) {
+				segment.points.add(p);
+				gpx.modifiedTime = time++;
+				if (random.nextInt(10) == 0) {
+					gpx.addPoint(new WptPt(p.lat, p.lon, 0, Double.NaN, 0, Double.NaN));
+				}
+				index.updateFile("a", gpx, getSegments(gpx));
+				if (random.nextInt(20) == 0) {
+					assertSameAsNewIndex(gpx, index, random);
+				}
+			}
+			assertSameAsNewIndex(gpx, index, random);
+		}
+	}
+
+	@Test
+	public void testChangedFile() {
+		GPXFile gpx = GPXTestUtils.createTestFile(51);
+		GPXSpatialIndex<String> index = new GPXSpatialIndex<>();
+		index.updateFile("a", gpx, getSegments(gpx));
+		Random random = new Random(51);
+
+		// points are moved in place
+		List<WptPt> points = gpx.tracks.get(0).segments.get(0).points;
+		WptPt moved = points.get(points.size() / 2);
+		moved.lat += 0.5;
+		moved.lon += 0.5;
+		WptPt waypoint = gpx.getPoints().get(0);
+		waypoint.lat += 0.5;
+		gpx.modifiedTime++;
+		index.updateFile("a", gpx, getSegments(gpx));
+		QuadRect near = new QuadRect(moved.lon - 0.001, moved.lat + 0.001, moved.lon + 0.001, moved.lat - 0.001);
+		TIntArrayList edges = index.getSegmentEdges("a", gpx.tracks.get(0).segments.get(0), near);
+		Assert.assertTrue(edges.contains(points.size() / 2));
+		near = new QuadRect(waypoint.lon - 0.001, waypoint.lat + 0.001, waypoint.lon + 0.001, waypoint.lat - 0.001);
+		Assert.assertTrue(index.getWaypoints("a", near).contains(waypoint));
+		assertSameAsNewIndex(gpx, index, random);
+
+		// last point is replaced, points list and segments are replaced
+		points.set(points.size() - 1, new WptPt(0, 0, 0, Double.NaN, 0, Double.NaN));
+		index.updateFile("a", gpx, getSegments(gpx));
+		assertSameAsNewIndex(gpx, index, random);
+		TrkSegment segment = gpx.tracks.get(1).segments.get(0);
+		segment.points = new ArrayList<>(segment.points.subList(0, 10));
+		index.updateFile("a", gpx, getSegments(gpx));
+		assertSameAsNewIndex(gpx, index, random);
+		gpx.tracks.remove(2);
+		index.updateFile("a", gpx, getSegments(gpx));
+		assertSameAsNewIndex(gpx, index, random);
+
+		// other gpx with the same key
+		GPXFile other = GPXTestUtils.createTestFile(52);
+		index.updateFile("a", other, getSegments(other));
+		assertSameAsNewIndex(other, index, random);
+	}
+
+	private static void assertSameAsNewIndex(GPXFile gpx, GPXSpatialIndex<String> index, Random random) {
+		List<TrkSegment> segments = getSegments(gpx);
+		GPXSpatialIndex<String> expected = new GPXSpatialIndex<>();
+		expected.updateFile("a", gpx, segments);
+		QuadRect all = new QuadRect(-180, 90, 180, -90);
+		Assert.assertEquals(expected.getWaypoints("a", all), index.getWaypoints("a", all));
+		for (TrkSegment segment : segments) {
+			for (int i = 0; i < 10; i++) {
+				QuadRect bounds = randomBounds(random, 50.5, 10.5, 1);
+				Assert.assertEquals(expected.getSegmentEdges("a", segment, bounds), index.getSegmentEdges("a", segment, bounds));
+				Assert.assertEquals(expected.getWaypoints("a", bounds), index.getWaypoints("a", bounds));
+			}
+		}
+	}
+
+	// edges which intersect bounds are found, edges are sorted and not repeated
+	private static void assertEdges(TrkSegment segment, QuadRect bounds, TIntArrayList edges) {
+		for (int i = 1; i < edges.size(); i++) {
+			Assert.assertTrue(edges.get(i - 1) < edges.get(i));
+		}
+		List<WptPt> points = segment.points;
+		for (int i = 0; i + 1 < points.size(); i++) {
+			WptPt p1 = points.get(i);
+			WptPt p2 = points.get(i + 1);
+			boolean intersects = Math.min(p1.lon, p2.lon) <= bounds.right && Math.max(p1.lon, p2.lon) >= bounds.left
+					&& Math.min(p1.lat, p2.lat) <= bounds.top && Math.max(p1.lat, p2.lat) >= bounds.bottom;
+			if (intersects) {
+				Assert.assertTrue("Edge " + i, edges.contains(i));
+			}
+		}
+	}
+
+	private static List<WptPt> filterWaypoints(List<WptPt> points, QuadRect bounds) {
+		List<WptPt> result = new ArrayList<>();
+		for (WptPt p : points) {
+			if (p.lat >= bounds.bottom && p.lat <= bounds.top && p.lon >= bounds.left && p.lon <= bounds.right) {
+				result.add(p);
+			}
+		}
+		return result;
+	}
+
+	private static QuadRect randomBounds(Random random, double lat, double lon, double size) {
+		double left = lon + (random.nextDouble() - 0.5) * 2;
+		double top = lat + (random.nextDouble() - 0.5) * 2;
+		return new QuadRect(left, top, left + random.nextDouble() * size, top - random.nextDouble() * size);
+	}
+
+	private static List<TrkSegment> getSegments(GPXFile gpx) {
+		List<TrkSegment> segments = new ArrayList<>();
+		for (Track track : gpx.tracks) {
+			segments.addAll(track.segments);
+		}
+		return segments;
+	}
+}
@@ -0,0 +1,194 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.Speed;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class GPXSplitTest {
+
+	// split parts written by implementation which collected split segments before analysing them
+	private static final String GOLDEN_FILE = "/net/osmand/gpx_split_golden.txt";
+
+	@Test
+	public void testSplitAsPrevious() throws IOException {
+		String expected = GPXTestUtils.readResource(GOLDEN_FILE).replace("\r\n", "\n");
+		byte[] xml = createTestXml().getBytes("UTF-8");
+		GPXFile gpx = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml));
+		Assert.assertEquals(expected, describeSplits(gpx));
+
+		GPXFile compact = GPXUtilities.loadCompactGPXFile(new ByteArrayInputStream(xml));
+		Assert.assertTrue(compact.tracks.get(0).segments.get(0).points instanceof PointColumns);
+		Assert.assertEquals(expected, describeSplits(compact));
+	}
+
+	@Test
+	public void testSplitEdgeSegments() throws IOException {
+		GPXFile gpx = GPXTestUtils.createTestFile(49);
+		TrkSegment empty = gpx.tracks.get(0).segments.get(3);
+		Assert.assertEquals(0, empty.splitByDistance(300, false).size());
+		Assert.assertEquals(0, empty.splitByTime(30, false).size());
+
+		TrkSegment single = gpx.tracks.get(1).segments.get(1);
+		for (List<GPXTrackAnalysis> splits : Arrays.asList(single.splitByDistance(300, false), single.splitByTime(30, false))) {
+			Assert.assertEquals(1, splits.size());
+			Assert.assertEquals(1, splits.get(0).points);
+			Assert.assertEquals(0, splits.get(0).metricEnd, 0);
+		}
+
+		// time split of segment without time is not split
+		TrkSegment noTime = gpx.tracks.get(2).segments.get(3);
+		List<GPXTrackAnalysis> byTime = noTime.splitByTime(30, false);
+		Assert.assertEquals(1, byTime.size());
+		Assert.assertEquals(noTime.points.size(), byTime.get(0).points);
+		Assert.assertEquals(0, byTime.get(0).metricEnd, 0);
+		Assert.assertEquals(0, byTime.get(0).timeSpan);
+		Assert.assertTrue(noTime.splitByDistance(300, false).size() > 1);
+
+		// compact points are split the same way
+		byte[] xml = GPXUtilities.asString(gpx).getBytes("UTF-8");
+		GPXFile plain = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml));
+		GPXFile compact = GPXUtilities.loadCompactGPXFile(new ByteArrayInputStream(xml));
+		Assert.assertEquals(describeSplits(plain), describeSplits(compact));
+	}
+
+	@Test
+	public void testMergeRebuildsGeneralTrack() throws IOException {
+		byte[] xml = createTestXml().getBytes("UTF-8");
+		GPXFile to = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml));
+		to.addGeneralTrack();
+		int generalPoints = to.getGeneralSegment().points.size();
+		GPXFile from = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml));
+		from.addGeneralTrack();
+
+		GPXUtilities.mergeGPXFileInto(to, from);
+		for (Track track : to.tracks) {
+			Assert.assertFalse(track.generalTrack);
+		}
+		Assert.assertEquals(generalPoints * 2, to.getGeneralSegment().points.size());
+		to.addGeneralTrack();
+		Assert.assertTrue(to.tracks.get(0).generalTrack);
+	}
+
+	private static String describeSplits(GPXFile gpx) {
+		StringBuilder sb = new StringBuilder();
+		TrkSegment general = gpx.getGeneralSegment();
+		for (boolean join : new boolean[] {false, true}) {
+			for (double meters : new double[] {300, 1000}) {
+				sb.append("general distance ").append(meters).append(" join ").append(join).append('\n');
+				describe(sb, general.splitByDistance(meters, join));
+			}
+			for (int seconds : new int[] {30, 300}) {
+				sb.append("general time ").append(seconds).append(" join ").append(join).append('\n');
+				describe(sb, general.splitByTime(seconds, join));
+			}
+		}
+		for (int t = 0; t < gpx.tracks.size(); t++) {
+			List<TrkSegment> segments = gpx.tracks.get(t).segments;
+			for (int s = 0; s < segments.size(); s++) {
+				TrkSegment segment = segments.get(s);
+				sb.append("segment ").append(t).append(' ').append(s).append(" distance\n");
+				describe(sb, segment.splitByDistance(300, false));
+				sb.append("segment ").append(t).append(' ').append(s).append(" time\n");
+				describe(sb, segment.splitByTime(30, false));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void describe(StringBuilder sb, List<GPXTrackAnalysis> splits) {
+		sb.append("parts ").append(splits.size()).append('\n');
+		for (GPXTrackAnalysis a : splits) {
+			sb.append("part points=").append(a.points)
+					.append(" metricEnd=").append(a.metricEnd)
+					.append(" secondaryMetricEnd=").append(a.secondaryMetricEnd)
+					.append(" distance=").append(a.totalDistance)
+					.append(" timeSpan=").append(a.timeSpan)
+					.append(" start=").append(a.startTime)
+					.append(" end=").append(a.endTime)
+					.append(" ele=").append(a.minElevation).append('/').append(a.maxElevation)
+					.append(" up=").append(a.diffElevationUp)
+					.append(" down=").append(a.diffElevationDown)
+					.append(" speed=").append(a.avgSpeed).append('/').append(a.maxSpeed)
+					.append('\n');
+			describe(sb, "from", a.locationStart);
+			describe(sb, "to", a.locationEnd);
+			if (a.elevationData != null) {
+				for (Elevation e : a.elevationData) {
+					sb.append(" e ").append(e.distance).append(' ').append(e.time).append(' ').append(e.elevation)
+							.append(' ').append(e.firstPoint).append(' ').append(e.lastPoint).append('\n');
+				}
+			}
+			if (a.speedData != null) {
+				for (Speed s : a.speedData) {
+					sb.append(" s ").append(s.distance).append(' ').append(s.time).append(' ').append(s.speed)
+							.append(' ').append(s.firstPoint).append(' ').append(s.lastPoint).append('\n');
+				}
+			}
+		}
+	}
+
+	private static void describe(StringBuilder sb, String name, WptPt p) {
+		sb.append(' ').append(name);
+		if (p != null) {
+			sb.append(' ').append(p.lat).append(' ').append(p.lon).append(' ').append(p.time).append(' ')
+					.append(p.ele).append(' ').append(p.speed).append(' ').append(p.distance);
+		}
+		sb.append('\n');
+	}
+
+	// segments with speed, elevation and time gaps, single point segment, segments without time
+	// and with the same time of all points
+	private static String createTestXml() {
+		Random random = new Random(2468);
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<gpx version=\"1.1\" creator=\"test\">\n");
+		int[][] sizes = {{30, 1, 12}, {20, 15}};
+		long time = 1577836800000L;
+		for (int t = 0; t < sizes.length; t++) {
+			sb.append("<trk>\n");
+			for (int s = 0; s < sizes[t].length; s++) {
+				sb.append("<trkseg>\n");
+				double lat = 52 + t * 0.1 + s * 0.01;
+				double lon = 4.5 + t * 0.1;
+				boolean noTime = t == 0 && s == 2;
+				boolean sameTime = t == 1 && s == 1;
+				long segmentTime = time + 60000;
+				for (int i = 0; i < sizes[t][s]; i++) {
+					lat += random.nextInt(1000) * 1e-6;
+					lon += random.nextInt(1000) * 1e-6;
+					time += random.nextInt(15) == 0 ? 120000 : 1000 * (1 + random.nextInt(8));
+					sb.append("<trkpt lat=\"").append(lat).append("\" lon=\"").append(lon).append("\">");
+					if (!(t == 1 && s == 0 && i % 7 == 0)) {
+						sb.append("<ele>").append(100 + random.nextInt(500) / 10.0).append("</ele>");
+					}
+					if (!noTime) {
+						long pointTime = sameTime ? segmentTime : time;
+						sb.append("<time>").append(new GPXXmlSerializer().formatTime(pointTime)).append("</time>");
+					}
+					if (t == 0 && s == 0) {
+						sb.append("<extensions><speed>").append(random.nextInt(2000) / 100.0).append("</speed></extensions>");
+					}
+					sb.append("</trkpt>\n");
+				}
+				sb.append("</trkseg>\n");
+			}
+			sb.append("</trk>\n");
+		}
+		sb.append("</gpx>\n");
+		return sb.toString();
+	}
+}
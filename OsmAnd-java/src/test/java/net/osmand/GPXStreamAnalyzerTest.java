@@ -0,0 +1,198 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXStreamAnalyzer;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.QuadRect;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class GPXStreamAnalyzerTest {
+
+	private static final long FILE_TIMESTAMP = 1600000000000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// route before tracks, points outside of trkseg before and after closed segment,
+	// single point and empty segments, track points of route point extension
+	private static final String EDGE_CASES_GPX = "<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n"
+			+ "<rte><name>route</name>\n"
+			+ "<rtept lat=\"50.0\" lon=\"10.0\"><extensions><routepointextension>\n"
+			+ "<rpt lat=\"50.001\" lon=\"10.001\"/><rpt lat=\"50.002\" lon=\"10.003\"/>\n"
+			+ "<rpt lat=\"50.004\" lon=\"10.006\"/><rpt lat=\"50.009\" lon=\"10.01\"/>\n"
+			+ "</routepointextension></extensions></rtept>\n"
+			+ "<rtept lat=\"50.01\" lon=\"10.01\"/>\n"
+			+ "</rte>\n"
+			+ "<trk><name>first</name>\n"
+			+ "<trkpt lat=\"51.0\" lon=\"11.0\"><ele>100</ele><time>2020-01-01T10:00:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"51.001\" lon=\"11.0\"><ele>102</ele><time>2020-01-01T10:00:20Z</time></trkpt>\n"
+			+ "<trkseg>\n"
+			+ "<trkpt lat=\"51.002\" lon=\"11.001\"><ele>101</ele><time>2020-01-01T10:01:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"51.004\" lon=\"11.002\"><ele>105</ele><time>2020-01-01T10:01:30Z</time></trkpt>\n"
+			+ "</trkseg>\n"
+			+ "<trkpt lat=\"51.006\" lon=\"11.003\"><ele>99</ele><time>2020-01-01T10:02:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"51.009\" lon=\"11.004\"><ele>98</ele><time>2020-01-01T10:02:40Z</time></trkpt>\n"
+			+ "<trkseg><trkpt lat=\"51.1\" lon=\"11.1\"><time>2020-01-01T11:00:00Z</time></trkpt></trkseg>\n"
+			+ "<trkseg></trkseg>\n"
+			+ "</trk>\n"
+			+ "<trk><name>second</name><trkseg>\n"
+			+ "<trkpt lat=\"52.0\" lon=\"12.0\"><time>2020-01-02T10:00:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.003\" lon=\"12.0\"><time>2020-01-02T10:01:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.006\" lon=\"12.002\"><time>2020-01-02T10:02:00Z</time></trkpt>\n"
+			+ "</trkseg></trk>\n"
+			+ "<wpt lat=\"49.0\" lon=\"9.0\"><name>a</name><type>cat</type></wpt>\n"
+			+ "<wpt lat=\"49.5\" lon=\"9.5\"><name>b</name></wpt>\n"
+			+ "</gpx>\n";
+
+	@Test
+	public void testEdgeCases() throws UnsupportedEncodingException {
+		assertSameAnalysis(EDGE_CASES_GPX, 100);
+		assertSameAnalysis(EDGE_CASES_GPX, 1000);
+	}
+
+	@Test
+	public void testEmptyAndSinglePoint() throws UnsupportedEncodingException {
+		String header = "<?xml version='1.0' encoding='UTF-8'?>\n<gpx version=\"1.1\" creator=\"test\">\n";
+		assertSameAnalysis(header + "</gpx>\n", 100);
+		assertSameAnalysis(header + "<trk><trkseg></trkseg></trk>\n</gpx>\n", 100);
+		assertSameAnalysis(header + "<trk><trkseg><trkpt lat=\"51.0\" lon=\"11.0\"/></trkseg></trk>\n</gpx>\n", 100);
+		// points without time and elevation
+		assertSameAnalysis(header + "<trk><trkseg><trkpt lat=\"51.0\" lon=\"11.0\"/><trkpt lat=\"51.01\" lon=\"11.0\"/>"
+				+ "<trkpt lat=\"51.02\" lon=\"11.01\"><ele>100</ele></trkpt></trkseg></trk>\n</gpx>\n", 100);
+	}
+
+	@Test
+	public void testGeneratedFile() throws UnsupportedEncodingException {
+		String xml = GPXUtilities.asString(GPXTestUtils.createTestFile(1357));
+		assertSameAnalysis(xml, 500);
+		assertSameAnalysis(xml, 5000);
+	}
+
+	@Test
+	public void testAnalyzeFiles() throws Exception {
+		final List<File> files = new ArrayList<>();
+		files.add(writeFile("edge_cases.gpx", EDGE_CASES_GPX));
+		for (int i = 0; i < 8; i++) {
+			files.add(writeFile("track_" + i + ".gpx", GPXUtilities.asString(GPXTestUtils.createTestFile(2000 + i))));
+		}
+		// files are analysed by several threads at once like by gpx database
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<GPXTrackAnalysis>> futures = new ArrayList<>();
+			for (final File f : files) {
+				futures.add(executor.submit(new Callable<GPXTrackAnalysis>() {
+					@Override
+					public GPXTrackAnalysis call() {
+						return GPXUtilities.analyzeGPXFile(f);
+					}
+				}));
+			}
+			for (int i = 0; i < files.size(); i++) {
+				File f = files.get(i);
+				GPXTrackAnalysis expected = GPXUtilities.loadGPXFile(f).getAnalysis(f.lastModified());
+				GPXTrackAnalysis actual = futures.get(i).get();
+				GPXTestUtils.assertSameAnalysis(expected, actual);
+				Assert.assertEquals(expected.wptPoints, actual.wptPoints);
+				Assert.assertEquals(expected.wptCategoryNames, actual.wptCategoryNames);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testAnalyzeBrokenFiles() throws IOException {
+		// error of reading is logged, analysis of points read before error is returned
+		String xml = GPXUtilities.asString(GPXTestUtils.createTestFile(2100));
+		File truncated = writeFile("truncated.gpx", xml.substring(0, xml.length() / 2));
+		GPXTrackAnalysis analysis = GPXUtilities.analyzeGPXFile(truncated);
+		Assert.assertTrue(analysis.points > 0);
+		Assert.assertTrue(analysis.points < GPXUtilities.analyzeGPXFile(writeFile("full.gpx", xml)).points);
+
+		analysis = GPXUtilities.analyzeGPXFile(new File(folder.getRoot(), "missing.gpx"));
+		Assert.assertEquals(0, analysis.points);
+		Assert.assertEquals(0, analysis.totalDistance, 0);
+		analysis = GPXUtilities.analyzeGPXFile(writeFile("empty.gpx", ""));
+		Assert.assertEquals(0, analysis.points);
+	}
+
+	private File writeFile(String name, String xml) throws IOException {
+		File f = folder.newFile(name);
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(xml.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return f;
+	}
+
+	private static void assertSameAnalysis(String xml, double splitMeters) throws UnsupportedEncodingException {
+		byte[] bytes = xml.getBytes("UTF-8");
+		GPXFile loaded = GPXUtilities.loadGPXFile(new ByteArrayInputStream(bytes));
+		Assert.assertNull(loaded.error);
+		GPXTrackAnalysis expected = loaded.getAnalysis(FILE_TIMESTAMP);
+		List<GPXTrackAnalysis> expectedSplit = new ArrayList<>();
+		for (Track track : loaded.tracks) {
+			for (TrkSegment segment : track.segments) {
+				expectedSplit.addAll(segment.splitByDistance(splitMeters, false));
+			}
+		}
+
+		GPXStreamAnalyzer analyzer = new GPXStreamAnalyzer(FILE_TIMESTAMP).setSplitByDistance(splitMeters);
+		GPXFile streamed = GPXUtilities.loadGPXFile(new ByteArrayInputStream(bytes), analyzer);
+		Assert.assertNull(streamed.error);
+		GPXTestUtils.assertSameAnalysis(expected, analyzer.getAnalysis());
+		Assert.assertEquals(expected.wptPoints, analyzer.getAnalysis().wptPoints);
+		Assert.assertEquals(expected.wptCategoryNames, analyzer.getAnalysis().wptCategoryNames);
+
+		List<GPXTrackAnalysis> actualSplit = analyzer.getSplitAnalysis();
+		Assert.assertEquals(expectedSplit.size(), actualSplit.size());
+		for (int i = 0; i < expectedSplit.size(); i++) {
+			GPXTestUtils.assertSameAnalysis(expectedSplit.get(i), actualSplit.get(i));
+			Assert.assertEquals(expectedSplit.get(i).metricEnd, actualSplit.get(i).metricEnd, 0);
+			Assert.assertEquals(expectedSplit.get(i).secondaryMetricEnd, actualSplit.get(i).secondaryMetricEnd, 0);
+		}
+
+		QuadRect bounds = analyzer.getBounds();
+		QuadRect expectedBounds = GPXUtilities.calculateBounds(getAllPoints(loaded));
+		Assert.assertEquals(expectedBounds.left, bounds.left, 0);
+		Assert.assertEquals(expectedBounds.right, bounds.right, 0);
+		Assert.assertEquals(expectedBounds.top, bounds.top, 0);
+		Assert.assertEquals(expectedBounds.bottom, bounds.bottom, 0);
+	}
+
+	private static List<WptPt> getAllPoints(GPXFile gpx) {
+		List<WptPt> points = new ArrayList<>(gpx.getPoints());
+		for (Track track : gpx.tracks) {
+			for (TrkSegment segment : track.segments) {
+				points.addAll(segment.points);
+			}
+		}
+		for (Route route : gpx.routes) {
+			points.addAll(route.points);
+		}
+		return points;
+	}
+}
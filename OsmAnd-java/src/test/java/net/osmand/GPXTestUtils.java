@@ -0,0 +1,204 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Speed;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fixtures and assertions shared by gpx tests
+ */
+public class GPXTestUtils {
+
+	/**
+	 * Tracks with stops and time gaps, segment with speed, track without elevation, single point,
+	 * empty and without time segments, route and waypoints with categories.
+	 */
+	public static GPXFile createTestFile(long seed) {
+		Random random = new Random(seed);
+		GPXFile gpx = new GPXFile("test");
+		for (int t = 0; t < 3; t++) {
+			Track track = new Track();
+			track.name = "track " + t;
+			for (int s = 0; s < 4; s++) {
+				TrkSegment segment = new TrkSegment();
+				int size = t == 1 && s == 1 ? 1 : (t == 0 && s == 3 ? 0 : 50 + random.nextInt(200));
+				double lat = 50 + random.nextDouble();
+				double lon = 10 + random.nextDouble();
+				long time = 1577836800000L + t * 86400000L + s * 3600000L;
+				for (int i = 0; i < size; i++) {
+					lat += (random.nextDouble() - 0.3) * 1e-3;
+					lon += (random.nextDouble() - 0.3) * 1e-3;
+					// stops and time gaps
+					time += random.nextInt(20) == 0 ? 600000 : 1000 * random.nextInt(10);
+					double ele = t == 2 ? Double.NaN : 100 + 50 * Math.sin(i / 10.0);
+					double speed = s == 0 ? random.nextInt(3000) / 100.0 : 0;
+					long pointTime = t == 2 && s == 3 ? 0 : time;
+					segment.points.add(new WptPt(lat, lon, pointTime, ele, speed, Double.NaN));
+				}
+				track.segments.add(segment);
+			}
+			gpx.tracks.add(track);
+		}
+		Route route = new Route();
+		route.name = "route";
+		for (int i = 0; i < 10; i++) {
+			route.points.add(new WptPt(48 + i * 0.01, 8 + i * 0.01, 0, Double.NaN, 0, Double.NaN));
+		}
+		gpx.routes.add(route);
+		for (int i = 0; i < 10; i++) {
+			WptPt p = new WptPt(55 + i * 0.1, 15 - i * 0.1, 0, Double.NaN, 0, Double.NaN);
+			p.name = "wpt " + i;
+			p.category = i % 3 == 0 ? null : "category " + i % 3;
+			gpx.addPoint(p);
+		}
+		return gpx;
+	}
+
+	public static String readResource(String name) throws IOException {
+		InputStream is = GPXTestUtils.class.getResourceAsStream(name);
+		Assert.assertNotNull(name, is);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			int read;
+			while ((read = is.read(buf)) != -1) {
+				out.write(buf, 0, read);
+			}
+			return new String(out.toByteArray(), "UTF-8");
+		} finally {
+			is.close();
+		}
+	}
+
+	public static void assertSameFile(GPXFile expected, GPXFile actual) {
+		Assert.assertEquals(expected.tracks.size(), actual.tracks.size());
+		for (int t = 0; t < expected.tracks.size(); t++) {
+			List<TrkSegment> expectedSegments = expected.tracks.get(t).segments;
+			List<TrkSegment> actualSegments = actual.tracks.get(t).segments;
+			Assert.assertEquals(expectedSegments.size(), actualSegments.size());
+			for (int s = 0; s < expectedSegments.size(); s++) {
+				assertSamePoints(expectedSegments.get(s).points, actualSegments.get(s).points);
+			}
+		}
+		assertSamePoints(expected.getPoints(), actual.getPoints());
+		Assert.assertEquals(expected.routes.size(), actual.routes.size());
+		for (int r = 0; r < expected.routes.size(); r++) {
+			assertSamePoints(expected.routes.get(r).points, actual.routes.get(r).points);
+		}
+		Assert.assertEquals(GPXUtilities.asString(expected), GPXUtilities.asString(actual));
+	}
+
+	public static void assertSamePoints(List<WptPt> expected, List<WptPt> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSamePoint(expected.get(i), actual.get(i));
+		}
+	}
+
+	public static void assertSamePoint(WptPt expected, WptPt actual) {
+		if (expected == null) {
+			Assert.assertNull(actual);
+			return;
+		}
+		Assert.assertNotNull(actual);
+		Assert.assertEquals(expected.lat, actual.lat, 0);
+		Assert.assertEquals(expected.lon, actual.lon, 0);
+		Assert.assertEquals(expected.time, actual.time);
+		Assert.assertEquals(expected.ele, actual.ele, 0);
+		Assert.assertEquals(expected.speed, actual.speed, 0);
+		Assert.assertEquals(expected.hdop, actual.hdop, 0);
+		Assert.assertEquals(expected.heading, actual.heading, 0);
+		Assert.assertEquals(expected.distance, actual.distance, 0);
+		Assert.assertEquals(expected.firstPoint, actual.firstPoint);
+		Assert.assertEquals(expected.lastPoint, actual.lastPoint);
+		Assert.assertEquals(expected.deleted, actual.deleted);
+		Assert.assertEquals(expected.name, actual.name);
+		Assert.assertEquals(expected.desc, actual.desc);
+		Assert.assertEquals(expected.comment, actual.comment);
+		Assert.assertEquals(expected.category, actual.category);
+		Assert.assertEquals(expected.link, actual.link);
+		Assert.assertEquals(expected.colourARGB, actual.colourARGB);
+		Assert.assertEquals(expected.getExtensionsToRead(), actual.getExtensionsToRead());
+	}
+
+	public static void assertSameAnalysis(GPXTrackAnalysis expected, GPXTrackAnalysis actual) {
+		Assert.assertEquals(expected.totalTracks, actual.totalTracks);
+		Assert.assertEquals(expected.points, actual.points);
+		Assert.assertEquals(expected.totalDistance, actual.totalDistance, 0);
+		Assert.assertEquals(expected.totalDistanceWithoutGaps, actual.totalDistanceWithoutGaps, 0);
+		Assert.assertEquals(expected.totalDistanceMoving, actual.totalDistanceMoving, 0);
+		Assert.assertEquals(expected.totalDistanceMovingWithoutGaps, actual.totalDistanceMovingWithoutGaps, 0);
+		Assert.assertEquals(expected.startTime, actual.startTime);
+		Assert.assertEquals(expected.endTime, actual.endTime);
+		Assert.assertEquals(expected.timeSpan, actual.timeSpan);
+		Assert.assertEquals(expected.timeSpanWithoutGaps, actual.timeSpanWithoutGaps);
+		Assert.assertEquals(expected.timeMoving, actual.timeMoving);
+		Assert.assertEquals(expected.timeMovingWithoutGaps, actual.timeMovingWithoutGaps);
+		Assert.assertEquals(expected.diffElevationUp, actual.diffElevationUp, 0);
+		Assert.assertEquals(expected.diffElevationDown, actual.diffElevationDown, 0);
+		Assert.assertEquals(expected.avgElevation, actual.avgElevation, 0);
+		Assert.assertEquals(expected.minElevation, actual.minElevation, 0);
+		Assert.assertEquals(expected.maxElevation, actual.maxElevation, 0);
+		Assert.assertEquals(expected.minSpeed, actual.minSpeed, 0);
+		Assert.assertEquals(expected.maxSpeed, actual.maxSpeed, 0);
+		Assert.assertEquals(expected.avgSpeed, actual.avgSpeed, 0);
+		Assert.assertEquals(expected.hasSpeedInTrack, actual.hasSpeedInTrack);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.right, actual.right, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.bottom, actual.bottom, 0);
+		assertSameLocation(expected.locationStart, actual.locationStart);
+		assertSameLocation(expected.locationEnd, actual.locationEnd);
+	}
+
+	public static void assertSameChartData(GPXTrackAnalysis expected, GPXTrackAnalysis actual) {
+		Assert.assertEquals(expected.elevationData.size(), actual.elevationData.size());
+		for (int i = 0; i < expected.elevationData.size(); i++) {
+			Elevation e = expected.elevationData.get(i);
+			Elevation a = actual.elevationData.get(i);
+			String message = "Elevation " + i;
+			Assert.assertEquals(message, e.distance, a.distance, 0);
+			Assert.assertEquals(message, e.time, a.time);
+			Assert.assertEquals(message, e.elevation, a.elevation, 0);
+			Assert.assertEquals(message, e.firstPoint, a.firstPoint);
+			Assert.assertEquals(message, e.lastPoint, a.lastPoint);
+		}
+		Assert.assertEquals(expected.speedData.size(), actual.speedData.size());
+		for (int i = 0; i < expected.speedData.size(); i++) {
+			Speed e = expected.speedData.get(i);
+			Speed a = actual.speedData.get(i);
+			String message = "Speed " + i;
+			Assert.assertEquals(message, e.distance, a.distance, 0);
+			Assert.assertEquals(message, e.time, a.time);
+			Assert.assertEquals(message, e.speed, a.speed, 0);
+			Assert.assertEquals(message, e.firstPoint, a.firstPoint);
+			Assert.assertEquals(message, e.lastPoint, a.lastPoint);
+		}
+	}
+
+	// start and end of analysis could be parsed separately from points of file
+	private static void assertSameLocation(WptPt expected, WptPt actual) {
+		if (expected == null) {
+			Assert.assertNull(actual);
+		} else {
+			Assert.assertNotNull(actual);
+			Assert.assertEquals(expected.lat, actual.lat, 0);
+			Assert.assertEquals(expected.lon, actual.lon, 0);
+			Assert.assertEquals(expected.time, actual.time);
+			Assert.assertEquals(expected.ele, actual.ele, 0);
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Author;
+import net.osmand.GPXUtilities.Bounds;
+import net.osmand.GPXUtilities.Copyright;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kxml2.io.KXmlSerializer;
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class GPXXmlSerializerTest {
+
+	// written by kxml serializer with number and time formats used before GPXXmlSerializer
+	private static final String GOLDEN_FILE = "/net/osmand/gpx_writer_golden.gpx";
+
+	private static final String[] TEXTS = {
+			"plain", "", " leading and trailing ", "&amp; < > &", "double \" quote", "single ' quote",
+			"both \" and ' quotes", "new\nline\r\nand\ttab", "control \u0001\u0008\u001f\u007f chars",
+			"latin é ß ø \u00a0 \u0080 ÿ", "cyrillic Москва", "cjk 東京", "emoji 😀 🏔",
+			"private \ue000 \ufffd \uffff"
+	};
+
+	@Test
+	public void testGoldenFile() throws IOException {
+		String expected = GPXTestUtils.readResource(GOLDEN_FILE);
+		String actual = GPXUtilities.asString(createTestFile());
+		// line endings of committed file could be changed by git
+		Assert.assertEquals(expected.replace("\r\n", "\n"), actual.replace("\r\n", "\n"));
+	}
+
+	@Test
+	public void testEdgeInputs() throws IOException {
+		// empty and single point segments, points without time and elevation
+		GPXFile gpx = GPXTestUtils.createTestFile(46);
+		String xml = GPXUtilities.asString(gpx);
+		GPXFile loaded = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		// coordinates are rounded once, so loaded file is written and read without changes
+		String written = GPXUtilities.asString(loaded);
+		GPXTestUtils.assertSameFile(loaded, GPXUtilities.loadGPXFile(new ByteArrayInputStream(written.getBytes("UTF-8"))));
+		for (int t = 0; t < gpx.tracks.size(); t++) {
+			List<TrkSegment> segments = gpx.tracks.get(t).segments;
+			for (int s = 0; s < segments.size(); s++) {
+				Assert.assertEquals(segments.get(s).points.size(), loaded.tracks.get(t).segments.get(s).points.size());
+			}
+		}
+
+		int times = 0;
+		int eles = 0;
+		List<WptPt> points = new ArrayList<>(gpx.getPoints());
+		for (Track track : gpx.tracks) {
+			for (TrkSegment segment : track.segments) {
+				points.addAll(segment.points);
+			}
+		}
+		for (Route route : gpx.routes) {
+			points.addAll(route.points);
+		}
+		for (WptPt p : points) {
+			times += p.time != 0 ? 1 : 0;
+			eles += !Double.isNaN(p.ele) ? 1 : 0;
+		}
+		Assert.assertEquals(times, count(xml, "<time>"));
+		Assert.assertEquals(eles, count(xml, "<ele>"));
+	}
+
+	@Test
+	public void testEscapingAsKxml() throws IOException {
+		for (String encoding : new String[] {"UTF-8", "ISO-8859-1", null}) {
+			for (String text : TEXTS) {
+				assertSameOutput(encoding, text);
+			}
+			Random random = new Random(4623);
+			for (int i = 0; i < 1000; i++) {
+				StringBuilder text = new StringBuilder();
+				int len = random.nextInt(10);
+				for (int j = 0; j < len; j++) {
+					// mostly ascii and markup, sometimes any char including surrogates
+					text.append(random.nextBoolean() ? (char) random.nextInt(128) : (char) random.nextInt(0x10000));
+				}
+				assertSameOutput(encoding, text.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testFormatters() {
+		GPXXmlSerializer serializer = new GPXXmlSerializer();
+		NumberFormat latLonFormat = new DecimalFormat("0.00#####", new DecimalFormatSymbols(new Locale("EN", "US")));
+		NumberFormat decimalFormat = new DecimalFormat("#.###", new DecimalFormatSymbols(new Locale("EN", "US")));
+		SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		double[] values = {0, -0.0, 1, -1, 0.5, 0.0005, 0.00049, 0.0004999, 1e-9, 12.345, 12.3455, 12.34551,
+				52.123456785, -52.123456785, 179.99999999, -180, 90, 1e7, 1e10, 1e12, -1e12, 123456789.123456};
+		for (double v : values) {
+			Assert.assertEquals(latLonFormat.format(v), serializer.formatLatLon(v));
+			Assert.assertEquals(decimalFormat.format(v), serializer.formatDecimal(v));
+		}
+		long[] times = {0, 1, -1, 999, 1000, 951782400000L, 951868799999L, 1577836800123L, 4102444800000L,
+				-2208988800000L, -2208988800001L, -30000000000000L, 253402300799999L, 253402300800000L};
+		for (long t : times) {
+			Assert.assertEquals(timeFormat.format(new Date(t)), serializer.formatTime(t));
+		}
+		Random random = new Random(8911);
+		for (int i = 0; i < 100000; i++) {
+			double lat = random.nextDouble() * 180 - 90;
+			double ele = random.nextDouble() * 10000 - 500;
+			double speed = random.nextInt(100000) / 1000.0;
+			long time = (long) (random.nextDouble() * 4102444800000L);
+			Assert.assertEquals(latLonFormat.format(lat), serializer.formatLatLon(lat));
+			Assert.assertEquals(decimalFormat.format(ele), serializer.formatDecimal(ele));
+			Assert.assertEquals(decimalFormat.format(speed), serializer.formatDecimal(speed));
+			Assert.assertEquals(timeFormat.format(new Date(time)), serializer.formatTime(time));
+		}
+	}
+
+	private static int count(String text, String s) {
+		int count = 0;
+		for (int i = text.indexOf(s); i != -1; i = text.indexOf(s, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+
+	private static void assertSameOutput(String encoding, String text) throws IOException {
+		String message = encoding + ": " + text;
+		Assert.assertEquals(message, write(new KXmlSerializer(), encoding, text),
+				write(new GPXXmlSerializer(), encoding, text));
+	}
+
+	private static String write(XmlSerializer serializer, String encoding, String text) throws IOException {
+		StringWriter writer = new StringWriter();
+		serializer.setOutput(writer);
+		serializer.setFeature(GPXXmlSerializer.FEATURE_INDENT_OUTPUT, true);
+		serializer.startDocument(encoding, true);
+		serializer.startTag(null, "gpx");
+		serializer.attribute(null, "name", text);
+		serializer.startTag(null, "name");
+		serializer.text(text);
+		serializer.endTag(null, "name");
+		serializer.startTag(null, "empty");
+		serializer.endTag(null, "empty");
+		serializer.startTag(null, "desc");
+		serializer.attribute(null, "a", text);
+		serializer.attribute(null, "b", text + "\"");
+		serializer.text(text.toCharArray(), 0, text.length());
+		serializer.endTag(null, "desc");
+		serializer.endTag(null, "gpx");
+		serializer.endDocument();
+		return writer.toString();
+	}
+
+	private static GPXFile createTestFile() {
+		GPXFile gpx = new GPXFile("OsmAnd \"test\" & 'golden' 😀");
+		gpx.metadata = new Metadata();
+		gpx.metadata.name = "name <\u0001> 😀";
+		gpx.metadata.desc = "line 1\nline 2\r\n\tline 3";
+		gpx.metadata.link = "https://osmand.net/?a=1&b=\"2\"&c='3'";
+		gpx.metadata.keywords = "é, ß, Москва, 東京";
+		gpx.metadata.time = 1577836800123L;
+		gpx.metadata.author = new Author();
+		gpx.metadata.author.name = "author \u001f";
+		gpx.metadata.author.email = "id@domain.org";
+		gpx.metadata.copyright = new Copyright();
+		gpx.metadata.copyright.author = "copyright 'author'";
+		gpx.metadata.copyright.year = "2020";
+		gpx.metadata.bounds = new Bounds();
+		gpx.metadata.bounds.minlat = -0.0000001;
+		gpx.metadata.bounds.minlon = -179.999999995;
+		gpx.metadata.bounds.maxlat = 52.123456785;
+		gpx.metadata.bounds.maxlon = 180;
+
+		double[] lats = {0, -0.000001, 1e-9, 52.1234567, 52.12345675, -33.8688197, 89.99999999, -90};
+		double[] eles = {Double.NaN, 0, 0.0005, -0.0004, 12.3455, -5.5, 8848.86, 1234567.891};
+		long[] times = {0, 1, 999, 951782400000L, 1577836800123L, -2208988800001L, -30000000000000L,
+				253402300800000L};
+		Track track = new Track();
+		track.name = "track & \"name\"";
+		track.desc = "🏔 desc";
+		for (int s = 0; s < 2; s++) {
+			TrkSegment segment = new TrkSegment();
+			for (int i = 0; i < lats.length; i++) {
+				WptPt p = new WptPt(lats[i], 4.8 + i * 0.1234567891 - s, times[i], eles[i], i * 0.0125 + s, i / 3.0);
+				if (i == 2) {
+					p.hdop = Double.NaN;
+				}
+				if (i == 3) {
+					p.heading = 123.5f;
+				}
+				segment.points.add(p);
+			}
+			track.segments.add(segment);
+		}
+		track.getExtensionsToWrite().put("color", "#ff0000");
+		gpx.tracks.add(track);
+
+		Route route = new Route();
+		route.name = "route \u0001";
+		for (int i = 0; i < TEXTS.length; i++) {
+			WptPt p = new WptPt(10 + i / 7.0, 20 - i / 9.0, 0, Double.NaN, 0, Double.NaN);
+			p.name = TEXTS[i];
+			route.points.add(p);
+		}
+		gpx.routes.add(route);
+
+		for (int i = 0; i < TEXTS.length; i++) {
+			WptPt p = new WptPt(-10 - i / 3.0, 100 + i / 11.0, 1000L * i, i * 100.5, 0, Double.NaN);
+			p.name = TEXTS[i];
+			p.desc = TEXTS[TEXTS.length - 1 - i];
+			p.link = TEXTS[i];
+			p.category = TEXTS[i];
+			p.comment = TEXTS[i];
+			p.getExtensionsToWrite().put("text", TEXTS[i]);
+			gpx.addPoint(p);
+		}
+		gpx.getExtensionsToWrite().put("file", TEXTS[TEXTS.length - 1]);
+		return gpx;
+	}
+
+	/**
+	 * Benchmark of writing track (plain and gzipped): [points, 1000000 by default] [directory]
+	 */
+	public static void main(String[] args) throws IOException {
+		int points = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		File dir = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+		GPXFile gpx = new GPXFile("benchmark");
+		Track track = new Track();
+		TrkSegment segment = new TrkSegment();
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < points; i++) {
+			WptPt p = new WptPt(52.3 + Math.sin(i / 1000.0) * 0.1, 4.8 + i * 1e-6, time + i * 1000L,
+					i % 2000 / 10.0 + 0.25, i % 30 + 0.7, 3.5);
+			segment.points.add(p);
+		}
+		track.segments.add(segment);
+		gpx.tracks.add(track);
+		for (String name : new String[] {"benchmark.gpx", "benchmark.gpx.gz"}) {
+			File f = new File(dir, name);
+			for (int i = 0; i < 3; i++) {
+				long start = System.nanoTime();
+				Exception e = GPXUtilities.writeGpxFile(f, gpx);
+				long ms = (System.nanoTime() - start) / 1000000;
+				if (e != null) {
+					throw new IOException(e);
+				}
+				System.out.println(String.format(Locale.US, "%s: %d points, %.1f MB in %d ms", name, points,
+						f.length() / (1024.0 * 1024.0), ms));
+			}
+			if (!f.delete()) {
+				System.out.println("Can't delete " + f.getAbsolutePath());
+			}
+		}
+	}
+}
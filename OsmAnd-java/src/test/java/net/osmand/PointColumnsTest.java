@@ -0,0 +1,148 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.PointColumns;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PointColumnsTest {
+
+	@Test
+	public void testColumnsToPoints() {
+		List<WptPt> points = createPoints();
+		PointColumns columns = new PointColumns(points);
+		columns.trimToSize();
+		Assert.assertEquals(points.size(), columns.size());
+		for (int i = 0; i < points.size(); i++) {
+			GPXTestUtils.assertSamePoint(points.get(i), columns.get(i));
+			Assert.assertEquals(points.get(i).lat, columns.getLatitude(i), 0);
+			Assert.assertEquals(points.get(i).lon, columns.getLongitude(i), 0);
+			Assert.assertEquals(points.get(i).time, columns.getTime(i));
+			Assert.assertEquals(points.get(i).ele, columns.getElevation(i), 0);
+			Assert.assertEquals(points.get(i).speed, columns.getSpeed(i), 0);
+		}
+		// points are found by equals
+		Assert.assertEquals(3, columns.indexOf(points.get(3)));
+		Assert.assertTrue(columns.contains(points.get(points.size() - 1)));
+	}
+
+	@Test
+	public void testLoadCompact() throws UnsupportedEncodingException {
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		TrkSegment segment = new TrkSegment();
+		segment.points.addAll(createPoints());
+		track.segments.add(segment);
+		gpx.tracks.add(track);
+		String xml = GPXUtilities.asString(gpx);
+
+		GPXFile loaded = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		GPXFile compact = GPXUtilities.loadCompactGPXFile(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		List<WptPt> actual = compact.tracks.get(0).segments.get(0).points;
+		Assert.assertTrue(actual instanceof PointColumns);
+		GPXTestUtils.assertSameFile(loaded, compact);
+	}
+
+	@Test
+	public void testLoadCompactEdgeCases() throws UnsupportedEncodingException {
+		// empty and single point segments, points without time and elevation
+		String xml = GPXUtilities.asString(GPXTestUtils.createTestFile(42));
+		GPXFile loaded = GPXUtilities.loadGPXFile(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		GPXFile compact = GPXUtilities.loadCompactGPXFile(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		GPXTestUtils.assertSameFile(loaded, compact);
+		Assert.assertTrue(compact.tracks.get(0).segments.get(3).points.isEmpty());
+		Assert.assertEquals(1, compact.tracks.get(1).segments.get(1).points.size());
+		GPXTestUtils.assertSameAnalysis(loaded.getAnalysis(0), compact.getAnalysis(0));
+	}
+
+	@Test
+	public void testEmptyColumns() {
+		PointColumns columns = new PointColumns(new ArrayList<WptPt>());
+		columns.trimToSize();
+		Assert.assertTrue(columns.isEmpty());
+		Assert.assertFalse(columns.iterator().hasNext());
+		Assert.assertEquals(-1, columns.indexOf(new WptPt(1, 2, 3, 4, 5, 6)));
+		try {
+			columns.get(0);
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		// single point grows capacity of trimmed columns
+		WptPt p = new WptPt(52.1, 4.9, 0, Double.NaN, 0, Double.NaN);
+		columns.append(p);
+		Assert.assertEquals(1, columns.size());
+		GPXTestUtils.assertSamePoint(p, columns.get(0));
+		Assert.assertTrue(Double.isNaN(columns.getElevation(0)));
+		Assert.assertEquals(0, columns.getTime(0));
+	}
+
+	@Test
+	public void testReadOnly() {
+		List<WptPt> points = createPoints();
+		PointColumns columns = new PointColumns(points);
+		WptPt p = new WptPt(1, 2, 3, 4, 5, 6);
+		try {
+			columns.add(p);
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			columns.set(0, p);
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			columns.remove(0);
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			columns.clear();
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		Assert.assertEquals(points.size(), columns.size());
+	}
+
+	private static List<WptPt> createPoints() {
+		List<WptPt> points = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			// values with more precision than float
+			WptPt p = new WptPt(52.123456789 + i * 1e-7, 4.987654321 - i * 1e-7, 1577836800123L + i * 1000,
+					12.3456789 + i, 1.23456789 * i, 3.3333333);
+			points.add(p);
+		}
+		points.get(0).firstPoint = true;
+		points.get(9).lastPoint = true;
+		points.get(1).ele = Double.NaN;
+		points.get(1).hdop = Double.NaN;
+		points.get(2).heading = 123.25f;
+		points.get(3).name = "name";
+		points.get(3).desc = "desc";
+		points.get(3).comment = "comment";
+		points.get(3).category = "category";
+		points.get(3).link = "https://osmand.net";
+		points.get(3).setColor(0xff00ff00);
+		points.get(4).getExtensionsToWrite().put("speed", "4.938");
+		points.get(4).getExtensionsToWrite().put("heading", "124");
+		points.get(5).getExtensionsToWrite().put("speed", "not a number");
+		points.get(5).getExtensionsToWrite().put("custom", "value");
+		points.get(6).deleted = true;
+		points.get(7).distance = 12345.6789;
+		return points;
+	}
+}
@@ -0,0 +1,230 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class CodedInputStreamTest {
+
+	private static final String[] NAMES = {"", "Berlin", "Москва", "東京", "Zürich straße", "😀 emoji"};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMappedBufferSameAsRandomAccessFile() throws IOException {
+		List<Long> offsets = new ArrayList<>();
+		File file = writeTestFile(offsets, new Random(29));
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		RandomAccessFile mappedRaf = new RandomAccessFile(file, "r");
+		try {
+			CodedInputStream fileStream = BinaryMapIndexReader.createCodedInputStream(raf, false);
+			CodedInputStream mappedStream = BinaryMapIndexReader.createCodedInputStream(mappedRaf, true);
+			String expected = readAll(CodedInputStream.newInstance(readFile(file)));
+			Assert.assertEquals(expected, readAll(fileStream));
+			Assert.assertEquals(expected, readAll(mappedStream));
+			Assert.assertTrue(fileStream.getBytesLoaded() > 0);
+			Assert.assertEquals(0, mappedStream.getBytesLoaded());
+
+			// random access by offsets of messages like in index readers
+			List<Long> order = new ArrayList<>(offsets);
+			Collections.shuffle(order, new Random(30));
+			for (int i = 0; i < order.size(); i++) {
+				long offset = order.get(i);
+				if (i % 5 == 0) {
+					fileStream.prefetch(offset, 64 * 1024);
+					mappedStream.prefetch(offset, 64 * 1024);
+				}
+				String fromFile = readMessageAt(fileStream, offset, i % 3 == 0);
+				Assert.assertEquals("Message at " + offset, fromFile, readMessageAt(mappedStream, offset, i % 3 == 0));
+			}
+		} finally {
+			raf.close();
+			mappedRaf.close();
+		}
+	}
+
+	@Test
+	public void testTruncatedMessage() throws IOException {
+		File file = writeTestFile(new ArrayList<Long>(), new Random(31));
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+		for (boolean mapped : new boolean[] {false, true}) {
+			raf = new RandomAccessFile(file, "r");
+			try {
+				readAll(BinaryMapIndexReader.createCodedInputStream(raf, mapped));
+				Assert.fail("Truncated message is read, mapped " + mapped);
+			} catch (IOException e) {
+				// expected
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	@Test
+	public void testLargeFileIsNotMapped() throws IOException {
+		File file = folder.newFile("large.obf");
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			CodedOutputStream out = CodedOutputStream.newInstance(fos);
+			out.writeString(1, "large");
+			out.flush();
+		} finally {
+			fos.close();
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			// sparse file, disk space is not used
+			raf.setLength(Integer.MAX_VALUE + 1024L);
+			try {
+				raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+				Assert.fail("File larger than 2 GB is mapped");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			CodedInputStream cis = BinaryMapIndexReader.createCodedInputStream(raf, true);
+			Assert.assertEquals(1, WireFormat.getTagFieldNumber(cis.readTag()));
+			Assert.assertEquals("large", cis.readString());
+		} finally {
+			raf.close();
+		}
+	}
+
+	// file of length delimited messages with fields of all types used by readers
+	private File writeTestFile(List<Long> offsets, Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		for (int i = 0; i < 300; i++) {
+			ByteArrayOutputStream message = new ByteArrayOutputStream();
+			CodedOutputStream m = CodedOutputStream.newInstance(message);
+			m.writeUInt32(2, random.nextInt(Integer.MAX_VALUE));
+			m.writeInt64(3, random.nextLong());
+			m.writeFixed32(4, random.nextInt());
+			m.writeFixed64(5, random.nextLong());
+			m.writeString(6, NAMES[random.nextInt(NAMES.length)] + i);
+			m.writeSInt32(7, random.nextInt() >> random.nextInt(32));
+			m.writeBool(8, random.nextBoolean());
+			// some blocks are larger than buffer of stream
+			byte[] block = new byte[random.nextInt(10) == 0 ? 8000 + random.nextInt(80000) : random.nextInt(300)];
+			random.nextBytes(block);
+			m.writeTag(9, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			m.writeRawVarint32(block.length);
+			m.writeRawBytes(block);
+			m.writeInt32(10, -random.nextInt(1000));
+			m.flush();
+			out.flush();
+			offsets.add((long) bytes.size());
+			out.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			out.writeRawVarint32(message.size());
+			out.writeRawBytes(message.toByteArray());
+		}
+		out.flush();
+		File file = folder.newFile();
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(bytes.toByteArray());
+		} finally {
+			fos.close();
+		}
+		return file;
+	}
+
+	private static String readAll(CodedInputStream cis) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int tag;
+		while ((tag = cis.readTag()) != 0) {
+			Assert.assertEquals(1, WireFormat.getTagFieldNumber(tag));
+			readMessage(cis, sb, false);
+		}
+		return sb.toString();
+	}
+
+	private static String readMessageAt(CodedInputStream cis, long offset, boolean skipBlock) throws IOException {
+		cis.seek(offset);
+		int tag = cis.readTag();
+		Assert.assertEquals(1, WireFormat.getTagFieldNumber(tag));
+		StringBuilder sb = new StringBuilder();
+		readMessage(cis, sb, skipBlock);
+		return sb.toString();
+	}
+
+	private static void readMessage(CodedInputStream cis, StringBuilder sb, boolean skipBlock) throws IOException {
+		int length = cis.readRawVarint32();
+		int old = cis.pushLimit(length);
+		sb.append("message ").append(cis.getTotalBytesRead()).append(' ').append(length).append('\n');
+		while (true) {
+			int tag = cis.readTag();
+			int field = WireFormat.getTagFieldNumber(tag);
+			switch (field) {
+			case 0:
+				cis.popLimit(old);
+				return;
+			case 2:
+				sb.append(cis.readUInt32());
+				break;
+			case 3:
+				sb.append(cis.readInt64());
+				break;
+			case 4:
+				sb.append(cis.readFixed32());
+				break;
+			case 5:
+				sb.append(cis.readFixed64());
+				break;
+			case 6:
+				sb.append(cis.readString());
+				break;
+			case 7:
+				sb.append(cis.readSInt32());
+				break;
+			case 8:
+				sb.append(cis.readBool());
+				break;
+			case 9:
+				int size = cis.readRawVarint32();
+				if (skipBlock) {
+					cis.skipRawBytes(size);
+				} else {
+					sb.append(Arrays.hashCode(cis.readRawBytes(size)));
+				}
+				break;
+			case 10:
+				sb.append(cis.readInt32());
+				break;
+			default:
+				Assert.fail("Unknown field " + field);
+			}
+			sb.append(' ');
+		}
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			byte[] bytes = new byte[(int) raf.length()];
+			raf.readFully(bytes);
+			return bytes;
+		} finally {
+			raf.close();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package net.osmand.binary;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.GeocodingUtilities.GeocodingCache;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.data.Street;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingContext;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GeocodingUtilitiesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBatchOrder() throws IOException {
+		List<LatLon> points = createPoints(new Random(27), 3000);
+		TestGeocodingUtilities gu = new TestGeocodingUtilities();
+		for (boolean justify : new boolean[] { false, true }) {
+			gu.searches.clear();
+			List<List<GeocodingResult>> res = gu.reverseGeocodingBatch(createContext(), points, false, justify, null);
+			assertResults(points, res);
+		}
+	}
+
+	@Test
+	public void testBatchRepeatedPoints() throws IOException {
+		List<LatLon> points = new ArrayList<>();
+		LatLon stop = new LatLon(52.555, 4.55);
+		for (int i = 0; i < 10; i++) {
+			points.add(new LatLon(52.5 + i * 0.01, 4.5));
+		}
+		// stop on a track is resolved once
+		for (int i = 0; i < 5; i++) {
+			points.add(3, stop);
+		}
+		TestGeocodingUtilities gu = new TestGeocodingUtilities();
+		List<List<GeocodingResult>> res = gu.reverseGeocodingBatch(createContext(), points, false, false, null);
+		assertResults(points, res);
+		Assert.assertEquals(1, gu.searches.get(stop).get());
+		Assert.assertEquals(11, gu.searches.size());
+		Assert.assertSame(res.get(3), res.get(7));
+	}
+
+	@Test
+	public void testParallelBatch() throws IOException {
+		List<LatLon> points = createPoints(new Random(28), 5000);
+		TestGeocodingUtilities gu = new TestGeocodingUtilities();
+		List<RoutingContext> contexts = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			contexts.add(createContext());
+		}
+		List<List<GeocodingResult>> res = gu.reverseGeocodingBatch(contexts, points, false, true, null);
+		assertResults(points, res);
+		// each context is used by a single worker
+		Assert.assertTrue(gu.threads.size() > 1);
+		for (Map<Thread, Boolean> ctxThreads : gu.threads.values()) {
+			Assert.assertEquals(1, ctxThreads.size());
+		}
+	}
+
+	@Test
+	public void testCancelledBatch() throws IOException {
+		List<LatLon> points = createPoints(new Random(29), 100);
+		TestGeocodingUtilities gu = new TestGeocodingUtilities();
+		ResultMatcher<GeocodingResult> cancelled = new ResultMatcher<GeocodingResult>() {
+			@Override
+			public boolean publish(GeocodingResult object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return true;
+			}
+		};
+		List<List<GeocodingResult>> res = gu.reverseGeocodingBatch(createContext(), points, false, false, cancelled);
+		Assert.assertEquals(points.size(), res.size());
+		Assert.assertTrue(gu.searches.isEmpty());
+		Assert.assertEquals(Collections.nCopies(points.size(), null), res);
+	}
+
+	@Test
+	public void testStreetCache() throws IOException {
+		File file = folder.newFile("region.obf");
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file, false);
+		GeocodingUtilities gu = new GeocodingUtilities();
+		GeocodingCache cache = new GeocodingCache();
+		List<String> names = gu.prepareStreetName("Main street", false);
+		List<Street> streets = cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Main", names, false, null);
+		assertCacheStats(cache, 0, 1);
+		// nearby point of the same cache tile
+		Assert.assertSame(streets, cache.getStreetsByName(gu, reader, road(52.5001, 4.5001), "Main", names, false, null));
+		assertCacheStats(cache, 1, 1);
+		// other tile and other name are read
+		cache.getStreetsByName(gu, reader, road(53.5, 4.5), "Main", names, false, null);
+		cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Other", gu.prepareStreetName("Other street", false), false, null);
+		assertCacheStats(cache, 1, 3);
+
+		// cancelled search is not cached
+		ResultMatcher<GeocodingResult> cancelled = new ResultMatcher<GeocodingResult>() {
+			@Override
+			public boolean publish(GeocodingResult object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return true;
+			}
+		};
+		List<String> cancelledNames = gu.prepareStreetName("Cancelled street", false);
+		cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Cancelled", cancelledNames, false, cancelled);
+		cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Cancelled", cancelledNames, false, cancelled);
+		assertCacheStats(cache, 1, 5);
+
+		// cache is cleared when it is full
+		for (int i = 3; i < GeocodingCache.MAX_CACHED_STREET_QUERIES; i++) {
+			cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Street", gu.prepareStreetName("Street " + i, false),
+					false, null);
+		}
+		assertCacheStats(cache, 1, GeocodingCache.MAX_CACHED_STREET_QUERIES + 2);
+		cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Main", names, false, null);
+		assertCacheStats(cache, 2, GeocodingCache.MAX_CACHED_STREET_QUERIES + 2);
+		cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Street", gu.prepareStreetName("Street x", false),
+				false, null);
+		cache.getStreetsByName(gu, reader, road(52.5, 4.5), "Main", names, false, null);
+		assertCacheStats(cache, 2, GeocodingCache.MAX_CACHED_STREET_QUERIES + 4);
+		reader.close();
+	}
+
+	private static RoutingContext createContext() {
+		return new RoutePlannerFrontEnd().buildRoutingContext(null, null, new BinaryMapIndexReader[0],
+				RouteCalculationMode.NORMAL);
+	}
+
+	// clusters of points with a few points far away
+	private static List<LatLon> createPoints(Random random, int size) {
+		List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			double spread = random.nextInt(10) == 0 ? 10 : 0.1;
+			int cluster = random.nextInt(5);
+			points.add(new LatLon(40 + cluster + random.nextDouble() * spread, 10 + cluster + random.nextDouble() * spread));
+		}
+		return points;
+	}
+
+	private static GeocodingResult road(double lat, double lon) {
+		GeocodingResult road = new GeocodingResult();
+		road.searchPoint = new LatLon(lat, lon);
+		road.connectionPoint = road.searchPoint;
+		return road;
+	}
+
+	private static void assertResults(List<LatLon> points, List<List<GeocodingResult>> res) {
+		Assert.assertEquals(points.size(), res.size());
+		for (int i = 0; i < points.size(); i++) {
+			Assert.assertEquals(1, res.get(i).size());
+			Assert.assertEquals(points.get(i), res.get(i).get(0).searchPoint);
+		}
+	}
+
+	private static void assertCacheStats(GeocodingCache cache, int hits, int misses) {
+		Assert.assertEquals(hits, cache.getHits());
+		Assert.assertEquals(misses, cache.getMisses());
+	}
+
+	// road of every point is found without routing data
+	private static class TestGeocodingUtilities extends GeocodingUtilities {
+
+		private final Map<LatLon, AtomicInteger> searches = new ConcurrentHashMap<>();
+		private final Map<RoutingContext, Map<Thread, Boolean>> threads =
+				Collections.synchronizedMap(new IdentityHashMap<RoutingContext, Map<Thread, Boolean>>());
+
+		@Override
+		public List<GeocodingResult> reverseGeocodingSearch(RoutingContext ctx, double lat, double lon,
+				boolean allowEmptyNames) throws IOException {
+			LatLon l = new LatLon(lat, lon);
+			searches.putIfAbsent(l, new AtomicInteger());
+			searches.get(l).incrementAndGet();
+			synchronized (threads) {
+				if (!threads.containsKey(ctx)) {
+					threads.put(ctx, new ConcurrentHashMap<Thread, Boolean>());
+				}
+			}
+			threads.get(ctx).put(Thread.currentThread(), true);
+			List<GeocodingResult> lst = new ArrayList<>();
+			GeocodingResult road = new GeocodingResult();
+			road.searchPoint = l;
+			road.connectionPoint = new LatLon(lat + 1e-4, lon);
+			road.streetName = "Street " + lat;
+			lst.add(road);
+			return lst;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import gnu.trove.list.array.TLongArrayList;
+
+public class ReadaheadPlannerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCoalesceRanges() {
+		ReadaheadPlanner planner = new ReadaheadPlanner(100, 50);
+		// not in file order, overlapping and with gaps
+		planner.addRange(1000, 10);
+		planner.addRange(0, 10);
+		planner.addBlock(60);
+		planner.addRange(100, 500);
+		planner.addRange(200, 50);
+		planner.addRange(1200, 10);
+		// invalid ranges are ignored
+		planner.addRange(-1, 10);
+		planner.addRange(5000, 0);
+		assertPlan(planner, 0, 600, 1000, 10, 1200, 10);
+
+		// gap equal to max gap is read
+		planner = new ReadaheadPlanner(100, 50);
+		planner.addRange(0, 10);
+		planner.addRange(110, 10);
+		planner.addRange(221, 10);
+		assertPlan(planner, 0, 120, 221, 10);
+
+		Assert.assertEquals(0, new ReadaheadPlanner().plan().size());
+	}
+
+	@Test
+	public void testMaxRangeSize() {
+		ReadaheadPlanner planner = new ReadaheadPlanner();
+		int block = ReadaheadPlanner.DEFAULT_BLOCK_SIZE;
+		int blocks = 2 * ReadaheadPlanner.MAX_RANGE_SIZE / block;
+		for (int i = 0; i < blocks; i++) {
+			planner.addBlock(i * block);
+		}
+		TLongArrayList plan = planner.plan();
+		Assert.assertEquals(2, plan.size());
+		long total = 0;
+		long end = 0;
+		for (int i = 0; i < plan.size(); i++) {
+			Assert.assertEquals(end, start(plan.get(i)));
+			Assert.assertTrue(length(plan.get(i)) <= ReadaheadPlanner.MAX_RANGE_SIZE);
+			total += length(plan.get(i));
+			end = start(plan.get(i)) + length(plan.get(i));
+		}
+		Assert.assertEquals((long) blocks * block, total);
+		// plan is cached until range is added
+		Assert.assertSame(plan, planner.plan());
+		planner.addBlock(blocks * block);
+		Assert.assertNotSame(plan, planner.plan());
+	}
+
+	@Test
+	public void testPrefetchReadsRangeOnce() throws IOException {
+		byte[] data = new byte[3 * 1024 * 1024];
+		new Random(30).nextBytes(data);
+		File file = writeFile(data);
+		int[] blocks = new int[100];
+		for (int i = 0; i < blocks.length; i++) {
+			blocks[i] = i * 20000 + (i % 7) * 100;
+		}
+		ReadaheadPlanner planner = new ReadaheadPlanner();
+		for (int b : blocks) {
+			planner.addBlock(b);
+		}
+		TLongArrayList plan = planner.plan();
+		long planned = 0;
+		for (int i = 0; i < plan.size(); i++) {
+			planned += length(plan.get(i));
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			CodedInputStream cis = CodedInputStream.newInstance(raf);
+			cis.setSizeLimit(Integer.MAX_VALUE);
+			planner.prefetch(cis);
+			Assert.assertEquals(0, cis.getBytesLoaded());
+			for (int b : blocks) {
+				assertBlock(data, cis, b, 9000);
+			}
+			// every planned byte is loaded once with few reads
+			Assert.assertEquals(planned, cis.getBytesLoaded());
+
+			// plan is dropped when stream leaves planned ranges
+			cis.seek(data.length - 1000);
+			long loaded = cis.getBytesLoaded();
+			assertBlock(data, cis, data.length - 1000, 100);
+			assertBlock(data, cis, blocks[0], 100);
+			Assert.assertEquals(loaded + 1000 + 5 * 1024, cis.getBytesLoaded());
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test
+	public void testPrefetchKeepsPosition() throws IOException {
+		byte[] data = new byte[1024 * 1024];
+		new Random(31).nextBytes(data);
+		File file = writeFile(data);
+		for (boolean mapped : new boolean[] {false, true}) {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				CodedInputStream cis = BinaryMapIndexReader.createCodedInputStream(raf, mapped);
+				cis.seek(1000);
+				int limit = cis.pushLimit(50000);
+				assertBytes(data, cis, 1000, 10);
+				cis.prefetch(500000, 100000);
+				Assert.assertEquals(1010, cis.getTotalBytesRead());
+				Assert.assertEquals(50000 - 10, cis.getBytesUntilLimit());
+				assertBytes(data, cis, 1010, 20000);
+				cis.popLimit(limit);
+				assertBlock(data, cis, 550000, 20000);
+				// block larger than planned range
+				assertBlock(data, cis, 599000, 30000);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	private static void assertBlock(byte[] data, CodedInputStream cis, int start, int length) throws IOException {
+		cis.seek(start);
+		assertBytes(data, cis, start, length);
+	}
+
+	private static void assertBytes(byte[] data, CodedInputStream cis, int start, int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			Assert.assertEquals("Byte " + (start + i), data[start + i], cis.readRawByte());
+		}
+	}
+
+	private File writeFile(byte[] data) throws IOException {
+		File file = folder.newFile();
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(data);
+		} finally {
+			fos.close();
+		}
+		return file;
+	}
+
+	private static void assertPlan(ReadaheadPlanner planner, long... expected) {
+		TLongArrayList plan = planner.plan();
+		Assert.assertEquals(expected.length / 2, plan.size());
+		for (int i = 0; i < plan.size(); i++) {
+			Assert.assertEquals("Start of range " + i, expected[i * 2], start(plan.get(i)));
+			Assert.assertEquals("Length of range " + i, expected[i * 2 + 1], length(plan.get(i)));
+		}
+	}
+
+	private static long start(long range) {
+		return range >>> 32;
+	}
+
+	private static long length(long range) {
+		return range & 0xffffffffL;
+	}
+}
@@ -0,0 +1,149 @@
+package net.osmand.binary;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchResultCursorTest {
+
+	private static final int RESULTS = 1000;
+
+	@Test(timeout = 10000)
+	public void testExhaustion() {
+		ResultMatcher<Integer> matcher = new EvenMatcher();
+		SearchRequest<Integer> req = BinaryMapIndexReader.buildAddressRequest(matcher);
+		AtomicInteger published = new AtomicInteger();
+		SearchResultCursor<Integer> cursor = new SearchResultCursor<>(req, 4, new CountingTask(published, null));
+		int expected = 0;
+		while (cursor.hasNext()) {
+			Assert.assertEquals(expected, cursor.next().intValue());
+			expected += 2;
+		}
+		Assert.assertEquals(RESULTS, expected);
+		Assert.assertFalse(cursor.hasNext());
+		Assert.assertEquals(RESULTS, published.get());
+		cursor.close();
+		Assert.assertFalse(cursor.hasNext());
+		assertRestored(req, matcher);
+		// results are not stored in request while streaming
+		Assert.assertTrue(req.getSearchResults().isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void testEarlyClose() {
+		ResultMatcher<Integer> matcher = new EvenMatcher();
+		SearchRequest<Integer> req = BinaryMapIndexReader.buildAddressRequest(matcher);
+		AtomicInteger published = new AtomicInteger();
+		SearchResultCursor<Integer> cursor = new SearchResultCursor<>(req, 4, new CountingTask(published, null));
+		for (int i = 0; i < 5; i++) {
+			Assert.assertEquals(i * 2, cursor.next().intValue());
+		}
+		// search thread waits for free space in queue, close releases it and waits for search to finish
+		cursor.close();
+		Assert.assertTrue(cursor.isClosed());
+		Assert.assertFalse(cursor.hasNext());
+		Assert.assertTrue(published.get() < RESULTS);
+		assertRestored(req, matcher);
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseWakesWaitingReader() throws InterruptedException {
+		SearchRequest<Integer> req = BinaryMapIndexReader.buildAddressRequest(null);
+		final CountDownLatch started = new CountDownLatch(1);
+		final SearchResultCursor<Integer> cursor = new SearchResultCursor<>(req, 4,
+				new SearchResultCursor.SearchTask<Integer>() {
+					@Override
+					public void search(SearchRequest<Integer> req) throws IOException {
+						// nothing is found until search is cancelled
+						started.countDown();
+						while (!req.isCancelled()) {
+							Thread.yield();
+						}
+					}
+				});
+		final AtomicBoolean hasNext = new AtomicBoolean(true);
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				hasNext.set(cursor.hasNext());
+			}
+		});
+		reader.start();
+		started.await();
+		cursor.close();
+		reader.join();
+		Assert.assertFalse(hasNext.get());
+		Assert.assertFalse(req.isStreaming());
+		Assert.assertNull(req.getResultMatcher());
+	}
+
+	@Test(timeout = 10000)
+	public void testSearchError() {
+		ResultMatcher<Integer> matcher = new EvenMatcher();
+		SearchRequest<Integer> req = BinaryMapIndexReader.buildAddressRequest(matcher);
+		AtomicInteger published = new AtomicInteger();
+		SearchResultCursor<Integer> cursor = new SearchResultCursor<>(req, 4,
+				new CountingTask(published, new IOException("broken file")));
+		int count = 0;
+		try {
+			while (cursor.hasNext()) {
+				cursor.next();
+				count++;
+			}
+			Assert.fail("Error of search is not thrown");
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+		// results found before error are read
+		Assert.assertEquals(RESULTS / 2, count);
+		Assert.assertFalse(cursor.hasNext());
+		assertRestored(req, matcher);
+	}
+
+	private static void assertRestored(SearchRequest<Integer> req, ResultMatcher<Integer> matcher) {
+		Assert.assertFalse(req.isStreaming());
+		Assert.assertSame(matcher, req.getResultMatcher());
+	}
+
+	private static class EvenMatcher implements ResultMatcher<Integer> {
+
+		@Override
+		public boolean publish(Integer object) {
+			return object % 2 == 0;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+
+	private static class CountingTask implements SearchResultCursor.SearchTask<Integer> {
+
+		private final AtomicInteger published;
+		private final IOException error;
+
+		CountingTask(AtomicInteger published, IOException error) {
+			this.published = published;
+			this.error = error;
+		}
+
+		@Override
+		public void search(SearchRequest<Integer> req) throws IOException {
+			for (int i = 0; i < RESULTS && !req.isCancelled(); i++) {
+				req.publish(i);
+				published.incrementAndGet();
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+	}
+}
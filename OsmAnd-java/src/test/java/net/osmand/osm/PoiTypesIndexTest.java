@@ -0,0 +1,218 @@
+package net.osmand.osm;
+
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.StringMatcher;
+import net.osmand.osm.MapPoiTypes.PoiTranslator;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PoiTypesIndexTest {
+
+	private static final StringMatcherMode[] MODES = { StringMatcherMode.CHECK_ONLY_STARTS_WITH,
+			StringMatcherMode.CHECK_STARTS_FROM_SPACE, StringMatcherMode.CHECK_STARTS_FROM_SPACE_NOT_BEGINNING,
+			StringMatcherMode.CHECK_EQUALS_FROM_SPACE, StringMatcherMode.CHECK_EQUALS };
+
+	private static final String[] QUERIES = { "s", "sup", "SUPER", "supermarket", "sup.", "магаз", "продукты",
+			"гипер", "пек", "cafe", "café", "caf", "fast", "fast f", "fast food", "food", "азс", "заправ", "дизель",
+			"топливо", "diesel", "drive", "drivethr", "drive-thr", "drive thr", "ёлк", "елк", "24", "24/7", "shop",
+			"food shop", "x", "xyz", "" };
+
+	private final Map<String, String> translations = new HashMap<>();
+	private final Map<String, String> enTranslations = new HashMap<>();
+	private final Map<String, String> synonyms = new HashMap<>();
+	private MapPoiTypes registry;
+	private final List<AbstractPoiType> types = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		translations.put("shop", "Магазин");
+		translations.put("food_shop", "Продуктовый магазин");
+		translations.put("supermarket", "Супермаркет");
+		synonyms.put("supermarket", "Гипермаркет;Продукты");
+		translations.put("bakery", "Пекарня");
+		translations.put("cafe", "Café");
+		enTranslations.put("cafe", "Cafe");
+		translations.put("fast_food", "Fast food");
+		translations.put("drive_through", "Drive-through");
+		translations.put("fuel", "Заправка");
+		synonyms.put("fuel", "АЗС");
+		translations.put("fuel_diesel", "Дизельное топливо");
+		translations.put("christmas_tree", "Ёлочный базар");
+		translations.put("opening_hours_24_7", "Круглосуточно 24/7");
+
+		registry = new MapPoiTypes(null);
+		registry.setPoiTranslator(new TestTranslator());
+		PoiCategory shop = registry.getPoiCategoryByName("shop", true);
+		PoiFilter foodShop = new PoiFilter(registry, shop, "food_shop");
+		shop.addPoiType(foodShop);
+		addType(shop, foodShop, "supermarket");
+		addType(shop, foodShop, "bakery");
+		addType(shop, null, "christmas_tree");
+		PoiCategory food = registry.getPoiCategoryByName("sustenance", true);
+		addType(food, null, "cafe");
+		PoiType fastFood = addType(food, null, "fast_food");
+		fastFood.addPoiAdditional(new PoiType(registry, food, null, "drive_through"));
+		fastFood.addPoiAdditional(new PoiType(registry, food, null, "opening_hours_24_7"));
+		PoiCategory transport = registry.getPoiCategoryByName("transportation", true);
+		PoiType fuel = addType(transport, null, "fuel");
+		fuel.addPoiAdditional(new PoiType(registry, transport, null, "fuel_diesel"));
+		collectTypes();
+	}
+
+	@Test
+	public void testCandidates() {
+		PoiTypesIndex index = registry.getPoiTypesIndex();
+		for (StringMatcherMode mode : MODES) {
+			for (String query : QUERIES) {
+				CollatorStringMatcher matcher = new CollatorStringMatcher(query, mode);
+				Set<AbstractPoiType> candidates = index.getCandidates(matcher);
+				for (AbstractPoiType pt : types) {
+					if (matchesAnyName(matcher, pt)) {
+						Assert.assertTrue(mode + " " + query + " " + pt, candidates == null || candidates.contains(pt));
+					}
+				}
+			}
+		}
+		// only types with matching words are candidates
+		Assert.assertEquals(Collections.singleton(getType("bakery")), candidates("пек", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(getType("food_shop"), getType("supermarket"))),
+				candidates("прод", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertEquals(Collections.singleton(getType("fuel_diesel")), candidates("топ", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertEquals(Collections.singleton(getType("fast_food")), candidates("fast f", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertTrue(candidates("xyz", StringMatcherMode.CHECK_STARTS_FROM_SPACE).isEmpty());
+		// contains queries are not indexed
+		Assert.assertNull(candidates("пек", StringMatcherMode.CHECK_CONTAINS));
+		Assert.assertNull(registry.getPoiTypesCandidates(new PlainMatcher(new CollatorStringMatcher("пек",
+				StringMatcherMode.CHECK_STARTS_FROM_SPACE))));
+	}
+
+	@Test
+	public void testSameAsFullScan() {
+		for (StringMatcherMode mode : StringMatcherMode.values()) {
+			for (String query : QUERIES) {
+				CollatorStringMatcher matcher = new CollatorStringMatcher(query, mode);
+				Assert.assertEquals(mode + " " + query, registry.getAllTypesTranslatedNames(new PlainMatcher(matcher)),
+						registry.getAllTypesTranslatedNames(matcher));
+			}
+		}
+	}
+
+	@Test
+	public void testIndexReset() {
+		PoiTypesIndex index = registry.getPoiTypesIndex();
+		Assert.assertSame(index, registry.getPoiTypesIndex());
+		CollatorStringMatcher matcher = new CollatorStringMatcher("торг", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		Assert.assertTrue(registry.getAllTypesTranslatedNames(matcher).isEmpty());
+
+		// new category is indexed
+		translations.put("vending", "Торговый автомат");
+		PoiCategory vending = registry.getPoiCategoryByName("vending", true);
+		Assert.assertNotSame(index, registry.getPoiTypesIndex());
+		Assert.assertEquals(Collections.singletonList(vending), registry.getAllTypesTranslatedNames(matcher));
+
+		// translator is changed
+		index = registry.getPoiTypesIndex();
+		registry.setPoiTranslator(new TestTranslator());
+		Assert.assertNotSame(index, registry.getPoiTypesIndex());
+	}
+
+	private PoiType addType(PoiCategory category, PoiFilter filter, String keyName) {
+		PoiType pt = new PoiType(registry, category, filter, keyName);
+		category.addPoiType(pt);
+		if (filter != null) {
+			filter.addPoiType(pt);
+		}
+		return pt;
+	}
+
+	private void collectTypes() {
+		Set<AbstractPoiType> set = new HashSet<>();
+		for (PoiCategory pc : registry.getCategories(true)) {
+			set.add(pc);
+			set.addAll(pc.getPoiFilters());
+			set.addAll(pc.getPoiTypes());
+		}
+		for (AbstractPoiType pt : new ArrayList<>(set)) {
+			set.addAll(pt.getPoiAdditionals());
+		}
+		types.addAll(set);
+	}
+
+	private AbstractPoiType getType(String keyName) {
+		for (AbstractPoiType pt : types) {
+			if (pt.getKeyName().equals(keyName)) {
+				return pt;
+			}
+		}
+		throw new IllegalArgumentException(keyName);
+	}
+
+	private Set<AbstractPoiType> candidates(String query, StringMatcherMode mode) {
+		return registry.getPoiTypesCandidates(new CollatorStringMatcher(query, mode));
+	}
+
+	private static boolean matchesAnyName(StringMatcher matcher, AbstractPoiType pt) {
+		return matcher.matches(pt.getTranslation()) || matcher.matches(pt.getEnTranslation())
+				|| matcher.matches(pt.getKeyName().replace('_', ' ')) || matcher.matches(pt.getSynonyms());
+	}
+
+	// matcher which is not supported by index
+	private static class PlainMatcher implements StringMatcher {
+
+		private final StringMatcher matcher;
+
+		PlainMatcher(StringMatcher matcher) {
+			this.matcher = matcher;
+		}
+
+		@Override
+		public boolean matches(String name) {
+			return matcher.matches(name);
+		}
+	}
+
+	private class TestTranslator implements PoiTranslator {
+
+		@Override
+		public String getTranslation(AbstractPoiType type) {
+			return getTranslation(type.getKeyName());
+		}
+
+		@Override
+		public String getTranslation(String keyName) {
+			return translations.get(keyName);
+		}
+
+		@Override
+		public String getEnTranslation(AbstractPoiType type) {
+			return getEnTranslation(type.getKeyName());
+		}
+
+		@Override
+		public String getEnTranslation(String keyName) {
+			return enTranslations.get(keyName);
+		}
+
+		@Override
+		public String getSynonyms(AbstractPoiType type) {
+			return getSynonyms(type.getKeyName());
+		}
+
+		@Override
+		public String getSynonyms(String keyName) {
+			return synonyms.get(keyName);
+		}
+	}
+}
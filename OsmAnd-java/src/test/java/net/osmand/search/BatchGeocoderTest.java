@@ -0,0 +1,141 @@
+package net.osmand.search;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class BatchGeocoderTest {
+
+	private static final LatLon DEFAULT_LOCATION = new LatLon(52.5, 13.4);
+
+	@Test
+	public void testOutputOrder() throws IOException {
+		StringBuilder input = new StringBuilder();
+		List<String> addresses = new ArrayList<>();
+		Random random = new Random(38);
+		for (int i = 0; i < 500; i++) {
+			String address = "Street " + i;
+			if (i % 7 == 0) {
+				input.append(address).append("\t").append(10 + i * 0.01).append("\t").append(20).append("\n");
+			} else {
+				input.append(address).append("\n");
+			}
+			addresses.add(address);
+		}
+		for (int threads : new int[] { 1, 4 }) {
+			TestBatchGeocoder geocoder = new TestBatchGeocoder(threads, random);
+			geocoder.setMaxResults(3);
+			StringWriter out = new StringWriter();
+			Assert.assertEquals(addresses.size(), geocoder.geocode(new BufferedReader(new StringReader(input.toString())), out));
+			// lines of every address are written in the order of input, results in the order of rank
+			String[] lines = out.toString().split("\n");
+			int ind = 0;
+			for (int i = 0; i < addresses.size(); i++) {
+				int results = i % 3;
+				if (results == 0) {
+					Assert.assertEquals((i + 1) + "\t0\t\t\t\t\t\t" + addresses.get(i), lines[ind++]);
+				}
+				LatLon location = i % 7 == 0 ? new LatLon(10 + i * 0.01, 20) : DEFAULT_LOCATION;
+				for (int rank = 1; rank <= results; rank++) {
+					String[] cols = lines[ind++].split("\t");
+					Assert.assertEquals(8, cols.length);
+					Assert.assertEquals(String.valueOf(i + 1), cols[0]);
+					Assert.assertEquals(String.valueOf(rank), cols[1]);
+					Assert.assertEquals(ObjectType.STREET.name(), cols[3]);
+					Assert.assertEquals(addresses.get(i) + " " + rank, cols[4]);
+					Assert.assertEquals(location.getLatitude(), Double.parseDouble(cols[5]), 1e-6);
+					Assert.assertEquals(location.getLongitude(), Double.parseDouble(cols[6]), 1e-6);
+					Assert.assertEquals(addresses.get(i), cols[7]);
+				}
+			}
+			Assert.assertEquals(lines.length, ind);
+		}
+	}
+
+	@Test
+	public void testInputLines() throws IOException {
+		TestBatchGeocoder geocoder = new TestBatchGeocoder(2, new Random(39));
+		StringWriter out = new StringWriter();
+		String input = "\n  \nStreet 1\tx\ty\n Street 2 \t1\t2\n";
+		Assert.assertEquals(4, geocoder.geocode(new BufferedReader(new StringReader(input)), out));
+		String[] lines = out.toString().split("\n");
+		Assert.assertEquals(4, lines.length);
+		// empty addresses are not searched, incorrect location is replaced by default one
+		Assert.assertEquals("1\t0\t\t\t\t\t\t", lines[0]);
+		Assert.assertEquals("2\t0\t\t\t\t\t\t", lines[1]);
+		Assert.assertTrue(lines[2].startsWith("3\t1\t"));
+		Assert.assertTrue(lines[2].endsWith("\tStreet 1 1\t52.500000\t13.400000\tStreet 1"));
+		Assert.assertTrue(lines[3].endsWith("\tStreet 2 1\t1.000000\t2.000000\tStreet 2"));
+		Assert.assertEquals(2, geocoder.searched.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testSearchError() throws IOException {
+		TestBatchGeocoder geocoder = new TestBatchGeocoder(2, new Random(40));
+		geocoder.geocode(new BufferedReader(new StringReader("Street 1\nerror\nStreet 3\n")), new StringWriter());
+	}
+
+	// every i-th address has i % 3 results, search takes random time
+	private static class TestBatchGeocoder extends BatchGeocoder {
+
+		private final Random random;
+		private final List<String> searched = Collections.synchronizedList(new ArrayList<String>());
+		private final SearchPhrase phrase = SearchPhrase.emptyPhrase(new SearchSettings((SearchSettings) null));
+		private int maxResults;
+
+		TestBatchGeocoder(int threads, Random random) {
+			super(new MapPoiTypes(null), Collections.<BinaryMapIndexReader>emptyList(), "en", threads);
+			this.random = random;
+			setDefaultLocation(DEFAULT_LOCATION);
+		}
+
+		@Override
+		public void setMaxResults(int maxResults) {
+			super.setMaxResults(maxResults);
+			this.maxResults = maxResults;
+		}
+
+		@Override
+		public GeocodingResult geocode(String address, LatLon location) {
+			if (address.equals("error")) {
+				throw new IllegalStateException(address);
+			}
+			searched.add(address);
+			int delay;
+			synchronized (random) {
+				delay = random.nextInt(3);
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			int number = Integer.parseInt(address.substring(address.lastIndexOf(' ') + 1));
+			List<SearchResult> results = new ArrayList<>();
+			for (int rank = 1; rank <= Math.min(number % 3, Math.max(1, maxResults)); rank++) {
+				SearchResult sr = new SearchResult(phrase);
+				sr.localeName = address + " " + rank;
+				sr.objectType = ObjectType.STREET;
+				sr.location = location != null ? location : DEFAULT_LOCATION;
+				results.add(sr);
+			}
+			return new GeocodingResult(address, results);
+		}
+	}
+}
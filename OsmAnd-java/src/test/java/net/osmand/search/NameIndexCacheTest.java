@@ -0,0 +1,174 @@
+package net.osmand.search;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.Building;
+import net.osmand.data.City;
+import net.osmand.data.City.CityType;
+import net.osmand.data.MapObject;
+import net.osmand.data.Street;
+import net.osmand.search.core.NameIndexCache;
+import net.osmand.search.core.SearchCoreFactory.SearchAddressByNameAPI;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class NameIndexCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BinaryMapIndexReader reader;
+	private BinaryMapIndexReader otherReader;
+
+	@Before
+	public void setUp() throws IOException {
+		reader = createReader("a.obf");
+		otherReader = createReader("b.obf");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		reader.close();
+		otherReader.close();
+	}
+
+	@Test
+	public void testPrefixReuse() {
+		NameIndexCache<String> cache = new NameIndexCache<>();
+		List<String> berl = Arrays.asList("Berlin", "Berlstedt");
+		cache.put(reader, "area", "Berl", true, berl);
+		cache.put(reader, "area", "bern", false, Arrays.asList("Bern"));
+
+		Assert.assertEquals(berl, cache.get(reader, "area", "berli", true));
+		Assert.assertEquals(berl, cache.get(reader, "area", "berl", false));
+		// shorter word, other file and other area are not covered
+		Assert.assertNull(cache.get(reader, "area", "ber", true));
+		Assert.assertNull(cache.get(otherReader, "area", "berli", true));
+		Assert.assertNull(cache.get(reader, "other", "berli", true));
+		// exact match is reused only for the same word
+		Assert.assertEquals(Arrays.asList("Bern"), cache.get(reader, "area", "Bern", false));
+		Assert.assertNull(cache.get(reader, "area", "berne", false));
+		Assert.assertNull(cache.get(reader, "area", "bern", true));
+		Assert.assertEquals(3, cache.getHits());
+		Assert.assertEquals(5, cache.getMisses());
+
+		// the longest cached prefix is used
+		List<String> berli = Arrays.asList("Berlin");
+		cache.put(reader, "area", "berli", true, berli);
+		Assert.assertEquals(berli, cache.get(reader, "area", "berlin", true));
+	}
+
+	@Test
+	public void testEviction() {
+		NameIndexCache<String> cache = new NameIndexCache<>(5, 3);
+		cache.put(reader, null, "a", true, Arrays.asList("a1", "a2"));
+		cache.put(reader, null, "b", true, Arrays.asList("b1", "b2"));
+		Assert.assertNotNull(cache.get(reader, null, "a", true));
+		// too many objects: least recently used "b" is removed
+		cache.put(reader, null, "c", true, Arrays.asList("c1", "c2"));
+		Assert.assertEquals(4, cache.getObjectsCount());
+		Assert.assertNull(cache.get(reader, null, "b", true));
+		Assert.assertNotNull(cache.get(reader, null, "a", true));
+		Assert.assertNotNull(cache.get(reader, null, "c", true));
+
+		// too many entries
+		cache.put(reader, null, "d", true, new ArrayList<String>());
+		cache.put(reader, null, "e", true, new ArrayList<String>());
+		Assert.assertNull(cache.get(reader, null, "a", true));
+		Assert.assertNotNull(cache.get(reader, null, "e", true));
+
+		// list larger than cache is not stored
+		cache.put(reader, null, "f", true, Arrays.asList("1", "2", "3", "4", "5", "6"));
+		Assert.assertNull(cache.get(reader, null, "f", true));
+	}
+
+	@Test
+	public void testClosedFile() throws IOException {
+		NameIndexCache<String> cache = new NameIndexCache<>();
+		cache.put(reader, null, "a", true, Arrays.asList("a1"));
+		cache.put(otherReader, null, "a", true, Arrays.asList("a2"));
+		otherReader.close();
+		Assert.assertNull(cache.get(otherReader, null, "a", true));
+		Assert.assertEquals(1, cache.getObjectsCount());
+		cache.put(otherReader, null, "b", true, Arrays.asList("b1"));
+		Assert.assertEquals(1, cache.getObjectsCount());
+		Assert.assertNotNull(cache.get(reader, null, "a", true));
+	}
+
+	@Test
+	public void testAddressObjectsAreCopied() {
+		NameIndexCache<MapObject> cache = new SearchAddressByNameAPI(null, null).getCache();
+		City city = new City(CityType.CITY);
+		city.setName("Berlin");
+		city.setName("de", "Berlin");
+		city.setId(1L);
+		city.setLocation(52.5, 13.4);
+		Street s1 = createStreet(city, "Berliner Straße", 2L);
+		Street s2 = createStreet(city, "Berliner Allee", 3L);
+		List<MapObject> read = Arrays.<MapObject>asList(s1, s2, city);
+		cache.put(reader, null, "berl", true, read);
+		// objects of search are modified after they are cached
+		s1.addBuilding(new Building());
+		city.registerStreet(s1);
+
+		List<MapObject> first = cache.get(reader, null, "berli", true);
+		List<MapObject> second = cache.get(reader, null, "berli", true);
+		Assert.assertEquals(3, first.size());
+		for (int i = 0; i < read.size(); i++) {
+			Assert.assertNotSame(read.get(i), first.get(i));
+			Assert.assertNotSame(first.get(i), second.get(i));
+			Assert.assertTrue(read.get(i).compareObject(first.get(i)));
+			Assert.assertEquals(read.get(i).getClass(), first.get(i).getClass());
+			Assert.assertEquals(read.get(i).getFileOffset(), first.get(i).getFileOffset());
+		}
+		Street copy = (Street) first.get(0);
+		Assert.assertTrue(copy.getBuildings().isEmpty());
+		Assert.assertFalse(copy.isBuildingsLoaded());
+		// streets of one city share the copy of city
+		Assert.assertSame(first.get(2), copy.getCity());
+		Assert.assertSame(copy.getCity(), ((Street) first.get(1)).getCity());
+		Assert.assertTrue(copy.getCity().getStreets().isEmpty());
+		Assert.assertEquals(CityType.CITY, copy.getCity().getType());
+
+		copy.addBuilding(new Building());
+		Assert.assertTrue(((Street) second.get(0)).getBuildings().isEmpty());
+	}
+
+	@Test
+	public void testPartlyLoadedBuildings() {
+		Street s = createStreet(new City(CityType.TOWN), "Hauptstraße", 4L);
+		s.addBuilding(new Building());
+		s.addIntersectedStreet(createStreet(s.getCity(), "Bahnhofstraße", 5L));
+		Assert.assertFalse(s.isBuildingsLoaded());
+		s.clearBuildings();
+		Assert.assertTrue(s.getBuildings().isEmpty());
+		Assert.assertTrue(s.getIntersectedStreets().isEmpty());
+		s.setBuildingsLoaded(true);
+		Assert.assertTrue(s.isBuildingsLoaded());
+	}
+
+	private static Street createStreet(City city, String name, long id) {
+		Street s = new Street(city);
+		s.setName(name);
+		s.setId(id);
+		s.setLocation(52.5 + id * 0.001, 13.4);
+		s.setFileOffset((int) id * 100);
+		return s;
+	}
+
+	private BinaryMapIndexReader createReader(String name) throws IOException {
+		File file = folder.newFile(name);
+		return new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file, false);
+	}
+}
@@ -0,0 +1,132 @@
+package net.osmand.search;
+
+import net.osmand.ResultMatcher;
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.MergedSearchTask;
+import net.osmand.search.SearchUICore.ParallelSearchTask;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelSearchTest {
+
+	private static final int REGIONS = 12;
+	private static final int LIMIT = 450;
+
+	@Test
+	public void testParallelSameAsSerial() throws IOException {
+		SearchSettings settings = new SearchSettings((SearchSettings) null).setOriginalLocation(new LatLon(0, 0));
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings);
+		// regions overlap, so the same objects are read from neighbour regions
+		List<List<Integer>> regions = new ArrayList<>();
+		Random random = new Random(31);
+		for (int r = 0; r < REGIONS; r++) {
+			List<Integer> objects = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				objects.add(r * 60 + random.nextInt(160));
+			}
+			regions.add(objects);
+		}
+		List<String> serial = search(phrase, regions, null);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		try {
+			for (int k = 0; k < 5; k++) {
+				Assert.assertEquals(serial, search(phrase, regions, executor));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		// limit is reached in the middle of regions and duplicates are removed
+		int region4 = serial.indexOf("region 4");
+		Assert.assertFalse(serial.get(region4 - 1).startsWith("region"));
+		Assert.assertEquals("region 5", serial.get(region4 + 1));
+		Assert.assertEquals(new HashSet<>(serial).size(), serial.size());
+	}
+
+	private static List<String> search(final SearchPhrase phrase, List<List<Integer>> regions,
+									   ThreadPoolExecutor executor) throws IOException {
+		final List<String> published = Collections.synchronizedList(new ArrayList<String>());
+		ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult object) {
+				published.add(object.localeName);
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		final SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
+		matcher.setExecutor(executor);
+		// state shared between regions like in search apis
+		final Set<Integer> ids = new HashSet<>();
+		final AtomicInteger limit = new AtomicInteger();
+		List<ParallelSearchTask> tasks = new ArrayList<>();
+		for (int r = 0; r < regions.size(); r++) {
+			final int region = r;
+			final List<Integer> objects = regions.get(r);
+			tasks.add(new MergedSearchTask() {
+				private List<Integer> read;
+
+				@Override
+				public void search(SearchResultMatcher resultMatcher) {
+					// slower first regions are finished later
+					sleep(region < 3 ? 20 : 1);
+					read = new ArrayList<>(objects);
+				}
+
+				@Override
+				public void merge(SearchResultMatcher resultMatcher) {
+					for (Integer id : read) {
+						if (limit.incrementAndGet() > LIMIT) {
+							break;
+						}
+						if (ids.add(id)) {
+							SearchResult sr = new SearchResult(phrase);
+							sr.localeName = String.valueOf(id);
+							sr.objectType = ObjectType.POI;
+							resultMatcher.publish(sr);
+						}
+					}
+					// marks end of region in results
+					SearchResult sr = new SearchResult(phrase);
+					sr.localeName = "region " + region;
+					sr.objectType = ObjectType.POI;
+					resultMatcher.publish(sr);
+				}
+			});
+		}
+		matcher.searchInParallel(tasks);
+		List<String> results = new ArrayList<>(published);
+		Assert.assertEquals(matcher.getRequestResults().size(), results.size());
+		return results;
+	}
+
+	private static void sleep(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package net.osmand.search;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.ParallelSearchTask;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreFactory.SearchBaseAPI;
+import net.osmand.search.core.SearchMetrics;
+import net.osmand.search.core.SearchMetrics.ApiMetrics;
+import net.osmand.search.core.SearchMetrics.RegionMetrics;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchMetricsTest {
+
+	private static final int[] REGION_RESULTS = { 5, 0, 12, 3 };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<BinaryMapIndexReader> regions = new ArrayList<>();
+	private SearchPhrase phrase;
+	private SearchUICore core;
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < REGION_RESULTS.length; i++) {
+			File file = folder.newFile("region_" + i + ".obf");
+			regions.add(new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file, false));
+		}
+		SearchSettings settings = new SearchSettings(regions).setOriginalLocation(new LatLon(0, 0));
+		phrase = SearchPhrase.emptyPhrase(settings);
+		core = new SearchUICore(new MapPoiTypes(null), "en", false);
+	}
+
+	@Test
+	public void testSerialCounts() throws IOException {
+		checkCounts(null);
+	}
+
+	@Test
+	public void testParallelCounts() throws IOException {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		try {
+			for (int k = 0; k < 5; k++) {
+				checkCounts(executor);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFirstResultAndFinish() {
+		SearchMetrics metrics = new SearchMetrics("test", regions);
+		Assert.assertEquals(-1, metrics.getFirstResultTime());
+		sleep(5);
+		metrics.resultPublished();
+		long first = metrics.getFirstResultTime();
+		Assert.assertTrue(first >= 5);
+		sleep(5);
+		metrics.resultPublished();
+		Assert.assertEquals(first, metrics.getFirstResultTime());
+
+		metrics.searchFinished(20, 15, true);
+		long total = metrics.getTotalTime();
+		Assert.assertTrue(total >= first + 5);
+		sleep(5);
+		Assert.assertEquals(total, metrics.getTotalTime());
+		JSONObject json = metrics.toJSON();
+		Assert.assertEquals("test", json.getString("phrase"));
+		Assert.assertEquals(20, json.getInt("resultsBeforeDedup"));
+		Assert.assertEquals(15, json.getInt("resultsAfterDedup"));
+		Assert.assertTrue(json.getBoolean("cancelled"));
+		Assert.assertEquals(0, json.getLong("bytesLoaded"));
+		Assert.assertEquals(0, json.getJSONArray("apis").length());
+	}
+
+	private void checkCounts(ThreadPoolExecutor executor) throws IOException {
+		SearchMetrics metrics = new SearchMetrics(phrase.toString(), regions);
+		final AtomicInteger published = new AtomicInteger();
+		ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult object) {
+				if (object.objectType == ObjectType.POI) {
+					published.incrementAndGet();
+				}
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
+		matcher.setExecutor(executor);
+		matcher.setMetrics(metrics);
+		TestRegionsAPI regionsApi = new TestRegionsAPI();
+		TestSingleAPI singleApi = new TestSingleAPI();
+		core.searchApi(phrase, singleApi, matcher);
+		Assert.assertEquals(-1, metrics.getFirstResultTime());
+		core.searchApi(phrase, regionsApi, matcher);
+		core.searchApi(phrase, singleApi, matcher);
+		Assert.assertTrue(metrics.getFirstResultTime() >= 0);
+
+		int total = 0;
+		for (int results : REGION_RESULTS) {
+			total += results;
+		}
+		Assert.assertEquals(total, published.get());
+		List<ApiMetrics> apis = metrics.getApis();
+		Assert.assertEquals(2, apis.size());
+		// results of api are counted, repeated api is summed
+		Assert.assertEquals("TestSingleAPI", apis.get(0).getApi());
+		Assert.assertEquals(0, apis.get(0).getResults());
+		Assert.assertEquals("TestRegionsAPI", apis.get(1).getApi());
+		Assert.assertEquals(total, apis.get(1).getResults());
+
+		// every region is reported once with results found in it
+		List<RegionMetrics> regionMetrics = metrics.getRegions();
+		Assert.assertEquals(REGION_RESULTS.length, regionMetrics.size());
+		Map<String, Integer> regionResults = new HashMap<>();
+		for (RegionMetrics m : regionMetrics) {
+			Assert.assertEquals("TestRegionsAPI", m.getApi());
+			Assert.assertTrue(m.getTime() >= TimeUnit.MILLISECONDS.toNanos(2));
+			Assert.assertTrue(m.getTime() <= apis.get(1).getTime());
+			Assert.assertEquals(0, m.getBytesLoaded());
+			regionResults.put(m.getRegion(), m.getResults());
+		}
+		for (int i = 0; i < REGION_RESULTS.length; i++) {
+			Assert.assertEquals(REGION_RESULTS[i], regionResults.get("region_" + i + ".obf").intValue());
+		}
+		Assert.assertEquals(0, metrics.getBytesLoaded());
+	}
+
+	private static void sleep(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// finds results in every region, regions are searched in parallel when executor is set
+	private class TestRegionsAPI extends SearchBaseAPI {
+
+		TestRegionsAPI() {
+			super(ObjectType.POI);
+		}
+
+		@Override
+		public boolean search(final SearchPhrase phrase, SearchResultMatcher resultMatcher) throws IOException {
+			List<ParallelSearchTask> tasks = new ArrayList<>();
+			for (int i = 0; i < regions.size(); i++) {
+				final BinaryMapIndexReader region = regions.get(i);
+				final int results = REGION_RESULTS[i];
+				tasks.add(new ParallelSearchTask() {
+					@Override
+					public void search(SearchResultMatcher resultMatcher) {
+						sleep(2);
+						for (int j = 0; j < results; j++) {
+							SearchResult sr = new SearchResult(phrase);
+							sr.localeName = region.getFile().getName() + " " + j;
+							sr.objectType = ObjectType.POI;
+							resultMatcher.publish(sr);
+						}
+						resultMatcher.apiSearchRegionFinished(TestRegionsAPI.this, region, phrase);
+					}
+				});
+			}
+			resultMatcher.searchInParallel(tasks);
+			return true;
+		}
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return 1;
+		}
+	}
+
+	// finds nothing
+	private static class TestSingleAPI extends SearchBaseAPI {
+
+		TestSingleAPI() {
+			super(ObjectType.POI);
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) {
+			return true;
+		}
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return 1;
+		}
+	}
+}
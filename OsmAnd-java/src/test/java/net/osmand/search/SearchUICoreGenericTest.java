@@ -2,6 +2,7 @@ package net.osmand.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -10,6 +11,7 @@ import org.junit.Test;
 
 import net.osmand.data.LatLon;
 import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultComparator;
 import net.osmand.search.core.SearchPhrase;
 import net.osmand.search.core.SearchResult;
 import net.osmand.search.core.SearchSettings;
@@ -97,6 +99,57 @@ public class SearchUICoreGenericTest {
 		Assert.assertSame(b2, cll.getCurrentSearchResults().get(2));
 	}
 
+	@Test
+	public void testInterleavedAddAndMerge() throws IOException {
+		SearchSettings ss = new SearchSettings((SearchSettings)null);
+		ss = ss.setOriginalLocation(new LatLon(0, 0));
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(ss);
+		SearchResultCollection cll = new SearchUICore.SearchResultCollection(phrase);
+		List<SearchResult> all = new ArrayList<>();
+		List<SearchResult> rs = new ArrayList<>();
+		// added without sorting
+		searchResult(rs, phrase, "c", 300);
+		searchResult(rs, phrase, "a", 200);
+		cll.addSearchResults(rs, false, false);
+		all.addAll(rs);
+		rs.clear();
+		searchResult(rs, phrase, "b", 200);
+		searchResult(rs, phrase, "b", 100);
+		cll.addSearchResults(rs, false, true);
+		all.addAll(rs);
+		rs.clear();
+
+		// merged with sorted results, duplicate is not added
+		searchResult(rs, phrase, "d", 100);
+		searchResult(rs, phrase, "a", 100);
+		searchResult(rs, phrase, "c", 100);
+		all.addAll(rs);
+		searchResult(rs, phrase, "d", 100);
+		cll.addSearchResults(rs, true, true);
+		rs.clear();
+		assertSorted(cll, all);
+
+		searchResult(rs, phrase, "e", 300);
+		cll.addSearchResults(rs, false, false);
+		all.addAll(rs);
+		rs.clear();
+		searchResult(rs, phrase, "a", 300);
+		cll.addSearchResults(rs, true, false);
+		all.addAll(rs);
+		rs.clear();
+		assertSorted(cll, all);
+	}
+
+	private static void assertSorted(SearchResultCollection cll, List<SearchResult> all) {
+		List<SearchResult> expected = new ArrayList<>(all);
+		Collections.sort(expected, new SearchResultComparator(cll.getPhrase()));
+		List<SearchResult> results = cll.getCurrentSearchResults();
+		Assert.assertEquals(expected.size(), results.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertSame("Result " + i, expected.get(i), results.get(i));
+		}
+	}
+
 	private SearchResult searchResult(List<SearchResult> rs, SearchPhrase phrase, String text, int dist) {
 		SearchResult res = new SearchResult(phrase);
 		res.localeName = text;
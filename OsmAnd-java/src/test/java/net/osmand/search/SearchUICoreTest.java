@@ -32,6 +32,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
@@ -155,6 +158,10 @@ public class SearchUICoreTest {
 
 		final SearchUICore core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
 		core.init();
+		final SearchUICore parallelCore = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		parallelCore.init();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
 
 		ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
 			@Override
@@ -197,7 +204,21 @@ public class SearchUICoreTest {
 				}
 				Assert.assertEquals(expected, present);
 			}
+
+			// parallel search finds the same results
+			SearchResultMatcher parallelMatcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
+			parallelMatcher.setExecutor(executor);
+			parallelCore.searchInternal(phrase, parallelMatcher);
+			SearchResultCollection parallelCollection = new SearchResultCollection(phrase);
+			parallelCollection.addSearchResults(parallelMatcher.getRequestResults(), true, true);
+			List<SearchResult> parallelResults = parallelCollection.getCurrentSearchResults();
+			Assert.assertEquals(searchResults.size(), parallelResults.size());
+			for (int i = 0; i < searchResults.size(); i++) {
+				Assert.assertEquals(formatResult(false, searchResults.get(i), phrase),
+						formatResult(false, parallelResults.get(i), phrase));
+			}
 		}
+		executor.shutdown();
 
 		obfFile.delete();
 	}
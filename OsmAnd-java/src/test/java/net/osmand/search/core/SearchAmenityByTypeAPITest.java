@@ -0,0 +1,194 @@
+package net.osmand.search.core;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.osm.PoiCategory;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchCoreFactory.SearchAmenityByTypeAPI;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchAmenityByTypeAPITest {
+
+	private static final LatLon LOCATION = new LatLon(52.0, 4.0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<Amenity> amenities = new ArrayList<>();
+	private final List<QuadRect> readRects = new ArrayList<>();
+	private SearchSettings settings;
+	private SearchResult poiType;
+
+	@Before
+	public void setUp() throws IOException {
+		PoiCategory shop = new PoiCategory(new MapPoiTypes(null), "shop", 0);
+		Random random = new Random(39);
+		for (int i = 0; i < 500; i++) {
+			Amenity a = new Amenity();
+			a.setId((long) i);
+			a.setName("poi " + i);
+			a.setType(shop);
+			a.setSubType("supermarket");
+			// up to ~110 km around location, closer objects are more often
+			double d = random.nextDouble() * random.nextDouble();
+			a.setLocation(LOCATION.getLatitude() + (random.nextDouble() - 0.5) * 2 * d,
+					LOCATION.getLongitude() + (random.nextDouble() - 0.5) * 3 * d);
+			amenities.add(a);
+		}
+		File file = folder.newFile("region.obf");
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file, false);
+		settings = new SearchSettings(Collections.singletonList(reader)).setOriginalLocation(LOCATION);
+		poiType = new SearchResult(SearchPhrase.emptyPhrase(settings));
+		poiType.localeName = "shop";
+		poiType.objectType = ObjectType.POI_TYPE;
+		poiType.object = new SearchPoiTypeFilter() {
+			@Override
+			public boolean accept(PoiCategory type, String subcategory) {
+				return true;
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return false;
+			}
+		};
+	}
+
+	@Test
+	public void testSearchMoreReadsRings() throws IOException {
+		SearchAmenityByTypeAPI api = new TestAmenityByTypeAPI();
+		QuadRect prevBBox = null;
+		for (int level = 1; level <= 4; level++) {
+			SearchPhrase phrase = createPhrase(level);
+			List<String> results = search(api, phrase, -1);
+			QuadRect bbox = phrase.getRadiusBBoxToSearch(10000);
+			if (prevBBox == null) {
+				Assert.assertEquals(1, readRects.size());
+				assertSameRect(bbox, readRects.get(0));
+			} else {
+				assertRing(prevBBox, bbox);
+			}
+			// same results as full search of the level
+			Assert.assertEquals(search(new TestAmenityByTypeAPI(), phrase, -1), results);
+			Assert.assertTrue(results.size() > 0);
+			prevBBox = bbox;
+		}
+	}
+
+	@Test
+	public void testSearchMoreWithEnoughNearResults() throws IOException {
+		SearchAmenityByTypeAPI api = new TestAmenityByTypeAPI();
+		int limit = 10;
+		List<String> first = search(api, createPhrase(1), limit);
+		Assert.assertEquals(1, readRects.size());
+		// consecutive "search more" don't read rings while results near location are enough
+		for (int level = 2; level <= 4; level++) {
+			List<String> results = search(api, createPhrase(level), limit);
+			Assert.assertEquals(0, readRects.size());
+			Assert.assertEquals(first, results);
+		}
+		// level of cache is advanced, the same level searched again is a new search
+		search(api, createPhrase(4), limit);
+		Assert.assertEquals(1, readRects.size());
+		assertSameRect(createPhrase(4).getRadiusBBoxToSearch(10000), readRects.get(0));
+
+		// without limit ring around area really read is searched
+		api = new TestAmenityByTypeAPI();
+		search(api, createPhrase(1), limit);
+		search(api, createPhrase(2), limit);
+		Assert.assertEquals(0, readRects.size());
+		SearchPhrase phrase = createPhrase(3);
+		List<String> results = search(api, phrase, -1);
+		assertRing(createPhrase(1).getRadiusBBoxToSearch(10000), phrase.getRadiusBBoxToSearch(10000));
+		Assert.assertEquals(search(new TestAmenityByTypeAPI(), phrase, -1), results);
+	}
+
+	private SearchPhrase createPhrase(int radiusLevel) {
+		return SearchPhrase.emptyPhrase(settings.setRadiusLevel(radiusLevel)).selectWord(poiType);
+	}
+
+	// sorted names of published results, read rects are collected from this search only
+	private List<String> search(SearchAmenityByTypeAPI api, SearchPhrase phrase, int limit) throws IOException {
+		readRects.clear();
+		ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), limit);
+		api.search(phrase, matcher);
+		TreeSet<String> names = new TreeSet<>();
+		for (SearchResult r : matcher.getRequestResults()) {
+			names.add(r.localeName);
+		}
+		return new ArrayList<>(names);
+	}
+
+	// read rects cover bbox without inner bbox
+	private void assertRing(QuadRect inner, QuadRect bbox) {
+		Assert.assertEquals(4, readRects.size());
+		double area = 0;
+		for (QuadRect r : readRects) {
+			Assert.assertTrue(r.left >= bbox.left && r.right <= bbox.right && r.top >= bbox.top && r.bottom <= bbox.bottom);
+			Assert.assertFalse(QuadRect.intersects(r, new QuadRect(inner.left + 1, inner.top + 1, inner.right - 1, inner.bottom - 1)));
+			area += r.width() * r.height();
+		}
+		Assert.assertEquals(bbox.width() * bbox.height() - inner.width() * inner.height(), area, 1e-3 * area);
+	}
+
+	private static void assertSameRect(QuadRect expected, QuadRect actual) {
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.right, actual.right, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.bottom, actual.bottom, 0);
+	}
+
+	private class TestAmenityByTypeAPI extends SearchAmenityByTypeAPI {
+
+		TestAmenityByTypeAPI() {
+			super(new MapPoiTypes(null), null);
+		}
+
+		@Override
+		void readRings(BinaryMapIndexReader r, List<QuadRect> rects, SearchPoiTypeFilter poiTypeFilter,
+					   ResultMatcher<Amenity> matcher) {
+			for (QuadRect bbox : rects) {
+				readRects.add(bbox);
+				for (Amenity a : amenities) {
+					int x = MapUtils.get31TileNumberX(a.getLocation().getLongitude());
+					int y = MapUtils.get31TileNumberY(a.getLocation().getLatitude());
+					if (x >= bbox.left && x <= bbox.right && y >= bbox.top && y <= bbox.bottom) {
+						matcher.publish(a);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package net.osmand.util;
+
+import net.sf.junidecode.Junidecode;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TransliterationHelperTest {
+
+	@Before
+	public void setUp() {
+		TransliterationHelper.clearCache();
+	}
+
+	@After
+	public void tearDown() {
+		TransliterationHelper.setJapanese(false);
+		TransliterationHelper.clearCache();
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		String name = "Москва";
+		String res = TransliterationHelper.transliterate(name);
+		Assert.assertEquals(Junidecode.unidecode(name), res);
+		assertStats(0, 1);
+		// equal name is found in cache, the same instance is returned
+		Assert.assertSame(res, TransliterationHelper.transliterate(new String(name)));
+		assertStats(1, 1);
+
+		// ascii names are not cached
+		Assert.assertEquals("Berlin", TransliterationHelper.transliterate("Berlin"));
+		Assert.assertEquals("", TransliterationHelper.transliterate(""));
+		assertStats(1, 1);
+
+		TransliterationHelper.setJapanese(true);
+		Assert.assertEquals("東京", TransliterationHelper.transliterate("東京"));
+		assertStats(1, 1);
+	}
+
+	@Test
+	public void testGenerations() {
+		int size = TransliterationHelper.CACHE_GENERATION_SIZE;
+		// the first generation is full
+		for (int i = 0; i < size; i++) {
+			TransliterationHelper.transliterate(name(i));
+		}
+		assertStats(0, size);
+		// new generation is started, names of old generation are hits and are moved to new one
+		for (int i = 0; i < size / 2; i++) {
+			TransliterationHelper.transliterate(name(size + i));
+			Assert.assertEquals(Junidecode.unidecode(name(i)), TransliterationHelper.transliterate(name(i)));
+		}
+		assertStats(size / 2, size + size / 2);
+		// the old generation is dropped when the current one is full
+		for (int i = size + size / 2; i < 2 * size + 1; i++) {
+			TransliterationHelper.transliterate(name(i));
+		}
+		long misses = TransliterationHelper.getCacheMisses();
+		long hits = TransliterationHelper.getCacheHits();
+		// moved names are kept, other names of the first generation are dropped
+		TransliterationHelper.transliterate(name(0));
+		TransliterationHelper.transliterate(name(size - 1));
+		assertStats(hits + 1, misses + 1);
+	}
+
+	@Test
+	public void testConcurrentTransliteration() throws InterruptedException {
+		final int names = 3000;
+		final List<List<String>> results = new ArrayList<>();
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final List<String> list = new ArrayList<>();
+			results.add(list);
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < names; i++) {
+							list.add(TransliterationHelper.transliterate(name(i % 1000)));
+						}
+					} catch (Throwable e) {
+						error.set(e);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertNull(error.get());
+		for (List<String> list : results) {
+			for (int i = 0; i < names; i++) {
+				Assert.assertEquals(Junidecode.unidecode(name(i % 1000)), list.get(i));
+				// all threads share the cached instance
+				Assert.assertSame(results.get(0).get(i), list.get(i));
+			}
+		}
+		Assert.assertEquals(4L * names, TransliterationHelper.getCacheHits() + TransliterationHelper.getCacheMisses());
+		Assert.assertTrue(TransliterationHelper.getCacheMisses() >= 1000);
+	}
+
+	private static String name(int i) {
+		return "улица " + i;
+	}
+
+	private static void assertStats(long hits, long misses) {
+		Assert.assertEquals(hits, TransliterationHelper.getCacheHits());
+		Assert.assertEquals(misses, TransliterationHelper.getCacheMisses());
+	}
+}
@@ -6,29 +6,56 @@ import android.os.AsyncTask;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import net.osmand.GPXBinaryCache;
 import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.IndexConstants;
+import net.osmand.PlatformUtil;
 import net.osmand.plus.track.GpxSplitType;
 import net.osmand.GPXUtilities.GPXTrackAnalysis;
 import net.osmand.plus.GPXDatabase.GpxDataItem;
 import net.osmand.plus.api.SQLiteAPI.SQLiteConnection;
 import net.osmand.plus.track.GradientScaleType;
 
+import org.apache.commons.logging.Log;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GpxDbHelper {
 
+	private static final Log LOG = PlatformUtil.getLog(GpxDbHelper.class);
+
 	private static final int MAX_ITEMS_CACHE_SIZE = 5000;
+	// analysed files are written to database in one transaction
+	private static final int BATCH_SIZE = 50;
+	private static final int READER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	private static final String GPX_CACHE_DIR = "gpx";
 
 	private OsmandApplication app;
 	private GPXDatabase db;
+	private GPXBinaryCache gpxCache;
 	private Map<File, GpxDataItem> itemsCache = new ConcurrentHashMap<>();
 
+	// requested files (visible in lists) are read before files of indexing
 	private ConcurrentLinkedQueue<File> readingItems = new ConcurrentLinkedQueue<>();
+	private ConcurrentLinkedQueue<File> indexingItems = new ConcurrentLinkedQueue<>();
+	private Set<File> analysingFiles = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+	private volatile boolean indexingRequested;
 	private Map<File, GpxDataItem> readingItemsMap = new ConcurrentHashMap<>();
 	private Map<File, GpxDataItemCallback> readingItemsCallbacks = new ConcurrentHashMap<>();
 	private GpxReaderTask readerTask;
@@ -43,6 +70,22 @@ public class GpxDbHelper {
 	GpxDbHelper(OsmandApplication app) {
 		this.app = app;
 		db = new GPXDatabase(app);
+		gpxCache = new GPXBinaryCache(new File(app.getCacheDir(), GPX_CACHE_DIR));
+	}
+
+	/**
+	 * Loads gpx from binary cache if file was not changed since it was cached (large files are cached only).
+	 */
+	public GPXFile loadGpxFile(File file) {
+		return gpxCache.loadGPXFile(file);
+	}
+
+	/**
+	 * Loads gpx for analysis and drawing only: points of track segments of large files
+	 * are kept in read only columns.
+	 */
+	public GPXFile loadReadOnlyGpxFile(File file) {
+		return gpxCache.loadGPXFile(file, true);
 	}
 
 	void loadGpxItems() {
@@ -70,6 +113,7 @@ public class GpxDbHelper {
 	public boolean rename(File currentFile, File newFile) {
 		boolean res = db.rename(currentFile, newFile);
 		itemsCache.remove(currentFile);
+		gpxCache.removeCache(currentFile);
 		return res;
 	}
 
@@ -130,12 +174,14 @@ public class GpxDbHelper {
 	public boolean remove(File file) {
 		boolean res = db.remove(file);
 		itemsCache.remove(file);
+		gpxCache.removeCache(file);
 		return res;
 	}
 
 	public boolean remove(GpxDataItem item) {
 		boolean res = db.remove(item);
 		itemsCache.remove(item.getFile());
+		gpxCache.removeCache(item.getFile());
 		return res;
 	}
 
@@ -182,10 +228,19 @@ public class GpxDbHelper {
 		return readerTask == null || !readerTask.isReading();
 	}
 
+	/**
+	 * Analyses all tracks of gpx directory in background, files which are already analysed are skipped,
+	 * so indexing continues from the same place if it was stopped. Files requested by {@link #getItem} go first.
+	 */
+	public void indexGpxFiles() {
+		indexingRequested = true;
+		if (readerTask == null) {
+			startReading();
+		}
+	}
+
 	private boolean isGpxReading(@NonNull File gpxFile) {
-		GpxReaderTask analyser = this.readerTask;
-		return readingItems.contains(gpxFile)
-				|| (analyser != null && gpxFile.equals(analyser.getGpxFile()));
+		return readingItems.contains(gpxFile) || analysingFiles.contains(gpxFile);
 	}
 
 	private void readGpxItem(@NonNull File gpxFile, @Nullable GpxDataItem item, @Nullable GpxDataItemCallback callback) {
@@ -218,51 +273,89 @@ public class GpxDbHelper {
 				|| item.getAnalysis().wptCategoryNames == null;
 	}
 
-	@SuppressLint("StaticFieldLeak")
-	private class GpxReaderTask extends AsyncTask<Void, GpxDataItem, Void> {
+	private void scanGpxFiles(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					scanGpxFiles(file);
+				} else if (file.getName().toLowerCase().endsWith(IndexConstants.GPX_FILE_EXT)
+						&& isAnalyseNeeded(file, itemsCache.get(file))) {
+					indexingItems.add(file);
+				}
+			}
+		}
+	}
 
-		private File gpxFile;
+	private static class GpxAnalysisResult {
+		private final File file;
+		private final GpxDataItem item;
+		private final GPXTrackAnalysis analysis;
 
-		public File getGpxFile() {
-			return gpxFile;
+		GpxAnalysisResult(File file, GpxDataItem item, GPXTrackAnalysis analysis) {
+			this.file = file;
+			this.item = item;
+			this.analysis = analysis;
 		}
+	}
+
+	@SuppressLint("StaticFieldLeak")
+	private class GpxReaderTask extends AsyncTask<Void, GpxDataItem, Void> {
 
 		public boolean isReading() {
-			return readingItems.size() > 0 || gpxFile != null;
+			return readingItems.size() > 0 || indexingItems.size() > 0 || analysingFiles.size() > 0;
 		}
 
 		@Override
 		protected Void doInBackground(Void... voids) {
 			SQLiteConnection conn = db.openConnection(false);
 			if (conn != null) {
+				ExecutorService executor = Executors.newFixedThreadPool(READER_THREADS);
+				CompletionService<GpxAnalysisResult> analyser = new ExecutorCompletionService<>(executor);
+				// results without analysis which are used if analysis of file fails
+				Map<Future<GpxAnalysisResult>, GpxAnalysisResult> running = new HashMap<>();
+				List<GpxAnalysisResult> analysed = new ArrayList<>();
 				try {
-					gpxFile = readingItems.poll();
-					while (gpxFile != null && !isCancelled()) {
-						GpxDataItem item = readingItemsMap.remove(gpxFile);
-						if (item.getFile() == null) {
-							item = db.getItem(gpxFile, conn);
-						}
-						if (isAnalyseNeeded(gpxFile, item)) {
-							GPXFile f = GPXUtilities.loadGPXFile(gpxFile);
-							GPXTrackAnalysis analysis = f.getAnalysis(gpxFile.lastModified());
+					if (indexingRequested) {
+						indexingRequested = false;
+						scanGpxFiles(app.getAppPath(IndexConstants.GPX_INDEX_DIR));
+					}
+					while (!isCancelled()) {
+						File gpxFile;
+						while (running.size() < READER_THREADS * 2 && (gpxFile = pollNextFile()) != null) {
+							GpxDataItem item = readingItemsMap.remove(gpxFile);
 							if (item == null || item.getFile() == null) {
-								item = new GpxDataItem(gpxFile, analysis);
-								db.insert(item, conn);
-								putToCache(item);
-							} else {
-								db.updateAnalysis(item, analysis, conn);
+								item = db.getItem(gpxFile, conn);
+							}
+							if (isAnalyseNeeded(gpxFile, item)) {
+								analysingFiles.add(gpxFile);
+								running.put(analyser.submit(createAnalysisTask(gpxFile, item)),
+										new GpxAnalysisResult(gpxFile, item, null));
+							} else if (item != null) {
 								putToCache(item);
+								publishProgress(item);
 							}
-						} else {
-							putToCache(item);
 						}
-
-						if (!isCancelled()) {
-							publishProgress(item);
+						if (running.isEmpty()) {
+							break;
+						}
+						analysed.add(getResult(analyser.take(), running));
+						Future<GpxAnalysisResult> done;
+						while ((done = analyser.poll()) != null) {
+							analysed.add(getResult(done, running));
+						}
+						// requested files are saved at once, other files are saved in batches
+						if (analysed.size() >= BATCH_SIZE || running.isEmpty() || hasCallbacks(analysed)) {
+							saveAnalysis(analysed, conn);
 						}
-						gpxFile = readingItems.poll();
 					}
+					// results of finished files are kept if reading is cancelled
+					saveAnalysis(analysed, conn);
+				} catch (InterruptedException e) {
+					cancel(false);
 				} finally {
+					executor.shutdownNow();
+					analysingFiles.clear();
 					conn.close();
 				}
 			} else {
@@ -271,11 +364,90 @@ public class GpxDbHelper {
 			return null;
 		}
 
+		private File pollNextFile() {
+			File gpxFile = readingItems.poll();
+			return gpxFile != null ? gpxFile : indexingItems.poll();
+		}
+
+		private Callable<GpxAnalysisResult> createAnalysisTask(final File gpxFile, final GpxDataItem item) {
+			return new Callable<GpxAnalysisResult>() {
+				@Override
+				public GpxAnalysisResult call() {
+					return new GpxAnalysisResult(gpxFile, item, GPXUtilities.analyzeGPXFile(gpxFile));
+				}
+			};
+		}
+
+		private GpxAnalysisResult getResult(Future<GpxAnalysisResult> future,
+											Map<Future<GpxAnalysisResult>, GpxAnalysisResult> running)
+				throws InterruptedException {
+			GpxAnalysisResult failed = running.remove(future);
+			try {
+				return future.get();
+			} catch (ExecutionException e) {
+				// broken file doesn't stop analysis of other files
+				LOG.error("Error analysing gpx " + failed.file.getAbsolutePath(), e.getCause());
+				return failed;
+			}
+		}
+
+		private boolean hasCallbacks(List<GpxAnalysisResult> results) {
+			for (GpxAnalysisResult r : results) {
+				if (readingItemsCallbacks.containsKey(r.file)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void saveAnalysis(List<GpxAnalysisResult> results, SQLiteConnection conn) {
+			if (results.isEmpty()) {
+				return;
+			}
+			List<GpxDataItem> items = new ArrayList<>(results.size());
+			conn.beginTransaction();
+			try {
+				for (GpxAnalysisResult r : results) {
+					GpxDataItem item = r.item;
+					if (r.analysis == null) {
+						// failed file is not saved, so it is analysed again next time
+						if (item != null && item.getFile() != null) {
+							items.add(item);
+						} else {
+							readingItemsCallbacks.remove(r.file);
+						}
+						continue;
+					}
+					if (item == null || item.getFile() == null) {
+						item = new GpxDataItem(r.file, r.analysis);
+						db.insert(item, conn);
+					} else {
+						db.updateAnalysis(item, r.analysis, conn);
+					}
+					items.add(item);
+				}
+				conn.setTransactionSuccessful();
+			} finally {
+				conn.endTransaction();
+			}
+			for (GpxAnalysisResult r : results) {
+				analysingFiles.remove(r.file);
+			}
+			results.clear();
+			for (GpxDataItem item : items) {
+				putToCache(item);
+				if (!isCancelled()) {
+					publishProgress(item);
+				}
+			}
+		}
+
 		@Override
 		protected void onCancelled(Void aVoid) {
 			readingItems.clear();
 			readingItemsMap.clear();
 			readingItemsCallbacks.clear();
+			indexingItems.clear();
 		}
 
 		@Override
@@ -293,7 +465,7 @@ public class GpxDbHelper {
 
 		@Override
 		protected void onPostExecute(Void aVoid) {
-			if (readingItems.size() > 0 && !isCancelled()) {
+			if ((readingItems.size() > 0 || indexingItems.size() > 0 || indexingRequested) && !isCancelled()) {
 				startReading();
 			} else {
 				readerTask = null;
@@ -10,18 +10,20 @@ import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import net.osmand.CallbackWithObject;
-import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXIncrementalAnalysis;
 import net.osmand.GPXUtilities.GPXTrackAnalysis;
 import net.osmand.GPXUtilities.Route;
 import net.osmand.GPXUtilities.Track;
 import net.osmand.GPXUtilities.TrkSegment;
 import net.osmand.GPXUtilities.WptPt;
+import net.osmand.GPXSpatialIndex;
 import net.osmand.IProgress;
 import net.osmand.IndexConstants;
 import net.osmand.PlatformUtil;
 import net.osmand.StateChangedListener;
 import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
 import net.osmand.plus.GPXDatabase.GpxDataItem;
 import net.osmand.plus.MapMarkersHelper.MapMarkersGroup;
 import net.osmand.plus.activities.SavingTrackHelper;
@@ -69,6 +71,7 @@ public class GpxSelectionHelper {
 	@NonNull
 	private List<SelectedGpxFile> selectedGPXFiles = new ArrayList<>();
 	private Map<GPXFile, Long> selectedGpxFilesBackUp = new HashMap<>();
+	private final GPXSpatialIndex<SelectedGpxFile> pointsIndex = new GPXSpatialIndex<>();
 	private SavingTrackHelper savingTrackHelper;
 	private SelectGpxTask selectGpxTask;
 	private SelectedGpxFile trackToFollow;
@@ -98,7 +101,7 @@ public class GpxSelectionHelper {
 				File file = new File(gpxEntry.getKey().path);
 				if (file.exists() && !file.isDirectory()) {
 					if (file.lastModified() > gpxEntry.getValue()) {
-						new GpxFileLoaderTask(file, new CallbackWithObject<GPXFile>() {
+						new GpxFileLoaderTask(app, file, new CallbackWithObject<GPXFile>() {
 							@Override
 							public boolean processResult(GPXFile result) {
 								if (result != null) {
@@ -138,7 +141,7 @@ public class GpxSelectionHelper {
 							shouldHideTrackToFollow = true;
 							File file = new File(gpxRoutePath);
 							if (file.exists() && !file.isDirectory()) {
-								new GpxFileLoaderTask(file, new CallbackWithObject<GPXFile>() {
+								new GpxFileLoaderTask(app, file, new CallbackWithObject<GPXFile>() {
 									@Override
 									public boolean processResult(GPXFile result) {
 										trackToFollow = selectGpxFile(result, true, false);
@@ -156,17 +159,19 @@ public class GpxSelectionHelper {
 
 	private static class GpxFileLoaderTask extends AsyncTask<Void, Void, GPXFile> {
 
+		private OsmandApplication app;
 		private File fileToLoad;
 		private CallbackWithObject<GPXFile> callback;
 
-		GpxFileLoaderTask(File fileToLoad, CallbackWithObject<GPXFile> callback) {
+		GpxFileLoaderTask(OsmandApplication app, File fileToLoad, CallbackWithObject<GPXFile> callback) {
+			this.app = app;
 			this.fileToLoad = fileToLoad;
 			this.callback = callback;
 		}
 
 		@Override
 		protected GPXFile doInBackground(Void... voids) {
-			return GPXUtilities.loadGPXFile(fileToLoad);
+			return app.getGpxDbHelper().loadGpxFile(fileToLoad);
 		}
 
 		@Override
@@ -538,19 +543,38 @@ public class GpxSelectionHelper {
 
 	@Nullable
 	public WptPt getVisibleWayPointByLatLon(@NonNull LatLon latLon) {
+		// the same precision as LatLon.equals
+		double delta = 0.00001;
+		QuadRect bounds = new QuadRect(latLon.getLongitude() - delta, latLon.getLatitude() + delta,
+				latLon.getLongitude() + delta, latLon.getLatitude() - delta);
+		GPXSpatialIndex<SelectedGpxFile> index = getPointsIndex();
 		for (SelectedGpxFile selectedGpx : selectedGPXFiles) {
-			GPXFile gpx;
-			if (selectedGpx != null && (gpx = selectedGpx.getGpxFile()) != null) {
-				for (WptPt pt : gpx.getPoints()) {
-					if (latLon.equals(new LatLon(pt.getLatitude(), pt.getLongitude()))) {
-						return pt;
-					}
+			for (WptPt pt : index.getWaypoints(selectedGpx, bounds)) {
+				if (latLon.equals(new LatLon(pt.getLatitude(), pt.getLongitude()))) {
+					return pt;
 				}
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Index of waypoints and displayed segments of selected files, files which are selected, unselected or changed
+	 * after previous call are updated in index.
+	 */
+	@NonNull
+	public GPXSpatialIndex<SelectedGpxFile> getPointsIndex() {
+		List<SelectedGpxFile> files = selectedGPXFiles;
+		pointsIndex.retainFiles(files);
+		for (SelectedGpxFile selectedGpx : files) {
+			GPXFile gpx = selectedGpx.getGpxFile();
+			if (gpx != null) {
+				pointsIndex.updateFile(selectedGpx, gpx, selectedGpx.getPointsToDisplay());
+			}
+		}
+		return pointsIndex;
+	}
+
 	public void setGpxFileToDisplay(GPXFile... gpxs) {
 		// special case for gpx current route
 		for (GPXFile gpx : gpxs) {
@@ -573,7 +597,7 @@ public class GpxSelectionHelper {
 						if (p != null) {
 							p.startTask(getString(R.string.loading_smth, fl.getName()), -1);
 						}
-						GPXFile gpx = GPXUtilities.loadGPXFile(fl);
+						GPXFile gpx = app.getGpxDbHelper().loadGpxFile(fl);
 						if (obj.has(COLOR)) {
 							int clr = parseColor(obj.getString(COLOR));
 							gpx.setColor(clr);
@@ -819,6 +843,8 @@ public class GpxSelectionHelper {
 
 		private GPXFile gpxFile;
 		private GPXTrackAnalysis trackAnalysis;
+		// recorded track grows by points, its analysis is updated with new points only
+		private GPXIncrementalAnalysis incrementalAnalysis;
 
 		private List<TrkSegment> processedPointsToDisplay = new ArrayList<>();
 		private List<GpxDisplayGroup> displayGroups;
@@ -852,9 +878,17 @@ public class GpxSelectionHelper {
 
 		private void update(OsmandApplication app) {
 			modifiedTime = gpxFile.modifiedTime;
-			trackAnalysis = gpxFile.getAnalysis(
-					Algorithms.isEmpty(gpxFile.path) ? System.currentTimeMillis() :
-							new File(gpxFile.path).lastModified());
+			long fileTimestamp = Algorithms.isEmpty(gpxFile.path) ? System.currentTimeMillis() :
+					new File(gpxFile.path).lastModified();
+			if (showCurrentTrack) {
+				if (incrementalAnalysis == null) {
+					incrementalAnalysis = new GPXIncrementalAnalysis();
+				}
+				trackAnalysis = incrementalAnalysis.update(gpxFile, fileTimestamp);
+			} else {
+				incrementalAnalysis = null;
+				trackAnalysis = gpxFile.getAnalysis(fileTimestamp);
+			}
 			displayGroups = null;
 			splitProcessed = GpxSelectionHelper.processSplit(app);
 		}
@@ -1140,7 +1174,7 @@ public class GpxSelectionHelper {
 					break;
 				}
 				if (!gpxFile.showCurrentTrack) {
-					gpxFile = GPXUtilities.loadGPXFile(new File(gpxFile.path));
+					gpxFile = app.getGpxDbHelper().loadGpxFile(new File(gpxFile.path));
 				}
 				selectGpxFile(gpxFile, true, false);
 				publishProgress();
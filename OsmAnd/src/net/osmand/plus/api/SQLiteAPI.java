@@ -26,6 +26,12 @@ public interface SQLiteAPI {
 
 		boolean isClosed();
 
+		void beginTransaction();
+
+		void setTransactionSuccessful();
+
+		void endTransaction();
+
 	}
 	
 	public interface SQLiteCursor {
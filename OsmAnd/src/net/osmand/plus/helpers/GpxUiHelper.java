@@ -15,6 +15,7 @@ import android.net.Uri;
 import android.os.Build;
 import android.text.SpannableString;
 import android.text.style.StyleSpan;
+import android.util.DisplayMetrics;
 import android.view.ContextThemeWrapper;
 import android.view.Gravity;
 import android.view.View;
@@ -62,6 +63,10 @@ import com.github.mikephil.charting.utils.MPPointF;
 
 import net.osmand.AndroidUtils;
 import net.osmand.CallbackWithObject;
+import net.osmand.GPXChartDataSampler;
+import net.osmand.GPXChartDataSampler.SamplingMethod;
+import net.osmand.GPXChartDataSampler.Series;
+import net.osmand.GPXChartDataSampler.SeriesProvider;
 import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.Elevation;
 import net.osmand.GPXUtilities.GPXFile;
@@ -131,6 +136,9 @@ public class GpxUiHelper {
 
 	private static final int OPEN_GPX_DOCUMENT_REQUEST = 1005;
 	private static final int MAX_CHART_DATA_ITEMS = 10000;
+	// points of elevation and speed charts per pixel of screen, the rest is visible only when chart is zoomed
+	private static final int CHART_POINTS_PER_PIXEL = 2;
+	private static final GPXChartDataSampler CHART_DATA_SAMPLER = new GPXChartDataSampler();
 	private static final Log LOG = PlatformUtil.getLog(GpxUiHelper.class);
 
 	public static String getDescription(OsmandApplication app, GPXFile result, File f, boolean html) {
@@ -1207,6 +1215,77 @@ public class GpxUiHelper {
 		return values;
 	}
 
+	private static List<Entry> calculateSpeedArray(GPXTrackAnalysis analysis, GPXDataSetAxisType axisType,
+												   float divX, float mulSpeed, float divSpeed, boolean calcWithoutGaps) {
+		List<Entry> values = new ArrayList<>();
+		List<Speed> speedData = analysis.speedData;
+		float nextX = 0;
+		float nextY;
+		float x;
+		for (Speed s : speedData) {
+			switch(axisType) {
+				case TIMEOFDAY:
+				case TIME:
+					x = s.time;
+					break;
+				default:
+					x = s.distance;
+					break;
+			}
+
+			if (x > 0) {
+				if (axisType == GPXDataSetAxisType.TIME && x > 60 ||
+					axisType == GPXDataSetAxisType.TIMEOFDAY && x > 60) {
+					values.add(new Entry(nextX + 1, 0));
+					values.add(new Entry(nextX + x - 1, 0));
+				}
+				if (!(calcWithoutGaps && s.firstPoint)) {
+					nextX += x / divX;
+				}
+				if (Float.isNaN(divSpeed)) {
+					nextY = s.speed * mulSpeed;
+				} else {
+					nextY = divSpeed / s.speed;
+				}
+				if (nextY < 0 || Float.isInfinite(nextY)) {
+					nextY = 0;
+				}
+				if (s.firstPoint) {
+					values.add(new Entry(nextX, 0));
+				}
+				values.add(new Entry(nextX, nextY));
+				if (s.lastPoint) {
+					values.add(new Entry(nextX, 0));
+				}
+			}
+		}
+		return values;
+	}
+
+	private static List<Entry> getSampledValues(OsmandApplication app, GPXTrackAnalysis analysis, String key,
+												SamplingMethod method, SeriesProvider provider) {
+		DisplayMetrics dm = app.getResources().getDisplayMetrics();
+		int maxPoints = Math.max(dm.widthPixels, dm.heightPixels) * CHART_POINTS_PER_PIXEL;
+		Series series = CHART_DATA_SAMPLER.getSampledSeries(analysis, key, maxPoints, method, provider);
+		List<Entry> values = new ArrayList<>(series.size());
+		for (int i = 0; i < series.size(); i++) {
+			values.add(new Entry(series.getX(i), series.getY(i)));
+		}
+		return values;
+	}
+
+	private static Series toSeries(List<Entry> values) {
+		int size = values.size();
+		float[] x = new float[size];
+		float[] y = new float[size];
+		for (int i = 0; i < size; i++) {
+			Entry e = values.get(i);
+			x[i] = e.getX();
+			y[i] = e.getY();
+		}
+		return new Series(x, y, size);
+	}
+
 	public static void setupHorizontalGPXChart(OsmandApplication app, HorizontalBarChart chart, int yLabelsCount,
 	                                           float topOffset, float bottomOffset, boolean useGesturesAndScale, boolean nightMode) {
 		if (android.os.Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
@@ -1300,11 +1379,11 @@ public class GpxUiHelper {
 
 	public static OrderedLineDataSet createGPXElevationDataSet(@NonNull OsmandApplication ctx,
 															   @NonNull LineChart mChart,
-															   @NonNull GPXTrackAnalysis analysis,
-															   @NonNull GPXDataSetAxisType axisType,
+															   @NonNull final GPXTrackAnalysis analysis,
+															   @NonNull final GPXDataSetAxisType axisType,
 															   boolean useRightAxis,
 															   boolean drawFilled,
-															   boolean calcWithoutGaps) {
+															   final boolean calcWithoutGaps) {
 		OsmandSettings settings = ctx.getSettings();
 		OsmandSettings.MetricsConstants mc = settings.METRIC_SYSTEM.get();
 		boolean useFeet = (mc == OsmandSettings.MetricsConstants.MILES_AND_FEET) || (mc == OsmandSettings.MetricsConstants.MILES_AND_YARDS);
@@ -1342,7 +1421,15 @@ public class GpxUiHelper {
 			}
 		});
 
-		List<Entry> values = calculateElevationArray(analysis, axisType, divX, convEle, true, calcWithoutGaps);
+		final float fDivX = divX;
+		String key = "elevation:" + axisType + ":" + divX + ":" + convEle + ":" + calcWithoutGaps;
+		List<Entry> values = getSampledValues(ctx, analysis, key, SamplingMethod.LARGEST_TRIANGLE_THREE_BUCKETS,
+				new SeriesProvider() {
+					@Override
+					public Series getSeries() {
+						return toSeries(calculateElevationArray(analysis, axisType, fDivX, convEle, true, calcWithoutGaps));
+					}
+				});
 
 		OrderedLineDataSet dataSet = new OrderedLineDataSet(values, "", GPXDataSetType.ALTITUDE, axisType);
 		dataSet.priority = (float) (analysis.avgElevation - analysis.minElevation) * convEle;
@@ -1390,11 +1477,11 @@ public class GpxUiHelper {
 
 	public static OrderedLineDataSet createGPXSpeedDataSet(@NonNull OsmandApplication ctx,
 	                                                       @NonNull LineChart mChart,
-	                                                       @NonNull GPXTrackAnalysis analysis,
-	                                                       @NonNull GPXDataSetAxisType axisType,
+	                                                       @NonNull final GPXTrackAnalysis analysis,
+	                                                       @NonNull final GPXDataSetAxisType axisType,
 	                                                       boolean useRightAxis,
 	                                                       boolean drawFilled,
-	                                                       boolean calcWithoutGaps) {
+	                                                       final boolean calcWithoutGaps) {
 		OsmandSettings settings = ctx.getSettings();
 		boolean light = settings.isLightContent();
 
@@ -1443,48 +1530,17 @@ public class GpxUiHelper {
 
 		yAxis.setAxisMinimum(0f);
 
-		ArrayList<Entry> values = new ArrayList<>();
-		List<Speed> speedData = analysis.speedData;
-		float nextX = 0;
-		float nextY;
-		float x;
-		for (Speed s : speedData) {
-			switch(axisType) {
-				case TIMEOFDAY:
-				case TIME:
-					x = s.time;
-					break;
-				default:
-					x = s.distance;
-					break;
-			}
-
-			if (x > 0) {
-				if (axisType == GPXDataSetAxisType.TIME && x > 60 ||
-					axisType == GPXDataSetAxisType.TIMEOFDAY && x > 60) {
-					values.add(new Entry(nextX + 1, 0));
-					values.add(new Entry(nextX + x - 1, 0));
-				}
-				if (!(calcWithoutGaps && s.firstPoint)) {
-					nextX += x / divX;
-				}
-				if (Float.isNaN(divSpeed)) {
-					nextY = s.speed * mulSpeed;
-				} else {
-					nextY = divSpeed / s.speed;
-				}
-				if (nextY < 0 || Float.isInfinite(nextY)) {
-					nextY = 0;
-				}
-				if (s.firstPoint) {
-					values.add(new Entry(nextX, 0));
-				}
-				values.add(new Entry(nextX, nextY));
-				if (s.lastPoint) {
-					values.add(new Entry(nextX, 0));
-				}
-			}
-		}
+		final float fDivX = divX;
+		final float fMulSpeed = mulSpeed;
+		final float fDivSpeed = divSpeed;
+		String key = "speed:" + axisType + ":" + divX + ":" + mulSpeed + ":" + divSpeed + ":" + calcWithoutGaps;
+		List<Entry> values = getSampledValues(ctx, analysis, key, SamplingMethod.MIN_MAX_BUCKETS,
+				new SeriesProvider() {
+					@Override
+					public Series getSeries() {
+						return toSeries(calculateSpeedArray(analysis, axisType, fDivX, fMulSpeed, fDivSpeed, calcWithoutGaps));
+					}
+				});
 
 		OrderedLineDataSet dataSet = new OrderedLineDataSet(values, "", GPXDataSetType.SPEED, axisType);
 
@@ -108,7 +108,7 @@ public class SelectedGpxMenuController extends MenuController {
 			GPXUtilities.GPXFile gpxFile = null;
 			GPXUtilities.Track generalTrack = null;
 			if (selectedGpxFile.getGpxFile().path != null) {
-				gpxFile = GPXUtilities.loadGPXFile(new File(selectedGpxFile.getGpxFile().path));
+				gpxFile = app.getGpxDbHelper().loadReadOnlyGpxFile(new File(selectedGpxFile.getGpxFile().path));
 			}
 			if (gpxFile != null) {
 				generalTrack = gpxFile.getGeneralTrack();
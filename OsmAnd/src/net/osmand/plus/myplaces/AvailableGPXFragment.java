@@ -956,6 +956,8 @@ public class AvailableGPXFragment extends OsmandExpandableListFragment implement
 		protected void onPostExecute(List<GpxInfo> result) {
 			this.result = result;
 			allGpxAdapter.refreshSelected();
+			// analyse the rest of tracks in background (visible ones are requested by adapter first)
+			app.getGpxDbHelper().indexGpxFiles();
 			hideProgressBar();
 			listView.setEmptyView(emptyView);
 			if (allGpxAdapter.getGroupCount() > 0 &&
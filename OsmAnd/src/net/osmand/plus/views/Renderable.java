@@ -6,6 +6,7 @@ import android.graphics.Path;
 
 import androidx.annotation.NonNull;
 
+import net.osmand.GPXSimplificationPyramid;
 import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.WptPt;
 import net.osmand.data.QuadRect;
@@ -14,7 +15,6 @@ import net.osmand.plus.views.layers.geometry.GeometryWay;
 import net.osmand.plus.views.layers.geometry.GpxGeometryWay;
 import net.osmand.util.Algorithms;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
@@ -54,16 +54,14 @@ public class Renderable {
 
     public static abstract class RenderableSegment {
 
-        protected static final int MIN_CULLER_ZOOM = 16;
-
         public List<WptPt> points = null;                           // Original list of points
-        protected List<WptPt> culled = new ArrayList<>();           // Reduced/resampled list of points
+        protected GPXSimplificationPyramid pyramid = null;         // Reduced lists of points for zooms
         protected int pointSize;
         protected double segmentSize;
 
         protected QuadRect trackBounds;
         protected double zoom = -1;
-        protected AsynchronousResampler culler = null;                        // The currently active resampler
+        protected AsynchronousResampler culler = null;              // The currently active resampler
         protected Paint paint = null;                               // MUST be set by 'updateLocalPaint' before use
 
         protected GpxGeometryWay geometryWay;
@@ -105,12 +103,14 @@ public class Renderable {
             }
         }
 
-        public void setRDP(List<WptPt> cull) {
-            culled = cull;
+        public void setPyramid(GPXSimplificationPyramid pyramid) {
+            this.pyramid = pyramid;
+            culler = null;
         }
 
         public List<WptPt> getPointsForDrawing() {
-            return culled.isEmpty() ? points : culled;
+            // pyramid of changed points is not used until it is rebuilt, appended points are drawn after simplification
+            return pyramid != null && pyramid.isExtendedBy(points) ? pyramid.getPoints(zoom, points) : points;
         }
 
         public void drawGeometry(Canvas canvas, RotatedTileBox tileBox, QuadRect quadRect, int arrowColor, int trackColor, float trackWidth) {
@@ -169,21 +169,12 @@ public class Renderable {
         }
 
         @Override public void startCuller(double newZoom) {
-
-            if (zoom != newZoom) {
-                if (culler != null) {
-                    culler.cancel(true);
-                }
-                if (zoom < newZoom) {            // if line would look worse (we're zooming in) then...
-                    culled.clear();              // use full-resolution until re-cull complete
-                }
-                zoom = newZoom;
-                if (newZoom >= MIN_CULLER_ZOOM) {
-                    return;
-                }
-
-                double cullDistance = Math.pow(2.0, segmentSize - zoom);    // segmentSize == epsilon
-                culler = new AsynchronousResampler.RamerDouglasPeucer(this, cullDistance);
+            zoom = newZoom;
+            // simplifications of all zooms are built once, full-resolution is used until they are built,
+            // growing track is rebuilt only after many points are appended
+            if (newZoom < GPXSimplificationPyramid.FULL_POINTS_ZOOM && culler == null
+                    && (pyramid == null || pyramid.isRebuildNeeded(points))) {
+                culler = new AsynchronousResampler.SimplificationPyramidBuilder(this, segmentSize);
                 try {
                     culler.executeOnExecutor(THREAD_POOL_EXECUTOR, "");
                 } catch (RejectedExecutionException e) {
@@ -193,7 +184,7 @@ public class Renderable {
         }
 
         @Override public void drawSingleSegment(double zoom, Paint p, Canvas canvas, RotatedTileBox tileBox) {
-            draw(culled.isEmpty() ? points : culled, p, canvas, tileBox);
+            draw(getPointsForDrawing(), p, canvas, tileBox);
         }
     }
 
@@ -21,11 +21,14 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.content.ContextCompat;
 
+import gnu.trove.list.array.TIntArrayList;
+
 import net.osmand.AndroidUtils;
 import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.GPXFile;
 import net.osmand.GPXUtilities.TrkSegment;
 import net.osmand.GPXUtilities.WptPt;
+import net.osmand.GPXSpatialIndex;
 import net.osmand.Location;
 import net.osmand.PlatformUtil;
 import net.osmand.data.LatLon;
@@ -502,14 +505,17 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 			Map<WptPt, SelectedGpxFile> pointFileMap = new HashMap<>();
 			// request to load
 			final QuadRect latLonBounds = tileBox.getLatLonBounds();
+			GPXSpatialIndex<SelectedGpxFile> pointsIndex = selectedGpxHelper.getPointsIndex();
+			Object moveableObject = contextMenuLayer.getMoveableObject();
 			for (SelectedGpxFile g : selectedGPXFiles) {
 				List<Pair<WptPt, MapMarker>> fullObjects = new ArrayList<>();
 				int fileColor = getFileColor(g);
 				boolean synced = mapMarkersHelper.getMarkersGroup(g.getGpxFile()) != null;
-				for (WptPt wpt : getListStarPoints(g)) {
-					if (wpt.lat >= latLonBounds.bottom && wpt.lat <= latLonBounds.top
-							&& wpt.lon >= latLonBounds.left && wpt.lon <= latLonBounds.right
-							&& wpt != contextMenuLayer.getMoveableObject()) {
+				if (moveableObject instanceof WptPt && getListStarPoints(g).contains(moveableObject)) {
+					pointFileMap.put((WptPt) moveableObject, g);
+				}
+				for (WptPt wpt : pointsIndex.getWaypoints(g, latLonBounds)) {
+					if (wpt != moveableObject) {
 						pointFileMap.put(wpt, g);
 						MapMarker marker = null;
 						if (synced) {
@@ -538,9 +544,6 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 							fullObjectsLatLon.add(new LatLon(wpt.lat, wpt.lon));
 						}
 					}
-					if (wpt == contextMenuLayer.getMoveableObject()) {
-						pointFileMap.put(wpt, g);
-					}
 				}
 				for (Pair<WptPt, MapMarker> pair : fullObjects) {
 					WptPt wpt = pair.first;
@@ -768,11 +771,11 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 		int r = (int) (getScaledTouchRadius(view.getApplication(), getDefaultRadiusPoi(tb)) * TOUCH_RADIUS_MULTIPLIER);
 		int ex = (int) point.x;
 		int ey = (int) point.y;
+		QuadRect touchBounds = getTouchLatLonBounds(tb, ex, ey, r);
+		GPXSpatialIndex<SelectedGpxFile> pointsIndex = selectedGpxHelper.getPointsIndex();
 		List<SelectedGpxFile> selectedGpxFiles = new ArrayList<>(selectedGpxHelper.getSelectedGPXFiles());
 		for (SelectedGpxFile g : selectedGpxFiles) {
-			List<WptPt> pts = getListStarPoints(g);
-			// int fcolor = g.getColor() == 0 ? clr : g.getColor();
-			for (WptPt n : pts) {
+			for (WptPt n : pointsIndex.getWaypoints(g, touchBounds)) {
 				int x = (int) tb.getPixXFromLatLon(n.lat, n.lon);
 				int y = (int) tb.getPixYFromLatLon(n.lat, n.lon);
 				if (calculateBelongs(ex, ey, x, y, r)) {
@@ -786,24 +789,55 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 		int r = getScaledTouchRadius(view.getApplication(), getDefaultRadiusPoi(tb));
 		int mx = (int) point.x;
 		int my = (int) point.y;
+		QuadRect touchBounds = getTouchLatLonBounds(tb, mx, my, r);
+		GPXSpatialIndex<SelectedGpxFile> pointsIndex = selectedGpxHelper.getPointsIndex();
 		List<SelectedGpxFile> selectedGpxFiles = new ArrayList<>(selectedGpxHelper.getSelectedGPXFiles());
 		for (SelectedGpxFile selectedGpxFile : selectedGpxFiles) {
 			List<TrkSegment> segments = selectedGpxFile.getPointsToDisplay();
 			for (TrkSegment segment : segments) {
-				QuadRect trackBounds = GPXUtilities.calculateBounds(segment.points);
-				if (QuadRect.trivialOverlap(tb.getLatLonBounds(), trackBounds)) {
-					Pair<WptPt, WptPt> points = findPointsNearSegment(tb, segment.points, r, mx, my);
-					if (points != null) {
-						LatLon latLon = tb.getLatLonFromPixel(mx, my);
-						SelectedGpxPoint selectedGpxPoint = createSelectedGpxPoint(selectedGpxFile, points.first, points.second, latLon);
-						res.add(selectedGpxPoint);
-						break;
-					}
+				TIntArrayList edges = pointsIndex.getSegmentEdges(selectedGpxFile, segment, touchBounds);
+				Pair<WptPt, WptPt> points = findPointsNearEdges(tb, segment.points, edges, r, mx, my);
+				if (points != null) {
+					LatLon latLon = tb.getLatLonFromPixel(mx, my);
+					SelectedGpxPoint selectedGpxPoint = createSelectedGpxPoint(selectedGpxFile, points.first, points.second, latLon);
+					res.add(selectedGpxPoint);
+					break;
 				}
 			}
 		}
 	}
 
+	// lat/lon bounds of touch square (map could be rotated) with rounding of pixels
+	private QuadRect getTouchLatLonBounds(RotatedTileBox tb, int x, int y, int r) {
+		QuadRect bounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		int d = r + 1;
+		int[][] corners = {{x - d, y - d}, {x + d, y - d}, {x - d, y + d}, {x + d, y + d}};
+		for (int[] corner : corners) {
+			LatLon latLon = tb.getLatLonFromPixel(corner[0], corner[1]);
+			bounds.left = Math.min(bounds.left, latLon.getLongitude());
+			bounds.right = Math.max(bounds.right, latLon.getLongitude());
+			bounds.top = Math.max(bounds.top, latLon.getLatitude());
+			bounds.bottom = Math.min(bounds.bottom, latLon.getLatitude());
+		}
+		return bounds;
+	}
+
+	// edges (i, i + 1) found by index are checked in order of points as by findPointsNearSegment
+	private static Pair<WptPt, WptPt> findPointsNearEdges(RotatedTileBox tb, List<WptPt> points, TIntArrayList edges,
+	                                                      int r, int mx, int my) {
+		for (int i = 0; i < edges.size(); i++) {
+			int ind = edges.get(i);
+			if (ind + 1 < points.size()) {
+				Pair<WptPt, WptPt> pair = findPointsNearSegment(tb, points.subList(ind, ind + 2), r, mx, my);
+				if (pair != null) {
+					return pair;
+				}
+			}
+		}
+		return null;
+	}
+
 	public static Pair<WptPt, WptPt> findPointsNearSegment(RotatedTileBox tb, List<WptPt> points, int r, int mx, int my) {
 		WptPt prevPoint = points.get(0);
 		int ppx = (int) tb.getPixXFromLatLon(prevPoint.lat, prevPoint.lon);